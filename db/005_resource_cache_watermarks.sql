@@ -0,0 +1,64 @@
+-- Change tracking for ResourceCacheService incremental (delta) refresh.
+-- The cache pulls only resources whose row or progress changed after its
+-- last watermark, plus ids from resource_deletions.
+
+ALTER TABLE resources     ADD COLUMN IF NOT EXISTS updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW();
+ALTER TABLE user_progress ADD COLUMN IF NOT EXISTS updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW();
+
+CREATE TABLE IF NOT EXISTS resource_deletions (
+    resource_id INTEGER NOT NULL,
+    deleted_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_resources_updated_at
+    ON resources (updated_at);
+CREATE INDEX IF NOT EXISTS idx_user_progress_updated_at
+    ON user_progress (updated_at);
+CREATE INDEX IF NOT EXISTS idx_resource_deletions_deleted_at
+    ON resource_deletions (deleted_at);
+
+CREATE OR REPLACE FUNCTION touch_updated_at() RETURNS trigger AS $$
+BEGIN
+    NEW.updated_at := NOW();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Only columns the cache reads; content_vector writes from the indexer do not count.
+DROP TRIGGER IF EXISTS trg_resources_touch ON resources;
+CREATE TRIGGER trg_resources_touch
+    BEFORE UPDATE OF title, link, type, description, tags, ai_summary, community_notes,
+                     course_name, segment_name, topic_name, difficulty, upvotes, downvotes, is_public
+    ON resources
+    FOR EACH ROW EXECUTE FUNCTION touch_updated_at();
+
+-- ON CONFLICT DO UPDATE (markResourceDone) does not change created_at, so progress gets its own column.
+DROP TRIGGER IF EXISTS trg_user_progress_touch ON user_progress;
+CREATE TRIGGER trg_user_progress_touch
+    BEFORE UPDATE ON user_progress
+    FOR EACH ROW EXECUTE FUNCTION touch_updated_at();
+
+-- A deleted progress row changes its resource's aggregates.
+CREATE OR REPLACE FUNCTION touch_resource_on_progress_delete() RETURNS trigger AS $$
+BEGIN
+    UPDATE resources SET updated_at = NOW() WHERE id = OLD.resource_id;
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_user_progress_delete ON user_progress;
+CREATE TRIGGER trg_user_progress_delete
+    AFTER DELETE ON user_progress
+    FOR EACH ROW EXECUTE FUNCTION touch_resource_on_progress_delete();
+
+CREATE OR REPLACE FUNCTION record_resource_deletion() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO resource_deletions (resource_id) VALUES (OLD.id);
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_resources_deletion ON resources;
+CREATE TRIGGER trg_resources_deletion
+    AFTER DELETE ON resources
+    FOR EACH ROW EXECUTE FUNCTION record_resource_deletion();
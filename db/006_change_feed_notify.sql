@@ -0,0 +1,141 @@
+-- Change feed: every row the chat / study-room screens poll for is announced
+-- on the "scholar_changes" channel as {"topic": ..., "row": {...}}.
+-- ChangeFeedService LISTENs and fans events out over /change-feed.
+-- "row" is dropped when the payload would exceed NOTIFY's 8000-byte limit;
+-- subscribers then re-fetch.
+--
+-- Topics:
+--   study_room_chat:<room_id>    new study_room_chat row
+--   study_room_board:<room_id>   room_participants insert/update (no row)
+--   social_group                 new social_messages row
+--   private:<user_id>            new private_messages row (sender and receiver;
+--                                ids only since 013)
+--   user:<user_id>               chat_requests / app_notifications changed (no row)
+--   team_chat:<post_id>          new messages row
+
+CREATE OR REPLACE FUNCTION scholar_notify(topic TEXT, row_json JSONB) RETURNS void AS $$
+DECLARE
+    payload TEXT := json_build_object('topic', topic, 'row', row_json)::text;
+BEGIN
+    IF octet_length(payload) > 7900 THEN
+        payload := json_build_object('topic', topic)::text;
+    END IF;
+    PERFORM pg_notify('scholar_changes', payload);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Study room chat -------------------------------------------------------------
+CREATE OR REPLACE FUNCTION notify_study_room_chat() RETURNS trigger AS $$
+BEGIN
+    PERFORM scholar_notify('study_room_chat:' || NEW.room_id, jsonb_build_object(
+        'id',         NEW.id::text,
+        'user_name',  NEW.user_name,
+        'content',    NEW.content,
+        'created_at', NEW.created_at::text));
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_study_room_chat_notify ON study_room_chat;
+CREATE TRIGGER trg_study_room_chat_notify
+    AFTER INSERT ON study_room_chat
+    FOR EACH ROW EXECUTE FUNCTION notify_study_room_chat();
+
+-- Study room board ------------------------------------------------------------
+CREATE OR REPLACE FUNCTION notify_study_room_board() RETURNS trigger AS $$
+BEGIN
+    PERFORM scholar_notify('study_room_board:' || NEW.room_id, NULL);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_room_participants_notify ON room_participants;
+CREATE TRIGGER trg_room_participants_notify
+    AFTER INSERT OR UPDATE ON room_participants
+    FOR EACH ROW EXECUTE FUNCTION notify_study_room_board();
+
+-- Social zone group chat ------------------------------------------------------
+CREATE OR REPLACE FUNCTION notify_social_message() RETURNS trigger AS $$
+BEGIN
+    PERFORM scholar_notify('social_group', jsonb_build_object(
+        'id',           NEW.id::text,
+        'sender_id',    NEW.sender_id::text,
+        'sender_name',  COALESCE((SELECT username FROM users WHERE id = NEW.sender_id), NEW.sender_name),
+        'content',      NEW.content,
+        'created_at',   NEW.created_at::text,
+        'is_admin_msg', COALESCE(NEW.is_admin_msg, false),
+        'avatar_url',   (SELECT profile_picture_url FROM profiles WHERE user_id = NEW.sender_id)));
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_social_messages_notify ON social_messages;
+CREATE TRIGGER trg_social_messages_notify
+    AFTER INSERT ON social_messages
+    FOR EACH ROW EXECUTE FUNCTION notify_social_message();
+
+-- Private messages ------------------------------------------------------------
+CREATE OR REPLACE FUNCTION notify_private_message() RETURNS trigger AS $$
+DECLARE
+    body JSONB := jsonb_build_object(
+        'id',          NEW.id::text,
+        'sender_id',   NEW.sender_id::text,
+        'receiver_id', NEW.receiver_id::text,
+        'sender_name', COALESCE((SELECT username FROM users WHERE id = NEW.sender_id), NEW.sender_id::text),
+        'content',     NEW.content,
+        'created_at',  NEW.created_at::text,
+        'avatar_url',  (SELECT profile_picture_url FROM profiles WHERE user_id = NEW.sender_id));
+BEGIN
+    PERFORM scholar_notify('private:' || NEW.receiver_id, body);
+    PERFORM scholar_notify('private:' || NEW.sender_id, body);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_private_messages_notify ON private_messages;
+CREATE TRIGGER trg_private_messages_notify
+    AFTER INSERT ON private_messages
+    FOR EACH ROW EXECUTE FUNCTION notify_private_message();
+
+-- Sidebar (requests / notifications) ------------------------------------------
+CREATE OR REPLACE FUNCTION notify_chat_request() RETURNS trigger AS $$
+BEGIN
+    PERFORM scholar_notify('user:' || NEW.receiver_id, NULL);
+    PERFORM scholar_notify('user:' || NEW.sender_id, NULL);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_chat_requests_notify ON chat_requests;
+CREATE TRIGGER trg_chat_requests_notify
+    AFTER INSERT OR UPDATE ON chat_requests
+    FOR EACH ROW EXECUTE FUNCTION notify_chat_request();
+
+CREATE OR REPLACE FUNCTION notify_app_notification() RETURNS trigger AS $$
+BEGIN
+    PERFORM scholar_notify('user:' || NEW.user_id, NULL);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_app_notifications_notify ON app_notifications;
+CREATE TRIGGER trg_app_notifications_notify
+    AFTER INSERT ON app_notifications
+    FOR EACH ROW EXECUTE FUNCTION notify_app_notification();
+
+-- Team chat (collaboration posts) ---------------------------------------------
+CREATE OR REPLACE FUNCTION notify_team_message() RETURNS trigger AS $$
+BEGIN
+    PERFORM scholar_notify('team_chat:' || NEW.post_id, jsonb_build_object(
+        'id',         NEW.id::text,
+        'sender',     (SELECT username FROM users WHERE id = NEW.user_id),
+        'content',    NEW.content,
+        'created_at', NEW.created_at::text));
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_messages_notify ON messages;
+CREATE TRIGGER trg_messages_notify
+    AFTER INSERT ON messages
+    FOR EACH ROW EXECUTE FUNCTION notify_team_message();
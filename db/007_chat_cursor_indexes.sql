@@ -0,0 +1,13 @@
+-- Indexes for the since(cursor) chat fetches.
+-- Every chat refresh now asks only for rows after the last (created_at, id)
+-- it has seen; these keep that a short index range scan per room / post /
+-- conversation instead of sorting the whole table.
+
+CREATE INDEX IF NOT EXISTS idx_study_room_chat_room_created
+    ON study_room_chat (room_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_social_messages_created
+    ON social_messages (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_private_messages_pair_created
+    ON private_messages (sender_id, receiver_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_messages_post_created
+    ON messages (post_id, created_at, id);
@@ -0,0 +1,61 @@
+-- Daily-thread feed: indexes for the single-query feed, incremental
+-- reaction counters, and a change-feed topic for the feed cache.
+--
+-- SocialZoneService.getThreadsByCategory picks the page of threads from an
+-- index range (newest first, per category / author / saver) and checks the
+-- viewer's like / dislike / save with one EXISTS probe per row on the
+-- (thread_id, user_id) keys below. toggleReaction now adjusts
+-- like_count / dislike_count by +1 / -1 instead of recounting.
+
+-- Reactions are one row per (thread, user); the toggle relies on it.
+-- Drop any duplicates left by the old check-then-insert path first.
+DELETE FROM thread_likes a USING thread_likes b
+ WHERE a.thread_id = b.thread_id AND a.user_id = b.user_id AND a.ctid > b.ctid;
+DELETE FROM thread_dislikes a USING thread_dislikes b
+ WHERE a.thread_id = b.thread_id AND a.user_id = b.user_id AND a.ctid > b.ctid;
+DELETE FROM thread_saves a USING thread_saves b
+ WHERE a.thread_id = b.thread_id AND a.user_id = b.user_id AND a.ctid > b.ctid;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_thread_likes_thread_user
+    ON thread_likes (thread_id, user_id);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_thread_dislikes_thread_user
+    ON thread_dislikes (thread_id, user_id);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_thread_saves_thread_user
+    ON thread_saves (thread_id, user_id);
+
+-- Feed pages: HOME, per category, MY_THREADS, SAVED
+CREATE INDEX IF NOT EXISTS idx_daily_threads_created
+    ON daily_threads (created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_daily_threads_category_created
+    ON daily_threads (UPPER(category), created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_daily_threads_user_created
+    ON daily_threads (user_id, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_thread_saves_user_saved
+    ON thread_saves (user_id, saved_at DESC);
+
+-- Counters are maintained incrementally from now on: start from exact values.
+UPDATE daily_threads t SET
+    like_count    = (SELECT COUNT(*) FROM thread_likes    WHERE thread_id = t.id),
+    dislike_count = (SELECT COUNT(*) FROM thread_dislikes WHERE thread_id = t.id);
+
+-- Change feed -----------------------------------------------------------------
+-- Topic:
+--   daily_threads    thread posted / deleted / reaction counts changed
+--                    (row: id, category) → SocialZoneService drops cached feeds
+
+CREATE OR REPLACE FUNCTION notify_daily_thread() RETURNS trigger AS $$
+DECLARE
+    r daily_threads;
+BEGIN
+    IF TG_OP = 'DELETE' THEN r := OLD; ELSE r := NEW; END IF;
+    PERFORM scholar_notify('daily_threads', jsonb_build_object(
+        'id',       r.id::text,
+        'category', UPPER(r.category)));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_daily_threads_notify ON daily_threads;
+CREATE TRIGGER trg_daily_threads_notify
+    AFTER INSERT OR DELETE OR UPDATE OF like_count, dislike_count ON daily_threads
+    FOR EACH ROW EXECUTE FUNCTION notify_daily_thread();
@@ -0,0 +1,68 @@
+-- Poll vote counters and live tallies.
+--
+-- SocialZoneService.castVote keeps poll_options.vote_count up to date
+-- (-1 / +1 in the vote upsert's statement), so getChannelPolls reads all
+-- polls and options of a channel in one query instead of two COUNT(*) per
+-- option. Count changes are pushed on "polls:<channel_id>" so an open poll
+-- list updates in place.
+
+ALTER TABLE poll_options ADD COLUMN IF NOT EXISTS vote_count INT NOT NULL DEFAULT 0;
+
+-- Options used to be listed in heap order; counter updates move rows, so
+-- give them an explicit order. Existing rows are numbered in their current
+-- physical (= insertion) order.
+ALTER TABLE poll_options ADD COLUMN IF NOT EXISTS sort_order BIGSERIAL;
+
+UPDATE poll_options o
+   SET vote_count = (SELECT COUNT(*) FROM poll_votes v WHERE v.option_id = o.id);
+
+CREATE INDEX IF NOT EXISTS idx_channel_polls_channel_created
+    ON channel_polls (channel_id, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_poll_options_poll_order
+    ON poll_options (poll_id, sort_order);
+
+-- Change feed -----------------------------------------------------------------
+-- Topic:
+--   polls:<channel_id>   option vote_count changed (row: poll_id, option_id, vote_count;
+--                        vote_version since 014),
+--                        or a poll / option was added or removed (no row → re-fetch)
+
+CREATE OR REPLACE FUNCTION notify_poll_option() RETURNS trigger AS $$
+DECLARE
+    r poll_options;
+    channel INT;
+BEGIN
+    IF TG_OP = 'DELETE' THEN r := OLD; ELSE r := NEW; END IF;
+    SELECT channel_id INTO channel FROM channel_polls WHERE id = r.poll_id;
+    IF channel IS NULL THEN RETURN NULL; END IF;
+    IF TG_OP = 'UPDATE' THEN
+        PERFORM scholar_notify('polls:' || channel, jsonb_build_object(
+            'poll_id',    r.poll_id::text,
+            'option_id',  r.id::text,
+            'vote_count', r.vote_count));
+    ELSE
+        PERFORM scholar_notify('polls:' || channel, NULL);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_poll_options_notify ON poll_options;
+CREATE TRIGGER trg_poll_options_notify
+    AFTER INSERT OR DELETE OR UPDATE OF vote_count ON poll_options
+    FOR EACH ROW EXECUTE FUNCTION notify_poll_option();
+
+CREATE OR REPLACE FUNCTION notify_channel_poll() RETURNS trigger AS $$
+DECLARE
+    r channel_polls;
+BEGIN
+    IF TG_OP = 'DELETE' THEN r := OLD; ELSE r := NEW; END IF;
+    PERFORM scholar_notify('polls:' || r.channel_id, NULL);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_channel_polls_notify ON channel_polls;
+CREATE TRIGGER trg_channel_polls_notify
+    AFTER INSERT OR DELETE ON channel_polls
+    FOR EACH ROW EXECUTE FUNCTION notify_channel_poll();
@@ -0,0 +1,36 @@
+-- Global leaderboard: change-feed topic and index for the SQL fallback.
+--
+-- LeaderboardService keeps every user's XP and streak ranked in memory.
+-- It reloads users every few minutes; in between, this client's own
+-- addXP / updateStreak feed it from RETURNING and other clients' changes
+-- arrive on the "leaderboard" topic.
+
+-- getGlobalLeaderboard's SQL path (used until the in-memory board has loaded)
+CREATE INDEX IF NOT EXISTS idx_users_xp_streak
+    ON users ((COALESCE(total_xp,0)) DESC, (COALESCE(study_streak,0)) DESC);
+
+-- Change feed -----------------------------------------------------------------
+-- Topic:
+--   leaderboard    a user's XP / streak / name changed
+--                  (row: id, username, total_xp, study_streak),
+--                  or a user was added or removed (no row → reconcile)
+
+CREATE OR REPLACE FUNCTION notify_leaderboard() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' THEN
+        PERFORM scholar_notify('leaderboard', jsonb_build_object(
+            'id',           NEW.id::text,
+            'username',     NEW.username,
+            'total_xp',     COALESCE(NEW.total_xp, 0),
+            'study_streak', COALESCE(NEW.study_streak, 0)));
+    ELSE
+        PERFORM scholar_notify('leaderboard', NULL);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_users_leaderboard_notify ON users;
+CREATE TRIGGER trg_users_leaderboard_notify
+    AFTER INSERT OR DELETE OR UPDATE OF total_xp, study_streak, username ON users
+    FOR EACH ROW EXECUTE FUNCTION notify_leaderboard();
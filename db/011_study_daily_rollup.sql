@@ -0,0 +1,61 @@
+-- Daily study rollup: one row per (user, day, topic) with the minutes studied.
+--
+-- StudyRoomService.saveHistory / saveAnalyticsOnly add to it in the same
+-- statement as the raw insert (abandoned sessions have no topic: ''), and
+-- getTodayStudyMinutes / getWeeklyStats / getTopicStats / updateStreak read
+-- only this table through its primary key instead of re-aggregating
+-- study_history and study_analytics.
+--
+-- "day" is created_at::date in the session time zone, same as the old
+-- created_at::date = CURRENT_DATE filters; run the backfill with the time
+-- zone the app's connections use.
+
+CREATE TABLE IF NOT EXISTS study_daily_rollup (
+    user_id UUID    NOT NULL,
+    day     DATE    NOT NULL,
+    topic   TEXT    NOT NULL DEFAULT '',
+    minutes INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, day, topic)
+);
+
+-- History tab (ORDER BY created_at DESC LIMIT 100) and the raw-table
+-- fallbacks' created_at ranges; study_analytics has its index from 001.
+CREATE INDEX IF NOT EXISTS idx_study_history_user_created
+    ON study_history (user_id, created_at);
+
+-- Backfill / repair ------------------------------------------------------------
+-- Recomputes the rollup from the raw tables for days >= from_day (all days
+-- when NULL). The lock holds off concurrent saveHistory / saveAnalyticsOnly
+-- statements (they also write the rollup) so none is lost or counted twice.
+-- Can be re-run at any time, e.g. SELECT rebuild_study_daily_rollup(CURRENT_DATE - 7);
+
+CREATE OR REPLACE FUNCTION rebuild_study_daily_rollup(from_day DATE DEFAULT NULL)
+RETURNS BIGINT AS $$
+DECLARE
+    n BIGINT;
+BEGIN
+    LOCK TABLE study_daily_rollup IN SHARE ROW EXCLUSIVE MODE;
+
+    DELETE FROM study_daily_rollup WHERE from_day IS NULL OR day >= from_day;
+
+    INSERT INTO study_daily_rollup (user_id, day, topic, minutes)
+    SELECT user_id, day, topic, SUM(mins)::int
+    FROM (
+        SELECT user_id, created_at::date AS day, COALESCE(topic, '') AS topic, completed_time AS mins
+        FROM study_history
+        WHERE user_id IS NOT NULL AND created_at IS NOT NULL
+          AND (from_day IS NULL OR created_at >= from_day)
+        UNION ALL
+        SELECT user_id, created_at::date, '', minutes
+        FROM study_analytics
+        WHERE created_at IS NOT NULL
+          AND (from_day IS NULL OR created_at >= from_day)
+    ) raw
+    GROUP BY user_id, day, topic;
+
+    GET DIAGNOSTICS n = ROW_COUNT;
+    RETURN n;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT rebuild_study_daily_rollup();
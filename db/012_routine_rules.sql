@@ -0,0 +1,62 @@
+-- Weekly routine rules instead of one study_tasks row per class per day.
+--
+-- The admin's routine used to be expanded into ROUTINE rows for the next
+-- 120 days and every student loaded all of them. It is now stored as one
+-- routine_rules row per weekly class (RoutineManager.processVarsitySchedule
+-- / DataService.saveRoutineRules); RoutineSchedule expands just the days the
+-- timeline and calendar show and leaves out class-off days at that point.
+-- Deleting a single class day adds it to skipped_dates.
+--
+-- DataService also creates the table on first use; this script additionally
+-- folds the existing ROUTINE rows into rules and deletes them.
+
+CREATE TABLE IF NOT EXISTS routine_rules (
+    id BIGSERIAL PRIMARY KEY,
+    channel_id INT NOT NULL,
+    title TEXT,
+    day_of_week TEXT NOT NULL,
+    start_time TEXT,
+    duration_minutes INT,
+    room_no TEXT,
+    description TEXT,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    skipped_dates DATE[] NOT NULL DEFAULT '{}',
+    created_by UUID,
+    created_at TIMESTAMPTZ DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_routine_rules_channel_end
+    ON routine_rules (channel_id, end_date);
+
+-- Existing ROUTINE rows → rules ------------------------------------------------
+-- One rule per (channel, class, weekday, time, room, description); its span is
+-- the first..last stored day and any weekly day missing in between (deleted by
+-- the admin) becomes a skipped date.
+
+BEGIN;
+
+WITH g AS (
+    SELECT channel_id, title, EXTRACT(ISODOW FROM task_date) AS dow,
+           start_time, duration_minutes, room_no, description,
+           MIN(user_id::text)::uuid AS created_by,
+           MIN(task_date) AS first_day, MAX(task_date) AS last_day,
+           array_agg(DISTINCT task_date) AS days
+    FROM study_tasks
+    WHERE type = 'ROUTINE' AND channel_id IS NOT NULL AND task_date IS NOT NULL
+    GROUP BY channel_id, title, EXTRACT(ISODOW FROM task_date),
+             start_time, duration_minutes, room_no, description
+)
+INSERT INTO routine_rules (channel_id, title, day_of_week, start_time, duration_minutes,
+                           room_no, description, start_date, end_date, skipped_dates, created_by)
+SELECT channel_id, title, UPPER(TRIM(to_char(first_day, 'Day'))), start_time, duration_minutes,
+       room_no, description, first_day, last_day,
+       ARRAY(SELECT d::date FROM generate_series(first_day, last_day, INTERVAL '7 days') d
+             WHERE d::date <> ALL (days)),
+       created_by
+FROM g;
+
+DELETE FROM study_tasks
+WHERE type = 'ROUTINE' AND channel_id IS NOT NULL AND task_date IS NOT NULL;
+
+COMMIT;
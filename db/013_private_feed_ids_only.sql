@@ -0,0 +1,24 @@
+-- Private message change feed: ids only.
+--
+-- 006 put the whole private_messages row (content, sender name, avatar) on
+-- the "private:<user_id>" topics, and the feed fans payloads out over a
+-- WebSocket. Events now carry only what a client needs to route them;
+-- SocialZoneController re-fetches the message through
+-- getPrivateMessagesSince(), which only returns the signed-in user's own
+-- conversations.
+--
+-- Topic:
+--   private:<user_id>   new private_messages row (row: id, sender_id, receiver_id)
+
+CREATE OR REPLACE FUNCTION notify_private_message() RETURNS trigger AS $$
+DECLARE
+    body JSONB := jsonb_build_object(
+        'id',          NEW.id::text,
+        'sender_id',   NEW.sender_id::text,
+        'receiver_id', NEW.receiver_id::text);
+BEGIN
+    PERFORM scholar_notify('private:' || NEW.receiver_id, body);
+    PERFORM scholar_notify('private:' || NEW.sender_id, body);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,33 @@
+-- Poll option count versions.
+--
+-- castVote's RETURNING counts and the "polls:<channel_id>" events for the
+-- same option can reach a client in either order, so a bare count cannot
+-- tell which one is newer. vote_version goes up by one with every change of
+-- vote_count (under the row lock), and PollTallies keeps the count with the
+-- highest version it has seen.
+--
+-- Topic:
+--   polls:<channel_id>   row: poll_id, option_id, vote_count, vote_version
+
+ALTER TABLE poll_options ADD COLUMN IF NOT EXISTS vote_version BIGINT NOT NULL DEFAULT 0;
+
+CREATE OR REPLACE FUNCTION notify_poll_option() RETURNS trigger AS $$
+DECLARE
+    r poll_options;
+    channel INT;
+BEGIN
+    IF TG_OP = 'DELETE' THEN r := OLD; ELSE r := NEW; END IF;
+    SELECT channel_id INTO channel FROM channel_polls WHERE id = r.poll_id;
+    IF channel IS NULL THEN RETURN NULL; END IF;
+    IF TG_OP = 'UPDATE' THEN
+        PERFORM scholar_notify('polls:' || channel, jsonb_build_object(
+            'poll_id',      r.poll_id::text,
+            'option_id',    r.id::text,
+            'vote_count',   r.vote_count,
+            'vote_version', r.vote_version));
+    ELSE
+        PERFORM scholar_notify('polls:' || channel, NULL);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,109 @@
+-- Before/after timings for the study-room stats (db/011) on 1M history rows.
+--
+-- Builds a throw-away schema "rollup_bench" with study_history and
+-- study_analytics, seeds 1M completed sessions and 200k abandoned ones for
+-- 2k users over 365 days (~500 sessions per user), then runs EXPLAIN ANALYZE
+-- for the viewer's today / weekly / topic stats
+--   1) the old UNION queries (created_at::date = CURRENT_DATE), with only
+--      the (user_id, created_at) index from 001
+--   2) the study_daily_rollup queries, after the backfill.
+-- Also times the backfill itself and one saveHistory insert + rollup upsert.
+-- Drops the schema at the end. Does not touch the real tables.
+--
+--   psql "$DATABASE_URL" -f db/bench/study_rollup_1m.sql     (from the repo root)
+
+\timing on
+DROP SCHEMA IF EXISTS rollup_bench CASCADE;
+CREATE SCHEMA rollup_bench;
+SET search_path = rollup_bench, public;
+
+CREATE TABLE study_history (
+    id BIGSERIAL PRIMARY KEY, user_id UUID NOT NULL, room_id UUID,
+    topic TEXT, task TEXT, planned_time INT, completed_time INT, earned_xp INT,
+    created_at TIMESTAMPTZ DEFAULT NOW());
+CREATE TABLE study_analytics (
+    id BIGSERIAL PRIMARY KEY, user_id UUID NOT NULL, minutes INT NOT NULL,
+    created_at TIMESTAMPTZ DEFAULT NOW());
+CREATE INDEX ON study_analytics (user_id, created_at);
+
+CREATE TEMP TABLE u AS
+SELECT gen_random_uuid() AS id, g AS n FROM generate_series(1, 2000) g;
+
+INSERT INTO study_history (user_id, topic, task, planned_time, completed_time, earned_xp, created_at)
+SELECT u.id,
+       (ARRAY['Math','Physics','Chemistry','CSE 101','Data Structures','Algorithms',
+              'Circuits','English','Economics','Statistics'])[1 + g % 10],
+       'task', 25, 5 + g % 55, 10,
+       NOW() - (g % 525600) * INTERVAL '1 minute'
+FROM generate_series(1, 1000000) g JOIN u ON u.n = 1 + (g * 7919) % 2000;
+
+INSERT INTO study_analytics (user_id, minutes, created_at)
+SELECT u.id, 1 + g % 20, NOW() - (g % 525600) * INTERVAL '1 minute'
+FROM generate_series(1, 200000) g JOIN u ON u.n = 1 + (g * 104729) % 2000;
+ANALYZE;
+
+SELECT id AS me FROM u WHERE n = 42 \gset
+
+-- 1) BEFORE ------------------------------------------------------------------
+\echo '== before: today'
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+SELECT COALESCE(SUM(mins), 0) FROM (
+  SELECT completed_time AS mins FROM study_history
+  WHERE user_id = :'me'::uuid AND created_at::date = CURRENT_DATE
+  UNION ALL
+  SELECT minutes AS mins FROM study_analytics
+  WHERE user_id = :'me'::uuid AND created_at::date = CURRENT_DATE) t;
+
+\echo '== before: weekly'
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+SELECT to_char(dt, 'Dy') AS day_name, COALESCE(SUM(mins), 0) AS total
+FROM (
+  SELECT created_at AS dt, completed_time AS mins FROM study_history
+  WHERE user_id = :'me'::uuid AND created_at >= CURRENT_DATE - INTERVAL '6 days'
+  UNION ALL
+  SELECT created_at AS dt, minutes AS mins FROM study_analytics
+  WHERE user_id = :'me'::uuid AND created_at >= CURRENT_DATE - INTERVAL '6 days') t
+GROUP BY DATE(dt), day_name ORDER BY DATE(dt) ASC;
+
+\echo '== before: topics'
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+SELECT topic, SUM(completed_time) AS mins FROM study_history
+WHERE user_id = :'me'::uuid AND topic IS NOT NULL AND topic <> ''
+GROUP BY topic ORDER BY mins DESC LIMIT 8;
+
+-- 2) AFTER (db/011) ----------------------------------------------------------
+\echo '== backfill'
+\i db/011_study_daily_rollup.sql
+ANALYZE;
+
+\echo '== after: today'
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+SELECT (SELECT COALESCE(SUM(minutes),0) FROM study_daily_rollup
+        WHERE user_id = :'me'::uuid AND day = CURRENT_DATE);
+
+\echo '== after: weekly'
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+SELECT to_char(day, 'Dy') AS day_name, SUM(minutes) AS total FROM study_daily_rollup
+WHERE user_id = :'me'::uuid AND day BETWEEN CURRENT_DATE - 6 AND CURRENT_DATE
+GROUP BY day ORDER BY day;
+
+\echo '== after: topics'
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+SELECT topic, SUM(minutes) AS mins FROM study_daily_rollup
+WHERE user_id = :'me'::uuid AND topic <> ''
+GROUP BY topic ORDER BY mins DESC LIMIT 8;
+
+\echo '== after: saveHistory insert + rollup upsert'
+BEGIN;
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+WITH r AS (
+    INSERT INTO study_history (user_id, topic, task, planned_time, completed_time, earned_xp)
+    VALUES (:'me'::uuid, 'Math', 'bench', 25, 25, 10)
+    RETURNING user_id, created_at, topic AS topic, completed_time AS minutes)
+INSERT INTO study_daily_rollup (user_id, day, topic, minutes)
+SELECT user_id, created_at::date, COALESCE(topic, ''), minutes FROM r
+ON CONFLICT (user_id, day, topic) DO UPDATE SET minutes = study_daily_rollup.minutes + EXCLUDED.minutes;
+ROLLBACK;
+
+RESET search_path;
+DROP SCHEMA rollup_bench CASCADE;
@@ -0,0 +1,135 @@
+-- Before/after timings for the daily-thread feed (db/008) on 50k threads.
+--
+-- Builds a throw-away schema "feed_bench" with the feed tables, seeds
+-- 50k threads over 7 days (≈ 7k in the last 24 h), 5k users, 200k likes,
+-- 40k dislikes and 20k saves, then runs EXPLAIN ANALYZE for
+--   1) the old feed query (three correlated COUNT(*) per row) and the old
+--      toggle's two COUNT(*) recounts, without the 008 indexes
+--   2) the new page-first feed query and the +1/-1 counter update, with them.
+-- Drops the schema at the end. Does not touch the real tables.
+--
+--   psql "$DATABASE_URL" -f db/bench/thread_feed_50k.sql
+
+\timing on
+DROP SCHEMA IF EXISTS feed_bench CASCADE;
+CREATE SCHEMA feed_bench;
+SET search_path = feed_bench, public;
+
+CREATE TABLE users    (id UUID PRIMARY KEY, username TEXT);
+CREATE TABLE profiles (user_id UUID PRIMARY KEY, profile_picture_url TEXT);
+CREATE TABLE daily_threads (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(), user_id UUID NOT NULL,
+    content_text TEXT, media_url TEXT, photo_url TEXT, category TEXT,
+    like_count INT DEFAULT 0, dislike_count INT DEFAULT 0, created_at TIMESTAMPTZ NOT NULL);
+CREATE TABLE thread_likes    (thread_id UUID, user_id UUID, created_at TIMESTAMPTZ DEFAULT NOW());
+CREATE TABLE thread_dislikes (thread_id UUID, user_id UUID, created_at TIMESTAMPTZ DEFAULT NOW());
+CREATE TABLE thread_saves    (thread_id UUID, user_id UUID, saved_at  TIMESTAMPTZ DEFAULT NOW());
+
+INSERT INTO users SELECT gen_random_uuid(), 'user' || g FROM generate_series(1, 5000) g;
+INSERT INTO profiles SELECT id, 'https://example.invalid/' || username || '.png' FROM users;
+CREATE TEMP TABLE u AS SELECT id, row_number() OVER () AS n FROM users;
+
+INSERT INTO daily_threads (user_id, content_text, media_url, photo_url, category, created_at)
+SELECT u.id, repeat('thread text ', 10), '', '',
+       (ARRAY['PUBLIC','CSE','EEE','BBA','MEME'])[1 + g % 5],
+       NOW() - (g % 10080) * INTERVAL '1 minute'
+FROM generate_series(1, 50000) g JOIN u ON u.n = 1 + (g * 7919) % 5000;
+CREATE TEMP TABLE t AS SELECT id, row_number() OVER () AS n FROM daily_threads;
+
+INSERT INTO thread_likes (thread_id, user_id)
+SELECT DISTINCT t.id, u.id FROM generate_series(1, 200000) g
+JOIN t ON t.n = 1 + (g * 31) % 50000 JOIN u ON u.n = 1 + (g * 17) % 5000;
+INSERT INTO thread_dislikes (thread_id, user_id)
+SELECT DISTINCT t.id, u.id FROM generate_series(1, 40000) g
+JOIN t ON t.n = 1 + (g * 37) % 50000 JOIN u ON u.n = 1 + (g * 13) % 5000;
+INSERT INTO thread_saves (thread_id, user_id)
+SELECT DISTINCT t.id, u.id FROM generate_series(1, 20000) g
+JOIN t ON t.n = 1 + (g * 41) % 50000 JOIN u ON u.n = 1 + (g * 11) % 5000;
+UPDATE daily_threads d SET
+    like_count    = (SELECT COUNT(*) FROM thread_likes    WHERE thread_id = d.id),
+    dislike_count = (SELECT COUNT(*) FROM thread_dislikes WHERE thread_id = d.id);
+ANALYZE;
+
+-- Viewer and a thread to react to
+SELECT id AS me FROM u WHERE n = 42 \gset
+SELECT id AS tid FROM daily_threads ORDER BY created_at DESC LIMIT 1 \gset
+
+-- 1) BEFORE ------------------------------------------------------------------
+\echo '== before: HOME feed'
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+SELECT t.id, t.user_id, u.username, p.profile_picture_url, t.content_text, t.media_url, t.photo_url, t.category,
+       COALESCE(t.like_count,0), COALESCE(t.dislike_count,0), t.created_at
+     , (SELECT COUNT(*) FROM thread_likes    l WHERE l.thread_id=t.id AND l.user_id=:'me'::uuid) AS liked_by_me
+     , (SELECT COUNT(*) FROM thread_dislikes d WHERE d.thread_id=t.id AND d.user_id=:'me'::uuid) AS disliked_by_me
+     , (SELECT COUNT(*) FROM thread_saves    s WHERE s.thread_id=t.id AND s.user_id=:'me'::uuid) AS saved_by_me
+FROM daily_threads t JOIN users u ON t.user_id = u.id LEFT JOIN profiles p ON t.user_id = p.user_id
+WHERE t.created_at >= NOW() - INTERVAL '24 hours' ORDER BY t.created_at DESC LIMIT 100;
+
+\echo '== before: CSE feed'
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+SELECT t.id, t.user_id, u.username, p.profile_picture_url, t.content_text, t.media_url, t.photo_url, t.category,
+       COALESCE(t.like_count,0), COALESCE(t.dislike_count,0), t.created_at
+     , (SELECT COUNT(*) FROM thread_likes    l WHERE l.thread_id=t.id AND l.user_id=:'me'::uuid) AS liked_by_me
+     , (SELECT COUNT(*) FROM thread_dislikes d WHERE d.thread_id=t.id AND d.user_id=:'me'::uuid) AS disliked_by_me
+     , (SELECT COUNT(*) FROM thread_saves    s WHERE s.thread_id=t.id AND s.user_id=:'me'::uuid) AS saved_by_me
+FROM daily_threads t JOIN users u ON t.user_id = u.id LEFT JOIN profiles p ON t.user_id = p.user_id
+WHERE UPPER(t.category)='CSE' AND t.created_at >= NOW() - INTERVAL '24 hours' ORDER BY t.created_at DESC LIMIT 100;
+
+\echo '== before: reaction recount'
+BEGIN;
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+UPDATE daily_threads SET
+  like_count    = (SELECT COUNT(*) FROM thread_likes    WHERE thread_id=:'tid'::uuid),
+  dislike_count = (SELECT COUNT(*) FROM thread_dislikes WHERE thread_id=:'tid'::uuid)
+WHERE id = :'tid'::uuid;
+ROLLBACK;
+
+-- 2) AFTER (same indexes as db/008) ------------------------------------------
+CREATE UNIQUE INDEX ON thread_likes    (thread_id, user_id);
+CREATE UNIQUE INDEX ON thread_dislikes (thread_id, user_id);
+CREATE UNIQUE INDEX ON thread_saves    (thread_id, user_id);
+CREATE INDEX ON daily_threads (created_at DESC);
+CREATE INDEX ON daily_threads (UPPER(category), created_at DESC);
+CREATE INDEX ON daily_threads (user_id, created_at DESC);
+CREATE INDEX ON thread_saves (user_id, saved_at DESC);
+ANALYZE;
+
+\echo '== after: HOME feed'
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+WITH page AS (
+    SELECT t.*, t.created_at AS sort_key FROM daily_threads t
+    WHERE t.created_at >= NOW() - INTERVAL '24 hours'
+    ORDER BY t.created_at DESC LIMIT 100)
+SELECT t.id, t.user_id, u.username, p.profile_picture_url, t.content_text, t.media_url, t.photo_url, t.category,
+       COALESCE(t.like_count,0), COALESCE(t.dislike_count,0), t.created_at,
+       EXISTS (SELECT 1 FROM thread_likes    l WHERE l.thread_id=t.id AND l.user_id=:'me'::uuid),
+       EXISTS (SELECT 1 FROM thread_dislikes d WHERE d.thread_id=t.id AND d.user_id=:'me'::uuid),
+       EXISTS (SELECT 1 FROM thread_saves    s WHERE s.thread_id=t.id AND s.user_id=:'me'::uuid)
+FROM page t JOIN users u ON t.user_id = u.id LEFT JOIN profiles p ON t.user_id = p.user_id
+ORDER BY t.sort_key DESC;
+
+\echo '== after: CSE feed'
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+WITH page AS (
+    SELECT t.*, t.created_at AS sort_key FROM daily_threads t
+    WHERE UPPER(t.category) = 'CSE' AND t.created_at >= NOW() - INTERVAL '24 hours'
+    ORDER BY t.created_at DESC LIMIT 100)
+SELECT t.id, t.user_id, u.username, p.profile_picture_url, t.content_text, t.media_url, t.photo_url, t.category,
+       COALESCE(t.like_count,0), COALESCE(t.dislike_count,0), t.created_at,
+       EXISTS (SELECT 1 FROM thread_likes    l WHERE l.thread_id=t.id AND l.user_id=:'me'::uuid),
+       EXISTS (SELECT 1 FROM thread_dislikes d WHERE d.thread_id=t.id AND d.user_id=:'me'::uuid),
+       EXISTS (SELECT 1 FROM thread_saves    s WHERE s.thread_id=t.id AND s.user_id=:'me'::uuid)
+FROM page t JOIN users u ON t.user_id = u.id LEFT JOIN profiles p ON t.user_id = p.user_id
+ORDER BY t.sort_key DESC;
+
+\echo '== after: reaction +1/-1'
+BEGIN;
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+UPDATE daily_threads SET
+  like_count    = GREATEST(COALESCE(like_count,0)    + 1, 0),
+  dislike_count = GREATEST(COALESCE(dislike_count,0) + 0, 0)
+WHERE id = :'tid'::uuid;
+ROLLBACK;
+
+RESET search_path;
+DROP SCHEMA feed_bench CASCADE;
@@ -1,20 +1,159 @@
 package com.scholar.config;
 
+import com.scholar.util.AudioFrame;
+import com.scholar.util.AudioMixer;
+import com.scholar.util.LatencyHistogram;
+import com.scholar.util.VoiceCodec;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
 import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
+/**
+ * AudioWebSocketHandler — per-room audio relay.
+ *
+ * Every session writes through its own SessionOutbox (bounded, drop-oldest,
+ * one writer at a time on a virtual thread), so fan-out from a speaker's
+ * I/O thread only enqueues and one slow listener cannot stall the room.
+ * Per-room frames in / sent / dropped, queue depth and enqueue→written
+ * latency are exposed via stats() (GET /api/audio/metrics).
+ *
+ * Mixing mode: a client that connects with mix=1 gets no forwarded frames;
+ * instead the room's RoomMixer sends it one 20 ms stream of everyone else,
+ * so its downstream no longer grows with room size. Others keep the raw
+ * relay; both kinds can share a room.
+ *
+ * Framed mode: a client that connects with framed=1 sends and receives
+ * AudioFrame-headed frames (seq, capture timestamp, source). The relay
+ * stamps each framed sender's room-unique source id into the header and
+ * translates between framed and raw peers, so old clients keep working.
+ *
+ * Codec: framed clients may offer codec=adpcm,ulaw,... ; the relay picks
+ * the first VoiceCodec it supports (pcm otherwise, and always for raw
+ * clients) and confirms with a CODEC:<name> text message. Frames pass
+ * through untouched between peers of the same format; otherwise they are
+ * transcoded once per target format per frame.
+ */
 @Component
 public class AudioWebSocketHandler extends AbstractWebSocketHandler {
 
-    private static final Map<String, List<WebSocketSession>> rooms = new ConcurrentHashMap<>();
+    /** ~320 ms of 20 ms frames (~0.5 s for legacy 32 ms frames); older frames are dropped beyond this. */
+    private static final int OUTBOUND_FRAMES = 16;
+    private static final String OUTBOX = "outbox";
+    private static final String MIX    = "mix";
+    private static final String PEER   = "peer";
+    private static final int MAX_FRAME_BYTES = 8 * 1024;
+
+    private static final Logger LOG = Logger.getLogger(AudioWebSocketHandler.class.getName());
+    private static final long TICK_WARN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final Map<String, Room> rooms = new ConcurrentHashMap<>();
+
+    private final ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService mixClock = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "audio-mixer");
+        t.setDaemon(true);
+        t.setPriority(Thread.MAX_PRIORITY);
+        return t;
+    });
+
+    // mix clock thread only: throttles mixTick failure warnings
+    private long tickFailures;
+    private long lastTickWarnNanos;
+
+    public AudioWebSocketHandler() {
+        mixClock.scheduleAtFixedRate(this::mixTick, AudioMixer.FRAME_MS, AudioMixer.FRAME_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public record RoomStats(int sessions, long framesIn, long framesSent, long framesDropped,
+                            long sendFailures, int queuedFrames, int maxQueuedFrames,
+                            int mixListeners, long framesMixed,
+                            LatencyHistogram.Snapshot sendLatency) {}
+
+    private static final class Room {
+        final List<SessionOutbox>   members  = new CopyOnWriteArrayList<>();
+        final SessionOutbox.Metrics metrics  = new SessionOutbox.Metrics();
+        final LongAdder             framesIn = new LongAdder();
+        final AtomicInteger         maxDepth = new AtomicInteger();
+        final RoomMixer             mixer    = new RoomMixer(OUTBOUND_FRAMES);
+        final AtomicInteger         nextSource = new AtomicInteger();
+    }
+
+    /** Per-session wire format and header state; render scratch is only used on that session's inbound thread. */
+    private static final class Peer {
+        final int                source;
+        final boolean            framed;
+        final VoiceCodec.Format  format;
+        int  seq;        // for raw senders: the seq/ts the relay puts on their frames
+        long timestamp;
+
+        private final VoiceCodec   decoder;
+        private final VoiceCodec[] encoders = new VoiceCodec[VoiceCodec.Format.values().length];
+        private final byte[]       pcm      = new byte[MAX_FRAME_BYTES];
+        private final byte[]       encoded  = new byte[MAX_FRAME_BYTES];
+        private byte[]             decodedFrom;
+        private int                pcmLength;
+
+        Peer(int source, boolean framed, VoiceCodec.Format format) {
+            this.source = source;
+            this.framed = framed;
+            this.format = format;
+            this.decoder = format.newCodec();
+        }
+
+        /** Index into the per-frame variant cache: one rendering per (format, framed). */
+        int variant() {
+            return format.ordinal() * 2 + (framed ? 1 : 0);
+        }
+
+        /** This peer's frame re-encoded and re-headed the way `to` expects it; decodes at most once per frame. */
+        byte[] render(byte[] frame, Peer to) {
+            int in = framed ? AudioFrame.HEADER_BYTES : 0;
+            byte[] src = frame;
+            int off = in, len = frame.length - in;
+            if (to.format != format) {
+                if (decodedFrom != frame) {
+                    pcmLength = decoder.decode(frame, in, Math.min(len, decoder.maxEncodedBytes(pcm.length)), pcm, 0);
+                    decodedFrom = frame;
+                }
+                VoiceCodec encoder = encoders[to.format.ordinal()];
+                if (encoder == null) encoder = encoders[to.format.ordinal()] = to.format.newCodec();
+                len = encoder.encode(pcm, 0, pcmLength, encoded, 0);
+                src = encoded;
+                off = 0;
+            }
+            int head = to.framed ? AudioFrame.HEADER_BYTES : 0;
+            byte[] out = new byte[head + len];
+            if (to.framed) {
+                if (framed) System.arraycopy(frame, 0, out, 0, AudioFrame.HEADER_BYTES);
+                else AudioFrame.writeHeader(out, 0, source, seq, timestamp);
+            }
+            System.arraycopy(src, off, out, head, len);
+            return out;
+        }
+
+        /** Raw senders have no clock of their own: one seq and its samples per frame received. */
+        void advance(int pcmBytes) {
+            seq = (seq + 1) & 0xFFFF;
+            timestamp += pcmBytes / 2;
+        }
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
@@ -27,8 +166,22 @@ public class AudioWebSocketHandler extends AbstractWebSocketHandler {
 
             session.getAttributes().put("roomId", roomId);
             session.getAttributes().put("userName", userName);
+            boolean mix = query.contains("mix=1");
+            session.getAttributes().put(MIX, mix);
+            boolean framed = query.contains("framed=1");
+            VoiceCodec.Format format = framed ? VoiceCodec.Format.negotiate(param(params, "codec")) : VoiceCodec.Format.PCM;
 
-            rooms.computeIfAbsent(roomId, k -> new CopyOnWriteArrayList<>()).add(session);
+            rooms.compute(roomId, (k, room) -> {
+                if (room == null) room = new Room();
+                SessionOutbox outbox = new SessionOutbox(session, room.metrics, writers, OUTBOUND_FRAMES);
+                session.getAttributes().put(OUTBOX, outbox);
+                // 0 means "server mix" in the header, so speakers count from 1 (wraps at 65535)
+                session.getAttributes().put(PEER, new Peer(room.nextSource.getAndIncrement() % 0xFFFF + 1, framed, format));
+                if (framed) outbox.offerControl(new TextMessage("CODEC:" + format.wireName));
+                room.members.add(outbox);
+                room.mixer.add(outbox, mix, framed, format);
+                return room;
+            });
             System.out.println("🎙️ " + userName + " joined Audio Room: " + roomId);
 
             // নতুন কেউ আসলে সবাইকে আপডেট লিস্ট পাঠিয়ে দেওয়া
@@ -37,46 +190,113 @@ public class AudioWebSocketHandler extends AbstractWebSocketHandler {
     }
 
     @Override
-    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws IOException {
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
         String roomId = (String) session.getAttributes().get("roomId");
-        List<WebSocketSession> roomSessions = rooms.get(roomId);
+        Room room = roomId != null ? rooms.get(roomId) : null;
+        if (room == null) return;
+        room.framesIn.increment();
 
-        if (roomSessions != null) {
-            for (WebSocketSession s : roomSessions) {
-                if (s.isOpen() && !session.getId().equals(s.getId())) {
-                    s.sendMessage(message);
-                }
+        // One copy per frame (the container may reuse its buffer); one rendering per receiver variant
+        ByteBuffer payload = message.getPayload();
+        Peer from = (Peer) session.getAttributes().get(PEER);
+        if (from.framed && !AudioFrame.isFramed(payload)) return;
+        byte[] frame = new byte[payload.remaining()];
+        payload.get(frame);
+        if (from.framed) AudioFrame.stampSource(frame, from.source);
+        byte[][] variants = new byte[VoiceCodec.Format.values().length * 2][];
+        variants[from.variant()] = frame;
+
+        for (SessionOutbox out : room.members) {
+            Map<String, Object> attrs = out.session().getAttributes();
+            if (out.session() == session || Boolean.TRUE.equals(attrs.get(MIX))) continue;
+            Peer to = (Peer) attrs.get(PEER);
+            byte[] bytes = variants[to.variant()];
+            if (bytes == null) bytes = variants[to.variant()] = from.render(frame, to);
+            out.offerAudio(new BinaryMessage(bytes));
+            room.maxDepth.accumulateAndGet(out.depth(), Math::max);
+        }
+        if (!from.framed) from.advance(frame.length);
+        if (room.mixer.hasListeners()) {
+            room.mixer.feed((SessionOutbox) session.getAttributes().get(OUTBOX), ByteBuffer.wrap(frame));
+        }
+    }
+
+    private static String param(String[] params, String name) {
+        for (String p : params) {
+            if (p.startsWith(name + "=")) return p.substring(name.length() + 1);
+        }
+        return null;
+    }
+
+    private void mixTick() {
+        try {
+            for (Room room : rooms.values()) {
+                if (room.mixer.hasListeners()) room.mixer.tick();
             }
+        } catch (RuntimeException e) {
+            warnTickFailure(e);   // never let an exception cancel the clock
         }
     }
 
+    /** A failing tick repeats every 20 ms: log at most one warning per 10 s, with the count since the last one. */
+    private void warnTickFailure(RuntimeException e) {
+        tickFailures++;
+        long now = System.nanoTime();
+        if (lastTickWarnNanos != 0 && now - lastTickWarnNanos < TICK_WARN_INTERVAL_NANOS) return;
+        LOG.log(Level.WARNING, "Audio mix tick failed (" + tickFailures + "x since last report)", e);
+        tickFailures = 0;
+        lastTickWarnNanos = now;
+    }
+
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         String roomId = (String) session.getAttributes().get("roomId");
-        if (roomId != null && rooms.containsKey(roomId)) {
-            rooms.get(roomId).remove(session);
+        Room room = roomId != null ? rooms.get(roomId) : null;
+        if (room != null) {
+            SessionOutbox outbox = (SessionOutbox) session.getAttributes().get(OUTBOX);
+            room.members.remove(outbox);
+            room.mixer.remove(outbox);
+            rooms.computeIfPresent(roomId, (k, r) -> r.members.isEmpty() ? null : r);
             // কেউ লিভ নিলে আবার সবাইকে আপডেট লিস্ট পাঠানো
             broadcastActiveUsers(roomId);
         }
     }
 
+    /** Per-room relay metrics, sorted by room id. */
+    public Map<String, RoomStats> stats() {
+        Map<String, RoomStats> out = new TreeMap<>();
+        rooms.forEach((id, room) -> out.put(id, new RoomStats(
+            room.members.size(),
+            room.framesIn.sum(),
+            room.metrics.framesSent.sum(),
+            room.metrics.framesDropped.sum(),
+            room.metrics.sendFailures.sum(),
+            room.members.stream().mapToInt(SessionOutbox::depth).sum(),
+            room.maxDepth.get(),
+            room.mixer.listenerCount(),
+            room.mixer.framesMixed.sum(),
+            room.metrics.sendLatency.snapshot())));
+        return out;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        mixClock.shutdownNow();
+        writers.shutdownNow();
+    }
+
     // 🌟 এই মেথডটি রুমে থাকা সব ইউজারের নাম সবাইকে পাঠায়
     private void broadcastActiveUsers(String roomId) {
-        List<WebSocketSession> roomSessions = rooms.get(roomId);
-        if (roomSessions == null) return;
+        Room room = rooms.get(roomId);
+        if (room == null) return;
 
-        String activeUsers = roomSessions.stream()
+        String activeUsers = room.members.stream()
+                .map(SessionOutbox::session)
                 .filter(WebSocketSession::isOpen)
                 .map(s -> (String) s.getAttributes().get("userName"))
                 .collect(Collectors.joining(", "));
 
         TextMessage msg = new TextMessage("USERS:" + activeUsers);
-        for (WebSocketSession s : roomSessions) {
-            if (s.isOpen()) {
-                try {
-                    s.sendMessage(msg);
-                } catch (IOException e) { e.printStackTrace(); }
-            }
-        }
+        for (SessionOutbox out : room.members) out.offerControl(msg);
     }
-}
\ No newline at end of file
+}
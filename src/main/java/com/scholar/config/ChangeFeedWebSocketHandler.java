@@ -0,0 +1,123 @@
+package com.scholar.config;
+
+import com.scholar.service.AuthService;
+import com.scholar.service.ChangeFeedService;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * ChangeFeedWebSocketHandler — per-topic fan-out of ChangeFeedService events.
+ *
+ * Protocol (text frames):
+ *   client → "SUB:<topic>" / "UNSUB:<topic>"
+ *   server → the NOTIFY payload JSON, only for subscribed topics
+ *   server → "STATUS:LIVE" / "STATUS:DEGRADED" on connect and on every change
+ *
+ * Sessions are wrapped in ConcurrentWebSocketSessionDecorator so the
+ * listener thread never blocks on a slow client.
+ *
+ * private:<id> and user:<id> carry one user's data, so only the signed-in
+ * user's own ids may be subscribed (checked again on delivery, in case the
+ * user signed out). The endpoint only accepts loopback connections without
+ * a browser Origin (WebSocketConfig).
+ */
+@Component
+public class ChangeFeedWebSocketHandler extends TextWebSocketHandler implements ChangeFeedService.Sink {
+
+    private static final int SEND_TIME_LIMIT_MS = 5_000;
+    private static final int BUFFER_LIMIT_BYTES = 256 * 1024;
+
+    private static final Logger LOG = Logger.getLogger(ChangeFeedWebSocketHandler.class.getName());
+
+    private final ChangeFeedService feed;
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sessionIdsByTopic = new ConcurrentHashMap<>();
+
+    public ChangeFeedWebSocketHandler(ChangeFeedService feed) {
+        this.feed = feed;
+        feed.addSink(this);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        WebSocketSession safe = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, BUFFER_LIMIT_BYTES);
+        sessions.put(session.getId(), safe);
+        send(safe, status(feed.isLive()));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        String text = message.getPayload();
+        if (text.startsWith("SUB:")) {
+            String topic = text.substring(4);
+            if (!mayReceive(topic, AuthService.CURRENT_USER_ID)) {
+                LOG.warning("Change feed: refused SUB for another user's topic " + topic);
+                return;
+            }
+            sessionIdsByTopic.computeIfAbsent(topic, k -> ConcurrentHashMap.newKeySet()).add(session.getId());
+        } else if (text.startsWith("UNSUB:")) {
+            Set<String> ids = sessionIdsByTopic.get(text.substring(6));
+            if (ids != null) ids.remove(session.getId());
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        sessions.remove(session.getId());
+        sessionIdsByTopic.values().forEach(ids -> ids.remove(session.getId()));
+        sessionIdsByTopic.values().removeIf(Set::isEmpty);
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // ChangeFeedService.Sink
+    // ──────────────────────────────────────────────────────────────
+
+    @Override
+    public void onChange(String topic, String payload) {
+        Set<String> ids = sessionIdsByTopic.get(topic);
+        if (ids == null || ids.isEmpty() || !mayReceive(topic, AuthService.CURRENT_USER_ID)) return;
+        TextMessage msg = new TextMessage(payload);
+        for (String id : ids) {
+            WebSocketSession s = sessions.get(id);
+            if (s != null) send(s, msg);
+        }
+    }
+
+    @Override
+    public void onStatus(boolean live) {
+        TextMessage msg = status(live);
+        sessions.values().forEach(s -> send(s, msg));
+    }
+
+    /** Per-user topics ("private:<id>", "user:<id>") only for `me`; shared topics for anyone. */
+    static boolean mayReceive(String topic, UUID me) {
+        int colon = topic.indexOf(':');
+        String kind = colon < 0 ? topic : topic.substring(0, colon);
+        if (!kind.equals("private") && !kind.equals("user")) return true;
+        return me != null && topic.substring(colon + 1).equals(me.toString());
+    }
+
+    private static TextMessage status(boolean live) {
+        return new TextMessage(live ? "STATUS:LIVE" : "STATUS:DEGRADED");
+    }
+
+    private static void send(WebSocketSession s, TextMessage msg) {
+        if (!s.isOpen()) return;
+        try {
+            s.sendMessage(msg);
+        } catch (IOException | RuntimeException e) {
+            // slow or closed client — the decorator closes it; afterConnectionClosed cleans up
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.scholar.config;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+
+/**
+ * Refuses WebSocket handshakes that do not come from this machine.
+ * The embedded server listens on every interface; endpoints that carry
+ * the signed-in user's data are only for the desktop client beside it.
+ */
+public class LoopbackHandshakeInterceptor implements HandshakeInterceptor {
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler handler, Map<String, Object> attributes) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        if (remote != null && remote.getAddress() != null && remote.getAddress().isLoopbackAddress()) return true;
+        response.setStatusCode(HttpStatus.FORBIDDEN);
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler handler, Exception exception) {
+    }
+}
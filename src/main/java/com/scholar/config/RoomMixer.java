@@ -0,0 +1,157 @@
+package com.scholar.config;
+
+import com.scholar.util.AudioFrame;
+import com.scholar.util.AudioMixer;
+import com.scholar.util.SampleRing;
+import com.scholar.util.VoiceCodec;
+import org.springframework.web.socket.BinaryMessage;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RoomMixer — server-side mix for one audio room.
+ *
+ * Every member is a channel: what it sends is buffered in its SampleRing;
+ * members that joined with mix=1 are also listeners. On each 20 ms tick
+ * (driven by AudioWebSocketHandler) the active speakers are summed once and
+ * each listener gets one frame of "everyone but me" — one stream of
+ * FRAME_BYTES whatever the room size. Nothing is sent while nobody else is
+ * talking.
+ *
+ * All buffers are allocated per channel up front. Outgoing byte[]s rotate
+ * through a pool one larger than the outbox can hold queued + in flight, so
+ * a buffer is never rewritten while a writer may still be sending it.
+ *
+ * Framed members (framed=1): their input arrives with an AudioFrame header,
+ * which feed() skips; framed listeners get the mix with a header of their
+ * own (source 0, per-listener seq and timestamp).
+ *
+ * Members using a compressed VoiceCodec are decoded on the way into their
+ * ring and get the mix encoded in their format, each with its own codec
+ * instances (decode on the sender's I/O thread, encode on the mixer thread).
+ */
+final class RoomMixer {
+
+    private static final int RING_FRAMES = 8;   // 160 ms of buffered input per speaker
+    private static final int MAX_INPUT_BYTES = 8 * 1024;
+
+    final LongAdder framesMixed = new LongAdder();
+
+    private final int poolSize;
+    private final List<Channel> channels = new CopyOnWriteArrayList<>();
+    private final int[] acc = new int[AudioMixer.FRAME_SAMPLES];
+
+    RoomMixer(int outboxCapacity) {
+        this.poolSize = outboxCapacity + 2;
+    }
+
+    private final class Channel {
+        final SessionOutbox out;
+        final boolean       listener;
+        final boolean       framed;
+        final VoiceCodec    decoder;
+        final VoiceCodec    encoder;
+        final byte[]        decoded; // I/O thread scratch, compressed members only
+        final byte[]        mixed;   // mixer thread scratch, compressed members only
+        final SampleRing    ring  = new SampleRing(RING_FRAMES * AudioMixer.FRAME_SAMPLES);
+        final short[]       frame = new short[AudioMixer.FRAME_SAMPLES];
+        final byte[][]      pool;
+        int                 nextBuffer;
+        boolean             active;
+        int                 seq;
+        long                timestamp;
+
+        Channel(SessionOutbox out, boolean listener, boolean framed, VoiceCodec.Format format) {
+            this.out = out;
+            this.listener = listener;
+            this.framed = framed;
+            boolean compressed = format != VoiceCodec.Format.PCM;
+            this.decoder = compressed ? format.newCodec() : null;
+            this.encoder = compressed ? format.newCodec() : null;
+            this.decoded = compressed ? new byte[MAX_INPUT_BYTES] : null;
+            this.mixed = compressed ? new byte[AudioMixer.FRAME_BYTES] : null;
+            int header = framed ? AudioFrame.HEADER_BYTES : 0;
+            int payload = compressed ? encoder.maxEncodedBytes(AudioMixer.FRAME_BYTES) : AudioMixer.FRAME_BYTES;
+            this.pool = listener ? new byte[poolSize][header + payload] : null;
+        }
+    }
+
+    void add(SessionOutbox out, boolean listener, boolean framed, VoiceCodec.Format format) {
+        channels.add(new Channel(out, listener, framed, format));
+    }
+
+    void remove(SessionOutbox out) {
+        channels.removeIf(c -> c.out == out);
+    }
+
+    boolean hasListeners() {
+        for (Channel c : channels) if (c.listener) return true;
+        return false;
+    }
+
+    int listenerCount() {
+        int n = 0;
+        for (Channel c : channels) if (c.listener) n++;
+        return n;
+    }
+
+    /** Speaker input from the I/O thread; only copies samples into the ring. */
+    void feed(SessionOutbox from, ByteBuffer pcm) {
+        for (Channel c : channels) {
+            if (c.out == from) {
+                if (c.framed) {
+                    if (!AudioFrame.isFramed(pcm)) return;
+                    pcm.position(pcm.position() + AudioFrame.HEADER_BYTES);
+                }
+                if (c.decoder != null) {
+                    // no more than decodes into the scratch buffer
+                    int encoded = Math.min(pcm.remaining(), c.decoder.maxEncodedBytes(MAX_INPUT_BYTES));
+                    int n = c.decoder.decode(pcm.array(), pcm.arrayOffset() + pcm.position(), encoded, c.decoded, 0);
+                    pcm = ByteBuffer.wrap(c.decoded, 0, n);
+                }
+                c.ring.write(pcm);
+                return;
+            }
+        }
+    }
+
+    /** One 20 ms frame. Called from the single mixer thread only. */
+    void tick() {
+        AudioMixer.clear(acc);
+        int speaking = 0;
+        for (Channel c : channels) {
+            c.timestamp += AudioMixer.FRAME_SAMPLES;   // keeps running through silence, like a capture clock
+            c.active = c.ring.read(c.frame);
+            if (c.active) {
+                AudioMixer.accumulate(acc, c.frame);
+                speaking++;
+            }
+        }
+        if (speaking == 0) return;
+
+        for (Channel c : channels) {
+            if (!c.listener || speaking - (c.active ? 1 : 0) == 0) continue;
+            byte[] buf = c.pool[c.nextBuffer];
+            c.nextBuffer = (c.nextBuffer + 1) % c.pool.length;
+            int offset = 0;
+            if (c.framed) {
+                AudioFrame.writeHeader(buf, 0, 0, c.seq, c.timestamp);
+                c.seq = (c.seq + 1) & 0xFFFF;
+                offset = AudioFrame.HEADER_BYTES;
+            }
+            int length;
+            if (c.encoder == null) {
+                AudioMixer.mixMinusInto(acc, c.active ? c.frame : null, buf, offset);
+                length = offset + AudioMixer.FRAME_BYTES;
+            } else {
+                AudioMixer.mixMinusInto(acc, c.active ? c.frame : null, c.mixed, 0);
+                length = offset + c.encoder.encode(c.mixed, 0, AudioMixer.FRAME_BYTES, buf, offset);
+            }
+            c.out.offerAudio(new BinaryMessage(ByteBuffer.wrap(buf, 0, length)));
+            framesMixed.increment();
+        }
+    }
+}
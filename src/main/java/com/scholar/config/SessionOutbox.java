@@ -0,0 +1,123 @@
+package com.scholar.config;
+
+import com.scholar.util.LatencyHistogram;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SessionOutbox — the only path that writes to one audio WebSocket session.
+ *
+ * Producers (other speakers' I/O threads, broadcasts) enqueue and return
+ * immediately; a single writer task drains the queues, so sends to a session
+ * are serialized and a slow listener only ever delays itself.
+ *
+ * 1. Audio frames: bounded (capacity), lock-free queue with drop-oldest —
+ *    late audio is worthless, the newest frames win.
+ * 2. Control text (USERS:...): never dropped, sent before queued audio.
+ * 3. The writer is scheduled on the shared executor only when the outbox
+ *    goes from idle to busy (one task per session at most).
+ */
+final class SessionOutbox {
+
+    /** Counters shared by every outbox of one room. */
+    static final class Metrics {
+        final LongAdder        framesSent    = new LongAdder();
+        final LongAdder        framesDropped = new LongAdder();
+        final LongAdder        sendFailures  = new LongAdder();
+        final LatencyHistogram sendLatency   = new LatencyHistogram();   // enqueue → written
+    }
+
+    private record Pending(WebSocketMessage<?> message, long enqueuedAt, boolean audio) {}
+
+    private final WebSocketSession   session;
+    private final Metrics            metrics;
+    private final Executor           writers;
+    private final int                capacity;
+    private final Queue<Pending>     audio      = new ConcurrentLinkedQueue<>();
+    private final Queue<Pending>     control    = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger      audioDepth = new AtomicInteger();
+    private final AtomicBoolean      scheduled  = new AtomicBoolean();
+
+    SessionOutbox(WebSocketSession session, Metrics metrics, Executor writers, int capacity) {
+        this.session = session;
+        this.metrics = metrics;
+        this.writers = writers;
+        this.capacity = capacity;
+    }
+
+    WebSocketSession session() {
+        return session;
+    }
+
+    /** Queued audio frames right now. */
+    int depth() {
+        return audioDepth.get();
+    }
+
+    /** Never blocks; evicts the oldest queued frame when full. */
+    void offerAudio(WebSocketMessage<?> frame) {
+        audio.offer(new Pending(frame, System.nanoTime(), true));
+        if (audioDepth.incrementAndGet() > capacity && audio.poll() != null) {
+            audioDepth.decrementAndGet();
+            metrics.framesDropped.increment();
+        }
+        schedule();
+    }
+
+    void offerControl(WebSocketMessage<?> message) {
+        control.offer(new Pending(message, System.nanoTime(), false));
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) writers.execute(this::drain);
+    }
+
+    private void drain() {
+        try {
+            Pending next;
+            while ((next = poll()) != null) {
+                if (!session.isOpen()) {
+                    discard();
+                    return;
+                }
+                try {
+                    session.sendMessage(next.message());
+                    if (next.audio()) {
+                        metrics.framesSent.increment();
+                        metrics.sendLatency.record(System.nanoTime() - next.enqueuedAt());
+                    }
+                } catch (IOException | RuntimeException e) {
+                    metrics.sendFailures.increment();
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            // a producer may have enqueued after the last poll but before the flag cleared
+            if ((!control.isEmpty() || !audio.isEmpty()) && session.isOpen()) schedule();
+        }
+    }
+
+    private Pending poll() {
+        Pending p = control.poll();
+        if (p != null) return p;
+        p = audio.poll();
+        if (p != null) audioDepth.decrementAndGet();
+        return p;
+    }
+
+    private void discard() {
+        control.clear();
+        int n = 0;
+        while (audio.poll() != null) n++;
+        audioDepth.addAndGet(-n);
+    }
+}
@@ -10,14 +10,19 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final AudioWebSocketHandler audioHandler;
+    private final ChangeFeedWebSocketHandler changeFeedHandler;
 
-    public WebSocketConfig(AudioWebSocketHandler audioHandler) {
+    public WebSocketConfig(AudioWebSocketHandler audioHandler, ChangeFeedWebSocketHandler changeFeedHandler) {
         this.audioHandler = audioHandler;
+        this.changeFeedHandler = changeFeedHandler;
     }
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         // জাভাএফএক্স এই লিংকে কানেক্ট করবে: ws://localhost:8080/audio-stream?roomId=...
         registry.addHandler(audioHandler, "/audio-stream").setAllowedOrigins("*");
+        // DB change feed (LISTEN/NOTIFY): ws://localhost:8080/change-feed, then "SUB:<topic>".
+        // Only this machine's own client: loopback, and no cross-origin browser pages.
+        registry.addHandler(changeFeedHandler, "/change-feed").addInterceptors(new LoopbackHandshakeInterceptor());
     }
 }
\ No newline at end of file
@@ -1,60 +1,206 @@
 package com.scholar.controller;
 
+import com.scholar.service.ChatStream;
+import com.scholar.service.EmbeddingService;
+import com.scholar.service.GeminiService;
+import com.scholar.service.LlmRouter;
+import com.scholar.service.OpenRouterService;
 import com.scholar.service.RAGService;
+import com.scholar.service.ResourceCacheService;
+import com.scholar.service.ResourceIndexingQueue;
+import com.scholar.util.IncrementalMarkdown;
+import com.scholar.util.LatencyHistogram;
+import com.scholar.util.SemanticCache;
+import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 @RestController
 @RequestMapping("/api/ai")
 @CrossOrigin(origins = "*")
 public class AIChatController {
 
+    private static final Logger LOG = Logger.getLogger(AIChatController.class.getName());
+
+    private static final long STREAM_TIMEOUT_MS = 120_000;
+
     @Autowired private RAGService ragService;
+    @Autowired private EmbeddingService embeddingService;
+    @Autowired private ResourceCacheService resourceCache;
+    @Autowired private GeminiService geminiService;
+    @Autowired private OpenRouterService openRouterService;
+    @Autowired private LlmRouter llmRouter;
+
+    // One virtual thread per answer: each blocks on the model stream for up to STREAM_TIMEOUT_MS
+    private final ExecutorService streamPool = Executors.newVirtualThreadPerTaskExecutor();
+    // Question received → first answer text sent (retrieval + model TTFT)
+    private final LatencyHistogram ragTtft = new LatencyHistogram();
+
+    @PreDestroy
+    void stop() {
+        streamPool.shutdownNow();
+    }
 
     @PostMapping("/chat")
     public ResponseEntity<Map<String, String>> chat(@RequestBody Map<String, String> req) {
         String question  = req.getOrDefault("question", "");
         String course    = req.getOrDefault("course", null);   // e.g. "CSE 105"
-        String userIdStr = req.getOrDefault("userId", null);
-
-        UUID userId = null;
-        try { if (userIdStr != null) userId = UUID.fromString(userIdStr); }
-        catch (Exception ignored) {}
+        UUID   userId    = parseUserId(req.getOrDefault("userId", null));
 
         String htmlResponse = ragService.answerWithRAG(question, course, userId);
         return ResponseEntity.ok(Map.of("html", htmlResponse));
     }
 
+    /**
+     * Same request as /chat, answered as server-sent events:
+     *   block {html}  — a finished markdown block, rendered once; append it
+     *   tail  {text}  — raw text of the block still being written; replace it
+     *   done  {}      — end of answer
+     *   error {html}  — provider error block; end of answer
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@RequestBody Map<String, String> req) {
+        String question = req.getOrDefault("question", "");
+        String course   = req.getOrDefault("course", null);
+        UUID   userId   = parseUserId(req.getOrDefault("userId", null));
+        long   received = System.nanoTime();
+
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        streamPool.execute(() -> {
+            IncrementalMarkdown markdown = new IncrementalMarkdown(openRouterService::markdownToHtml);
+            try {
+                ragService.answerWithRAGStream(question, course, userId, new ChatStream() {
+                    private boolean first = true;
+
+                    @Override
+                    public void onDelta(String text) {
+                        if (first) { ragTtft.record(System.nanoTime() - received); first = false; }
+                        String html = markdown.append(text);
+                        if (!html.isEmpty()) send(emitter, "block", new JSONObject().put("html", html));
+                        send(emitter, "tail", new JSONObject().put("text", markdown.pending()));
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        String html = markdown.finish();
+                        if (!html.isEmpty()) send(emitter, "block", new JSONObject().put("html", html));
+                        send(emitter, "done", new JSONObject());
+                        emitter.complete();
+                    }
+
+                    @Override
+                    public void onError(String html) {
+                        send(emitter, "error", new JSONObject().put("html", html));
+                        emitter.complete();
+                    }
+                });
+            } catch (UncheckedIOException gone) {
+                LOG.log(Level.FINE, "Chat stream client disconnected", gone);   // model request aborted
+                emitter.completeWithError(gone);
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Chat stream failed", e);
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    /** Time-to-first-token: end to end for /chat/stream, and per provider. */
+    @GetMapping("/chat/latency")
+    public ResponseEntity<Map<String, LatencyHistogram.Snapshot>> chatLatency() {
+        return ResponseEntity.ok(Map.of(
+            "ragTtft",              ragTtft.snapshot(),
+            "geminiTtft",           geminiService.ttftStats(),
+            "geminiStreamTime",     geminiService.streamTimeStats(),
+            "openRouterTtft",       openRouterService.ttftStats(),
+            "openRouterStreamTime", openRouterService.streamTimeStats()));
+    }
+
+    /** Recent latency / error rate / breaker per provider and model, and each task's current ranking. */
+    @GetMapping("/llm/stats")
+    public ResponseEntity<LlmRouter.Stats> llmStats() {
+        return ResponseEntity.ok(llmRouter.stats());
+    }
+
+    /** Per-stage RAG latency: embed, progress, course, vector, keyword, ttft, generate, total. */
+    @GetMapping("/rag/stages")
+    public ResponseEntity<Map<String, LatencyHistogram.Snapshot>> ragStages() {
+        return ResponseEntity.ok(ragService.stageLatency());
+    }
+
+    private static UUID parseUserId(String userIdStr) {
+        try { return userIdStr != null ? UUID.fromString(userIdStr) : null; }
+        catch (Exception ignored) { return null; }
+    }
+
+    /** Throws UncheckedIOException when the client has gone, which aborts the model call. */
+    private static void send(SseEmitter emitter, String event, JSONObject data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data.toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @GetMapping("/embedding-cache/stats")
+    public ResponseEntity<Map<String, Object>> embeddingCacheStats() {
+        var s = embeddingService.cacheStats();
+        return ResponseEntity.ok(Map.of(
+            "memoryHits",    s.memoryHits(),
+            "diskHits",      s.diskHits(),
+            "misses",        s.misses(),
+            "hitRate",       s.hitRate(),
+            "memoryEntries", s.memoryEntries(),
+            "diskEntries",   s.diskEntries()));
+    }
+
+    /** Hit rate / size of RAGService's semantic answer cache. */
+    @GetMapping("/answer-cache/stats")
+    public ResponseEntity<SemanticCache.Stats> answerCacheStats() {
+        return ResponseEntity.ok(ragService.answerCacheStats());
+    }
+
+    /** Refresh duration / staleness of the resource cache snapshot. */
+    @GetMapping("/resource-cache/stats")
+    public ResponseEntity<ResourceCacheService.Stats> resourceCacheStats() {
+        return ResponseEntity.ok(resourceCache.stats());
+    }
+
 
 
     @Autowired private JdbcTemplate jdbc;  
+    @Autowired private ResourceIndexingQueue indexingQueue;
+
     @PostMapping("/backfill-vectors")
 public ResponseEntity<String> backfillVectors() {
-    new Thread(() -> {
-        List<Map<String, Object>> rows = jdbc.queryForList(
-            "SELECT id, title, description, ai_summary, tags, type, difficulty " +
-            "FROM resources WHERE content_vector IS NULL AND is_public = true LIMIT 200"
-        );
-        int count = 0;
-        for (Map<String, Object> row : rows) {
-            String text = row.getOrDefault("title", "") + ". "
-                        + row.getOrDefault("ai_summary", "") + ". "
-                        + row.getOrDefault("description", "") + ". "
-                        + "Tags: " + row.getOrDefault("tags", "");
-            ragService.indexResource((Long) row.get("id"), text.trim());
-            count++;
-            try { Thread.sleep(300); } catch (Exception ignored) {}
-        }
-        System.out.println("✅ Backfill done: " + count + " resources indexed");
-    }, "rag-backfill").start();
-    return ResponseEntity.ok("Backfill started — check console for progress");
+    List<Integer> ids = jdbc.queryForList(
+        "SELECT id FROM resources WHERE content_vector IS NULL AND is_public = true LIMIT 200",
+        Integer.class);
+    int queued = 0;
+    for (int id : ids) if (indexingQueue.submit(id)) queued++;
+    return ResponseEntity.ok("Backfill queued " + queued + " resources — poll /api/ai/indexing/progress");
 }
 
+    /** Polled by the admin UI during bulk imports / backfills. */
+    @GetMapping("/indexing/progress")
+    public ResponseEntity<ResourceIndexingQueue.Progress> indexingProgress() {
+        return ResponseEntity.ok(indexingQueue.progress());
+    }
+
 }
\ No newline at end of file
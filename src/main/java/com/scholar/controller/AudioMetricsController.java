@@ -0,0 +1,28 @@
+package com.scholar.controller;
+
+import com.scholar.config.AudioWebSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * AudioMetricsController — read-only view of the audio relay's per-room counters.
+ *
+ *   GET /api/audio/metrics — per room: sessions, frames in / sent / dropped,
+ *                            send failures, queued and max queued frames,
+ *                            enqueue→written latency (count / mean / p50 / p95 / p99 / max ms)
+ */
+@RestController
+@RequestMapping("/api/audio")
+@CrossOrigin(origins = "*")
+public class AudioMetricsController {
+
+    @Autowired private AudioWebSocketHandler audioHandler;
+
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, AudioWebSocketHandler.RoomStats>> metrics() {
+        return ResponseEntity.ok(audioHandler.stats());
+    }
+}
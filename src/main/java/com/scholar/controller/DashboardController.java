@@ -18,6 +18,7 @@ import com.scholar.model.ResourceRow;
 import com.scholar.model.StudyTask;
 import com.scholar.service.*;
 import com.scholar.util.PopupHelper;
+import com.scholar.util.TaskStore;
 import javafx.application.Platform;
 import javafx.event.Event;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -73,7 +74,7 @@ public class DashboardController {
     // =========================================================
     // SHARED STATE
     // =========================================================
-    private final List<StudyTask> allTasks = new ArrayList<>();
+    private final TaskStore taskStore = new TaskStore();
     private LocalDate selectedDate           = LocalDate.now();
     private String    currentViewMode        = "DAILY";
     private Integer   currentSelectedTopicId = null;
@@ -196,25 +197,23 @@ public class DashboardController {
 
         // Tasks
         taskController.init(
-            allTasks, timelineContainer,
+            taskStore, timelineContainer,
             () -> selectedDate,
             () -> currentViewMode,
             () -> calendarController.drawCalendar(selectedDate),
-            periods -> {
-                calendarController.setClassOffPeriods(periods);
-                calendarController.drawCalendar(selectedDate);
-            });
+            periods -> calendarController.drawCalendar(selectedDate));
 
         if (btnDailyTasks != null) btnDailyTasks.setOnAction(e -> { currentViewMode = "DAILY";     taskController.refreshTimeline(); });
         if (btnBacklog    != null) btnBacklog.setOnAction(e    -> { currentViewMode = "BACKLOG";    taskController.refreshTimeline(); });
         if (btnCompleted  != null) btnCompleted.setOnAction(e  -> { currentViewMode = "COMPLETED";  taskController.refreshTimeline(); });
 
         // Calendar
-        calendarController.init(calendarGrid, monthLabel, allTasks, () -> selectedDate, clicked -> {
+        calendarController.init(calendarGrid, monthLabel, taskStore, () -> selectedDate, clicked -> {
             selectedDate = clicked;
             taskController.refreshTimeline();
             calendarController.drawCalendar(selectedDate);
         });
+        calendarController.setRoutineSchedule(taskController.routineSchedule());
         calendarController.drawCalendar(selectedDate);
 
         adminMergeController.myChannelId = AuthService.CURRENT_CHANNEL_ID;
@@ -223,7 +222,7 @@ public class DashboardController {
         routineController.init(routineGrid, announcementList);
 
         // Admin broadcast
-        adminBroadcastController.init(pendingListContainer, allTasks, () ->
+        adminBroadcastController.init(pendingListContainer, taskStore, () ->
             taskController.loadTasksFromDatabase(() -> calendarController.drawCalendar(selectedDate))
         );
 
@@ -0,0 +1,28 @@
+package com.scholar.controller;
+
+import com.scholar.service.ConnectionAccess;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * DatabaseMetricsController — read-only view of ConnectionAccess histograms.
+ *
+ *   GET /api/db/metrics — per calling service method: acquire wait, hold time,
+ *                         statement latency (count / mean / p50 / p95 / p99 / max ms),
+ *                         acquire failures and slow statements
+ */
+@RestController
+@RequestMapping("/api/db")
+@CrossOrigin(origins = "*")
+public class DatabaseMetricsController {
+
+    @Autowired private ConnectionAccess connectionAccess;
+
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, ConnectionAccess.CallerStats>> metrics() {
+        return ResponseEntity.ok(connectionAccess.stats());
+    }
+}
@@ -0,0 +1,27 @@
+package com.scholar.controller;
+
+import com.scholar.service.OutboundHttp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * OutboundHttpMetricsController — read-only view of OutboundHttp.
+ *
+ *   GET /api/http/metrics — per provider: circuit breaker state and trips,
+ *                           in-flight / max concurrent calls;
+ *                           per endpoint: latency (count / mean / p50 / p95 / p99 / max ms),
+ *                           attempts, 4xx / 5xx / I/O errors, retries, refused calls
+ */
+@RestController
+@RequestMapping("/api/http")
+@CrossOrigin(origins = "*")
+public class OutboundHttpMetricsController {
+
+    @Autowired private OutboundHttp outboundHttp;
+
+    @GetMapping("/metrics")
+    public ResponseEntity<OutboundHttp.Stats> metrics() {
+        return ResponseEntity.ok(outboundHttp.stats());
+    }
+}
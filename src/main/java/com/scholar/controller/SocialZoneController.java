@@ -2,8 +2,10 @@ package com.scholar.controller;
 
 import com.scholar.model.*;
 import com.scholar.service.AuthService;
+import com.scholar.service.ChangeFeedClient;
 import com.scholar.service.ChatSettingsService;
 import com.scholar.service.SocialZoneService;
+import com.scholar.util.MessageStore;
 import com.scholar.util.NewPopupHelper;
 import com.scholar.util.PopupHelper;
 import javafx.animation.KeyFrame;
@@ -23,6 +25,7 @@ import javafx.scene.shape.Circle;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 import javafx.util.Duration;
+import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Controller;
@@ -72,6 +75,7 @@ public class SocialZoneController {
     @Autowired private com.scholar.service.AudioCallService audioCallService;
     @Autowired private SocialZoneService socialService;
     @Autowired private ChatSettingsService chatSettingsService;
+    @Autowired private ChangeFeedClient changeFeed;
     @Autowired private ApplicationContext springContext;
 
     // ── State
@@ -80,8 +84,13 @@ public class SocialZoneController {
     private String currentPrivateContactName = null;
     private String currentThreadCategory     = "HOME";
 
-    // ── Last seen message id for smart refresh
-    private String lastSeenMessageId = null;
+    // ── Live updates of the current view — closed on reload and when it leaves the scene
+    private Timeline refreshTimer;
+    private final List<ChangeFeedClient.Subscription> feedSubscriptions = new ArrayList<>();
+
+    // ── Messages of the open conversation — refreshes only append what is new
+    private final MessageStore<ChatMessage> messageStore =
+            new MessageStore<>(ChatMessage::id, ChatMessage::createdAt, 300);
 
     // ── Shared thread pool — daemon threads die cleanly on app close
     private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
@@ -105,12 +114,34 @@ public class SocialZoneController {
     }
 
     private void startAutoRefresh() {
-        Timeline refresh = new Timeline(new KeyFrame(Duration.seconds(3), e -> {
+        // Messages and sidebar changes are pushed via the change feed;
+        // the 3 s poll only runs while the feed is down.
+        stopAutoRefresh();                                  // singleton controller: the view may be reloaded
+        feedSubscriptions.add(changeFeed.subscribe("social_group", this::onMessageEvent));
+        if (AuthService.CURRENT_USER_ID != null) {
+            String me = AuthService.CURRENT_USER_ID.toString();
+            feedSubscriptions.add(changeFeed.subscribe("private:" + me, this::onMessageEvent));
+            feedSubscriptions.add(changeFeed.subscribe("user:" + me, ev -> Platform.runLater(this::refreshSidebar)));
+        }
+        refreshTimer = new Timeline(new KeyFrame(Duration.seconds(3), e -> {
+            if (changeFeed.isLive()) return;
             loadMessages();
             refreshSidebar();
         }));
-        refresh.setCycleCount(Timeline.INDEFINITE);
-        refresh.play();
+        refreshTimer.setCycleCount(Timeline.INDEFINITE);
+        refreshTimer.play();
+
+        BorderPane view = chatMainContainer;
+        if (view != null) view.sceneProperty().addListener((obs, old, nev) -> {
+            // a reloaded view replaces the fields first; only the current one may stop updates
+            if (nev == null && view == chatMainContainer) stopAutoRefresh();
+        });
+    }
+
+    private void stopAutoRefresh() {
+        if (refreshTimer != null) { refreshTimer.stop(); refreshTimer = null; }
+        feedSubscriptions.forEach(ChangeFeedClient.Subscription::close);
+        feedSubscriptions.clear();
     }
 
     private Window getOwner() {
@@ -138,6 +169,7 @@ public class SocialZoneController {
         hideAllPanels(); setVisible(chatMainContainer, true);
         currentChatMode = "GROUP"; currentPrivateContactId = null;
         if (chatHeaderLabel != null) chatHeaderLabel.setText("🌍 Global Group Chat");
+        resetChat();
         loadMessages();
         applyChatInputState();
     }
@@ -209,28 +241,64 @@ public class SocialZoneController {
     }
 
     private void loadMessages() {
+        String mode = currentChatMode, contactId = currentPrivateContactId;
         executor.submit(() -> {
-            List<ChatMessage> messages = "GROUP".equals(currentChatMode)
-                    ? socialService.getRecentMessages()
-                    : (currentPrivateContactId != null
-                        ? socialService.getPrivateMessages(currentPrivateContactId)
-                        : List.of());
-
+            List<ChatMessage> fresh = messageStore.fetchNewer(after -> "GROUP".equals(mode)
+                    ? socialService.getRecentMessagesSince(after)
+                    : (contactId != null
+                        ? socialService.getPrivateMessagesSince(contactId, after)
+                        : List.of()));
+            if (fresh.isEmpty()) return;
             Platform.runLater(() -> {
-                if (messages.isEmpty()) return;
-                String newestId = messages.get(messages.size() - 1).id();
-                // Only redraw if something new arrived
-                if (newestId.equals(lastSeenMessageId) &&
-                        chatContainer.getChildren().size() == messages.size()) return;
-                lastSeenMessageId = newestId;
-                chatContainer.getChildren().clear();
-                for (ChatMessage msg : messages)
+                for (ChatMessage msg : fresh)
                     chatContainer.getChildren().add(createMessageBubble(msg));
                 scrollToBottom();
             });
         });
     }
 
+    /** Conversation switch — drop the old bubbles; the next loadMessages() fetches the latest window. */
+    private void resetChat() {
+        messageStore.clear();
+        if (chatContainer != null) chatContainer.getChildren().clear();
+    }
+
+    /**
+     * Change-feed event for social_group / private:<me>. Group rows are appended
+     * when the group chat is open; private events carry ids only (db/013), so the
+     * open conversation re-fetches through the normal query.
+     */
+    private void onMessageEvent(JSONObject ev) {
+        JSONObject row = ev.optJSONObject("row");
+        boolean group = "social_group".equals(ev.optString("topic"));
+        Platform.runLater(() -> {
+            if (row == null) {
+                loadMessages();
+                if (!group) refreshSidebar();
+                return;
+            }
+            String senderId = row.optString("sender_id");
+            if (!group) {
+                refreshSidebar();
+                if ("PRIVATE".equals(currentChatMode)
+                        && (senderId.equals(currentPrivateContactId)
+                            || row.optString("receiver_id").equals(currentPrivateContactId)))
+                    loadMessages();
+                return;
+            }
+            if (!"GROUP".equals(currentChatMode)) return;
+            String me = AuthService.CURRENT_USER_ID != null ? AuthService.CURRENT_USER_ID.toString() : "";
+            ChatMessage msg = new ChatMessage(
+                    row.optString("id"), senderId, row.optString("sender_name"),
+                    row.optString("content"), row.optString("created_at"),
+                    senderId.equals(me), row.optBoolean("is_admin_msg"),
+                    row.optString("avatar_url", null));
+            if (!messageStore.appendPushed(msg)) return;   // already drawn by loadMessages()
+            chatContainer.getChildren().add(createMessageBubble(msg));
+            scrollToBottom();
+        });
+    }
+
     private void scrollToBottom() {
         Platform.runLater(() -> chatScroll.setVvalue(1.0));
     }
@@ -717,7 +785,7 @@ public class SocialZoneController {
         currentChatMode = "PRIVATE";
         currentPrivateContactId   = contact.userId();
         currentPrivateContactName = contact.userName();
-        lastSeenMessageId = null;
+        resetChat();
         hideAllPanels(); setVisible(chatMainContainer, true);
         if (chatHeaderLabel != null) chatHeaderLabel.setText("💬 " + currentPrivateContactName);
         refreshSidebar();
@@ -726,7 +794,8 @@ public class SocialZoneController {
 
     @FXML
     public void switchToGroupChat(ActionEvent event) {
-        currentChatMode = "GROUP"; currentPrivateContactId = null; lastSeenMessageId = null;
+        currentChatMode = "GROUP"; currentPrivateContactId = null;
+        resetChat();
         hideAllPanels(); setVisible(chatMainContainer, true);
         if (chatHeaderLabel != null) chatHeaderLabel.setText("🌍 Global Group Chat");
         loadMessages();
@@ -934,6 +1003,18 @@ public class SocialZoneController {
         container.setPadding(new Insets(20));
         container.setStyle("-fx-background-color:#0f1117;");
 
+        VBox pollsList = buildPollsList(isAdmin, owner);
+        // Votes anywhere in the channel update the open list in place (no re-query)
+        ChangeFeedClient.Subscription pollFeed = changeFeed.subscribe(
+                "polls:" + AuthService.CURRENT_CHANNEL_ID, ev -> onPollEvent(ev, pollsList, isAdmin));
+        try {
+            showPollsPopup(owner, container, pollsList, isAdmin);
+        } finally {
+            pollFeed.close();
+        }
+    }
+
+    private void showPollsPopup(Window owner, VBox container, VBox pollsList, boolean isAdmin) {
         if (isAdmin) {
             Button createBtn = new Button("➕ Create New Poll");
             createBtn.setMaxWidth(Double.MAX_VALUE);
@@ -946,7 +1027,6 @@ public class SocialZoneController {
                 if (stageRef[0] != null) stageRef[0].close();
                 Platform.runLater(() -> openCreatePollDialog(owner));
             });
-            VBox pollsList = buildPollsList(true, owner);
             ScrollPane scroll = new ScrollPane(pollsList); scroll.setFitToWidth(true);
             scroll.setStyle("-fx-background:#0f1117;-fx-background-color:#0f1117;-fx-border-color:transparent;");
             VBox.setVgrow(scroll, Priority.ALWAYS);
@@ -956,7 +1036,6 @@ public class SocialZoneController {
             stageRef[0] = stage;
             stage.showAndWait();
         } else {
-            VBox pollsList = buildPollsList(false, owner);
             ScrollPane scroll = new ScrollPane(pollsList); scroll.setFitToWidth(true);
             scroll.setStyle("-fx-background:#0f1117;-fx-background-color:#0f1117;-fx-border-color:transparent;");
             VBox.setVgrow(scroll, Priority.ALWAYS);
@@ -972,17 +1051,39 @@ public class SocialZoneController {
 
         executor.submit(() -> {
             List<com.scholar.model.Poll> polls = socialService.getChannelPolls();
-            Platform.runLater(() -> {
-                list.getChildren().clear();
-                if (polls == null || polls.isEmpty())
-                    list.getChildren().add(makeLabel("📭 No active polls right now.", "#64748b", 14, false));
-                else
-                    polls.forEach(p -> list.getChildren().add(createPollCard(p, isAdmin, list)));
-            });
+            Platform.runLater(() -> renderPolls(list, polls, isAdmin));
         });
         return list;
     }
 
+    private static final String SHOWN_POLLS = "shownPolls";
+
+    private void renderPolls(VBox list, List<com.scholar.model.Poll> polls, boolean isAdmin) {
+        list.getProperties().put(SHOWN_POLLS, polls);
+        list.getChildren().clear();
+        if (polls == null || polls.isEmpty())
+            list.getChildren().add(makeLabel("📭 No active polls right now.", "#64748b", 14, false));
+        else
+            polls.forEach(p -> list.getChildren().add(createPollCard(p, isAdmin, list)));
+    }
+
+    /** Re-draws the shown polls with the service's live tallies (FX thread, no query). */
+    @SuppressWarnings("unchecked")
+    private void rerenderPolls(VBox list, boolean isAdmin) {
+        List<com.scholar.model.Poll> shown = (List<com.scholar.model.Poll>) list.getProperties().get(SHOWN_POLLS);
+        if (shown == null) return;
+        renderPolls(list, socialService.withLiveTallies(shown), isAdmin);
+    }
+
+    private void onPollEvent(JSONObject ev, VBox list, boolean isAdmin) {
+        JSONObject row = ev.optJSONObject("row");
+        boolean applied = row != null && socialService.applyPollTally(
+                row.optString("poll_id"), row.optString("option_id"), row.optInt("vote_count"),
+                row.optLong("vote_version"));
+        // no row = poll / option added or removed (or a resync): re-fetch
+        Platform.runLater(() -> { if (applied) rerenderPolls(list, isAdmin); else refreshPollsList(list, isAdmin); });
+    }
+
     private VBox createPollCard(com.scholar.model.Poll p, boolean isAdmin, VBox pollsList) {
         VBox card = new VBox(12);
         card.setStyle("-fx-padding:16;-fx-background-color:#161b27;-fx-background-radius:12;" +
@@ -1019,7 +1120,7 @@ public class SocialZoneController {
                 executor.submit(() -> {
                     boolean ok = socialService.castVote(p.id(), opt.id());
                     Platform.runLater(() -> {
-                        if (ok) { NewPopupHelper.showToast(getOwner(), "✅ Vote Updated!"); refreshPollsList(pollsList, isAdmin); }
+                        if (ok) { NewPopupHelper.showToast(getOwner(), "✅ Vote Updated!"); rerenderPolls(pollsList, isAdmin); }
                         else { voteBtn.setDisable(false); NewPopupHelper.showToast(getOwner(), "❌ Failed to vote."); }
                     });
                 });
@@ -1065,11 +1166,7 @@ public class SocialZoneController {
     private void refreshPollsList(VBox pollsList, boolean isAdmin) {
         executor.submit(() -> {
             List<com.scholar.model.Poll> polls = socialService.getChannelPolls();
-            Platform.runLater(() -> {
-                pollsList.getChildren().clear();
-                if (polls != null)
-                    polls.forEach(p -> pollsList.getChildren().add(createPollCard(p, isAdmin, pollsList)));
-            });
+            Platform.runLater(() -> renderPolls(pollsList, polls, isAdmin));
         });
     }
 
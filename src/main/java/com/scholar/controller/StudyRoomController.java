@@ -4,7 +4,9 @@ import com.scholar.model.StudyHistory;
 import com.scholar.model.StudyRoom;
 import com.scholar.model.StudySession;
 import com.scholar.service.AuthService;
+import com.scholar.service.ChangeFeedClient;
 import com.scholar.service.StudyRoomService;
+import com.scholar.util.MessageStore;
 import com.scholar.util.PopupHelper;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
@@ -18,9 +20,11 @@ import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.util.Duration;
+import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -50,6 +54,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class StudyRoomController {
 
     @Autowired private StudyRoomService roomService;
+    @Autowired private ChangeFeedClient changeFeed;
 
     // ── FXML fields ──
     @FXML private VBox   publicRoomList;
@@ -78,6 +83,9 @@ public class StudyRoomController {
     private Timeline     pomodoroTimer;
     private Timeline     boardRefreshTimer;
     private Timeline     chatRefreshTimer;
+    private final List<ChangeFeedClient.Subscription> feedSubscriptions = new ArrayList<>();
+    private final MessageStore<StudyRoomService.ChatMessage> chatStore =
+        new MessageStore<>(StudyRoomService.ChatMessage::id, StudyRoomService.ChatMessage::time, 200);
     private final AtomicInteger secondsRemaining = new AtomicInteger(0);
     private int          totalSessionSeconds;
     private boolean      timerPaused = false;
@@ -672,20 +680,26 @@ public class StudyRoomController {
     // (board displays COMPLETED prominently, STUDYING in real-time)
     // ════════════════════════════════════════════
     private void startBoardRefresh(String roomId) {
+        // Pushed via the change feed; the timer only runs while the feed is down
+        feedSubscriptions.add(changeFeed.subscribe("study_room_board:" + roomId, ev -> reloadBoard(roomId)));
         boardRefreshTimer = new Timeline(new KeyFrame(Duration.seconds(4), e -> {
-            new Thread(() -> {
-                // All sessions (completed + studying + break), no abandoned
-                List<StudySession> sessions = roomService.getBoardSessions(roomId);
-                Platform.runLater(() -> {
-                    if (boardTable != null) boardTable.getItems().setAll(sessions);
-                    if (activeUsersList != null) refreshActiveUsers(sessions);
-                });
-            }).start();
+            if (!changeFeed.isLive()) reloadBoard(roomId);
         }));
         boardRefreshTimer.setCycleCount(Timeline.INDEFINITE);
         boardRefreshTimer.play();
     }
 
+    private void reloadBoard(String roomId) {
+        new Thread(() -> {
+            // All sessions (completed + studying + break), no abandoned
+            List<StudySession> sessions = roomService.getBoardSessions(roomId);
+            Platform.runLater(() -> {
+                if (boardTable != null) boardTable.getItems().setAll(sessions);
+                if (activeUsersList != null) refreshActiveUsers(sessions);
+            });
+        }).start();
+    }
+
     private void refreshActiveUsers(List<StudySession> sessions) {
         activeUsersList.getChildren().clear();
         for (StudySession s : sessions) {
@@ -735,56 +749,73 @@ public class StudyRoomController {
     // CHAT REFRESH
     // ════════════════════════════════════════════
     private void startChatRefresh(String roomId) {
+        chatStore.clear();
+        if (chatBox != null) chatBox.getChildren().clear();
+        // New rows arrive on the change feed and are appended; the timer only runs while the feed is down
+        feedSubscriptions.add(changeFeed.subscribe("study_room_chat:" + roomId, ev -> {
+            JSONObject row = ev.optJSONObject("row");
+            if (row == null) { reloadChat(roomId); return; }
+            var msg = new StudyRoomService.ChatMessage(row.optString("id"),
+                row.optString("user_name"), row.optString("content"), row.optString("created_at", null));
+            if (chatStore.appendPushed(msg)) Platform.runLater(() -> appendChat(List.of(msg)));
+        }));
         chatRefreshTimer = new Timeline(new KeyFrame(Duration.seconds(3), e -> {
-            new Thread(() -> {
-                var msgs = roomService.getChatMessages(roomId);
-                Platform.runLater(() -> renderChat(msgs));
-            }).start();
+            if (!changeFeed.isLive()) reloadChat(roomId);
         }));
         chatRefreshTimer.setCycleCount(Timeline.INDEFINITE);
         chatRefreshTimer.play();
+        reloadChat(roomId);
     }
 
-    private void renderChat(List<StudyRoomService.ChatMessage> msgs) {
+    /** Fetches only messages after the store's cursor and appends their bubbles. */
+    private void reloadChat(String roomId) {
+        new Thread(() -> {
+            var fresh = chatStore.fetchNewer(after -> roomService.getChatMessagesSince(roomId, after));
+            if (!fresh.isEmpty()) Platform.runLater(() -> appendChat(fresh));
+        }).start();
+    }
+
+    private void appendChat(List<StudyRoomService.ChatMessage> msgs) {
         if (chatBox == null) return;
-        chatBox.getChildren().clear();
-        for (StudyRoomService.ChatMessage msg : msgs) {
-            boolean isMe = msg.sender().equals(AuthService.CURRENT_USER_NAME);
-
-            VBox bubble = new VBox(2);
-            bubble.setMaxWidth(210);
-            bubble.setPadding(new Insets(8, 12, 8, 12));
-
-            if (!isMe) {
-                Label sender = new Label(msg.sender());
-                sender.setStyle("-fx-font-size:10;-fx-font-weight:bold;-fx-text-fill:#818cf8;");
-                bubble.getChildren().add(sender);
-            }
+        for (StudyRoomService.ChatMessage msg : msgs) chatBox.getChildren().add(chatBubble(msg));
+        if (chatScroll != null) chatScroll.setVvalue(1.0);
+    }
 
-            Label text = new Label(msg.content());
-            text.setWrapText(true);
-            text.setMaxWidth(190);
-            text.setStyle("-fx-text-fill:" + (isMe ? "#e2e8f0" : "#cbd5e1") + ";-fx-font-size:13;");
+    private HBox chatBubble(StudyRoomService.ChatMessage msg) {
+        boolean isMe = msg.sender().equals(AuthService.CURRENT_USER_NAME);
 
-            String time = msg.time();
-            if (time != null && time.length() > 16) time = time.substring(11, 16);
-            Label timeLbl = new Label(time != null ? time : "");
-            timeLbl.setStyle("-fx-font-size:9;-fx-text-fill:#334155;");
+        VBox bubble = new VBox(2);
+        bubble.setMaxWidth(210);
+        bubble.setPadding(new Insets(8, 12, 8, 12));
 
-            bubble.getChildren().addAll(text, timeLbl);
+        if (!isMe) {
+            Label sender = new Label(msg.sender());
+            sender.setStyle("-fx-font-size:10;-fx-font-weight:bold;-fx-text-fill:#818cf8;");
+            bubble.getChildren().add(sender);
+        }
 
-            String radii = isMe ? "12 12 2 12" : "12 12 12 2";
-            bubble.setStyle((isMe
-                ? "-fx-background-color:#1e2b50;-fx-border-color:rgba(99,102,241,0.28);"
-                : "-fx-background-color:#161a2e;-fx-border-color:rgba(99,102,241,0.1);") +
-                "-fx-background-radius:" + radii + ";-fx-border-radius:" + radii + ";");
+        Label text = new Label(msg.content());
+        text.setWrapText(true);
+        text.setMaxWidth(190);
+        text.setStyle("-fx-text-fill:" + (isMe ? "#e2e8f0" : "#cbd5e1") + ";-fx-font-size:13;");
 
-            HBox wrapper = new HBox();
-            wrapper.setAlignment(isMe ? Pos.CENTER_RIGHT : Pos.CENTER_LEFT);
-            wrapper.getChildren().add(bubble);
-            chatBox.getChildren().add(wrapper);
-        }
-        if (chatScroll != null) chatScroll.setVvalue(1.0);
+        String time = msg.time();
+        if (time != null && time.length() > 16) time = time.substring(11, 16);
+        Label timeLbl = new Label(time != null ? time : "");
+        timeLbl.setStyle("-fx-font-size:9;-fx-text-fill:#334155;");
+
+        bubble.getChildren().addAll(text, timeLbl);
+
+        String radii = isMe ? "12 12 2 12" : "12 12 12 2";
+        bubble.setStyle((isMe
+            ? "-fx-background-color:#1e2b50;-fx-border-color:rgba(99,102,241,0.28);"
+            : "-fx-background-color:#161a2e;-fx-border-color:rgba(99,102,241,0.1);") +
+            "-fx-background-radius:" + radii + ";-fx-border-radius:" + radii + ";");
+
+        HBox wrapper = new HBox();
+        wrapper.setAlignment(isMe ? Pos.CENTER_RIGHT : Pos.CENTER_LEFT);
+        wrapper.getChildren().add(bubble);
+        return wrapper;
     }
 
     // ════════════════════════════════════════════
@@ -815,14 +846,13 @@ public class StudyRoomController {
             // 1. Mark session COMPLETED in participants table
             roomService.completeSession(pid, elapsedMins);
 
-            // 2. Save to HISTORY (completed sessions only, not abandoned)
+            // 2. Save to HISTORY (completed sessions only, not abandoned) + update streak
             roomService.saveHistory(
                 AuthService.CURRENT_USER_ID.toString(), room.id(),
                 topic, task, planned, elapsedMins, xpEarned);
 
-            // 3. Give XP + update streak
+            // 3. Give XP
             roomService.addXP(AuthService.CURRENT_USER_ID.toString(), xpEarned);
-            roomService.updateStreak(AuthService.CURRENT_USER_ID.toString());
 
             Platform.runLater(() -> {
                 loadStreakAndXP();
@@ -1149,7 +1179,10 @@ public class StudyRoomController {
     private void loadLeaderboard() {
         if (leaderboardContainer == null) return;
         new Thread(() -> {
-            var board = roomService.getGlobalLeaderboard();
+            String uid = AuthService.CURRENT_USER_ID.toString();
+            var board  = roomService.getGlobalLeaderboard();
+            var mine   = roomService.getLeaderboardRank(uid) > board.size()
+                ? roomService.getLeaderboardAround(uid, 1) : List.<String[]>of();
             Platform.runLater(() -> {
                 leaderboardContainer.getChildren().clear();
                 if (board.isEmpty()) {
@@ -1163,6 +1196,15 @@ public class StudyRoomController {
                     leaderboardContainer.getChildren().add(buildLeaderRow(rank, row));
                     rank++;
                 }
+                // Outside the top 10: show where I stand, with one neighbour each side
+                if (!mine.isEmpty()) {
+                    Label gap = new Label("⋯");
+                    gap.setStyle("-fx-text-fill:#475569;-fx-font-size:16;-fx-padding:2 0 2 26;");
+                    leaderboardContainer.getChildren().add(gap);
+                    for (String[] row : mine) {
+                        leaderboardContainer.getChildren().add(buildLeaderRow(Integer.parseInt(row[3]), row));
+                    }
+                }
             });
         }).start();
     }
@@ -1233,6 +1275,8 @@ public class StudyRoomController {
         if (pomodoroTimer     != null) { pomodoroTimer.stop();     pomodoroTimer = null; }
         if (boardRefreshTimer != null) { boardRefreshTimer.stop(); boardRefreshTimer = null; }
         if (chatRefreshTimer  != null) { chatRefreshTimer.stop();  chatRefreshTimer = null; }
+        feedSubscriptions.forEach(ChangeFeedClient.Subscription::close);
+        feedSubscriptions.clear();
     }
 
     // ════════════════════════════════════════════
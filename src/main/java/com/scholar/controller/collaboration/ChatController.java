@@ -1,8 +1,10 @@
 package com.scholar.controller.collaboration;
 
 import com.scholar.service.AuthService;
+import com.scholar.service.ChangeFeedClient;
 import com.scholar.service.CollaborationService;
 import com.scholar.service.TelegramService;
+import com.scholar.util.MessageStore;
 import com.scholar.util.PopupHelper;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
@@ -14,6 +16,7 @@ import javafx.scene.layout.*;
 import javafx.stage.FileChooser;
 import javafx.stage.Window;
 import javafx.util.Duration;
+import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -31,8 +34,12 @@ public class ChatController {
 
     @Autowired private CollaborationService collaborationService;
     @Autowired private TelegramService telegramService;
+    @Autowired private ChangeFeedClient changeFeed;
 
     private Timeline chatTimeline;
+    private ChangeFeedClient.Subscription chatFeed;
+    private final MessageStore<CollaborationService.Message> messageStore =
+        new MessageStore<>(CollaborationService.Message::id, CollaborationService.Message::time, 500);
     private List<CollaborationService.TeamResource> currentResourceData = new ArrayList<>();
     private Window ownerWindow;
 
@@ -42,6 +49,7 @@ public class ChatController {
     public void showChatRoom(CollaborationService.Post post, VBox roomContainer) {
         roomContainer.getChildren().clear();
         if (chatTimeline != null) chatTimeline.stop();
+        messageStore.clear();
         if (roomContainer.getScene() != null) ownerWindow = roomContainer.getScene().getWindow();
 
         SplitPane splitPane = new SplitPane();
@@ -89,43 +97,56 @@ public class ChatController {
     // ----------------------------------------------------------
     public void refreshChat(int postId, VBox chatBox, ScrollPane scrollPane) {
         new Thread(() -> {
-            List<CollaborationService.Message> msgs = collaborationService.getMessages(postId);
+            // Only messages after the last one shown; bubbles are appended, never rebuilt
+            List<CollaborationService.Message> fresh =
+                messageStore.fetchNewer(after -> collaborationService.getMessagesSince(postId, after));
+            if (fresh.isEmpty()) return;
             Platform.runLater(() -> {
-                chatBox.getChildren().clear();
-                for (var msg : msgs) {
-                    Label label = new Label(msg.sender() + ": " + msg.content());
-                    label.setWrapText(true); label.setMaxWidth(300);
-                    HBox bubble = new HBox(label);
-                    if (msg.sender().equals(AuthService.CURRENT_USER_NAME)) {
-                        bubble.setAlignment(Pos.CENTER_RIGHT);
-                        label.setStyle("-fx-background-color: #dbeafe; -fx-padding: 8; -fx-background-radius: 5;");
-                    } else {
-                        bubble.setAlignment(Pos.CENTER_LEFT);
-                        label.setStyle("-fx-background-color: #e2e8f0; -fx-padding: 8; -fx-background-radius: 5;");
-                    }
-                    chatBox.getChildren().add(bubble);
-                }
-                chatBox.heightProperty().addListener(o -> scrollPane.setVvalue(1.0));
+                for (var msg : fresh) chatBox.getChildren().add(messageBubble(msg));
+                scrollPane.setVvalue(1.0);
             });
         }).start();
     }
 
+    private HBox messageBubble(CollaborationService.Message msg) {
+        Label label = new Label(msg.sender() + ": " + msg.content());
+        label.setWrapText(true); label.setMaxWidth(300);
+        HBox bubble = new HBox(label);
+        if (msg.sender().equals(AuthService.CURRENT_USER_NAME)) {
+            bubble.setAlignment(Pos.CENTER_RIGHT);
+            label.setStyle("-fx-background-color: #dbeafe; -fx-padding: 8; -fx-background-radius: 5;");
+        } else {
+            bubble.setAlignment(Pos.CENTER_LEFT);
+            label.setStyle("-fx-background-color: #e2e8f0; -fx-padding: 8; -fx-background-radius: 5;");
+        }
+        return bubble;
+    }
+
     // ----------------------------------------------------------
-    // AUTO REFRESH
+    // AUTO REFRESH — pushed via the change feed, polled only while it is down
     // ----------------------------------------------------------
     public void startChatAutoRefresh(int postId, VBox chatBox, ScrollPane scrollPane, VBox roomContainer) {
-        if (chatTimeline != null) chatTimeline.stop();
-        chatTimeline = new Timeline(new KeyFrame(Duration.seconds(3),
-            e -> refreshChat(postId, chatBox, scrollPane)));
+        stopAutoRefresh();
+        chatFeed = changeFeed.subscribe("team_chat:" + postId, ev -> {
+            JSONObject row = ev.optJSONObject("row");
+            if (row == null) { refreshChat(postId, chatBox, scrollPane); return; }
+            var msg = new CollaborationService.Message(row.optString("id"),
+                row.optString("sender"), row.optString("content"), row.optString("created_at", null));
+            if (messageStore.appendPushed(msg)) Platform.runLater(() -> chatBox.getChildren().add(messageBubble(msg)));
+        });
+        chatTimeline = new Timeline(new KeyFrame(Duration.seconds(3), e -> {
+            if (!changeFeed.isLive()) refreshChat(postId, chatBox, scrollPane);
+        }));
         chatTimeline.setCycleCount(Timeline.INDEFINITE);
         chatTimeline.play();
         roomContainer.sceneProperty().addListener((obs, old, nev) -> {
-            if (nev == null && chatTimeline != null) chatTimeline.stop();
+            if (nev == null) stopAutoRefresh();
         });
     }
 
     public void stopAutoRefresh() {
         if (chatTimeline != null) chatTimeline.stop();
+        if (chatFeed != null) { chatFeed.close(); chatFeed = null; }
     }
 
     // ----------------------------------------------------------
@@ -4,6 +4,7 @@ import com.scholar.service.AuthService;
 import com.scholar.service.CollaborationService;
 import com.scholar.service.ProfileService;
 import com.scholar.service.TelegramService;
+import com.scholar.util.MessageStore;
 import com.scholar.util.NewPopupHelper;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -37,6 +38,8 @@ public class TeamWorkspaceController {
     @Autowired private TelegramService telegramService; // 🌟 ADDED Telegram Service
 
     private ScheduledExecutorService chatPoller;
+    private final MessageStore<CollaborationService.Message> chatStore =
+        new MessageStore<>(CollaborationService.Message::id, CollaborationService.Message::time, 500);
     private final ExecutorService executor =
             Executors.newCachedThreadPool(r -> { Thread t = new Thread(r); t.setDaemon(true); return t; });
 
@@ -209,6 +212,7 @@ public class TeamWorkspaceController {
         inputRow.getChildren().addAll(msgField, sendBtn);
         root.getChildren().addAll(scroll, inputRow);
 
+        chatStore.clear();
         fetchAndRenderMessages(post.id(), msgBox, scroll);
         startChatPoller(post.id(), msgBox, scroll);
         tab.setContent(root);
@@ -217,10 +221,12 @@ public class TeamWorkspaceController {
 
     private void fetchAndRenderMessages(int postId, VBox msgBox, ScrollPane scroll) {
         executor.submit(() -> {
-            List<CollaborationService.Message> msgs = collaborationService.getMessages(postId);
+            // Append-only: just the messages after the last one shown
+            List<CollaborationService.Message> fresh =
+                chatStore.fetchNewer(after -> collaborationService.getMessagesSince(postId, after));
+            if (fresh.isEmpty()) return;
             Platform.runLater(() -> {
-                msgBox.getChildren().clear();
-                for (var m : msgs) {
+                for (var m : fresh) {
                     VBox bubble = new VBox(2);
                     Label sender = new Label(m.sender());
                     sender.setStyle("-fx-font-size:10px; -fx-text-fill:#64748b; -fx-font-weight:bold;");
@@ -1,8 +1,10 @@
 package com.scholar.controller.dashboard;
 
 import com.scholar.service.*;
+import com.scholar.model.RecurringClass;
 import com.scholar.model.StudyTask;
 import com.scholar.util.PopupHelper;
+import com.scholar.util.TaskStore;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.geometry.Pos;
@@ -32,12 +34,12 @@ public class AdminBroadcastController {
     @Autowired private RoutineManager routineManager;
 
     private VBox pendingListContainer;
-    private List<StudyTask> allTasks;
+    private TaskStore taskStore;
     private Runnable onAfterBroadcast; // refreshTimeline + drawCalendar
 
-    public void init(VBox pendingListContainer, List<StudyTask> allTasks, Runnable onAfterBroadcast) {
+    public void init(VBox pendingListContainer, TaskStore taskStore, Runnable onAfterBroadcast) {
         this.pendingListContainer = pendingListContainer;
-        this.allTasks             = allTasks;
+        this.taskStore            = taskStore;
         this.onAfterBroadcast     = onAfterBroadcast;
     }
 
@@ -80,6 +82,7 @@ public class AdminBroadcastController {
                     List<StudyTask> tempTasks;
                     boolean classOffApplied = false;
                     boolean classOffReversed = false;
+                    int routineClasses = 0;
 
                     if (isRoutine) {
                         RoutineManager.ClassOffCommand cmd = RoutineManager.parseClassOffCommand(rawText);
@@ -97,7 +100,10 @@ public class AdminBroadcastController {
                             }
                             tempTasks = new ArrayList<>();
                         } else {
-                            tempTasks = routineManager.processVarsitySchedule(rawText);
+                            // Stored as weekly rules; the timeline/calendar expand them per day
+                            List<RecurringClass> rules = routineManager.processVarsitySchedule(rawText);
+                            if (dataService.saveRoutineRules(rules)) routineClasses = rules.size();
+                            tempTasks = new ArrayList<>();
                         }
                     } else {
                         List<StudyTask> rawNotices = aiService.parseAdminNotice(rawText, LocalDate.now().toString());
@@ -116,6 +122,7 @@ public class AdminBroadcastController {
 
                     final boolean classOffAppliedFinal = classOffApplied;
                     final boolean classOffReversedFinal = classOffReversed;
+                    final int routineClassesFinal = routineClasses;
                     Platform.runLater(() -> {
                         loadingPopup.close();
                         if (classOffReversedFinal) {
@@ -124,10 +131,13 @@ public class AdminBroadcastController {
                         } else if (classOffAppliedFinal) {
                             if (onAfterBroadcast != null) onAfterBroadcast.run();
                             showSuccess("✅ Class Off Applied (" + rawText + ")");
+                        } else if (routineClassesFinal > 0) {
+                            if (onAfterBroadcast != null) onAfterBroadcast.run();
+                            showSuccess("Successfully Broadcasted " + routineClassesFinal + " weekly classes! ⚡");
                         } else if (generatedTasks.isEmpty()) {
                             showError("AI couldn't understand the text. Please format it clearly.");
                         } else {
-                            allTasks.addAll(generatedTasks);
+                            taskStore.addAll(generatedTasks);
                             if (onAfterBroadcast != null) onAfterBroadcast.run();
                             showSuccess("Successfully Broadcasted " + generatedTasks.size() + " items! ⚡");
                         }
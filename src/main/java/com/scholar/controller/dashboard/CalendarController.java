@@ -4,6 +4,8 @@ import com.scholar.model.StudyTask;
 import com.scholar.model.ClassOffPeriod;
 import com.scholar.service.WeatherService;
 import com.scholar.util.PopupHelper;
+import com.scholar.util.RoutineSchedule;
+import com.scholar.util.TaskStore;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -26,7 +28,6 @@ import java.time.YearMonth;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * CalendarController — draws a dark-theme monthly calendar grid.
@@ -53,8 +54,8 @@ public class CalendarController {
 
     private GridPane calendarGrid;
     private Label    monthLabel;
-    private List<StudyTask> allTasks;
-    private List<ClassOffPeriod> classOffPeriods = new java.util.ArrayList<>();
+    private TaskStore taskStore;
+    private RoutineSchedule routineSchedule = new RoutineSchedule();
     private LocalDate selectedDate;
 
     private java.util.function.Consumer<LocalDate> onDateClickedCallback;
@@ -70,12 +71,12 @@ public class CalendarController {
     // ── init ──────────────────────────────────────────────────────────────────
     public void init(GridPane calendarGrid,
                      Label monthLabel,
-                     List<StudyTask> allTasks,
+                     TaskStore taskStore,
                      java.util.function.Supplier<LocalDate> selectedDateSupplier,
                      java.util.function.Consumer<LocalDate> onDateClicked) {
         this.calendarGrid          = calendarGrid;
         this.monthLabel            = monthLabel;
-        this.allTasks              = allTasks;
+        this.taskStore             = taskStore;
         this.selectedDate          = selectedDateSupplier.get();
         this.onDateClickedCallback = onDateClicked;
 
@@ -92,9 +93,7 @@ public class CalendarController {
     }
 
     public void setSelectedDate(LocalDate date) { this.selectedDate = date; }
-    public void setClassOffPeriods(List<ClassOffPeriod> periods) {
-        this.classOffPeriods = periods != null ? periods : new java.util.ArrayList<>();
-    }
+    public void setRoutineSchedule(RoutineSchedule schedule) { this.routineSchedule = schedule; }
 
     // ── drawCalendar ──────────────────────────────────────────────────────────
     public void drawCalendar(LocalDate selectedDate) {
@@ -168,9 +167,12 @@ public class CalendarController {
         int daysInMonth = currentMonth.lengthOfMonth();
         int row = 2, col = startDay;
 
+        // One interval-tree walk for the month; each cell then reads its slot
+        ClassOffPeriod[] offByDay = routineSchedule.classOffDays(currentMonth.atDay(1), daysInMonth);
+
         for (int day = 1; day <= daysInMonth; day++) {
             LocalDate cellDate = currentMonth.atDay(day);
-            calendarGrid.add(createDayBox(day, cellDate, selectedDate), col, row);
+            calendarGrid.add(createDayBox(day, cellDate, selectedDate, offByDay[day - 1]), col, row);
             col++;
             if (col > 6) { col = 0; row++; }
         }
@@ -198,7 +200,7 @@ public class CalendarController {
      *   task dot         →  #6366f1 (always indigo, visible on dark bg)
      *   weather label bg →  rgba(255,255,255,0.07) normal | rgba(255,255,255,0.18) today
      */
-    private VBox createDayBox(int day, LocalDate date, LocalDate selectedDate) {
+    private VBox createDayBox(int day, LocalDate date, LocalDate selectedDate, ClassOffPeriod offForDay) {
         VBox box = new VBox(4);
         box.setAlignment(Pos.TOP_CENTER);
         box.setPadding(new Insets(6));
@@ -215,7 +217,6 @@ public class CalendarController {
         String boxStyle;
         String lblStyle;
 
-        ClassOffPeriod offForDay = classOffForDate(date);
         boolean isClassOff = offForDay != null;
 
         if (isClassOff) {
@@ -303,12 +304,11 @@ public class CalendarController {
         }
 
         // ── Task dot ──────────────────────────────────────────
-        List<StudyTask> tasksForThisDay = allTasks.stream()
-            .filter(t -> t.date() != null && t.date().equals(date.toString()))
-            .filter(t -> !(isClassOff && "ROUTINE".equals(t.type())))
-            .collect(Collectors.toList());
+        boolean hasTasks = isClassOff
+            ? taskStore.onDate(date).stream().anyMatch(t -> !"ROUTINE".equals(t.type()))
+            : taskStore.hasTasksOn(date) || routineSchedule.hasClassesOn(date);
 
-        if (!tasksForThisDay.isEmpty()) {
+        if (hasTasks) {
             // Always visible — green if class off
             Circle dot = new Circle(3, Color.web(isClassOff ? "#22c55e" : "#6366f1"));
             box.getChildren().add(dot);
@@ -319,7 +319,7 @@ public class CalendarController {
             this.selectedDate = date;
             drawCalendar(this.selectedDate);
             if (onDateClickedCallback != null) onDateClickedCallback.accept(date);
-            openClimateAndTaskPopup(date, tasksForThisDay);
+            openClimateAndTaskPopup(date, tasksOn(date, isClassOff));
         });
 
         return box;
@@ -482,11 +482,13 @@ public class CalendarController {
     }
 
     private ClassOffPeriod classOffForDate(LocalDate date) {
-        if (date == null || classOffPeriods == null) return null;
-        for (ClassOffPeriod p : classOffPeriods) {
-            if (p.startDate() == null || p.endDate() == null) continue;
-            if (!date.isBefore(p.startDate()) && !date.isAfter(p.endDate())) return p;
-        }
-        return null;
+        return routineSchedule.classOffOn(date);
+    }
+
+    /** Stored tasks of the day (legacy ROUTINE rows hidden when off) plus its weekly classes. */
+    private List<StudyTask> tasksOn(LocalDate date, boolean isClassOff) {
+        List<StudyTask> stored = taskStore.onDate(date);
+        if (isClassOff) stored.removeIf(t -> "ROUTINE".equals(t.type()));
+        return TaskStore.mergeByStart(stored, routineSchedule.occurrencesOn(date));
     }
 }
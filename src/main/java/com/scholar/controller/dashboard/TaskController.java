@@ -2,9 +2,12 @@ package com.scholar.controller.dashboard;
 
 import com.scholar.model.StudyTask;
 import com.scholar.model.ClassOffPeriod;
+import com.scholar.model.RecurringClass;
 import com.scholar.service.AuthService;
 import com.scholar.service.DataService;
 import com.scholar.util.PopupHelper;
+import com.scholar.util.RoutineSchedule;
+import com.scholar.util.TaskStore;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -18,7 +21,6 @@ import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * TASK CONTROLLER — Timeline, Backlog, Completed, Mark Done, Delete
@@ -29,21 +31,22 @@ public class TaskController {
 
     @Autowired private DataService dataService;
 
-    private List<StudyTask> allTasks;
+    private TaskStore taskStore;
     private VBox timelineContainer;
     private java.util.function.Supplier<LocalDate> selectedDateSupplier;
     private java.util.function.Supplier<String> viewModeSupplier;
     private Runnable onRefreshCalendar;
     private java.util.function.Consumer<List<ClassOffPeriod>> onClassOffLoaded;
-    private List<ClassOffPeriod> classOffPeriods = new java.util.ArrayList<>();
+    // Weekly ROUTINE rules + class-off periods; ROUTINE tasks are expanded per shown day
+    private final RoutineSchedule routineSchedule = new RoutineSchedule();
 
-    public void init(List<StudyTask> allTasks,
+    public void init(TaskStore taskStore,
                      VBox timelineContainer,
                      java.util.function.Supplier<LocalDate> selectedDateSupplier,
                      java.util.function.Supplier<String> viewModeSupplier,
                      Runnable onRefreshCalendar,
                      java.util.function.Consumer<List<ClassOffPeriod>> onClassOffLoaded) {
-        this.allTasks = allTasks;
+        this.taskStore = taskStore;
         this.timelineContainer = timelineContainer;
         this.selectedDateSupplier = selectedDateSupplier;
         this.viewModeSupplier = viewModeSupplier;
@@ -51,6 +54,9 @@ public class TaskController {
         this.onClassOffLoaded = onClassOffLoaded;
     }
 
+    /** Shared with CalendarController so both expand the same rules. */
+    public RoutineSchedule routineSchedule() { return routineSchedule; }
+
     // ----------------------------------------------------------
     // LOAD FROM DB
     // ----------------------------------------------------------
@@ -58,12 +64,13 @@ public class TaskController {
         new Thread(() -> {
             try {
                 List<StudyTask> dbTasks = dataService.loadAllTasks();
+                List<RecurringClass> rules = dataService.loadRoutineRules();
                 List<ClassOffPeriod> offPeriods = dataService.loadClassOffPeriods();
                 Platform.runLater(() -> {
-                    allTasks.clear();
-                    allTasks.addAll(dbTasks);
-                    classOffPeriods = offPeriods != null ? offPeriods : new java.util.ArrayList<>();
-                    if (onClassOffLoaded != null) onClassOffLoaded.accept(classOffPeriods);
+                    taskStore.load(dbTasks);
+                    routineSchedule.load(rules, offPeriods);
+                    if (onClassOffLoaded != null)
+                        onClassOffLoaded.accept(offPeriods != null ? offPeriods : new java.util.ArrayList<>());
                     refreshTimeline();
                     if (afterLoad != null) afterLoad.run();
                 });
@@ -90,32 +97,22 @@ public class TaskController {
             timelineContainer.getChildren().add(buildClassOffCard(offForDay));
         }
 
-        List<StudyTask> displayTasks = allTasks.stream()
-            .filter(t -> {
-                if ("BACKLOG".equals(currentViewMode))
-                    return "PERSONAL".equals(t.type()) && "BACKLOG".equals(t.status());
-                else if ("COMPLETED".equals(currentViewMode))
-                    return "PERSONAL".equals(t.type()) && "COMPLETED".equals(t.status());
-                else {
-                    if (t.date() == null || !t.date().equals(selectedDate.toString())) return false;
-                    if (isClassOffDay && "ROUTINE".equals(t.type())) return false;
-                    if ("PERSONAL".equals(t.type()))
-                        return !"COMPLETED".equals(t.status()) && !"BACKLOG".equals(t.status());
-                    return true;
-                }
-            })
-            .sorted((t1, t2) -> {
-                if ("Anytime".equalsIgnoreCase(t1.startTime())) return -1;
-                if ("Anytime".equalsIgnoreCase(t2.startTime())) return 1;
-                try {
-                    java.time.format.DateTimeFormatter f =
-                        java.time.format.DateTimeFormatter.ofPattern("hh:mm a");
-                    java.time.LocalTime time1 = java.time.LocalTime.parse(t1.startTime().toUpperCase(), f);
-                    java.time.LocalTime time2 = java.time.LocalTime.parse(t2.startTime().toUpperCase(), f);
-                    return time1.compareTo(time2);
-                } catch (Exception e) { return 0; }
-            })
-            .collect(Collectors.toList());
+        // Store buckets are already in start-time order
+        List<StudyTask> displayTasks;
+        if ("BACKLOG".equals(currentViewMode)) {
+            displayTasks = taskStore.withTypeAndStatus("PERSONAL", "BACKLOG");
+        } else if ("COMPLETED".equals(currentViewMode)) {
+            displayTasks = taskStore.withTypeAndStatus("PERSONAL", "COMPLETED");
+        } else {
+            List<StudyTask> stored = new java.util.ArrayList<>();
+            for (StudyTask t : taskStore.onDate(selectedDate)) {
+                if (isClassOffDay && "ROUTINE".equals(t.type())) continue;
+                if ("PERSONAL".equals(t.type())
+                        && ("COMPLETED".equals(t.status()) || "BACKLOG".equals(t.status()))) continue;
+                stored.add(t);
+            }
+            displayTasks = TaskStore.mergeByStart(stored, routineSchedule.occurrencesOn(selectedDate));
+        }
 
         if (displayTasks.isEmpty()) {
             Label emptyLbl = new Label("No tasks found in " + currentViewMode + " view.");
@@ -192,12 +189,7 @@ public class TaskController {
     }
 
     private ClassOffPeriod classOffForDate(LocalDate date) {
-        if (date == null || classOffPeriods == null) return null;
-        for (ClassOffPeriod p : classOffPeriods) {
-            if (p.startDate() == null || p.endDate() == null) continue;
-            if (!date.isBefore(p.startDate()) && !date.isAfter(p.endDate())) return p;
-        }
-        return null;
+        return routineSchedule.classOffOn(date);
     }
 
     // ----------------------------------------------------------
@@ -358,8 +350,7 @@ public class TaskController {
         new Thread(() -> {
             if (dataService.updateTaskStatus(task.id(), status, date, time)) {
                 Platform.runLater(() -> {
-                    allTasks.remove(task);
-                    allTasks.add(new StudyTask(task.id(), task.title(), date, time,
+                    taskStore.replace(task, new StudyTask(task.id(), task.title(), date, time,
                         task.durationMinutes(), task.roomNo(), task.type(), task.tags(),
                         task.creatorRole(), task.ctCourse(), task.ctSyllabus(), status, task.importance()));
                     refreshTimeline();
@@ -378,7 +369,15 @@ public class TaskController {
             "Delete Task",
             "Are you sure you want to delete '" + task.title() + "'?",
             () -> {
-                allTasks.remove(task);
+                if (RoutineSchedule.isOccurrenceId(task.id())) {
+                    // One day of a weekly class: the rule skips it, then re-expand
+                    new Thread(() -> {
+                        dataService.deleteTask(task.id(), task.type(), task.creatorRole());
+                        Platform.runLater(() -> loadTasksFromDatabase(onRefreshCalendar));
+                    }).start();
+                    return;
+                }
+                taskStore.remove(task);
                 refreshTimeline();
                 if (onRefreshCalendar != null) onRefreshCalendar.run();
                 new Thread(() -> dataService.deleteTask(task.id(), task.type(), task.creatorRole())).start();
@@ -542,18 +541,19 @@ public class TaskController {
                     boolean isUpdated = dataService.updateTaskDetails(
                         task.id(), newTitle, newTime, newRoom, newDesc,
                         newCtCourse, newCtSyllabus, newImportance);
-                    if (isUpdated) {
+                    if (isUpdated && RoutineSchedule.isOccurrenceId(task.id())) {
+                        // Saved to the weekly rule — every occurrence changes
+                        Platform.runLater(() -> {
+                            loadTasksFromDatabase(onRefreshCalendar);
+                            showSuccess("Weekly class updated for every week! 🚀");
+                        });
+                    } else if (isUpdated) {
                         Platform.runLater(() -> {
-                            for (int i = 0; i < allTasks.size(); i++) {
-                                if (allTasks.get(i).id().equals(task.id())) {
-                                    allTasks.set(i, new StudyTask(
-                                        task.id(), newTitle, task.date(), newTime,
-                                        task.durationMinutes(), newRoom, task.type(), newDesc,
-                                        task.creatorRole(), newCtCourse, newCtSyllabus,
-                                        task.status(), newImportance));
-                                    break;
-                                }
-                            }
+                            taskStore.replace(task, new StudyTask(
+                                task.id(), newTitle, task.date(), newTime,
+                                task.durationMinutes(), newRoom, task.type(), newDesc,
+                                task.creatorRole(), newCtCourse, newCtSyllabus,
+                                task.status(), newImportance));
                             refreshTimeline();
                             showSuccess("Task Details Saved to Supabase Successfully! 🚀");
                         });
@@ -649,16 +649,11 @@ public class TaskController {
                 boolean isUpdated = dataService.updateTaskStatus(task.id(), "PENDING", newDate, newTime);
                 if (isUpdated) {
                     Platform.runLater(() -> {
-                        for (int i = 0; i < allTasks.size(); i++) {
-                            if (allTasks.get(i).id().equals(task.id())) {
-                                allTasks.set(i, new StudyTask(
-                                    task.id(), task.title(), newDate, newTime,
-                                    task.durationMinutes(), task.roomNo(), task.type(), task.tags(),
-                                    task.creatorRole(), task.ctCourse(), task.ctSyllabus(),
-                                    "PENDING", task.importance()));
-                                break;
-                            }
-                        }
+                        taskStore.replace(task, new StudyTask(
+                            task.id(), task.title(), newDate, newTime,
+                            task.durationMinutes(), task.roomNo(), task.type(), task.tags(),
+                            task.creatorRole(), task.ctCourse(), task.ctSyllabus(),
+                            "PENDING", task.importance()));
                         refreshTimeline();
                         showSuccess("Task Rescheduled to " + newDate + "! 🚀");
                     });
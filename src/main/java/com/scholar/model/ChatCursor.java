@@ -0,0 +1,19 @@
+package com.scholar.model;
+
+/**
+ * ChatCursor — position in a chat stream, ordered by (created_at, id).
+ * createdAt is the timestamptz text exactly as returned by the server,
+ * so it round-trips through "?::timestamptz" without loss.
+ *
+ * created_at defaults to now(), the inserting transaction's start time, so
+ * a row can commit after rows stamped later than it. "Since" queries read
+ * from createdAt - LOOKBACK and MessageStore drops the repeats by id.
+ * Path: src/main/java/com/scholar/model/ChatCursor.java
+ */
+public record ChatCursor(
+        String createdAt,
+        String id
+) {
+    /** SQL interval subtracted from the cursor time; longer than a chat insert transaction. */
+    public static final String LOOKBACK = "interval '5 seconds'";
+}
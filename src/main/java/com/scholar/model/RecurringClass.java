@@ -1,9 +1,33 @@
 package com.scholar.model;
 
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * One weekly class from the admin's routine (routine_rules row).
+ * ROUTINE StudyTasks are expanded from it per visible day instead of stored.
+ */
 public record RecurringClass(
+    String id,
     String courseName,
     String dayOfWeek, // "MONDAY", "TUESDAY", etc.
-    String startTime, // "10:00"
+    String startTime, // "10:00 AM"
     int durationMinutes,
-    String roomNumber
-) {}
\ No newline at end of file
+    String roomNumber,
+    String description,
+    LocalDate startDate,
+    LocalDate endDate,          // inclusive
+    Set<LocalDate> skippedDates // single occurrences the admin deleted
+) {
+    public DayOfWeek day() {
+        try { return DayOfWeek.valueOf(dayOfWeek.trim().toUpperCase(java.util.Locale.ROOT)); }
+        catch (RuntimeException e) { return null; }
+    }
+
+    public boolean occursOn(LocalDate date) {
+        return date.getDayOfWeek() == day()
+            && !date.isBefore(startDate) && !date.isAfter(endDate)
+            && (skippedDates == null || !skippedDates.contains(date));
+    }
+}
@@ -1,68 +1,46 @@
 package com.scholar.service;
 
-import dev.langchain4j.model.chat.ChatLanguageModel;
-import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
-import io.github.cdimascio.dotenv.Dotenv;
 import org.json.JSONObject;
-import org.springframework.beans.factory.annotation.Value; // 🟢 নতুন
-import org.springframework.stereotype.Service; // 🟢 নতুন
-import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+
+/**
+ * Smart-upload tagging and the tutor chat.
+ *
+ * Both used to hold their own LangChain4j Gemini client (2.5 Flash for
+ * tagging, 2.5 Pro for the tutor); they now go through LlmRouter, whose
+ * default routes still prefer those models (llm.route.tagging / .tutoring).
+ */
 @Service
 public class AIOrchestrator {
 
-    private static final Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
-    private static final String GOOGLE_API_KEY = dotenv.get("GOOGLE_API_KEY"); 
-
-    // 1. THE LIBRARIAN: Gemini 2.5 Flash
-    // Optimized for speed and high volume (reading PDFs)
-    private final ChatLanguageModel librarian;
-
-    // 2. THE TUTOR: Gemini 2.5 Pro
-    // Optimized for deep reasoning (answering "Why?" questions)
-    private final ChatLanguageModel tutor;
-    
+    private static final double TAGGING_TEMPERATURE = 0.1;   // low creativity for accurate tagging
+    private static final double TUTOR_TEMPERATURE   = 0.7;   // higher creativity for natural chat
 
-    public AIOrchestrator() {
-        if (GOOGLE_API_KEY == null) {
-            System.err.println("❌ ERROR: GOOGLE_API_KEY not found in .env!");
-        }
-
-        // Initialize Gemini 2.5 Flash
-        this.librarian = GoogleAiGeminiChatModel.builder()
-                .apiKey(GOOGLE_API_KEY)
-                .modelName("gemini-2.5-flash") 
-                .temperature(0.1) // Low creativity for accurate OCR/Tagging
-                .build();
-
-        // Initialize Gemini 2.5 Pro
-        this.tutor = GoogleAiGeminiChatModel.builder()
-                .apiKey(GOOGLE_API_KEY)
-                .modelName("gemini-2.5-pro") 
-                .temperature(0.7) // Higher creativity for natural chat
-                .build();
-    }
+    @Autowired private LlmRouter llm;
 
     /**
-     * Feature: Smart Ingest (Uses Gemini 2.5 Flash)
+     * Feature: Smart Ingest (Task.TAGGING)
      */
     public JSONObject autoTagResource(String textInfo) {
         String prompt = """
             You are a rigorous academic librarian. Analyze this text:
             "%s"
-            
+
             Return a JSON object with:
             - 'course': Course Code (e.g. CSE 201)
             - 'topic': Main Topic (e.g. DP, MST)
             - 'type': 'CT-Question', 'Term-Final', or 'Class-Note'
             - 'summary': A 1-sentence summary.
-            
+
             Return ONLY JSON.
             """.formatted(textInfo);
 
         try {
-            String response = librarian.generate(prompt);
+            String response = llm.complete(LlmRouter.Task.TAGGING, AuthService.CURRENT_USER_ID,
+                new LlmProvider.Prompt(null, prompt, TAGGING_TEMPERATURE, 0)).text();
             response = response.replace("```json", "").replace("```", "").trim();
             return new JSONObject(response);
         } catch (Exception e) {
@@ -71,9 +49,15 @@ public class AIOrchestrator {
     }
 
     /**
-     * Feature: Viva/Tutor Chat (Uses Gemini 2.5 Pro)
+     * Feature: Viva/Tutor Chat (Task.TUTORING)
      */
     public String askTutor(String question) {
-        return tutor.generate("You are a friendly CSE Professor. Briefly explain: " + question);
+        try {
+            return llm.complete(LlmRouter.Task.TUTORING, AuthService.CURRENT_USER_ID,
+                new LlmProvider.Prompt(null, "You are a friendly CSE Professor. Briefly explain: " + question,
+                                       TUTOR_TEMPERATURE, 0)).text();
+        } catch (IOException e) {
+            return LlmRouter.errorHtml(e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
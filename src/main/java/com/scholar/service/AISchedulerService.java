@@ -3,39 +3,28 @@ package com.scholar.service;
 import com.scholar.model.StudyTask;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.core.type.TypeReference;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /**
- * AI Scheduler Service — powered by Groq (OpenAI-compatible API).
+ * AI Scheduler Service — schedule / routine / notice parsing and study guides.
  *
- * MIGRATION: Gemini → Groq
- * ─────────────────────────
- * • API key is read from application.properties
- * • Endpoint: https://api.groq.com/openai/v1/chat/completions
- * • Model is configurable via groq.model (default: llama-3.1-70b-versatile)
+ * Prompts go through LlmRouter: parsing as Task.SCHEDULING (Groq first by
+ * default, see llm.route.scheduling), resource metadata as Task.TAGGING and
+ * study guides as Task.TUTORING. Usage counts against the signed-in user's
+ * daily token budget.
  */
 @Service
 public class AISchedulerService {
 
-    // ── Groq config ───────────────────────────────────────────────
-    private static final String GROQ_URL = "https://api.groq.com/openai/v1/chat/completions";
-
-    @Value("${groq.api.key:}")
-    private String groqApiKey;
-
-    @Value("${groq.model:llama-3.1-70b-versatile}")
-    private String groqModel;
+    private static final double TEMPERATURE = 0.2;
 
     private final ObjectMapper jsonMapper = new ObjectMapper();
-    private final HttpClient httpClient = HttpClient.newHttpClient();
+    @Autowired private LlmRouter llm;
 
     // ══════════════════════════════════════════════════════════════
     // ENGINE: SCHEDULE GENERATOR
@@ -66,7 +55,7 @@ public class AISchedulerService {
         try {
             return sendAndParse(prompt);
         } catch (Exception e) {
-            System.err.println("❌ Groq Error (generateSchedule): " + e.getMessage());
+            System.err.println("❌ AI Error (generateSchedule): " + e.getMessage());
             return Collections.emptyList();
         }
     }
@@ -93,7 +82,7 @@ public class AISchedulerService {
             """.formatted(topic, rawContent);
 
         try {
-            return callGroqRaw(prompt);
+            return generate(LlmRouter.Task.TUTORING, prompt);
         } catch (Exception e) {
             return "❌ AI failed to generate guide: " + e.getMessage();
         }
@@ -125,7 +114,7 @@ public class AISchedulerService {
         try {
             return sendAndParse(prompt);
         } catch (Exception e) {
-            System.err.println("❌ Groq Parsing Error in Varsity Routine: " + e.getMessage());
+            System.err.println("❌ AI Parsing Error in Varsity Routine: " + e.getMessage());
             return Collections.emptyList();
         }
     }
@@ -156,7 +145,7 @@ public class AISchedulerService {
 
         try {
             // Returns raw JSON string — same as Gemini version
-            return callGroqRaw(prompt);
+            return generate(LlmRouter.Task.SCHEDULING, prompt);
         } catch (Exception e) {
             return "[]";
         }
@@ -200,7 +189,7 @@ public class AISchedulerService {
                 TAGS: #tag1, #tag2, #tag3
                 """.formatted(title, topicName);
 
-            String response = callGroqRaw(prompt);
+            String response = generate(LlmRouter.Task.TAGGING, prompt);
 
             // Parse DESC and TAGS lines
             String desc = "A helpful resource for " + title;
@@ -246,47 +235,18 @@ public class AISchedulerService {
         try {
             return sendAndParse(prompt);
         } catch (Exception e) {
-            System.err.println("❌ Groq Parsing Error in Notice: " + e.getMessage());
+            System.err.println("❌ AI Parsing Error in Notice: " + e.getMessage());
             return Collections.emptyList();
         }
     }
 
     // ══════════════════════════════════════════════════════════════
-    // PRIVATE: GROQ HTTP CALL
+    // PRIVATE: LLM CALL
     // ══════════════════════════════════════════════════════════════
 
-    private String callGroqRaw(String prompt) throws Exception {
-        if (groqApiKey == null || groqApiKey.isBlank()) {
-            throw new IllegalStateException("groq.api.key is missing. Set it in application.properties.");
-        }
-
-        String jsonBody = "{\"model\":\"%s\",\"messages\":[{\"role\":\"user\",\"content\":\"%s\"}],\"temperature\":0.2}".formatted(
-            escapeJson(groqModel),
-            escapeJson(prompt)
-        );
-
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(GROQ_URL))
-            .header("Content-Type", "application/json")
-            .header("Authorization", "Bearer " + groqApiKey)
-            .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-            .build();
-
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("Groq returned HTTP " + response.statusCode() + " — " + response.body());
-        }
-
-        return extractTextFromGroq(response.body());
-    }
-
-    private String extractTextFromGroq(String rawResponse) throws Exception {
-        var root = jsonMapper.readTree(rawResponse);
-        if (!root.has("choices")) return "Error: No AI Choices";
-
-        return root.path("choices").get(0)
-                   .path("message").path("content").asText();
+    private String generate(LlmRouter.Task task, String prompt) throws IOException {
+        return llm.complete(task, AuthService.CURRENT_USER_ID,
+                            new LlmProvider.Prompt(null, prompt, TEMPERATURE, 0)).text();
     }
 
     // ══════════════════════════════════════════════════════════════
@@ -294,7 +254,7 @@ public class AISchedulerService {
     // ══════════════════════════════════════════════════════════════
 
     private List<StudyTask> sendAndParse(String prompt) throws Exception {
-        String responseText = callGroqRaw(prompt);
+        String responseText = generate(LlmRouter.Task.SCHEDULING, prompt);
         return extractJsonList(responseText);
     }
 
@@ -318,14 +278,4 @@ public class AISchedulerService {
             return Collections.emptyList();
         }
     }
-
-    private String escapeJson(String text) {
-        if (text == null) return "";
-        return text
-            .replace("\\", "\\\\")
-            .replace("\"", "\\\"")
-            .replace("\n", "\\n")
-            .replace("\r", "")
-            .replace("\t", "\\t");
-    }
 }
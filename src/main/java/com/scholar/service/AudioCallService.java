@@ -1,5 +1,11 @@
 package com.scholar.service;
 
+import com.scholar.util.AudioFrame;
+import com.scholar.util.AudioMixer;
+import com.scholar.util.JitterBuffer;
+import com.scholar.util.VoiceActivityDetector;
+import com.scholar.util.VoiceCodec;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import javax.sound.sampled.*;
 import java.net.URI;
@@ -8,46 +14,91 @@ import java.net.http.HttpClient;
 import java.net.http.WebSocket;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
+/**
+ * AudioCallService — voice room client (mic → /audio-stream → speaker).
+ *
+ * Framed protocol (AudioFrame, framed=1): 20 ms frames with seq + capture
+ * timestamp. Upstream, a VoiceActivityDetector drops silent frames, so an
+ * idle participant sends nothing. Downstream, frames go into one
+ * JitterBuffer per source; a 20 ms playout clock takes a frame from each,
+ * sums them (server mix = one source) and writes to a small speaker buffer.
+ * Mic, send and playout buffers are allocated once per call.
+ *
+ * Payloads use the VoiceCodec the relay confirms (CODEC:<name>) from the
+ * audio.codec preference list; a relay that never answers gets PCM.
+ */
 @Service
 public class AudioCallService {
 
+    private static final int HANGOVER_FRAMES = 10;          // keep sending 200 ms after speech
+    private static final int SPEAKER_BUFFER  = AudioMixer.FRAME_BYTES * 6;
+    private static final int MAX_PAYLOAD     = AudioMixer.FRAME_BYTES * 4;
+    private static final long CODEC_WAIT_MS  = 2_000;
+
+    @Value("${audio.server-mix:false}")
+    private boolean serverMix;   // one mixed stream from the relay (AudioWebSocketHandler mix=1)
+
+    @Value("${audio.codec:adpcm,ulaw}")
+    private String codecPreference;   // offered in order; see VoiceCodec
+
     private TargetDataLine mic;
     private SourceDataLine speaker;
     private WebSocket webSocket;
-    private boolean inCall = false;
-    private boolean isMuted = false; // 🌟 মিউট ট্র্যাক করার জন্য
+    private volatile boolean inCall = false;
+    private volatile boolean isMuted = false; // 🌟 মিউট ট্র্যাক করার জন্য
+    private volatile CompletableFuture<VoiceCodec.Format> codec = new CompletableFuture<>();
+
+    private final Map<Integer, JitterBuffer> sources = new ConcurrentHashMap<>();
+    private volatile long framesSent, framesSuppressed, framesBackpressured, bytesSent;
+
+    public record CallStats(String codec, long framesSent, long framesSuppressed, long framesBackpressured,
+                            long bytesSent, int sources, long played, long lost, long late, double maxJitterMs) {}
 
     public void joinVoiceChannel(String roomId, String userName, Consumer<String> onUsersUpdate) {
         if (inCall) return;
-        isMuted = false; 
+        isMuted = false;
+        sources.clear();
+        framesSent = framesSuppressed = framesBackpressured = bytesSent = 0;
+        codec = new CompletableFuture<>();
 
         try {
-            AudioFormat format = new AudioFormat(16000.0f, 16, 1, true, true);
+            AudioFormat format = new AudioFormat(AudioMixer.SAMPLE_RATE, 16, 1, true, true);
 
             DataLine.Info micInfo = new DataLine.Info(TargetDataLine.class, format);
             mic = (TargetDataLine) AudioSystem.getLine(micInfo);
             mic.open(format); mic.start();
 
+            // Small device buffer: the jitter buffer, not the sound card, decides playout delay
             DataLine.Info speakerInfo = new DataLine.Info(SourceDataLine.class, format);
             speaker = (SourceDataLine) AudioSystem.getLine(speakerInfo);
-            speaker.open(format); speaker.start();
+            speaker.open(format, SPEAKER_BUFFER); speaker.start();
 
             // লিংকের সাথে নিজের নাম যুক্ত করে সার্ভারে কানেক্ট করা
             String encodedName = URLEncoder.encode(userName, StandardCharsets.UTF_8);
-            String wsUrl = "ws://localhost:8080/audio-stream?roomId=" + roomId + "&userName=" + encodedName;
+            String wsUrl = "ws://localhost:8080/audio-stream?roomId=" + roomId + "&userName=" + encodedName
+                    + "&framed=1&codec=" + codecPreference + (serverMix ? "&mix=1" : "");
 
             HttpClient client = HttpClient.newHttpClient();
             webSocket = client.newWebSocketBuilder()
                     .buildAsync(URI.create(wsUrl), new WebSocket.Listener() {
-                        
+                        private final ByteBuffer staging = ByteBuffer.allocate(8 * 1024);
+
                         @Override
                         public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
-                            byte[] audioBytes = new byte[data.remaining()];
-                            data.get(audioBytes);
-                            speaker.write(audioBytes, 0, audioBytes.length);
+                            if (data.remaining() <= staging.remaining()) staging.put(data);
+                            if (last) {
+                                staging.flip();
+                                receive(staging);
+                                staging.clear();
+                            }
                             return WebSocket.Listener.super.onBinary(webSocket, data, last);
                         }
 
@@ -57,6 +108,9 @@ public class AudioCallService {
                             String msg = data.toString();
                             if (msg.startsWith("USERS:")) {
                                 onUsersUpdate.accept(msg.replace("USERS:", ""));
+                            } else if (msg.startsWith("CODEC:")) {
+                                VoiceCodec.Format f = VoiceCodec.Format.of(msg.substring("CODEC:".length()));
+                                codec.complete(f != null ? f : VoiceCodec.Format.PCM);
                             }
                             return WebSocket.Listener.super.onText(webSocket, data, last);
                         }
@@ -65,16 +119,14 @@ public class AudioCallService {
             inCall = true;
 
             // মাইক্রোফোন লজিক
-            new Thread(() -> {
-                byte[] buffer = new byte[1024];
-                while (inCall) {
-                    int bytesRead = mic.read(buffer, 0, buffer.length);
-                    // 🌟 Mute করা থাকলে সার্ভারে ডাটা পাঠাবে না!
-                    if (bytesRead > 0 && webSocket != null && !isMuted) {
-                        webSocket.sendBinary(ByteBuffer.wrap(buffer, 0, bytesRead), true);
-                    }
-                }
-            }).start();
+            Thread capture = new Thread(this::captureLoop, "voice-capture");
+            capture.setDaemon(true);
+            capture.start();
+
+            Thread playout = new Thread(this::playoutLoop, "voice-playout");
+            playout.setDaemon(true);
+            playout.setPriority(Thread.MAX_PRIORITY);
+            playout.start();
 
         } catch (Exception e) { e.printStackTrace(); }
     }
@@ -89,4 +141,102 @@ public class AudioCallService {
     // 🌟 মিউট এবং আনমিউট টগল করার মেথড
     public void toggleMute() { isMuted = !isMuted; }
     public boolean isMuted() { return isMuted; }
-}
\ No newline at end of file
+
+    public CallStats stats() {
+        long played = 0, lost = 0, late = 0;
+        double jitter = 0;
+        for (JitterBuffer jb : sources.values()) {
+            played += jb.played(); lost += jb.lost(); late += jb.late();
+            jitter = Math.max(jitter, jb.jitterMs());
+        }
+        VoiceCodec.Format f = codec.getNow(null);
+        return new CallStats(f != null ? f.wireName : "pending", framesSent, framesSuppressed,
+                framesBackpressured, bytesSent, sources.size(), played, lost, late, jitter);
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PRIVATE
+    // ──────────────────────────────────────────────────────────────
+
+    /** The relay's CODEC: answer; PCM if it does not send one (older relay). */
+    private VoiceCodec.Format awaitCodec() {
+        try {
+            return codec.get(CODEC_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            codec.complete(VoiceCodec.Format.PCM);
+            return codec.getNow(VoiceCodec.Format.PCM);
+        }
+    }
+
+    /** 20 ms mic frames → VAD gate → encode → framed send; one send in flight, two rotating buffers. */
+    private void captureLoop() {
+        VoiceCodec encoder = awaitCodec().newCodec();
+        byte[] pcm = new byte[AudioMixer.FRAME_BYTES];
+        byte[][] out = new byte[2][AudioFrame.HEADER_BYTES + encoder.maxEncodedBytes(AudioMixer.FRAME_BYTES)];
+        ByteBuffer[] wrapped = { ByteBuffer.wrap(out[0]), ByteBuffer.wrap(out[1]) };
+        VoiceActivityDetector vad = new VoiceActivityDetector(HANGOVER_FRAMES);
+        CompletableFuture<WebSocket> inFlight = CompletableFuture.completedFuture(null);
+        int next = 0, seq = 0;
+        long timestamp = 0;
+
+        while (inCall) {
+            int bytesRead = mic.read(pcm, 0, pcm.length);
+            long frameTs = timestamp;
+            timestamp += bytesRead / 2;
+            // 🌟 Mute করা থাকলে সার্ভারে ডাটা পাঠাবে না!
+            if (bytesRead <= 0 || webSocket == null || isMuted) continue;
+            if (!vad.isSpeech(pcm, 0, bytesRead)) { framesSuppressed++; continue; }
+            // the previous frame is still being written: drop this one rather than queue up delay
+            if (!inFlight.isDone()) { framesBackpressured++; continue; }
+
+            AudioFrame.writeHeader(out[next], vad.startedTalkspurt() ? AudioFrame.FLAG_MARKER : 0, 0, seq, frameTs);
+            int length = AudioFrame.HEADER_BYTES + encoder.encode(pcm, 0, bytesRead, out[next], AudioFrame.HEADER_BYTES);
+            ByteBuffer frame = wrapped[next].clear().limit(length);
+            inFlight = webSocket.sendBinary(frame, true);
+            bytesSent += length;
+            seq = (seq + 1) & 0xFFFF;
+            next ^= 1;
+            framesSent++;
+        }
+    }
+
+    private void receive(ByteBuffer frame) {
+        if (!AudioFrame.isFramed(frame)) {
+            // unframed peer relay: play as-is (old behaviour)
+            if (speaker != null) speaker.write(frame.array(), frame.position(), frame.remaining());
+            return;
+        }
+        sources.computeIfAbsent(AudioFrame.source(frame),
+                k -> new JitterBuffer(MAX_PAYLOAD, AudioMixer.FRAME_MS, AudioMixer.SAMPLE_RATE))
+               .put(frame, System.nanoTime());
+    }
+
+    /** Every 20 ms: one frame from each source's jitter buffer, decoded and summed, to the speaker. */
+    private void playoutLoop() {
+        VoiceCodec decoder = awaitCodec().newCodec();
+        byte[] frame = new byte[MAX_PAYLOAD];
+        byte[] pcm = new byte[MAX_PAYLOAD * 4];   // ADPCM decodes to < 4x its size
+        byte[] out = new byte[AudioMixer.FRAME_BYTES];
+        int[] acc = new int[AudioMixer.FRAME_SAMPLES];
+        long frameNanos = AudioMixer.FRAME_MS * 1_000_000L;
+        long deadline = System.nanoTime();
+
+        while (inCall) {
+            AudioMixer.clear(acc);
+            boolean audible = false;
+            for (JitterBuffer jb : sources.values()) {
+                int n = jb.take(frame);
+                if (n > 0) AudioMixer.accumulatePcm(acc, pcm, decoder.decode(frame, 0, n, pcm, 0));
+                audible |= n != JitterBuffer.TAKE_NOTHING;   // a lost frame plays as silence
+            }
+            if (audible) {
+                AudioMixer.mixMinusInto(acc, null, out);
+                speaker.write(out, 0, out.length);
+            }
+            deadline += frameNanos;
+            long wait = deadline - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            else if (wait < -5 * frameNanos) deadline = System.nanoTime();   // fell far behind: resync the clock
+        }
+    }
+}
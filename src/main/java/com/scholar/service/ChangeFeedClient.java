@@ -0,0 +1,185 @@
+package com.scholar.service;
+
+import org.json.JSONObject;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ChangeFeedClient — UI-side subscriber to /change-feed (ChangeFeedWebSocketHandler).
+ *
+ * Controllers subscribe per topic ("study_room_chat:<roomId>", "team_chat:<postId>", ...)
+ * and get the NOTIFY payload as JSON on the WebSocket thread:
+ *   {"topic": ..., "row": {...}}  → a new row, append it
+ *   {"topic": ...}                → something changed (or the row was too big), re-fetch
+ *   {"topic": ..., "resync": true} → feed (re)connected, re-fetch once
+ *
+ * isLive() is false while the socket or the server's LISTEN session is down;
+ * controllers keep their old polling Timeline and only run it then.
+ */
+@Service
+public class ChangeFeedClient {
+
+    private static final Logger LOG = Logger.getLogger(ChangeFeedClient.class.getName());
+
+    private static final String FEED_URL = "ws://localhost:8080/change-feed";
+    private static final long MIN_BACKOFF_MS = 1_000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    /** Cancels one subscription. */
+    public interface Subscription extends AutoCloseable {
+        @Override void close();
+    }
+
+    private final Map<String, List<Consumer<JSONObject>>> handlers = new ConcurrentHashMap<>();
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final ScheduledExecutorService reconnector = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "change-feed-reconnect");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean connecting = new AtomicBoolean(false);
+
+    private volatile WebSocket socket;
+    private volatile boolean   serverLive;
+    private long backoffMs = MIN_BACKOFF_MS;
+    private CompletableFuture<WebSocket> sendChain = CompletableFuture.completedFuture(null);
+
+    public Subscription subscribe(String topic, Consumer<JSONObject> onEvent) {
+        handlers.computeIfAbsent(topic, k -> new CopyOnWriteArrayList<>()).add(onEvent);
+        if (socket != null) send("SUB:" + topic);
+        else connect();
+        return () -> {
+            List<Consumer<JSONObject>> list = handlers.get(topic);
+            if (list == null) return;
+            list.remove(onEvent);
+            if (list.isEmpty()) {
+                handlers.remove(topic);
+                if (socket != null) send("UNSUB:" + topic);
+            }
+        };
+    }
+
+    /** True when pushes are flowing; polling fallbacks should idle. */
+    public boolean isLive() {
+        return socket != null && serverLive;
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PRIVATE: CONNECTION
+    // ──────────────────────────────────────────────────────────────
+
+    private void connect() {
+        if (!connecting.compareAndSet(false, true)) return;
+        http.newWebSocketBuilder()
+            .buildAsync(URI.create(FEED_URL), new Listener())
+            .whenComplete((ws, err) -> {
+                connecting.set(false);
+                if (err != null) scheduleReconnect();
+            });
+    }
+
+    private void scheduleReconnect() {
+        socket = null;
+        serverLive = false;
+        long delay;
+        synchronized (this) {
+            delay = backoffMs;
+            backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        }
+        if (!handlers.isEmpty()) reconnector.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /** java.net.http.WebSocket allows one outstanding send — chain them. */
+    private synchronized void send(String text) {
+        WebSocket ws = socket;
+        if (ws == null) return;
+        sendChain = sendChain
+            .exceptionally(e -> null)
+            .thenCompose(prev -> ws.sendText(text, true));
+    }
+
+    private void handle(String message) {
+        if (message.startsWith("STATUS:")) {
+            boolean wasLive = isLive();
+            serverLive = message.equals("STATUS:LIVE");
+            if (!wasLive && isLive()) resyncAll();
+            return;
+        }
+        try {
+            JSONObject event = new JSONObject(message);
+            deliver(event.optString("topic", ""), event);
+        } catch (Exception e) {
+            LOG.log(Level.FINE, "ChangeFeedClient: ignoring " + message, e);
+        }
+    }
+
+    private void resyncAll() {
+        for (String topic : handlers.keySet()) {
+            deliver(topic, new JSONObject().put("topic", topic).put("resync", true));
+        }
+    }
+
+    private void deliver(String topic, JSONObject event) {
+        List<Consumer<JSONObject>> list = handlers.get(topic);
+        if (list == null) return;
+        for (Consumer<JSONObject> h : list) {
+            try {
+                h.accept(event);
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "ChangeFeedClient: handler failed for " + topic, e);
+            }
+        }
+    }
+
+    private final class Listener implements WebSocket.Listener {
+        private final StringBuilder partial = new StringBuilder();
+
+        @Override
+        public void onOpen(WebSocket ws) {
+            socket = ws;
+            synchronized (ChangeFeedClient.this) { backoffMs = MIN_BACKOFF_MS; }
+            for (String topic : handlers.keySet()) send("SUB:" + topic);
+            ws.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                String message = partial.toString();
+                partial.setLength(0);
+                handle(message);
+            }
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+            scheduleReconnect();
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket ws, Throwable error) {
+            LOG.log(Level.FINE, "ChangeFeedClient: socket error", error);
+            scheduleReconnect();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.scholar.service;
+
+import org.json.JSONObject;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ChangeFeedService — Postgres LISTEN/NOTIFY → in-process sinks.
+ *
+ * Holds ONE dedicated session (not from the pool: LISTEN needs a real
+ * session, which the Supabase transaction pooler on :6543 cannot give)
+ * listening on "scholar_changes". The triggers in db/006 publish
+ * {"topic": ..., "row": {...}} for every chat / board row the UI used to
+ * poll for; each payload is handed to the registered sinks
+ * (ChangeFeedWebSocketHandler fans it out per topic).
+ *
+ * Sinks also get onStatus(false) while the session is down so clients
+ * fall back to polling, and onStatus(true) once it is back (→ resync).
+ */
+@Service
+public class ChangeFeedService {
+
+    private static final Logger LOG = Logger.getLogger(ChangeFeedService.class.getName());
+
+    public static final String CHANNEL = "scholar_changes";
+
+    private static final int  POLL_TIMEOUT_MS = 10_000;   // keep-alive probe after this much silence
+    private static final long MIN_BACKOFF_MS  = 1_000;
+    private static final long MAX_BACKOFF_MS  = 30_000;
+
+    public interface Sink {
+        void onChange(String topic, String payload);
+        void onStatus(boolean live);
+    }
+
+    @Value("${db.listen.url:}")
+    private String listenUrl;
+    @Value("${spring.datasource.url}")
+    private String datasourceUrl;
+    @Value("${spring.datasource.username}")
+    private String username;
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    private final List<Sink> sinks = new CopyOnWriteArrayList<>();
+    private volatile boolean live;
+    private volatile boolean running;
+    private Thread listener;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listener = new Thread(this::runListener, "change-feed-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listener != null) listener.interrupt();
+    }
+
+    public void addSink(Sink sink) {
+        sinks.add(sink);
+    }
+
+    public boolean isLive() {
+        return live;
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PRIVATE
+    // ──────────────────────────────────────────────────────────────
+
+    private void runListener() {
+        long backoff = MIN_BACKOFF_MS;
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(sessionUrl(), username, password);
+                 Statement st = conn.createStatement()) {
+                st.execute("LISTEN " + CHANNEL);
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                setLive(true);
+                backoff = MIN_BACKOFF_MS;
+                LOG.info("ChangeFeedService: listening on " + CHANNEL);
+
+                while (running) {
+                    PGNotification[] batch = pg.getNotifications(POLL_TIMEOUT_MS);
+                    if (batch == null || batch.length == 0) {
+                        st.execute("SELECT 1");          // detects a dead session
+                        continue;
+                    }
+                    for (PGNotification n : batch) dispatch(n.getParameter());
+                }
+            } catch (SQLException e) {
+                if (running) LOG.log(Level.WARNING, "ChangeFeedService: listener session lost — clients fall back to polling", e);
+            }
+            setLive(false);
+            if (!running) return;
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    private void dispatch(String payload) {
+        String topic;
+        try {
+            topic = new JSONObject(payload).optString("topic", "");
+        } catch (Exception e) {
+            LOG.warning("ChangeFeedService: bad payload " + payload);
+            return;
+        }
+        if (topic.isEmpty()) return;
+        for (Sink sink : sinks) {
+            try {
+                sink.onChange(topic, payload);
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "ChangeFeedService: sink failed for " + topic, e);
+            }
+        }
+    }
+
+    private void setLive(boolean value) {
+        if (live == value) return;
+        live = value;
+        for (Sink sink : sinks) {
+            try { sink.onStatus(value); } catch (RuntimeException ignored) {}
+        }
+    }
+
+    /** Session-mode URL: db.listen.url, else the pooler URL moved from :6543 (transaction) to :5432 (session). */
+    private String sessionUrl() {
+        if (listenUrl != null && !listenUrl.isBlank()) return listenUrl;
+        return datasourceUrl.replace(":6543/", ":5432/");
+    }
+}
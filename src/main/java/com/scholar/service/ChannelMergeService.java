@@ -2,7 +2,6 @@ package com.scholar.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -31,7 +30,7 @@ import java.util.UUID;
 public class ChannelMergeService {
 
     @Autowired
-    private DataSource dataSource;
+    private ConnectionAccess connectionAccess;
 
     // ═══════════════════════════════════════════════════════════════
     // 1.  SETTINGS — save & load
@@ -51,7 +50,7 @@ public class ChannelMergeService {
             DO UPDATE SET allow_merge = EXCLUDED.allow_merge,
                           privacy_mode = EXCLUDED.privacy_mode
             """;
-        try (Connection conn = dataSource.getConnection();
+        try (Connection conn = connectionAccess.acquire();
              PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setInt(1, channelId);
             pst.setBoolean(2, allowMerge);
@@ -69,7 +68,7 @@ public class ChannelMergeService {
      */
     public String[] getSettings(int channelId) {
         String sql = "SELECT allow_merge, privacy_mode FROM channel_settings WHERE channel_id = ?";
-        try (Connection conn = dataSource.getConnection();
+        try (Connection conn = connectionAccess.acquire();
              PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setInt(1, channelId);
             ResultSet rs = pst.executeQuery();
@@ -104,7 +103,7 @@ public class ChannelMergeService {
               AND c.is_merged_hub = false
             ORDER BY c.name
             """;
-        try (Connection conn = dataSource.getConnection();
+        try (Connection conn = connectionAccess.acquire();
              PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setInt(1, myChannelId);
             ResultSet rs = pst.executeQuery();
@@ -134,7 +133,7 @@ public class ChannelMergeService {
             SELECT id FROM merge_requests
             WHERE sender_channel_id = ? AND receiver_channel_id = ? AND status = 'PENDING'
             """;
-        try (Connection conn = dataSource.getConnection()) {
+        try (Connection conn = connectionAccess.acquire()) {
             try (PreparedStatement chk = conn.prepareStatement(checkSql)) {
                 chk.setInt(1, senderId);
                 chk.setInt(2, receiverId);
@@ -174,7 +173,7 @@ public class ChannelMergeService {
             WHERE r.receiver_channel_id = ? AND r.status = 'PENDING'
             ORDER BY r.created_at DESC
             """;
-        try (Connection conn = dataSource.getConnection();
+        try (Connection conn = connectionAccess.acquire();
              PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setInt(1, myChannelId);
             ResultSet rs = pst.executeQuery();
@@ -197,7 +196,7 @@ public class ChannelMergeService {
      */
     public boolean rejectMergeRequest(int reqId) {
         String sql = "UPDATE merge_requests SET status = 'REJECTED' WHERE id = ? AND status = 'PENDING'";
-        try (Connection conn = dataSource.getConnection();
+        try (Connection conn = connectionAccess.acquire();
              PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setInt(1, reqId);
             return pst.executeUpdate() > 0;
@@ -229,7 +228,7 @@ public class ChannelMergeService {
      * @return "SUCCESS" or an error message
      */
     public String acceptMergeRequest(int reqId, String newHubName, UUID acceptingAdminId) {
-        try (Connection conn = dataSource.getConnection()) {
+        try (Connection conn = connectionAccess.acquire()) {
             conn.setAutoCommit(false);
             try {
                 // ── Step 1: Load request ─────────────────────────────────
@@ -414,7 +413,7 @@ public class ChannelMergeService {
             WHERE mh.original_channel_id = ?
             ORDER BY mh.joined_at DESC
             """;
-        try (Connection conn = dataSource.getConnection();
+        try (Connection conn = connectionAccess.acquire();
              PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setInt(1, originalChannelId);
             ResultSet rs = pst.executeQuery();
@@ -444,7 +443,7 @@ public class ChannelMergeService {
      * @param originalChannelId the channel leaving the hub
      */
     public boolean instantUnmerge(int hubId, int originalChannelId) {
-        try (Connection conn = dataSource.getConnection()) {
+        try (Connection conn = connectionAccess.acquire()) {
             conn.setAutoCommit(false);
             try {
                 // ── Remove this channel's users from hub ─────────────
@@ -0,0 +1,20 @@
+package com.scholar.service;
+
+/**
+ * Receives an LLM completion while it is generated
+ * (LlmRouter.stream, RAGService.answerWithRAGStream).
+ *
+ * Exactly one of onComplete / onError ends the stream. The callbacks run on
+ * the thread that called stream; throwing from onDelta (e.g. the client
+ * went away) aborts the request.
+ */
+public interface ChatStream {
+
+    /** The next piece of raw model text (markdown or HTML, as the prompt asked). */
+    void onDelta(String text);
+
+    default void onComplete() {}
+
+    /** The request failed; `html` is an LlmRouter.errorHtml() block. */
+    void onError(String html);
+}
@@ -1,5 +1,6 @@
 package com.scholar.service;
 
+import com.scholar.model.ChatCursor;
 import org.springframework.stereotype.Service;
 
 import java.sql.*;
@@ -17,7 +18,7 @@ public class CollaborationService {
     public record Requirement(int id, String question) {}
     public record Application(int id, String userId, String username, String status, List<String> answers, String profilePictureUrl) {}
     public record TeamResource(int id, String title, String url, String type, String desc, String fileId, String addedBy) {}
-    public record Message(String sender, String content, String time) {}
+    public record Message(String id, String sender, String content, String time) {}
 
     // ── NEW records ────────────────────────────────────────────────────────────
     public record Plan(int id, int postId, String title, String status, String completedAt) {}
@@ -59,7 +60,9 @@ public class CollaborationService {
     public boolean deleteChannel(int channelId) {
         // Fetch all post IDs in this channel first
         List<Integer> postIds = getPostIdsForChannel(channelId);
-        Connection conn = DatabaseConnection.getConnection();
+        Connection conn;
+        try { conn = DatabaseConnection.getConnection(); }
+        catch (SQLException e) { e.printStackTrace(); return false; }
         try {
             conn.setAutoCommit(false);
             for (int pid : postIds) deletePostCascade(conn, pid);
@@ -75,7 +78,7 @@ public class CollaborationService {
             try { conn.rollback(); } catch (SQLException ex) {}
             return false;
         } finally {
-            try { conn.setAutoCommit(true); } catch (SQLException ex) {}
+            try { conn.setAutoCommit(true); conn.close(); } catch (SQLException ex) {}
         }
     }
 
@@ -103,7 +106,9 @@ public class CollaborationService {
         String sqlPost   = "INSERT INTO posts (channel_id, title, description, max_members, created_by, status) VALUES (?, ?, ?, ?, ?::uuid, 'OPEN') RETURNING id";
         String sqlReq    = "INSERT INTO post_requirements (post_id, question) VALUES (?, ?)";
         String sqlMember = "INSERT INTO team_members (post_id, user_id, role, status) VALUES (?, ?::uuid, 'OWNER', 'APPROVED')";
-        Connection conn = DatabaseConnection.getConnection();
+        Connection conn;
+        try { conn = DatabaseConnection.getConnection(); }
+        catch (SQLException e) { e.printStackTrace(); return false; }
         try {
             conn.setAutoCommit(false);
             int postId = -1;
@@ -132,7 +137,7 @@ public class CollaborationService {
             e.printStackTrace();
             try { conn.rollback(); } catch (SQLException ex) {}
         } finally {
-            try { conn.setAutoCommit(true); } catch (SQLException ex) {}
+            try { conn.setAutoCommit(true); conn.close(); } catch (SQLException ex) {}
         }
         return false;
     }
@@ -141,7 +146,9 @@ public class CollaborationService {
      * Only the team owner (or admin) can delete. Cascades everything.
      */
     public boolean deletePost(int postId) {
-        Connection conn = DatabaseConnection.getConnection();
+        Connection conn;
+        try { conn = DatabaseConnection.getConnection(); }
+        catch (SQLException e) { e.printStackTrace(); return false; }
         try {
             conn.setAutoCommit(false);
             deletePostCascade(conn, postId);
@@ -152,7 +159,7 @@ public class CollaborationService {
             try { conn.rollback(); } catch (SQLException ex) {}
             return false;
         } finally {
-            try { conn.setAutoCommit(true); } catch (SQLException ex) {}
+            try { conn.setAutoCommit(true); conn.close(); } catch (SQLException ex) {}
         }
     }
 
@@ -232,7 +239,9 @@ public class CollaborationService {
 
         String sqlApply  = "INSERT INTO team_members (post_id, user_id, status, role) VALUES (?, ?::uuid, 'PENDING', 'MEMBER')";
         String sqlAnswer = "INSERT INTO application_answers (post_id, user_id, question_id, answer) VALUES (?, ?::uuid, ?, ?)";
-        Connection conn = DatabaseConnection.getConnection();
+        Connection conn;
+        try { conn = DatabaseConnection.getConnection(); }
+        catch (SQLException e) { e.printStackTrace(); return false; }
         try {
             conn.setAutoCommit(false);
             try (PreparedStatement p1 = conn.prepareStatement(sqlApply)) {
@@ -256,7 +265,7 @@ public class CollaborationService {
             try { conn.rollback(); } catch (SQLException ex) {}
             return false;
         } finally {
-            try { conn.setAutoCommit(true); } catch (SQLException ex) {}
+            try { conn.setAutoCommit(true); conn.close(); } catch (SQLException ex) {}
         }
     }
 
@@ -397,14 +406,25 @@ public class CollaborationService {
     }
 
     public List<Message> getMessages(int postId) {
+        return getMessagesSince(postId, null);
+    }
+
+    /**
+     * Team chat from ChatCursor.LOOKBACK before the cursor on, ASC by (created_at, id);
+     * repeats are dropped by id. A null cursor gives the whole history.
+     */
+    public List<Message> getMessagesSince(int postId, ChatCursor after) {
         List<Message> list = new ArrayList<>();
-        String sql = "SELECT u.username, m.content, m.created_at FROM messages m JOIN users u ON m.user_id = u.id WHERE m.post_id = ? ORDER BY m.created_at ASC";
+        String sql = "SELECT m.id::text AS id, u.username, m.content, m.created_at FROM messages m JOIN users u ON m.user_id = u.id WHERE m.post_id = ?"
+            + (after == null ? "" : " AND m.created_at >= ?::timestamptz - " + ChatCursor.LOOKBACK)
+            + " ORDER BY m.created_at ASC, m.id::text";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement p = conn.prepareStatement(sql)) {
             p.setInt(1, postId);
+            if (after != null) p.setString(2, after.createdAt());
             ResultSet rs = p.executeQuery();
             while (rs.next())
-                list.add(new Message(rs.getString("username"), rs.getString("content"), rs.getString("created_at")));
+                list.add(new Message(rs.getString("id"), rs.getString("username"), rs.getString("content"), rs.getString("created_at")));
         } catch (SQLException e) { e.printStackTrace(); }
         return list;
     }
@@ -512,7 +532,9 @@ public class CollaborationService {
      * Mark step done. Then check if ALL steps in plan are done → mark plan COMPLETED.
      */
     public boolean completeStep(int stepId, int planId) {
-        Connection conn = DatabaseConnection.getConnection();
+        Connection conn;
+        try { conn = DatabaseConnection.getConnection(); }
+        catch (SQLException e) { e.printStackTrace(); return false; }
         try {
             conn.setAutoCommit(false);
             // Mark step
@@ -545,7 +567,7 @@ public class CollaborationService {
             try { conn.rollback(); } catch (SQLException ex) {}
             return false;
         } finally {
-            try { conn.setAutoCommit(true); } catch (SQLException ex) {}
+            try { conn.setAutoCommit(true); conn.close(); } catch (SQLException ex) {}
         }
     }
 
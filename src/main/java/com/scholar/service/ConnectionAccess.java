@@ -0,0 +1,182 @@
+package com.scholar.service;
+
+import com.scholar.util.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * ConnectionAccess — the one way services get a JDBC connection.
+ *
+ * Hands out Hikari-pooled connections with no lock of its own (the old
+ * static synchronized DatabaseConnection.getConnection() serialized every
+ * caller on one monitor), wrapped in thin proxies that record per caller
+ * ("StudyRoomService.getPublicRooms"):
+ * 1. acquire wait — time spent inside DataSource.getConnection()
+ * 2. hold time   — acquire → close()
+ * 3. statement latency — every execute*() on statements it created
+ * Statements slower than db.slow-statement-ms are logged with their SQL.
+ *
+ * Used by DatabaseConnection, DataService.connect() and ChannelMergeService.
+ */
+@Component
+public class ConnectionAccess {
+
+    private static final Logger LOG = Logger.getLogger(ConnectionAccess.class.getName());
+
+    /** Frames skipped when resolving the calling service method. */
+    private static final Set<String> ACCESS_CLASSES = Set.of(
+        ConnectionAccess.class.getName(), DatabaseConnection.class.getName());
+
+    @Autowired private DataSource dataSource;
+
+    @Value("${db.slow-statement-ms:500}")
+    private long slowStatementMs;
+
+    private final ConcurrentHashMap<String, CallerMetrics> byCaller = new ConcurrentHashMap<>();
+
+    public record CallerStats(LatencyHistogram.Snapshot acquire, LatencyHistogram.Snapshot hold,
+                              LatencyHistogram.Snapshot statements, long acquireFailures,
+                              long slowStatements) {}
+
+    /** Pooled connection; close() returns it to the pool. Failures are thrown, never null. */
+    public Connection acquire() throws SQLException {
+        String caller = callerTag();
+        CallerMetrics m = byCaller.computeIfAbsent(caller, k -> new CallerMetrics());
+        long t0 = System.nanoTime();
+        Connection raw;
+        try {
+            raw = dataSource.getConnection();
+        } catch (SQLException e) {
+            m.acquireFailures.increment();
+            throw e;
+        }
+        long acquiredAt = System.nanoTime();
+        m.acquire.record(acquiredAt - t0);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[]{Connection.class}, new ConnectionHandler(raw, m, caller, acquiredAt));
+    }
+
+    /** Per-caller histograms, sorted by caller tag. */
+    public Map<String, CallerStats> stats() {
+        Map<String, CallerStats> out = new TreeMap<>();
+        byCaller.forEach((caller, m) -> out.put(caller, new CallerStats(
+            m.acquire.snapshot(), m.hold.snapshot(), m.statements.snapshot(),
+            m.acquireFailures.sum(), m.slowStatements.sum())));
+        return out;
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PRIVATE
+    // ──────────────────────────────────────────────────────────────
+
+    private static String callerTag() {
+        return StackWalker.getInstance().walk(frames -> frames
+            .filter(f -> !ACCESS_CLASSES.contains(f.getClassName())
+                && !(f.getClassName().equals(DataService.class.getName()) && f.getMethodName().equals("connect")))
+            .findFirst()
+            .map(f -> {
+                String cls = f.getClassName();
+                return cls.substring(cls.lastIndexOf('.') + 1) + "." + f.getMethodName();
+            })
+            .orElse("unknown"));
+    }
+
+    private static final class CallerMetrics {
+        final LatencyHistogram acquire    = new LatencyHistogram();
+        final LatencyHistogram hold       = new LatencyHistogram();
+        final LatencyHistogram statements = new LatencyHistogram();
+        final LongAdder acquireFailures   = new LongAdder();
+        final LongAdder slowStatements    = new LongAdder();
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection     target;
+        private final CallerMetrics  metrics;
+        private final String         caller;
+        private final long           acquiredAt;
+        private boolean              closed;
+
+        ConnectionHandler(Connection target, CallerMetrics metrics, String caller, long acquiredAt) {
+            this.target = target; this.metrics = metrics; this.caller = caller; this.acquiredAt = acquiredAt;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                if (!closed) {
+                    closed = true;
+                    metrics.hold.record(System.nanoTime() - acquiredAt);
+                }
+                return call(target, method, args);
+            }
+            Object result = call(target, method, args);
+            return switch (name) {
+                case "prepareStatement" -> wrap(PreparedStatement.class, result, (String) args[0]);
+                case "prepareCall"      -> wrap(CallableStatement.class, result, (String) args[0]);
+                case "createStatement"  -> wrap(Statement.class, result, null);
+                default                 -> result;
+            };
+        }
+
+        private Object wrap(Class<?> type, Object statement, String sql) {
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new StatementHandler(statement, metrics, caller, sql));
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Object        target;
+        private final CallerMetrics metrics;
+        private final String        caller;
+        private final String        preparedSql;
+
+        StatementHandler(Object target, CallerMetrics metrics, String caller, String preparedSql) {
+            this.target = target; this.metrics = metrics; this.caller = caller; this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) return call(target, method, args);
+            long t0 = System.nanoTime();
+            try {
+                return call(target, method, args);
+            } finally {
+                long elapsed = System.nanoTime() - t0;
+                metrics.statements.record(elapsed);
+                if (elapsed / 1_000_000 >= slowStatementMs) {
+                    metrics.slowStatements.increment();
+                    String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql;
+                    LOG.warning("Slow SQL (" + elapsed / 1_000_000 + " ms) in " + caller + ": "
+                        + (sql == null ? "<batch>" : sql.strip().replaceAll("\\s+", " ")));
+                }
+            }
+        }
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
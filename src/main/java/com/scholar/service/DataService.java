@@ -2,10 +2,11 @@ package com.scholar.service;
 
 import com.scholar.model.StudyTask;
 import com.scholar.model.ClassOffPeriod;
+import com.scholar.model.RecurringClass;
+import com.scholar.util.RoutineSchedule;
 import com.scholar.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import javax.sql.DataSource; // 🟢 Standard Spring DataSource
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,7 +15,7 @@ import java.util.List;
 public class DataService {
 
     @Autowired
-    private DataSource dataSource; // 🟢 ২. স্প্রিং বুট নিজে থেকেই কানেকশন পুল ইনজেক্ট করবে
+    private ConnectionAccess connectionAccess; // 🟢 ২. পুল থেকে কানেকশন (instrumented, no global lock)
 
     public DataService() {
         // ৩. কনস্ট্রাক্টর এখন খালি থাকবে কারণ স্প্রিং প্রপার্টি ফাইল থেকে ডাটাবেস কনফিগ নেবে
@@ -22,7 +23,7 @@ public class DataService {
 
     // 🌟 ৪. প্রপার স্প্রিং বুট ইমপ্লিমেন্টেশন: ইনজেক্ট করা dataSource থেকে কানেকশন নেওয়া
   public Connection connect() throws SQLException {
-        return dataSource.getConnection();
+        return connectionAccess.acquire();
     }
 
     // =================================================================
@@ -97,6 +98,10 @@ public class DataService {
     public void deleteTask(String taskId, String type, String creatorRole) {
         if (AuthService.CURRENT_USER_ID == null) return;
         if (("ROUTINE".equals(type) || "NOTICE".equals(type)) && !"admin".equals(AuthService.CURRENT_USER_ROLE)) return;
+        if (RoutineSchedule.isOccurrenceId(taskId)) {
+            skipRoutineOccurrence(RoutineSchedule.ruleId(taskId), RoutineSchedule.occurrenceDate(taskId));
+            return;
+        }
 
         String sql = "DELETE FROM study_tasks WHERE id = ?::uuid";
         try (Connection conn = connect(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -162,6 +167,9 @@ public class DataService {
     }
 
     public boolean updateTaskDetails(String taskId, String title, String startTime, String room, String desc, String ctCourse, String ctSyllabus, String importance) {
+        if (RoutineSchedule.isOccurrenceId(taskId)) {
+            return updateRoutineRule(RoutineSchedule.ruleId(taskId), title, startTime, room, desc);
+        }
         String sql = "UPDATE study_tasks SET title = ?, start_time = ?, room_no = ?, description = ?, ct_course = ?, ct_syllabus = ?, importance = ? WHERE id = ?::uuid";
         try (Connection conn = connect(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, title);
@@ -196,6 +204,126 @@ public class DataService {
         } catch (SQLException e) { return false; }
     }
 
+    // =================================================================
+    //  SECTION 2b: ROUTINE RULES
+    //  Weekly classes are stored once per rule; RoutineSchedule expands
+    //  them for the days on screen (see db/012_routine_rules.sql).
+    // =================================================================
+
+    public boolean saveRoutineRules(List<RecurringClass> rules) {
+        if (AuthService.CURRENT_CHANNEL_ID == -1 || rules == null || rules.isEmpty()) return false;
+        String sql = "INSERT INTO routine_rules (channel_id, title, day_of_week, start_time, duration_minutes, " +
+                     "room_no, description, start_date, end_date, created_by) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?::date, ?::date, ?::uuid)";
+        try (Connection conn = connect()) {
+            ensureRoutineRulesTable(conn);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (RecurringClass r : rules) {
+                    pstmt.setInt(1, AuthService.CURRENT_CHANNEL_ID);
+                    pstmt.setString(2, r.courseName());
+                    pstmt.setString(3, r.dayOfWeek());
+                    pstmt.setString(4, r.startTime());
+                    pstmt.setInt(5, r.durationMinutes());
+                    pstmt.setString(6, r.roomNumber() != null && !r.roomNumber().isEmpty() ? r.roomNumber() : null);
+                    pstmt.setString(7, r.description());
+                    pstmt.setDate(8, java.sql.Date.valueOf(r.startDate()));
+                    pstmt.setDate(9, java.sql.Date.valueOf(r.endDate()));
+                    pstmt.setObject(10, AuthService.CURRENT_USER_ID);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                return true;
+            }
+        } catch (SQLException e) { e.printStackTrace(); return false; }
+    }
+
+    /** Rules of the channel that have not ended yet. */
+    public List<RecurringClass> loadRoutineRules() {
+        if (AuthService.CURRENT_CHANNEL_ID == -1) return new ArrayList<>();
+        List<RecurringClass> list = new ArrayList<>();
+        String sql = "SELECT id, title, day_of_week, start_time, duration_minutes, room_no, description, " +
+                     "start_date, end_date, skipped_dates FROM routine_rules " +
+                     "WHERE channel_id = ? AND end_date >= CURRENT_DATE";
+        try (Connection conn = connect()) {
+            ensureRoutineRulesTable(conn);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, AuthService.CURRENT_CHANNEL_ID);
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    java.util.Set<java.time.LocalDate> skipped = new java.util.HashSet<>();
+                    Array arr = rs.getArray("skipped_dates");
+                    if (arr != null) {
+                        for (Object d : (Object[]) arr.getArray()) {
+                            if (d != null) skipped.add(((java.sql.Date) d).toLocalDate());
+                        }
+                    }
+                    list.add(new RecurringClass(
+                        String.valueOf(rs.getLong("id")), rs.getString("title"),
+                        rs.getString("day_of_week"), rs.getString("start_time"),
+                        rs.getInt("duration_minutes"), rs.getString("room_no"), rs.getString("description"),
+                        rs.getDate("start_date").toLocalDate(), rs.getDate("end_date").toLocalDate(),
+                        skipped
+                    ));
+                }
+            }
+        } catch (SQLException e) { e.printStackTrace(); }
+        return list;
+    }
+
+    /** Deleting one ROUTINE occurrence: the rule skips that date from now on. */
+    public boolean skipRoutineOccurrence(String ruleId, java.time.LocalDate date) {
+        String sql = "UPDATE routine_rules SET skipped_dates = array_append(skipped_dates, ?::date) " +
+                     "WHERE id = ? AND channel_id = ? AND NOT (?::date = ANY (skipped_dates))";
+        try (Connection conn = connect(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(date));
+            pstmt.setLong(2, Long.parseLong(ruleId));
+            pstmt.setInt(3, AuthService.CURRENT_CHANNEL_ID);
+            pstmt.setDate(4, java.sql.Date.valueOf(date));
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException | NumberFormatException e) { e.printStackTrace(); return false; }
+    }
+
+    /** Editing a ROUTINE occurrence edits its weekly rule. */
+    public boolean updateRoutineRule(String ruleId, String title, String startTime, String room, String desc) {
+        String sql = "UPDATE routine_rules SET title = ?, start_time = ?, room_no = ?, description = ? " +
+                     "WHERE id = ? AND channel_id = ?";
+        try (Connection conn = connect(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, title);
+            pstmt.setString(2, startTime);
+            pstmt.setString(3, room != null && !room.isEmpty() ? room : null);
+            pstmt.setString(4, desc);
+            pstmt.setLong(5, Long.parseLong(ruleId));
+            pstmt.setInt(6, AuthService.CURRENT_CHANNEL_ID);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException | NumberFormatException e) { e.printStackTrace(); return false; }
+    }
+
+    private void ensureRoutineRulesTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS routine_rules (" +
+                "id BIGSERIAL PRIMARY KEY," +
+                "channel_id INT NOT NULL," +
+                "title TEXT," +
+                "day_of_week TEXT NOT NULL," +
+                "start_time TEXT," +
+                "duration_minutes INT," +
+                "room_no TEXT," +
+                "description TEXT," +
+                "start_date DATE NOT NULL," +
+                "end_date DATE NOT NULL," +
+                "skipped_dates DATE[] NOT NULL DEFAULT '{}'," +
+                "created_by UUID," +
+                "created_at TIMESTAMPTZ DEFAULT NOW()" +
+                ")"
+            );
+            stmt.executeUpdate(
+                "CREATE INDEX IF NOT EXISTS idx_routine_rules_channel_end " +
+                "ON routine_rules (channel_id, end_date)"
+            );
+        }
+    }
+
     // =================================================================
     //  SECTION 3: CLASS OFF PERIODS
     // =================================================================
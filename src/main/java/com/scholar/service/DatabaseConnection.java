@@ -3,26 +3,26 @@ package com.scholar.service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
 
+/**
+ * Static entry point for code that is not a Spring bean (StudyRoomService,
+ * CollaborationService, JavaFX controllers). Delegates to ConnectionAccess:
+ * no global lock, and failures are thrown instead of returned as null.
+ */
 @Component
 public class DatabaseConnection {
 
-    private static DataSource dataSource;
+    private static ConnectionAccess access;
 
     @Autowired
-    public void setDataSource(DataSource dataSource) {
-        DatabaseConnection.dataSource = dataSource;
+    public void setConnectionAccess(ConnectionAccess access) {
+        DatabaseConnection.access = access;
     }
 
-    public static synchronized Connection getConnection() {
-        try {
-            return dataSource.getConnection();
-        } catch (SQLException e) {
-            System.err.println("❌ DB CONNECTION FAILED: " + e.getMessage());
-            return null;
-        }
+    public static Connection getConnection() throws SQLException {
+        if (access == null) throw new SQLException("Database not initialised yet");
+        return access.acquire();
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,21 @@
 package com.scholar.service;
 
+import com.scholar.util.EmbeddingCache;
+import com.scholar.util.VectorCodec;
 import okhttp3.*;
 import org.json.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 @Service
 public class EmbeddingService {
 
@@ -14,49 +25,131 @@ public class EmbeddingService {
     // Using OpenAI-compatible embeddings via OpenRouter
     private static final String EMBED_URL = "https://openrouter.ai/api/v1/embeddings";
     private static final String EMBED_MODEL = "openai/text-embedding-3-small"; // 1536 dims, cheap
+    public static final int DIMENSIONS = 1536;
+
+    @Value("${embedding.cache.dir:${user.home}/.scholargrid}")
+    private String cacheDir;
+    @Value("${embedding.cache.memory-entries:2048}")
+    private int cacheMemoryEntries;
+    @Value("${embedding.cache.disk-records:16384}")
+    private int cacheDiskRecords;
+
+    @Autowired private OutboundHttp outbound;
+
+    /** Two-tier (LRU + memory-mapped file) cache keyed by model-tagged text hash. */
+    private EmbeddingCache cache;
+
+    @PostConstruct
+    public void openCache() {
+        Path file = cacheDir == null || cacheDir.isBlank()
+            ? null
+            : Path.of(cacheDir, "embeddings-" + DIMENSIONS + ".bin");
+        cache = new EmbeddingCache(EMBED_MODEL, DIMENSIONS, cacheMemoryEntries, file, cacheDiskRecords);
+    }
+
+    @PreDestroy
+    public void closeCache() {
+        if (cache != null) cache.close();
+    }
 
-    private final OkHttpClient http = new OkHttpClient();
+    /** Hit/miss counters for both cache tiers. */
+    public EmbeddingCache.Stats cacheStats() {
+        return cache.stats();
+    }
 
     public float[] embed(String text) {
+        float[] vector = new float[DIMENSIONS];
+        embedInto(text, vector);
+        return vector;
+    }
+
+    /**
+     * Embeds text straight into a caller-owned buffer (length {@link #DIMENSIONS}).
+     * The response is streamed through VectorCodec — no JSONArray, no boxed values.
+     * Unchanged text is served from the cache; failed calls are never cached.
+     *
+     * @return false on failure; {@code out} is then zero-filled (same fallback as before)
+     */
+    public boolean embedInto(String text, float[] out) {
+        String input = truncate(text);
+        EmbeddingCache.Key key = cache.keyFor(input);
+        if (cache.get(key, out)) return true;
+
         try {
-            JSONObject body = new JSONObject();
-            body.put("model", EMBED_MODEL);
-            body.put("input", text.substring(0, Math.min(text.length(), 8000)));
-
-            Request request = new Request.Builder()
-                .url(EMBED_URL)
-                .header("Authorization", "Bearer " + apiKey)
-                .header("Content-Type", "application/json")
-                .post(RequestBody.create(body.toString(), MediaType.get("application/json")))
-                .build();
-
-            try (Response response = http.newCall(request).execute()) {
-                JSONObject json = new JSONObject(response.body().string());
-                JSONArray embArray = json
-                    .getJSONArray("data")
-                    .getJSONObject(0)
-                    .getJSONArray("embedding");
-
-                float[] vector = new float[embArray.length()];
-                for (int i = 0; i < embArray.length(); i++) {
-                    vector[i] = (float) embArray.getDouble(i);
-                }
-                return vector;
-            }
+            post(input, new float[][]{out});
+            cache.put(key, out);
+            return true;
         } catch (Exception e) {
             e.printStackTrace();
-            return new float[1536]; // zero vector fallback
+            Arrays.fill(out, 0f); // zero vector fallback
+            return false;
         }
     }
 
-    /** Convert float[] to Postgres vector string: '[0.1,0.2,...]' */
-    public String toVectorString(float[] vector) {
-        StringBuilder sb = new StringBuilder("[");
-        for (int i = 0; i < vector.length; i++) {
-            sb.append(vector[i]);
-            if (i < vector.length - 1) sb.append(",");
+    /**
+     * Multi-input embedding: cache hits are filled locally, all misses go out
+     * in ONE request using the OpenAI-compatible {@code "input": [...]} array.
+     * Unlike embedInto(), failures are thrown so callers can retry.
+     *
+     * @param out one buffer of length {@link #DIMENSIONS} per text
+     * @return number of texts that needed the network
+     */
+    public int embedBatch(List<String> texts, float[][] out) throws IOException {
+        List<String> missTexts = new ArrayList<>();
+        List<EmbeddingCache.Key> missKeys = new ArrayList<>();
+        List<float[]> missOut = new ArrayList<>();
+
+        for (int i = 0; i < texts.size(); i++) {
+            String input = truncate(texts.get(i));
+            EmbeddingCache.Key key = cache.keyFor(input);
+            if (cache.get(key, out[i])) continue;
+            missTexts.add(input);
+            missKeys.add(key);
+            missOut.add(out[i]);
         }
-        sb.append("]");
-        return sb.toString();
+        if (missTexts.isEmpty()) return 0;
+
+        post(new JSONArray(missTexts), missOut.toArray(new float[0][]));
+        for (int i = 0; i < missKeys.size(); i++) cache.put(missKeys.get(i), missOut.get(i));
+        return missTexts.size();
+    }
+
+    /** POSTs to /embeddings and streams every returned vector into {@code out[index]}. */
+    private void post(Object input, float[][] out) throws IOException {
+        JSONObject body = new JSONObject();
+        body.put("model", EMBED_MODEL);
+        body.put("input", input);
+
+        Request request = new Request.Builder()
+            .url(EMBED_URL)
+            .header("Authorization", "Bearer " + apiKey)
+            .header("Content-Type", "application/json")
+            .post(RequestBody.create(body.toString(), MediaType.get("application/json")))
+            .build();
+
+        try (Response response = outbound.newCall(OutboundHttp.Provider.OPENROUTER, request).execute()) {
+            if (!response.isSuccessful() || response.body() == null)
+                throw new IOException("Embedding HTTP " + response.code());
+            int[] lengths = new int[out.length];
+            int found = VectorCodec.readEmbeddings(response.body().charStream(), out, lengths);
+            if (found != out.length)
+                throw new IOException("Embedding response has " + found + " vectors, expected " + out.length);
+            for (int len : lengths) {
+                if (len != DIMENSIONS)
+                    throw new IOException("Embedding has " + len + " dims, expected " + DIMENSIONS);
+            }
+        }
+    }
+
+    private static String truncate(String text) {
+        return text.substring(0, Math.min(text.length(), 8000));
+    }
+
+    /**
+     * Convert float[] to Postgres vector string: '[0.1,0.2,...]'.
+     * Legacy text path — SQL should bind the float[] directly as {@code ?::real[]::vector}.
+     */
+    public String toVectorString(float[] vector) {
+        return VectorCodec.toVectorString(vector);
     }
-}
\ No newline at end of file
+}
@@ -1,25 +1,28 @@
 package com.scholar.service;
 
+import com.scholar.util.LatencyHistogram;
+import okhttp3.Call;
 import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.TimeUnit;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.function.Consumer;
 
+/** Gemini generateContent / streamGenerateContent (REST) as an LlmProvider, for any Gemini model. */
 @Service
-public class GeminiService {
+public class GeminiService implements LlmProvider {
 
-    private static final Logger LOG = Logger.getLogger(GeminiService.class.getName());
-
-    @Value("${gemini.api.key:}")
+    // GOOGLE_API_KEY is what the LangChain4j client in AIOrchestrator used to read
+    @Value("${gemini.api.key:${GOOGLE_API_KEY:}}")
     private String apiKey;
 
     @Value("${gemini.model:gemini-3.1-pro-flash-lite-preview}")
@@ -28,86 +31,117 @@ public class GeminiService {
     @Value("${gemini.api.url:https://generativelanguage.googleapis.com/v1beta/models/}")
     private String apiUrl;
 
-    private final OkHttpClient http = new OkHttpClient.Builder()
-        .callTimeout(60, TimeUnit.SECONDS)
-        .connectTimeout(15, TimeUnit.SECONDS)
-        .readTimeout(60, TimeUnit.SECONDS)
-        .build();
-
-    public String chat(String systemPrompt, String userMessage) {
-        if (apiKey == null || apiKey.isBlank()) {
-            return errorHtml("Gemini API key is missing. Set gemini.api.key in application.properties.");
+    @Autowired private OutboundHttp outbound;
+
+    private final LatencyHistogram ttft       = new LatencyHistogram();   // request → first text
+    private final LatencyHistogram streamTime = new LatencyHistogram();   // request → last text
+
+    @Override public String id()           { return "gemini"; }
+    @Override public String defaultModel() { return model; }
+    @Override public boolean configured()  { return apiKey != null && !apiKey.isBlank(); }
+
+    @Override
+    public Reply complete(String model, Prompt prompt, Cancellation cancellation) throws IOException {
+        Request request = request(model + ":generateContent?key=" + apiKey, prompt);
+        Call call = outbound.newCall(OutboundHttp.Provider.GEMINI, request);
+        cancellation.onCancel(() -> outbound.abandon(call));
+        try (Response response = call.execute()) {
+            String responseBody = response.body() != null ? response.body().string() : "";
+            JSONObject json = responseBody.isEmpty() ? new JSONObject() : new JSONObject(responseBody);
+            if (json.has("error"))
+                throw new IOException("Gemini error: " + json.getJSONObject("error").optString("message", "Unknown error"));
+            if (!response.isSuccessful())
+                throw new IOException("Gemini returned HTTP " + response.code());
+
+            String text = partsText(json);
+            if (text.isEmpty()) throw new IOException("Gemini returned an empty response");
+            JSONObject usage = json.optJSONObject("usageMetadata");
+            int tokens = usage != null && usage.has("totalTokenCount")
+                ? usage.getInt("totalTokenCount") : LlmProvider.estimateTokens(prompt, text);
+            return new Reply(text, tokens);
+        } catch (JSONException e) {
+            throw new IOException("Gemini returned malformed JSON", e);
         }
+    }
 
-        try {
-            String fullPrompt = systemPrompt + "\n\nUSER QUESTION:\n" + userMessage;
-
-            JSONObject body = new JSONObject();
-            JSONArray contents = new JSONArray();
-            JSONObject content = new JSONObject();
-            JSONArray parts = new JSONArray();
-            parts.put(new JSONObject().put("text", fullPrompt));
-            content.put("parts", parts);
-            contents.put(content);
-            body.put("contents", contents);
-
-            JSONObject gen = new JSONObject();
-            gen.put("temperature", 0.2);
-            gen.put("maxOutputTokens", 2000);
-            body.put("generationConfig", gen);
-
-            String url = apiUrl + model + ":generateContent?key=" + apiKey;
-            Request request = new Request.Builder()
-                .url(url)
-                .header("Content-Type", "application/json")
-                .post(RequestBody.create(body.toString(), MediaType.get("application/json")))
-                .build();
-
-            try (Response response = http.newCall(request).execute()) {
-                String responseBody = response.body() != null ? response.body().string() : "";
-                System.out.println("📡 Gemini [" + response.code() + "]: " + responseBody);
-
-                if (!response.isSuccessful()) {
-                    return errorHtml("Gemini returned HTTP " + response.code()
-                        + ". Check model name and API key.");
-                }
-
-                JSONObject json = new JSONObject(responseBody);
-                if (json.has("error")) {
-                    String errMsg = json.getJSONObject("error")
-                        .optString("message", "Unknown error");
-                    return errorHtml("Gemini error: " + errMsg);
-                }
-
-                if (!json.has("candidates") || json.getJSONArray("candidates").isEmpty()) {
-                    return errorHtml("Gemini returned an empty response. Try again.");
+    /**
+     * Streamed via streamGenerateContent (SSE). Time to the first text part is
+     * recorded in ttftStats(); the last event's usageMetadata gives the tokens.
+     */
+    @Override
+    public Reply stream(String model, Prompt prompt, Consumer<String> onDelta) throws IOException {
+        long start = System.nanoTime();
+        Request request = request(model + ":streamGenerateContent?alt=sse&key=" + apiKey, prompt);
+        try (Response response = outbound.newCall(OutboundHttp.Provider.GEMINI, request).execute()) {
+            if (!response.isSuccessful()) throw new IOException("Gemini returned HTTP " + response.code());
+
+            StringBuilder answer = new StringBuilder();
+            int tokens = 0;
+            try (BufferedReader in = new BufferedReader(response.body().charStream())) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (!line.startsWith("data:")) continue;
+                    JSONObject json = new JSONObject(line.substring(5).trim());
+                    if (json.has("error"))
+                        throw new IOException("Gemini error: "
+                            + json.getJSONObject("error").optString("message", "Unknown error"));
+                    JSONObject usage = json.optJSONObject("usageMetadata");
+                    if (usage != null) tokens = usage.optInt("totalTokenCount", tokens);
+                    String text = partsText(json);
+                    if (text.isEmpty()) continue;
+                    if (answer.isEmpty()) ttft.record(System.nanoTime() - start);
+                    answer.append(text);
+                    onDelta.accept(text);
                 }
+            }
+            if (answer.isEmpty()) throw new IOException("Gemini returned an empty response");
+            streamTime.record(System.nanoTime() - start);
+            return new Reply(answer.toString(), tokens > 0 ? tokens : LlmProvider.estimateTokens(prompt, answer.toString()));
+        } catch (JSONException e) {
+            throw new IOException("Gemini sent a malformed stream event", e);
+        }
+    }
 
-                JSONObject candidate = json.getJSONArray("candidates").getJSONObject(0);
-                JSONObject contentObj = candidate.optJSONObject("content");
-                if (contentObj == null) return errorHtml("Gemini response missing content.");
+    public LatencyHistogram.Snapshot ttftStats()       { return ttft.snapshot(); }
+    public LatencyHistogram.Snapshot streamTimeStats() { return streamTime.snapshot(); }
 
-                JSONArray outParts = contentObj.optJSONArray("parts");
-                if (outParts == null || outParts.isEmpty()) {
-                    return errorHtml("Gemini response missing text parts.");
-                }
+    private Request request(String path, Prompt prompt) {
+        return new Request.Builder()
+            .url(apiUrl + path)
+            .header("Content-Type", "application/json")
+            .post(RequestBody.create(requestBody(prompt).toString(), MediaType.get("application/json")))
+            .build();
+    }
 
-                StringBuilder combined = new StringBuilder();
-                for (int i = 0; i < outParts.length(); i++) {
-                    String text = outParts.getJSONObject(i).optString("text", "");
-                    combined.append(text);
-                }
-                return combined.toString();
-            }
-        } catch (Exception e) {
-            LOG.log(Level.SEVERE, "Gemini chat failed", e);
-            return errorHtml("Connection error: " + e.getMessage());
-        }
+    private static JSONObject requestBody(Prompt prompt) {
+        String fullPrompt = prompt.system() == null ? prompt.user()
+            : prompt.system() + "\n\nUSER QUESTION:\n" + prompt.user();
+
+        JSONObject body = new JSONObject();
+        JSONArray contents = new JSONArray();
+        JSONObject content = new JSONObject();
+        JSONArray parts = new JSONArray();
+        parts.put(new JSONObject().put("text", fullPrompt));
+        content.put("parts", parts);
+        contents.put(content);
+        body.put("contents", contents);
+
+        JSONObject gen = new JSONObject();
+        gen.put("temperature", prompt.temperature());
+        if (prompt.maxTokens() > 0) gen.put("maxOutputTokens", prompt.maxTokens());
+        body.put("generationConfig", gen);
+        return body;
     }
 
-    private String errorHtml(String message) {
-        return "<div style='color:#ef4444;padding:12px;background:#fff0f0;"
-             + "border-radius:8px;border-left:3px solid #ef4444;'>"
-             + "❌ " + message + "</div>";
+    /** Concatenated text of the first candidate's parts ("" if none). */
+    private static String partsText(JSONObject json) {
+        JSONArray candidates = json.optJSONArray("candidates");
+        if (candidates == null || candidates.isEmpty()) return "";
+        JSONObject content = candidates.getJSONObject(0).optJSONObject("content");
+        JSONArray parts = content != null ? content.optJSONArray("parts") : null;
+        if (parts == null) return "";
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < parts.length(); i++) text.append(parts.getJSONObject(i).optString("text", ""));
+        return text.toString();
     }
 }
@@ -0,0 +1,49 @@
+package com.scholar.service;
+
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/** Groq chat completions (OpenAI-compatible) as an LlmProvider. */
+@Service
+public class GroqService implements LlmProvider {
+
+    private static final String GROQ_URL = "https://api.groq.com/openai/v1/chat/completions";
+
+    @Value("${groq.api.key:}")
+    private String apiKey;
+
+    @Value("${groq.model:llama-3.1-70b-versatile}")
+    private String model;
+
+    @Autowired private OutboundHttp outbound;
+
+    @Override public String id()           { return "groq"; }
+    @Override public String defaultModel() { return model; }
+    @Override public boolean configured()  { return apiKey != null && !apiKey.isBlank(); }
+
+    @Override
+    public Reply complete(String model, Prompt prompt, Cancellation cancellation) throws IOException {
+        Request request = OpenAiChat.post(GROQ_URL, apiKey, OpenAiChat.body(model, prompt, false)).build();
+        Call call = outbound.newCall(OutboundHttp.Provider.GROQ, request);
+        cancellation.onCancel(() -> outbound.abandon(call));
+        try (Response response = call.execute()) {
+            return OpenAiChat.reply("Groq", response, prompt);
+        }
+    }
+
+    @Override
+    public Reply stream(String model, Prompt prompt, Consumer<String> onDelta) throws IOException {
+        Request request = OpenAiChat.post(GROQ_URL, apiKey, OpenAiChat.body(model, prompt, true)).build();
+        try (Response response = outbound.newCall(OutboundHttp.Provider.GROQ, request).execute()) {
+            String answer = OpenAiChat.readStream("Groq", response, onDelta);
+            return new Reply(answer, LlmProvider.estimateTokens(prompt, answer));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.scholar.service;
+
+import com.scholar.util.Leaderboard;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * LeaderboardService — the global XP leaderboard, held in memory.
+ *
+ * 1. At startup, and every RECONCILE_MINUTES after that, one scan of users
+ *    rebuilds the ranking (Leaderboard.load keeps anything credited meanwhile).
+ * 2. StudyRoomService.addXP / saveHistory / updateStreak pass the new totals
+ *    from their RETURNING clause to record().
+ * 3. Other clients' changes arrive as "leaderboard" change-feed events (db/010).
+ *
+ * top(), rankOf() and around() never touch the DB; callers fall back to SQL
+ * while isReady() is false.
+ */
+@Service
+public class LeaderboardService {
+
+    private static final Logger LOG = Logger.getLogger(LeaderboardService.class.getName());
+
+    private static final long RECONCILE_MINUTES = 5;
+    private static final long RETRY_SECONDS     = 15;       // after a failed reconcile
+
+    @Autowired private ChangeFeedService changeFeedService;
+
+    private final Leaderboard board = new Leaderboard();
+    private final ScheduledExecutorService reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "leaderboard-reconcile");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean ready = false;
+
+    @PostConstruct
+    void start() {
+        reconciler.execute(this::reconcileLoop);
+        changeFeedService.addSink(new ChangeFeedService.Sink() {
+            @Override
+            public void onChange(String topic, String payload) {
+                if (!"leaderboard".equals(topic)) return;
+                JSONObject row = new JSONObject(payload).optJSONObject("row");
+                if (row == null) reconcileAsync();          // deleted user or oversized payload
+                else record(row.getString("id"), row.optString("username", null),
+                            row.optInt("total_xp"), row.optInt("study_streak"));
+            }
+
+            @Override
+            public void onStatus(boolean live) {
+                if (live) reconcileAsync();                  // events may have been missed while down
+            }
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        reconciler.shutdownNow();
+    }
+
+    public boolean isReady() { return ready; }
+
+    public void reconcileAsync() {
+        reconciler.execute(this::reconcile);
+    }
+
+    private void reconcileLoop() {
+        if (reconcile()) reconciler.schedule(this::reconcileLoop, RECONCILE_MINUTES, TimeUnit.MINUTES);
+        else             reconciler.schedule(this::reconcileLoop, RETRY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** Reloads every user's XP and streak; run on the reconciler thread. */
+    boolean reconcile() {
+        long since = board.version();
+        List<Leaderboard.Entry> rows = new ArrayList<>();
+        String sql = "SELECT id::text, username, COALESCE(total_xp,0), COALESCE(study_streak,0) FROM users";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setFetchSize(1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Leaderboard.Entry(rs.getString(1), rs.getString(2), rs.getInt(3), rs.getInt(4)));
+                }
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Leaderboard reconcile failed: " + e.getMessage());
+            return false;
+        }
+        board.load(rows, since);
+        ready = true;
+        return true;
+    }
+
+    /** New absolute totals for one user (username may be null to keep the known one). */
+    public void record(String userId, String username, int xp, int streak) {
+        board.put(userId, username, xp, streak);
+    }
+
+    public List<Leaderboard.Entry> top(int count) {
+        return board.top(count);
+    }
+
+    /** 1-based rank, or 0 if the user is not on the board. */
+    public int rankOf(String userId) {
+        return board.rankOf(userId);
+    }
+
+    /** The user and up to `radius` neighbours above and below. */
+    public List<Leaderboard.Entry> around(String userId, int radius) {
+        return board.around(userId, radius);
+    }
+
+    public Leaderboard.Entry get(String userId) {
+        return board.get(userId);
+    }
+}
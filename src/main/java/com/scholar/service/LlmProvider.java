@@ -0,0 +1,85 @@
+package com.scholar.service;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * One LLM API (Gemini, OpenRouter, Groq) as seen by LlmRouter.
+ *
+ * Implementations only talk to their API: no fallback, no error HTML.
+ * Every failure — transport, HTTP status, an error body, an empty answer —
+ * is thrown as IOException so the router can count it and try elsewhere.
+ */
+public interface LlmProvider {
+
+    /** system may be null; maxTokens <= 0 leaves the provider's default. */
+    record Prompt(String system, String user, double temperature, int maxTokens) {}
+
+    /** The answer text and the tokens it cost (as reported, else estimated). */
+    record Reply(String text, int tokens) {}
+
+    /** Short name used in llm.route.* properties and metrics: "gemini", "openrouter", "groq". */
+    String id();
+
+    /** Model used when a route names only the provider. */
+    String defaultModel();
+
+    /** False when no API key is set; the router skips the provider. */
+    boolean configured();
+
+    /**
+     * One whole answer. The HTTP call is registered with `cancellation`, so
+     * the router can abort a losing hedge without interrupting this thread.
+     */
+    Reply complete(String model, Prompt prompt, Cancellation cancellation) throws IOException;
+
+    /**
+     * Streams the answer to `onDelta` as it is generated and returns the whole
+     * of it. An exception thrown by `onDelta` (the client went away) aborts
+     * the request and propagates unchanged.
+     */
+    Reply stream(String model, Prompt prompt, Consumer<String> onDelta) throws IOException;
+
+    /**
+     * Lets the router call off a request it no longer needs. The provider
+     * registers how to abort its call; cancel() runs that once, at once if
+     * the call is registered after cancel().
+     */
+    final class Cancellation {
+        private Runnable abort;
+        private boolean cancelled;
+
+        public void onCancel(Runnable abort) {
+            synchronized (this) {
+                if (!cancelled) {
+                    this.abort = abort;
+                    return;
+                }
+            }
+            abort.run();
+        }
+
+        public void cancel() {
+            Runnable a;
+            synchronized (this) {
+                if (cancelled) return;
+                cancelled = true;
+                a = abort;
+            }
+            if (a != null) a.run();
+        }
+
+        public synchronized boolean cancelled() {
+            return cancelled;
+        }
+    }
+
+    /** ~4 characters per token, for APIs that do not report usage. */
+    static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    static int estimateTokens(Prompt prompt, String answer) {
+        return estimateTokens(prompt.system()) + estimateTokens(prompt.user()) + estimateTokens(answer);
+    }
+}
@@ -0,0 +1,476 @@
+package com.scholar.service;
+
+import com.scholar.util.CircuitBreaker;
+import com.scholar.util.RollingLatency;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * LlmRouter — the one way features call an LLM.
+ *
+ * Each Task has a route (llm.route.&lt;task&gt;): the provider[:model] targets
+ * good enough for it, in order of preference. Per request:
+ * 1. The user's tokens so far today are checked against
+ *    llm.budget.daily-tokens (0 = unlimited); a request is admitted while the
+ *    user is under budget. An estimate (prompt + maxTokens, else
+ *    DEFAULT_REPLY_TOKENS) is reserved in the same step, so concurrent
+ *    requests see each other, and replaced by the reported usage afterwards.
+ *    Signed-out callers (userId null) share one budget.
+ * 2. Targets are ranked: healthy ones with MIN_SAMPLES recent calls by p50,
+ *    then healthy untried ones in route order, then unhealthy ones (breaker
+ *    open, or more than MAX_ERROR_RATE of recent calls failed).
+ * 3. complete(): the best target is called; if it has not answered within
+ *    its recent p95 (clamped to [HEDGE_FLOOR_MS, task.hedgeAfterMs]) the next
+ *    one is called as well and the first answer wins — the other call is
+ *    cancelled and its user is only charged once. A failure moves on to the
+ *    next target at once.
+ * 4. stream(): not hedged (two streams cannot be merged); a target that fails
+ *    before its first delta is replaced by the next one.
+ *
+ * Latency and error rate per target are kept over its last WINDOW calls and
+ * each target has its own CircuitBreaker; stats() reports both along with the
+ * current ranking per task.
+ */
+@Service
+public class LlmRouter {
+
+    private static final Logger LOG = Logger.getLogger(LlmRouter.class.getName());
+
+    /** Request classes; hedgeAfterMs is the hedge delay before a target has latency history. */
+    public enum Task {
+        TAGGING(4_000), SCHEDULING(6_000), TUTORING(15_000), RAG(10_000);
+
+        final long hedgeAfterMs;
+
+        Task(long hedgeAfterMs) {
+            this.hedgeAfterMs = hedgeAfterMs;
+        }
+    }
+
+    /** The user has used up today's token budget. */
+    public static final class BudgetExceededException extends IOException {
+        BudgetExceededException(String message) {
+            super(message);
+        }
+    }
+
+    public record TargetStats(String target, int samples, double p50Ms, double p95Ms, double errorRate,
+                              CircuitBreaker.State breaker, long calls, long hedges, long hedgeWins) {}
+
+    public record Stats(Map<Task, List<String>> ranking, List<TargetStats> targets, long budgetRefusals) {}
+
+    private static final int    WINDOW            = 50;
+    private static final int    MIN_SAMPLES       = 5;
+    private static final double MAX_ERROR_RATE    = 0.5;
+    private static final long   HEDGE_FLOOR_MS    = 500;
+    private static final int    BREAKER_THRESHOLD = 3;
+    private static final long   BREAKER_OPEN_MS   = 30_000;
+    private static final int    DEFAULT_REPLY_TOKENS = 1_000;
+    private static final UUID   SIGNED_OUT        = new UUID(0, 0);   // budget key for userId == null
+
+    @Autowired private List<LlmProvider> providers;
+
+    @Value("${llm.route.tagging:gemini:gemini-2.5-flash,groq,openrouter}")
+    private String taggingRoute;
+
+    @Value("${llm.route.scheduling:groq,gemini,openrouter}")
+    private String schedulingRoute;
+
+    @Value("${llm.route.tutoring:gemini:gemini-2.5-pro,openrouter,gemini}")
+    private String tutoringRoute;
+
+    @Value("${llm.route.rag:gemini,openrouter,groq}")
+    private String ragRoute;
+
+    @Value("${llm.budget.daily-tokens:200000}")
+    private long dailyTokenBudget;
+
+    private final Map<String, Target> targets = new LinkedHashMap<>();   // "provider:model" → target
+    private final Map<Task, List<Target>> routes = new EnumMap<>(Task.class);
+    private final Map<UUID, long[]> usage = new ConcurrentHashMap<>();    // user → {epoch day, tokens}
+    private final LongAdder budgetRefusals = new LongAdder();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PostConstruct
+    void init() {
+        configure(providers, Map.of(
+            Task.TAGGING,    taggingRoute,
+            Task.SCHEDULING, schedulingRoute,
+            Task.TUTORING,   tutoringRoute,
+            Task.RAG,        ragRoute), dailyTokenBudget);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Resolves route specs ("gemini:gemini-2.5-pro,openrouter") against the
+     * providers; unknown and unconfigured providers are skipped with a warning.
+     */
+    void configure(List<LlmProvider> providers, Map<Task, String> routeSpecs, long dailyTokenBudget) {
+        this.dailyTokenBudget = dailyTokenBudget;
+        Map<String, LlmProvider> byId = new LinkedHashMap<>();
+        for (LlmProvider p : providers) byId.put(p.id(), p);
+
+        for (Task task : Task.values()) {
+            List<Target> route = new ArrayList<>();
+            for (String spec : routeSpecs.getOrDefault(task, "").split(",")) {
+                spec = spec.strip();
+                if (spec.isEmpty()) continue;
+                int colon = spec.indexOf(':');                  // OpenRouter model names contain ':' too
+                LlmProvider provider = byId.get(colon < 0 ? spec : spec.substring(0, colon));
+                if (provider == null || !provider.configured()) {
+                    LOG.warning("LLM route " + task + ": skipping " + spec
+                        + (provider == null ? " (unknown provider)" : " (no API key)"));
+                    continue;
+                }
+                String model = colon < 0 ? provider.defaultModel() : spec.substring(colon + 1);
+                Target target = targets.computeIfAbsent(provider.id() + ":" + model, k -> new Target(provider, model, k));
+                if (!route.contains(target)) route.add(target);
+            }
+            if (route.isEmpty()) LOG.warning("LLM route " + task + " has no usable provider");
+            routes.put(task, route);
+        }
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PUBLIC API
+    // ──────────────────────────────────────────────────────────────
+
+    /**
+     * One answer for `task`, from the fastest healthy target, hedged after a
+     * deadline. userId is the signed-in user (AuthService.CURRENT_USER_ID), whose
+     * budget is charged. Throws BudgetExceededException, or IOException when
+     * every target failed or was unavailable.
+     */
+    public LlmProvider.Reply complete(Task task, UUID userId, LlmProvider.Prompt prompt) throws IOException {
+        Reservation reserved = reserve(userId, prompt);
+        boolean charged = false;
+        try {
+            LlmProvider.Reply reply = race(task, prompt);
+            settle(reserved, reply.tokens());
+            charged = true;
+            return reply;
+        } finally {
+            if (!charged) settle(reserved, 0);                  // nothing answered: refund
+        }
+    }
+
+    private LlmProvider.Reply race(Task task, LlmProvider.Prompt prompt) throws IOException {
+        Race race = new Race(ranked(task).iterator(), prompt);
+        Target primary = race.start(false);
+        if (primary == null) throw unavailable(task, null);
+
+        IOException failure = null;
+        boolean hedged = false;
+        try {
+            while (race.inFlight > 0) {
+                Attempt a = hedged || !race.next.hasNext()
+                    ? race.done.take()
+                    : race.done.poll(hedgeDelayMs(task, primary), TimeUnit.MILLISECONDS);
+                if (a == null) {                                // primary is slow: hedge
+                    hedged = true;
+                    race.start(true);
+                    continue;
+                }
+                race.inFlight--;
+                if (a.reply() != null) {
+                    race.finish();
+                    if (a.hedge()) a.target().hedgeWins.increment();
+                    return a.reply();
+                }
+                if (failure == null) failure = unavailable(task, a.error());
+                else failure.addSuppressed(a.error());
+                Target next = race.start(false);                // fall back at once
+                if (next != null && !hedged) primary = next;
+            }
+        } catch (InterruptedException e) {
+            race.finish();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for " + task);
+        }
+        throw failure != null ? failure : unavailable(task, null);
+    }
+
+    /**
+     * Streams the answer for `task` to `sink`, falling back to the next target
+     * if one fails before its first delta. Errors (including an exhausted
+     * budget) end the stream with sink.onError(errorHtml(...)); an exception
+     * thrown by sink.onDelta (the client went away) propagates. A stream cut
+     * off part way is charged the reserved estimate.
+     */
+    public void stream(Task task, UUID userId, LlmProvider.Prompt prompt, ChatStream sink) {
+        Reservation reserved;
+        try {
+            reserved = reserve(userId, prompt);
+        } catch (BudgetExceededException e) {
+            sink.onError(errorHtml(e.getMessage()));
+            return;
+        }
+
+        IOException failure = null;
+        for (Target t : ranked(task)) {
+            if (!t.breaker.tryAcquire()) continue;
+            t.calls.increment();
+            boolean[] started = {false};
+            RuntimeException[] clientGone = {null};
+            long t0 = System.nanoTime();
+            try {
+                LlmProvider.Reply reply = t.provider.stream(t.model, prompt, text -> {
+                    started[0] = true;
+                    try {
+                        sink.onDelta(text);
+                    } catch (RuntimeException e) {
+                        clientGone[0] = e;
+                        throw e;
+                    }
+                });
+                t.succeeded(System.nanoTime() - t0);
+                settle(reserved, reply.tokens());
+                sink.onComplete();
+                return;
+            } catch (IOException | RuntimeException e) {
+                if (clientGone[0] != null) {                    // not the provider's fault
+                    t.breaker.release();
+                    throw clientGone[0];
+                }
+                t.failed(e);
+                if (started[0]) {                               // part of the answer is already out
+                    sink.onError(errorHtml("Connection error: " + e.getMessage()));
+                    return;
+                }
+                if (failure == null) failure = unavailable(task, e);
+                else failure.addSuppressed(e);
+            }
+        }
+        settle(reserved, 0);                                    // no target answered: refund
+        sink.onError(errorHtml((failure != null ? failure : unavailable(task, null)).getMessage()));
+    }
+
+    /** Tokens charged or reserved today; null = the shared signed-out budget. */
+    public long tokensUsedToday(UUID userId) {
+        long[] u = usage.get(budgetKey(userId));
+        return u != null && u[0] == today() ? u[1] : 0;
+    }
+
+    public Stats stats() {
+        Map<Task, List<String>> ranking = new EnumMap<>(Task.class);
+        for (Task task : routes.keySet()) ranking.put(task, ranked(task).stream().map(t -> t.key).toList());
+        List<TargetStats> out = new ArrayList<>();
+        for (Target t : targets.values()) {
+            RollingLatency.Snapshot s = t.latency.snapshot();
+            out.add(new TargetStats(t.key, s.samples(), s.p50Ms(), s.p95Ms(), s.errorRate(),
+                t.breaker.state(), t.calls.sum(), t.hedges.sum(), t.hedgeWins.sum()));
+        }
+        return new Stats(ranking, out, budgetRefusals.sum());
+    }
+
+    // ── error HTML (what chat endpoints show instead of an answer) ────
+
+    private static final String ERROR_PREFIX = "<div style='color:#ef4444;padding:12px;background:#fff0f0;";
+
+    public static String errorHtml(String message) {
+        return ERROR_PREFIX
+             + "border-radius:8px;border-left:3px solid #ef4444;'>"
+             + "❌ " + message + "</div>";
+    }
+
+    /** True for an errorHtml() block. */
+    public static boolean isErrorHtml(String html) {
+        return html == null || html.startsWith(ERROR_PREFIX);
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // ROUTING
+    // ──────────────────────────────────────────────────────────────
+
+    /** The task's targets, best first (see class comment, step 2). */
+    private List<Target> ranked(Task task) {
+        List<Target> route = routes.getOrDefault(task, List.of());
+        Map<Target, RollingLatency.Snapshot> snap = new LinkedHashMap<>();
+        for (Target t : route) snap.put(t, t.latency.snapshot());
+        return route.stream()
+            .sorted(Comparator.<Target>comparingInt(t -> tier(t, snap.get(t)))
+                .thenComparingDouble(t -> tier(t, snap.get(t)) == 0 ? snap.get(t).p50Ms() : 0))
+            .toList();                                          // stable: ties keep route order
+    }
+
+    /** 0 = healthy with history, 1 = healthy without, 2 = unhealthy. */
+    private static int tier(Target t, RollingLatency.Snapshot s) {
+        if (t.breaker.state() != CircuitBreaker.State.CLOSED) return 2;
+        if (s.samples() < MIN_SAMPLES) return 1;
+        return s.errorRate() > MAX_ERROR_RATE ? 2 : 0;
+    }
+
+    private static long hedgeDelayMs(Task task, Target t) {
+        RollingLatency.Snapshot s = t.latency.snapshot();
+        if (s.samples() < MIN_SAMPLES || s.p95Ms() == 0) return task.hedgeAfterMs;
+        return Math.max(HEDGE_FLOOR_MS, Math.min(task.hedgeAfterMs, (long) s.p95Ms()));
+    }
+
+    private static IOException unavailable(Task task, Throwable cause) {
+        String why = cause != null ? cause.getMessage() : "no provider available";
+        return new IOException("AI service unavailable for " + task.name().toLowerCase() + ": " + why, cause);
+    }
+
+    // ── budgets ───────────────────────────────────────────────────────
+
+    private record Reservation(UUID key, long day, long tokens) {}
+
+    /** Admits the request if the user is under budget and reserves its estimate in the same step. */
+    private Reservation reserve(UUID userId, LlmProvider.Prompt prompt) throws BudgetExceededException {
+        long estimate = LlmProvider.estimateTokens(prompt, null)
+            + (prompt.maxTokens() > 0 ? prompt.maxTokens() : DEFAULT_REPLY_TOKENS);
+        long today = today();
+        UUID key = budgetKey(userId);
+        long[] refusedAt = {-1};
+        usage.compute(key, (id, u) -> {
+            long used = u == null || u[0] != today ? 0 : u[1];
+            if (dailyTokenBudget > 0 && used >= dailyTokenBudget) {
+                refusedAt[0] = used;
+                return u;
+            }
+            return new long[] {today, used + estimate};
+        });
+        if (refusedAt[0] >= 0) {
+            budgetRefusals.increment();
+            throw new BudgetExceededException("Daily AI limit reached (" + refusedAt[0] + " of "
+                + dailyTokenBudget + " tokens). It resets at midnight.");
+        }
+        return new Reservation(key, today, estimate);
+    }
+
+    /** Replaces a reservation with what the request actually cost. */
+    private void settle(Reservation r, long tokens) {
+        long today = today();
+        long held = r.day() == today ? r.tokens() : 0;          // yesterday's reservation left with yesterday
+        usage.compute(r.key(), (id, u) -> u == null || u[0] != today
+            ? new long[] {today, tokens}
+            : new long[] {today, Math.max(0, u[1] - held + tokens)});
+    }
+
+    private static UUID budgetKey(UUID userId) {
+        return userId != null ? userId : SIGNED_OUT;
+    }
+
+    private static long today() {
+        return LocalDate.now().toEpochDay();
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // TARGETS AND HEDGED CALLS
+    // ──────────────────────────────────────────────────────────────
+
+    /** One provider + model: its recent latency, breaker and counters. */
+    private static final class Target {
+        final LlmProvider provider;
+        final String model;
+        final String key;
+        final RollingLatency latency = new RollingLatency(WINDOW);
+        final CircuitBreaker breaker = new CircuitBreaker(BREAKER_THRESHOLD, BREAKER_OPEN_MS);
+        final LongAdder calls     = new LongAdder();
+        final LongAdder hedges    = new LongAdder();
+        final LongAdder hedgeWins = new LongAdder();
+
+        Target(LlmProvider provider, String model, String key) {
+            this.provider = provider;
+            this.model = model;
+            this.key = key;
+        }
+
+        void succeeded(long nanos) {
+            latency.record(nanos);
+            breaker.onSuccess();
+        }
+
+        void failed(Exception e) {
+            latency.recordFailure();
+            breaker.onFailure();
+            LOG.log(Level.WARNING, "LLM " + key + " failed: " + e.getMessage());
+        }
+    }
+
+    private record Attempt(Target target, LlmProvider.Reply reply, IOException error, boolean hedge) {}
+
+    /** The calls made for one complete(); each posts exactly one Attempt to `done`. */
+    private final class Race {
+        final Iterator<Target> next;
+        final LlmProvider.Prompt prompt;
+        final BlockingQueue<Attempt> done = new LinkedBlockingQueue<>();
+        final AtomicBoolean settled = new AtomicBoolean();
+        final List<LlmProvider.Cancellation> running = new ArrayList<>();
+        int inFlight;
+
+        Race(Iterator<Target> next, LlmProvider.Prompt prompt) {
+            this.next = next;
+            this.prompt = prompt;
+        }
+
+        /** Calls the next target whose breaker allows it; null when none is left. */
+        Target start(boolean hedge) {
+            while (next.hasNext()) {
+                Target t = next.next();
+                if (!t.breaker.tryAcquire()) continue;
+                t.calls.increment();
+                if (hedge) t.hedges.increment();
+                LlmProvider.Cancellation cancellation = new LlmProvider.Cancellation();
+                running.add(cancellation);
+                executor.execute(() -> done.add(call(t, hedge, cancellation)));
+                inFlight++;
+                return t;
+            }
+            return null;
+        }
+
+        /**
+         * A winner was picked (or the caller gave up): cancel the other HTTP
+         * calls. Their threads are not interrupted, which OkHttp would report
+         * as an I/O failure against the provider.
+         */
+        void finish() {
+            settled.set(true);
+            for (LlmProvider.Cancellation c : running) c.cancel();
+        }
+
+        private Attempt call(Target t, boolean hedge, LlmProvider.Cancellation cancellation) {
+            long t0 = System.nanoTime();
+            try {
+                LlmProvider.Reply reply = t.provider.complete(t.model, prompt, cancellation);
+                t.succeeded(System.nanoTime() - t0);
+                return new Attempt(t, reply, null, hedge);
+            } catch (IOException | RuntimeException e) {
+                if (settled.get()) t.breaker.release();         // cancelled loser: no verdict
+                else t.failed(e);
+                IOException error = e instanceof IOException io ? io : new IOException(e.getMessage(), e);
+                return new Attempt(t, null, error, hedge);
+            }
+        }
+    }
+}
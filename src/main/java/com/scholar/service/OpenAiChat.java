@@ -0,0 +1,100 @@
+package com.scholar.service;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Request / response handling for OpenAI-compatible chat completions
+ * (OpenRouter, Groq): the providers differ only in URL, key and headers.
+ */
+final class OpenAiChat {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private OpenAiChat() {}
+
+    static RequestBody body(String model, LlmProvider.Prompt prompt, boolean stream) {
+        JSONObject body = new JSONObject();
+        body.put("model", model);
+        body.put("temperature", prompt.temperature());
+        if (prompt.maxTokens() > 0) body.put("max_tokens", prompt.maxTokens());
+        if (stream) body.put("stream", true);
+
+        JSONArray messages = new JSONArray();
+        if (prompt.system() != null)
+            messages.put(new JSONObject().put("role", "system").put("content", prompt.system()));
+        messages.put(new JSONObject().put("role", "user").put("content", prompt.user()));
+        body.put("messages", messages);
+        return RequestBody.create(body.toString(), JSON);
+    }
+
+    /** Parses a non-streamed response; `name` labels error messages. */
+    static LlmProvider.Reply reply(String name, Response response, LlmProvider.Prompt prompt) throws IOException {
+        String responseBody = response.body() != null ? response.body().string() : "";
+        try {
+            JSONObject json = responseBody.isEmpty() ? new JSONObject() : new JSONObject(responseBody);
+            if (json.has("error"))
+                throw new IOException(name + " error: " + json.getJSONObject("error").optString("message", "Unknown error"));
+            if (!response.isSuccessful())
+                throw new IOException(name + " returned HTTP " + response.code());
+
+            JSONArray choices = json.optJSONArray("choices");
+            JSONObject message = choices != null && !choices.isEmpty()
+                ? choices.getJSONObject(0).optJSONObject("message") : null;
+            String text = message != null ? message.optString("content", "") : "";
+            if (text.isBlank()) throw new IOException(name + " returned an empty response");
+
+            JSONObject usage = json.optJSONObject("usage");
+            int tokens = usage != null && usage.has("total_tokens")
+                ? usage.getInt("total_tokens") : LlmProvider.estimateTokens(prompt, text);
+            return new LlmProvider.Reply(text, tokens);
+        } catch (JSONException e) {
+            throw new IOException(name + " returned malformed JSON", e);
+        }
+    }
+
+    /** Reads an SSE response ("data: {...}" lines up to "data: [DONE]"), passing content deltas on. */
+    static String readStream(String name, Response response, Consumer<String> onDelta) throws IOException {
+        if (!response.isSuccessful()) throw new IOException(name + " returned HTTP " + response.code());
+        StringBuilder answer = new StringBuilder();
+        try (BufferedReader in = new BufferedReader(response.body().charStream())) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.startsWith("data:")) continue;           // blank / ": OPENROUTER PROCESSING"
+                String data = line.substring(5).trim();
+                if ("[DONE]".equals(data)) break;
+                JSONObject json = new JSONObject(data);
+                if (json.has("error"))
+                    throw new IOException(name + " error: " + json.getJSONObject("error").optString("message", "Unknown error"));
+                JSONArray choices = json.optJSONArray("choices");
+                if (choices == null || choices.isEmpty()) continue;
+                JSONObject delta = choices.getJSONObject(0).optJSONObject("delta");
+                String text = delta != null ? delta.optString("content", "") : "";
+                if (text.isEmpty()) continue;
+                answer.append(text);
+                onDelta.accept(text);
+            }
+        } catch (JSONException e) {
+            throw new IOException(name + " sent a malformed stream event", e);
+        }
+        if (answer.isEmpty()) throw new IOException(name + " returned an empty response");
+        return answer.toString();
+    }
+
+    static Request.Builder post(String url, String apiKey, RequestBody body) {
+        return new Request.Builder()
+            .url(url)
+            .header("Authorization", "Bearer " + apiKey)
+            .header("Content-Type", "application/json")
+            .post(body);
+    }
+}
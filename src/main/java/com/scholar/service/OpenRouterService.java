@@ -1,20 +1,22 @@
 package com.scholar.service;
 
-import okhttp3.*;
-import org.json.*;
+import com.scholar.util.LatencyHistogram;
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.TimeUnit;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.io.IOException;
+import java.util.function.Consumer;
 
+/** OpenRouter chat completions as an LlmProvider; also renders model markdown to HTML. */
 @Service
-public class OpenRouterService {
+public class OpenRouterService implements LlmProvider {
 
-    private static final Logger LOG = Logger.getLogger(OpenRouterService.class.getName());
-
-    @Value("${openrouter.api.key}")
+    @Value("${openrouter.api.key:}")
     private String apiKey;
 
     @Value("${openrouter.api.url:https://openrouter.ai/api/v1/chat/completions}")
@@ -23,88 +25,60 @@ public class OpenRouterService {
     @Value("${openrouter.model:meta-llama/llama-4-maverick:free}")
     private String model;
 
-    private final OkHttpClient http = new OkHttpClient.Builder()
-        .callTimeout(60, TimeUnit.SECONDS)
-        .connectTimeout(15, TimeUnit.SECONDS)
-        .readTimeout(60, TimeUnit.SECONDS)
-        .build();
-
-    public String chat(String systemPrompt, String userMessage) {
-        try {
-            JSONObject body = new JSONObject();
-            body.put("model", model);
-            body.put("max_tokens", 1500);
-
-            JSONArray messages = new JSONArray();
-            messages.put(new JSONObject().put("role", "system").put("content", systemPrompt));
-            messages.put(new JSONObject().put("role", "user").put("content", userMessage));
-            body.put("messages", messages);
-
-            Request request = new Request.Builder()
-                .url(apiUrl)
-                .header("Authorization", "Bearer " + apiKey)
-                .header("Content-Type", "application/json")
-                .header("HTTP-Referer", "https://scholargrid.app")
-                .header("X-Title", "ScholarGrid")
-                .post(RequestBody.create(body.toString(), MediaType.get("application/json")))
-                .build();
-
-            try (Response response = http.newCall(request).execute()) {
-                String responseBody = response.body().string();
-
-                // ── Debug: print raw response so you can see errors ──
-                System.out.println("📡 OpenRouter [" + response.code() + "]: " + responseBody);
-
-                JSONObject json = new JSONObject(responseBody);
-
-                // ── Handle error field (model unavailable, quota, etc.) ──
-                if (json.has("error")) {
-                    String errMsg = json.getJSONObject("error")
-                                       .optString("message", "Unknown error");
-                    LOG.log(Level.WARNING, "OpenRouter error: " + errMsg);
-                    return errorHtml("AI service error: " + errMsg);
-                }
-
-                // ── Handle non-200 HTTP codes ──
-                if (!response.isSuccessful()) {
-                    return errorHtml("AI service returned HTTP " + response.code()
-                        + ". Check your OpenRouter API key and model name.");
-                }
-
-                // ── Handle missing choices (malformed response) ──
-                if (!json.has("choices") || json.getJSONArray("choices").isEmpty()) {
-                    LOG.warning("No choices in response: " + responseBody);
-                    return errorHtml("AI returned an empty response. Try again.");
-                }
-
-                String markdown = json
-                    .getJSONArray("choices")
-                    .getJSONObject(0)
-                    .getJSONObject("message")
-                    .getString("content");
-
-                return markdownToHtml(markdown);
-            }
+    @Autowired private OutboundHttp outbound;
+
+    // Built once; flexmark parsers and renderers are immutable and thread-safe
+    private static final com.vladsch.flexmark.util.data.MutableDataSet MD_OPTIONS =
+        new com.vladsch.flexmark.util.data.MutableDataSet();
+    private static final com.vladsch.flexmark.parser.Parser MD_PARSER =
+        com.vladsch.flexmark.parser.Parser.builder(MD_OPTIONS).build();
+    private static final com.vladsch.flexmark.html.HtmlRenderer MD_RENDERER =
+        com.vladsch.flexmark.html.HtmlRenderer.builder(MD_OPTIONS).build();
+
+    private final LatencyHistogram ttft       = new LatencyHistogram();   // request → first token
+    private final LatencyHistogram streamTime = new LatencyHistogram();   // request → [DONE]
+
+    @Override public String id()           { return "openrouter"; }
+    @Override public String defaultModel() { return model; }
+    @Override public boolean configured()  { return apiKey != null && !apiKey.isBlank(); }
+
+    @Override
+    public Reply complete(String model, Prompt prompt, Cancellation cancellation) throws IOException {
+        Request request = request(OpenAiChat.body(model, prompt, false));
+        Call call = outbound.newCall(OutboundHttp.Provider.OPENROUTER, request);
+        cancellation.onCancel(() -> outbound.abandon(call));
+        try (Response response = call.execute()) {
+            return OpenAiChat.reply("OpenRouter", response, prompt);
+        }
+    }
 
-        } catch (Exception e) {
-            LOG.log(Level.SEVERE, "OpenRouter chat failed", e);
-            return errorHtml("Connection error: " + e.getMessage());
+    /** Streamed ("stream": true, SSE). Deltas are raw markdown; render with IncrementalMarkdown + markdownToHtml. */
+    @Override
+    public Reply stream(String model, Prompt prompt, Consumer<String> onDelta) throws IOException {
+        long start = System.nanoTime();
+        boolean[] first = {true};
+        Request request = request(OpenAiChat.body(model, prompt, true));
+        try (Response response = outbound.newCall(OutboundHttp.Provider.OPENROUTER, request).execute()) {
+            String answer = OpenAiChat.readStream("OpenRouter", response, text -> {
+                if (first[0]) { ttft.record(System.nanoTime() - start); first[0] = false; }
+                onDelta.accept(text);
+            });
+            streamTime.record(System.nanoTime() - start);
+            return new Reply(answer, LlmProvider.estimateTokens(prompt, answer));
         }
     }
 
+    public LatencyHistogram.Snapshot ttftStats()       { return ttft.snapshot(); }
+    public LatencyHistogram.Snapshot streamTimeStats() { return streamTime.snapshot(); }
+
     public String markdownToHtml(String markdown) {
-        com.vladsch.flexmark.util.data.MutableDataSet options =
-            new com.vladsch.flexmark.util.data.MutableDataSet();
-        com.vladsch.flexmark.parser.Parser parser =
-            com.vladsch.flexmark.parser.Parser.builder(options).build();
-        com.vladsch.flexmark.html.HtmlRenderer renderer =
-            com.vladsch.flexmark.html.HtmlRenderer.builder(options).build();
-        return renderer.render(parser.parse(markdown));
+        return MD_RENDERER.render(MD_PARSER.parse(markdown));
     }
 
-    private String errorHtml(String message) {
-        return "<div style='color:#ef4444;padding:12px;background:#fff0f0;"
-             + "border-radius:8px;border-left:3px solid #ef4444;'>"
-             + "❌ " + message + "</div>";
+    private Request request(RequestBody body) {
+        return OpenAiChat.post(apiUrl, apiKey, body)
+            .header("HTTP-Referer", "https://scholargrid.app")
+            .header("X-Title", "ScholarGrid")
+            .build();
     }
-}
\ No newline at end of file
+}
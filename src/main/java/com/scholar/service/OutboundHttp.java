@@ -0,0 +1,354 @@
+package com.scholar.service;
+
+import com.scholar.util.CircuitBreaker;
+import com.scholar.util.LatencyHistogram;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * OutboundHttp — the one way services call external HTTP APIs.
+ *
+ * All providers share one OkHttp ConnectionPool (idle connections kept per
+ * host) and Dispatcher, and negotiate HTTP/2 where the server offers it, so
+ * concurrent calls to one host multiplex over a single connection. Each
+ * Provider gets its own timeouts and an interceptor that, per call:
+ * 1. waits up to LIMIT_WAIT_MS for one of the provider's maxConcurrent
+ *    permits (held until the response body is closed, so a streamed answer
+ *    counts for as long as it streams);
+ * 2. refuses the call while the provider's CircuitBreaker is open
+ *    (BREAKER_THRESHOLD consecutive 429 / 5xx / I/O failures → BREAKER_OPEN_MS);
+ * 3. retries 429 / 5xx / I/O failures up to maxRetries times with jittered
+ *    exponential backoff (honouring Retry-After up to MAX_RETRY_AFTER_MS).
+ *    POSTs are only retried for providers where they are safe to repeat;
+ *    a 429 is always retried, since the request was not processed;
+ * 4. records latency (to response headers) and outcome per endpoint —
+ *    "PROVIDER METHOD host/path" with ids and tokens masked, query dropped.
+ *
+ * Refusals (limiter, breaker) are thrown as IOException, so callers' existing
+ * error handling covers them. A call the caller abandon()s, or whose thread
+ * is interrupted, ends without a verdict: it is neither a breaker failure
+ * nor an I/O error. OkHttp's own call timeout still counts as a failure.
+ */
+@Component
+public class OutboundHttp {
+
+    private static final Logger LOG = Logger.getLogger(OutboundHttp.class.getName());
+
+    private static final long LIMIT_WAIT_MS       = 10_000;
+    private static final int  BREAKER_THRESHOLD   = 5;
+    private static final long BREAKER_OPEN_MS     = 30_000;
+    private static final long BACKOFF_BASE_MS     = 250;
+    private static final long BACKOFF_MAX_MS      = 4_000;
+    private static final long MAX_RETRY_AFTER_MS  = 10_000;
+
+    /** External services, with their limits and timeouts (seconds; call 0 = none). */
+    public enum Provider {
+        //          concurrent retries retryPost connect read write call
+        GEMINI     (16,        2,      true,     15,     60,  60,   60),
+        OPENROUTER (16,        2,      true,     15,     60,  60,   60),
+        GROQ       (8,         2,      true,     15,     60,  60,   60),
+        SUPABASE   (32,        2,      false,    15,     30,  60,   0),
+        TELEGRAM   (4,         2,      false,    15,     60,  120,  0),
+        WEATHER    (4,         2,      true,     10,     10,  10,   20);
+
+        final int maxConcurrent, maxRetries;
+        final boolean retryPost;
+        final int connectSec, readSec, writeSec, callSec;
+
+        Provider(int maxConcurrent, int maxRetries, boolean retryPost,
+                 int connectSec, int readSec, int writeSec, int callSec) {
+            this.maxConcurrent = maxConcurrent; this.maxRetries = maxRetries; this.retryPost = retryPost;
+            this.connectSec = connectSec; this.readSec = readSec; this.writeSec = writeSec; this.callSec = callSec;
+        }
+    }
+
+    /** Thrown instead of calling a provider whose circuit breaker is open. */
+    public static final class CircuitOpenException extends IOException {
+        CircuitOpenException(Provider p) {
+            super(p + " is failing — circuit open, try again shortly");
+        }
+    }
+
+    public record EndpointStats(LatencyHistogram.Snapshot latency, long attempts, long clientErrors,
+                                long serverErrors, long ioErrors, long retries, long refused) {}
+
+    public record ProviderStats(CircuitBreaker.State breaker, long breakerOpens,
+                                int inFlight, int maxConcurrent) {}
+
+    public record Stats(Map<String, ProviderStats> providers, Map<String, EndpointStats> endpoints) {}
+
+    private static final class Endpoint {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder attempts = new LongAdder(), clientErrors = new LongAdder(), serverErrors = new LongAdder(),
+                        ioErrors = new LongAdder(), retries = new LongAdder(), refused = new LongAdder();
+    }
+
+    /** Request tag set by abandon(), to tell a caller's cancel from OkHttp's call timeout. */
+    private static final class Abandoned {
+        volatile boolean set;
+    }
+
+    private static final class Guard {
+        final Semaphore permits;
+        final CircuitBreaker breaker = new CircuitBreaker(BREAKER_THRESHOLD, BREAKER_OPEN_MS);
+
+        Guard(Provider p) {
+            permits = new Semaphore(p.maxConcurrent, true);
+        }
+    }
+
+    private static final Pattern ID = Pattern.compile(
+        "\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final Pattern BOT_TOKEN = Pattern.compile("bot\\d+:[\\w-]+");
+    private static final Pattern FILE = Pattern.compile("[^:]*\\.[A-Za-z0-9]{1,5}");       // storage object names
+
+    private final ConnectionPool pool = new ConnectionPool(32, 5, TimeUnit.MINUTES);
+    private final Dispatcher dispatcher = new Dispatcher();
+    private final Map<Provider, OkHttpClient> clients = new EnumMap<>(Provider.class);
+    private final Map<Provider, Guard> guards = new EnumMap<>(Provider.class);
+    private final ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    public OutboundHttp() {
+        dispatcher.setMaxRequests(128);
+        dispatcher.setMaxRequestsPerHost(32);
+        OkHttpClient base = new OkHttpClient.Builder()
+            .connectionPool(pool)
+            .dispatcher(dispatcher)
+            .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .build();
+        for (Provider p : Provider.values()) {
+            Guard g = new Guard(p);
+            guards.put(p, g);
+            clients.put(p, base.newBuilder()
+                .connectTimeout(p.connectSec, TimeUnit.SECONDS)
+                .readTimeout(p.readSec, TimeUnit.SECONDS)
+                .writeTimeout(p.writeSec, TimeUnit.SECONDS)
+                .callTimeout(p.callSec, TimeUnit.SECONDS)
+                .addInterceptor(chain -> intercept(p, g, chain))
+                .build());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.executorService().shutdown();
+        pool.evictAll();
+    }
+
+    /** A call to `provider`; execute() it in try-with-resources so its permit is returned. */
+    public Call newCall(Provider provider, Request request) {
+        return clients.get(provider).newCall(tagged(request));
+    }
+
+    /** newCall() with read and call timeouts raised to `timeoutSec` (long, non-streamed generations). */
+    public Call newCall(Provider provider, Request request, int timeoutSec) {
+        return clients.get(provider).newBuilder()          // same pool, dispatcher and guard
+            .readTimeout(timeoutSec, TimeUnit.SECONDS)
+            .callTimeout(timeoutSec, TimeUnit.SECONDS)
+            .build()
+            .newCall(tagged(request));
+    }
+
+    /**
+     * Cancels a call whose answer is no longer wanted (a losing hedged
+     * request). The provider's breaker and error counts do not see it.
+     */
+    public void abandon(Call call) {
+        Abandoned tag = call.request().tag(Abandoned.class);
+        if (tag != null) tag.set = true;
+        call.cancel();
+    }
+
+    /** Breaker / limiter state per provider and latency / outcomes per endpoint, sorted. */
+    public Stats stats() {
+        Map<String, ProviderStats> providers = new LinkedHashMap<>();
+        guards.forEach((p, g) -> providers.put(p.name(), new ProviderStats(
+            g.breaker.state(), g.breaker.opens(), p.maxConcurrent - g.permits.availablePermits(), p.maxConcurrent)));
+        Map<String, EndpointStats> out = new TreeMap<>();
+        endpoints.forEach((key, e) -> out.put(key, new EndpointStats(
+            e.latency.snapshot(), e.attempts.sum(), e.clientErrors.sum(), e.serverErrors.sum(),
+            e.ioErrors.sum(), e.retries.sum(), e.refused.sum())));
+        return new Stats(providers, out);
+    }
+
+    // ── interceptor ───────────────────────────────────────────────────────
+
+    private Response intercept(Provider p, Guard g, Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        Endpoint ep = endpoints.computeIfAbsent(
+            p + " " + request.method() + " " + request.url().host() + pathTemplate(request.url().encodedPath()),
+            k -> new Endpoint());
+
+        try {
+            if (!g.permits.tryAcquire(LIMIT_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                ep.refused.increment();
+                throw new IOException(p + ": too many concurrent requests");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for " + p);
+        }
+
+        boolean handedOff = false;
+        try {
+            boolean replayable = !"POST".equals(request.method()) || p.retryPost;
+            for (int attempt = 0; ; attempt++) {
+                if (!g.breaker.tryAcquire()) {
+                    ep.refused.increment();
+                    throw new CircuitOpenException(p);
+                }
+                ep.attempts.increment();
+                long t0 = System.nanoTime();
+                Response response;
+                try {
+                    response = chain.proceed(request);
+                } catch (IOException e) {
+                    if (abandoned(request) || Thread.currentThread().isInterrupted()) {
+                        g.breaker.release();                 // the caller gave up: no verdict
+                        throw e;
+                    }
+                    ep.latency.record(System.nanoTime() - t0);
+                    ep.ioErrors.increment();
+                    failure(p, g);
+                    if (attempt >= p.maxRetries || !replayable || chain.call().isCanceled()) throw e;
+                    ep.retries.increment();
+                    sleep(backoffMs(attempt, null));
+                    continue;
+                } catch (RuntimeException e) {
+                    g.breaker.release();                     // no verdict, but never leave a trial claimed
+                    throw e;
+                }
+                ep.latency.record(System.nanoTime() - t0);
+
+                int code = response.code();
+                boolean failed = code == 429 || code >= 500;
+                if (failed) failure(p, g); else g.breaker.onSuccess();
+                if (code >= 500) ep.serverErrors.increment();
+                else if (code >= 400) ep.clientErrors.increment();
+
+                if (failed && attempt < p.maxRetries && (replayable || code == 429)) {
+                    long wait = backoffMs(attempt, response.header("Retry-After"));
+                    if (wait <= MAX_RETRY_AFTER_MS) {
+                        response.close();
+                        ep.retries.increment();
+                        sleep(wait);
+                        continue;
+                    }
+                }
+                handedOff = true;
+                return releaseOnClose(response, g.permits);
+            }
+        } finally {
+            if (!handedOff) g.permits.release();
+        }
+    }
+
+    private static Request tagged(Request request) {
+        return request.newBuilder().tag(Abandoned.class, new Abandoned()).build();
+    }
+
+    private static boolean abandoned(Request request) {
+        Abandoned tag = request.tag(Abandoned.class);
+        return tag != null && tag.set;
+    }
+
+    private static void failure(Provider p, Guard g) {
+        long opens = g.breaker.opens();
+        g.breaker.onFailure();
+        if (g.breaker.opens() != opens)
+            LOG.warning("OutboundHttp: " + p + " circuit opened for " + BREAKER_OPEN_MS + " ms after repeated failures");
+    }
+
+    /** Returns `permits` when the body is closed (or at once if there is none). */
+    private static Response releaseOnClose(Response response, Semaphore permits) {
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> { if (released.compareAndSet(false, true)) permits.release(); };
+        ResponseBody body = response.body();
+        if (body == null) {
+            release.run();
+            return response;
+        }
+        BufferedSource source = Okio.buffer(new ForwardingSource(body.source()) {
+            @Override public void close() throws IOException {
+                try { super.close(); } finally { release.run(); }
+            }
+        });
+        return response.newBuilder()
+            .body(ResponseBody.create(source, body.contentType(), body.contentLength()))
+            .build();
+    }
+
+    private static void sleep(long ms) throws InterruptedIOException {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted during retry backoff");
+        }
+    }
+
+    // ── helpers ───────────────────────────────────────────────────────────
+
+    /**
+     * Delay before retry `attempt` (0-based): a Retry-After in seconds if the
+     * server sent one, else half to all of BACKOFF_BASE_MS · 2^attempt (capped).
+     */
+    static long backoffMs(int attempt, String retryAfter) {
+        if (retryAfter != null) {
+            try {
+                return Math.max(0, Long.parseLong(retryAfter.trim())) * 1000;
+            } catch (NumberFormatException ignored) {
+                // HTTP-date form — fall back to our own backoff
+            }
+        }
+        long ceiling = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(attempt, 16));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    /**
+     * "/bot123:AA../getFile" → "/bot{token}/getFile"; numeric / UUID segments →
+     * "{id}", file names → "{file}", so per-user paths share one endpoint.
+     */
+    static String pathTemplate(String encodedPath) {
+        if (encodedPath == null || encodedPath.isEmpty()) return "/";
+        StringBuilder sb = new StringBuilder();
+        for (String seg : encodedPath.split("/")) {
+            if (seg.isEmpty()) continue;
+            sb.append('/');
+            if (ID.matcher(seg).matches())             sb.append("{id}");
+            else if (BOT_TOKEN.matcher(seg).matches()) sb.append("bot{token}");
+            else if (FILE.matcher(seg).matches())      sb.append("{file}");
+            else if (seg.length() > 64)                sb.append("{…}");
+            else                                       sb.append(seg);
+        }
+        return sb.length() == 0 ? "/" : sb.toString();
+    }
+}
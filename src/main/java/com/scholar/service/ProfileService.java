@@ -11,7 +11,6 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 import java.sql.Connection;
 /**
  * ProfileService — plain JDBC, PostgreSQL + Supabase Storage.
@@ -30,12 +29,8 @@ public class ProfileService {
     @Autowired
     private DataSource dataSource;
 
-    // ── Shared OkHttpClient (thread-safe, reuse connections) ──────────────────
-    private static final OkHttpClient HTTP_CLIENT = new OkHttpClient.Builder()
-            .connectTimeout(15, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .build();
+    @Autowired
+    private OutboundHttp outbound;
 
     private Connection connect() throws SQLException {
         return dataSource.getConnection();
@@ -216,7 +211,7 @@ public class ProfileService {
                 .addHeader("x-upsert",       "true")
                 .build();
 
-        try (Response response = HTTP_CLIENT.newCall(request).execute()) {
+        try (Response response = outbound.newCall(OutboundHttp.Provider.SUPABASE, request).execute()) {
             if (!response.isSuccessful()) {
                 String errorBody = response.body() != null ? response.body().string() : "no response body";
                 throw new IOException("Supabase upload failed [" + response.code() + "]: " + errorBody);
@@ -10,16 +10,17 @@ import com.itextpdf.text.pdf.PdfWriter;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.Loader;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service; // 🟢 নতুন
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -28,8 +29,11 @@ import java.util.stream.Collectors;
 public class QuestionBankService {
 
     private static final String GEMINI_URL = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent?key=";
+    private static final int ANALYZE_TIMEOUT_SEC = 300;   // whole PDFs in one prompt
     private final ObjectMapper jsonMapper = new ObjectMapper();
 
+    @Autowired private OutboundHttp outbound;
+
     @Value("${gemini.api.key:}")
     private String geminiApiKey;
 
@@ -71,15 +75,16 @@ public class QuestionBankService {
         String jsonBody = "{ \"contents\": [{ \"parts\": [{ \"text\": \"%s\" }] }] }"
                 .formatted(escapeJson(prompt));
 
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(GEMINI_URL + apiKey))
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
+        Request request = new Request.Builder()
+                .url(GEMINI_URL + apiKey)
+                .post(RequestBody.create(jsonBody, MediaType.parse("application/json")))
                 .build();
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        String aiResponseText = extractTextFromGemini(response.body());
+        String responseBody;
+        try (Response response = outbound.newCall(OutboundHttp.Provider.GEMINI, request, ANALYZE_TIMEOUT_SEC).execute()) {
+            responseBody = response.body() != null ? response.body().string() : "";
+        }
+        String aiResponseText = extractTextFromGemini(responseBody);
         
         aiResponseText = aiResponseText.replace("```json", "").replace("```", "").trim();
         int start = aiResponseText.indexOf("[");
@@ -1,12 +1,36 @@
 package com.scholar.service;
 
+import com.scholar.model.ResourceDoc;
+import com.scholar.util.LatencyHistogram;
+import com.scholar.util.SemanticCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -15,11 +39,26 @@ import java.util.logging.Logger;
  *
  * Flow:
  * 1. Embed user query → float[] vector
- * 2. pgvector similarity search on resources using content_vector
+ * 2. In-process HNSW search (ResourceVectorIndex), pgvector as fallback
  * 3. Fallback to keyword search on course_name/segment_name/topic_name/title/tags
  * 4. Fetch course structure for AI context
  * 5. Fetch user progress for personalisation
- * 6. Build rich system prompt → call OpenRouter → return HTML
+ * 6. Build rich system prompt → LlmRouter (Task.RAG) → return HTML
+ *    (answerWithRAGStream: same prompt, answer streamed to a ChatStream)
+ *
+ * Steps 1, 4 and 5 run concurrently on virtual threads and only retrieval
+ * waits for the embedding (see prepare()). Each stage has a deadline and a
+ * fallback, and every request logs one line of per-stage timings;
+ * stageLatency() aggregates them.
+ *
+ * Answers are kept in a SemanticCache: a question whose embedding is within
+ * ANSWER_CACHE_SIMILARITY of an earlier one, with the same course hint, the
+ * same resource-set version and the same user-progress block, gets the
+ * earlier answer without retrieval or generation. The progress block is
+ * part of the scope (as a SHA-256), so one student's personalised answer is
+ * only reused for a student with identical progress context. Entries are
+ * dropped when a resource they cited changes (ResourceCacheService
+ * listener), by LRU, and after ANSWER_CACHE_TTL_MS.
  */
 @Service
 public class RAGService {
@@ -28,9 +67,62 @@ public class RAGService {
 
     @Autowired private JdbcTemplate      jdbc;
     @Autowired private EmbeddingService  embedder;
-    @Autowired private GeminiService     ai;
+    @Autowired private LlmRouter         llm;
     @Autowired private CourseService     courseService;
     @Autowired private ResourceCacheService resourceCache;
+    @Autowired private ResourceVectorIndex  vectorIndex;
+    @Autowired private ResourceIndexingQueue indexingQueue;
+
+    private static final int TOP_K = 6;
+    private static final String EMPTY_QUESTION_HTML =
+        "<p style='color:#94a3b8;'>Please type a question.</p>";
+
+    private static final double ANSWER_TEMPERATURE = 0.2;
+    private static final int    ANSWER_MAX_TOKENS  = 2000;
+
+    private static final int    ANSWER_CACHE_SIZE       = 512;
+    private static final long   ANSWER_CACHE_TTL_MS     = 30 * 60 * 1000;   // also bounds course-structure staleness
+    private static final double ANSWER_CACHE_SIMILARITY = 0.95;
+
+    // Per-stage deadlines; a stage that misses its deadline contributes its fallback instead
+    private static final long EMBED_DEADLINE_MS    = 2_000;   // → keyword retrieval
+    private static final long VECTOR_DEADLINE_MS   = 1_500;   // → keyword retrieval
+    private static final long KEYWORD_DEADLINE_MS  = 1_500;   // → "no resources found"
+    private static final long COURSE_DEADLINE_MS   = 1_000;   // → no course structure
+    private static final long PROGRESS_DEADLINE_MS = 1_000;   // → "could not load progress"
+
+    private static final List<String> STAGES =
+        List.of("embed", "progress", "course", "vector", "keyword", "ttft", "generate", "total");
+
+    private final SemanticCache<String> answerCache =
+        new SemanticCache<>(ANSWER_CACHE_SIZE, ANSWER_CACHE_TTL_MS, ANSWER_CACHE_SIMILARITY);
+
+    private final ExecutorService stageExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, LatencyHistogram> stageLatency = new LinkedHashMap<>();
+    {
+        for (String stage : STAGES) stageLatency.put(stage, new LatencyHistogram());
+    }
+
+    /** System prompt plus the resource ids it cites; cited == null → not traceable, don't cache. */
+    private record RagPrompt(String system, Set<Integer> cited) {}
+
+    /** Steps 1–6 for one question: a cached answer, or the prompt and where to cache its answer. */
+    private record Prepared(String cached, RagPrompt prompt, String scope, float[] vector, long since) {}
+
+    /** Step 3 result: resource-cache hits (with ids) or the DB keyword context (without). */
+    private record Fallback(List<ResourceDoc> hits, String context) {
+        static final Fallback NONE = new Fallback(List.of(), "");
+    }
+
+    @PostConstruct
+    void watchResources() {
+        resourceCache.addChangeListener(answerCache::invalidate);
+    }
+
+    @PreDestroy
+    void stopStages() {
+        stageExecutor.shutdownNow();
+    }
 
     // ──────────────────────────────────────────────────────────────
     // PUBLIC: ANSWER WITH RAG
@@ -38,49 +130,197 @@ public class RAGService {
 
     public String answerWithRAG(String userQuery, String courseHint, UUID userId) {
         if (userQuery == null || userQuery.isBlank())
-            return "<p style='color:#94a3b8;'>Please type a question.</p>";
+            return EMPTY_QUESTION_HTML;
 
-        // STEP 1: Embed query
-        float[] queryVector = embedder.embed(userQuery);
-        String  vectorStr   = embedder.toVectorString(queryVector);
+        Trace trace = new Trace();
+        Prepared p = prepare(userQuery, courseHint, userId, trace);
+        if (p.cached() != null) {
+            trace.log("cache hit");
+            return p.cached();
+        }
+        String html = trace.time("generate", () -> generate(p.prompt().system(), userQuery));
+        storeAnswer(p, html);
+        trace.log("generated");
+        return html;
+    }
 
-        // STEP 2: Vector similarity search
-        List<Map<String, Object>> vectorResults = vectorSearch(vectorStr, courseHint);
-        LOG.info("RAG vector search returned " + vectorResults.size() + " results for: " + userQuery);
+    /** answerWithRAG, with the answer passed to `sink` as the model writes it. */
+    public void answerWithRAGStream(String userQuery, String courseHint, UUID userId, ChatStream sink) {
+        if (userQuery == null || userQuery.isBlank()) {
+            sink.onDelta(EMPTY_QUESTION_HTML);
+            sink.onComplete();
+            return;
+        }
+        Trace trace = new Trace();
+        Prepared p = prepare(userQuery, courseHint, userId, trace);
+        if (p.cached() != null) {
+            trace.log("cache hit");
+            sink.onDelta(p.cached());
+            sink.onComplete();
+            return;
+        }
 
-        // STEP 3: Keyword/cache fallback if vector search empty
-        String keywordContext = "";
-        List<com.scholar.model.ResourceDoc> cacheHits = List.of();
-        if (vectorResults.isEmpty()) {
-            cacheHits = resourceCache.search(userQuery, courseHint, 6);
-            if (!cacheHits.isEmpty()) {
-                StringBuilder sb = new StringBuilder();
-                for (var d : cacheHits) sb.append(formatResourceDoc(d));
-                keywordContext = sb.toString();
-                LOG.info("RAG: using cache fallback, found " + cacheHits.size() + " items");
-            } else {
-                keywordContext = courseService.fetchResourceContextForAI(userQuery);
-                LOG.info("RAG: using keyword fallback, found context length=" + keywordContext.length());
+        long t0 = System.nanoTime();
+        StringBuilder answer = new StringBuilder();
+        llm.stream(LlmRouter.Task.RAG, AuthService.CURRENT_USER_ID, prompt(p.prompt().system(), userQuery), new ChatStream() {
+            @Override public void onDelta(String text) {
+                if (answer.isEmpty() && !text.isEmpty()) trace.record("ttft", System.nanoTime() - t0);
+                answer.append(text);
+                sink.onDelta(text);
+            }
+            @Override public void onComplete() {
+                trace.record("generate", System.nanoTime() - t0);
+                storeAnswer(p, answer.toString());
+                trace.log("streamed");
+                sink.onComplete();
             }
+            @Override public void onError(String html) {
+                trace.log("error");
+                sink.onError(html);
+            }
+        });
+    }
+
+    /** The token budget is the signed-in user's, not the userId a request names. */
+    private String generate(String system, String userQuery) {
+        try {
+            return llm.complete(LlmRouter.Task.RAG, AuthService.CURRENT_USER_ID, prompt(system, userQuery)).text();
+        } catch (LlmRouter.BudgetExceededException e) {
+            return LlmRouter.errorHtml(e.getMessage());
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "RAG generation failed", e);
+            return LlmRouter.errorHtml(e.getMessage());
         }
+    }
 
-        // STEP 4: Course structure
-        String courseStructure = getCourseStructure(courseHint);
+    private static LlmProvider.Prompt prompt(String system, String userQuery) {
+        return new LlmProvider.Prompt(system, userQuery, ANSWER_TEMPERATURE, ANSWER_MAX_TOKENS);
+    }
+
+    public SemanticCache.Stats answerCacheStats() {
+        return answerCache.stats();
+    }
 
-        // STEP 5: User progress
-        String userProgress = getUserProgress(userId);
+    /** Latency of each pipeline stage across requests ("total" = question → answer). */
+    public Map<String, LatencyHistogram.Snapshot> stageLatency() {
+        Map<String, LatencyHistogram.Snapshot> out = new LinkedHashMap<>();
+        stageLatency.forEach((stage, h) -> out.put(stage, h.snapshot()));
+        return out;
+    }
+
+    /**
+     * Steps 1–6 as a dependency graph:
+     *
+     *   embed ──┐                  ┌─ vector ─(empty)─ keyword ─┐
+     *   progress┴─ answer cache ───┤                            ├─ prompt
+     *   course ────────────────────┴────────────────────────────┘
+     *
+     * Embedding, progress and course structure start together; only retrieval
+     * waits for the embedding. Every stage has a deadline and a fallback, and
+     * an answer built on a fallback is not cached.
+     */
+    private Prepared prepare(String userQuery, String courseHint, UUID userId, Trace trace) {
+        // STEP 1 + 4 + 5 in parallel: embed query, course structure, user progress
+        CompletableFuture<float[]> embedF = stage(trace, "embed", EMBED_DEADLINE_MS, null, () -> {
+            float[] v = new float[EmbeddingService.DIMENSIONS];
+            return embedder.embedInto(userQuery, v) ? v : null;
+        });
+        CompletableFuture<String> progressF =
+            stage(trace, "progress", PROGRESS_DEADLINE_MS, null, () -> getUserProgress(userId));
+        CompletableFuture<String> courseF =
+            stage(trace, "course", COURSE_DEADLINE_MS, "", () -> getCourseStructure(courseHint));
+
+        float[] queryVector = embedF.join();
+        String userProgress = progressF.join();
+
+        String scope = queryVector != null && userProgress != null ? answerScope(courseHint, userProgress) : null;
+        String cached = scope != null ? answerCache.get(scope, queryVector) : null;
+        if (cached != null) return new Prepared(cached, null, scope, queryVector, 0);
+        long since = answerCache.stamp();
+
+        // STEP 2: Vector similarity search (in-process index first, pgvector fallback)
+        List<Map<String, Object>> vectorResults = queryVector == null ? List.of()
+            : stage(trace, "vector", VECTOR_DEADLINE_MS, List.<Map<String, Object>>of(), () -> {
+                  List<Map<String, Object>> rows = indexSearch(queryVector, courseHint);
+                  return rows.isEmpty() ? vectorSearch(queryVector, courseHint) : rows;
+              }).join();
+        LOG.info("RAG vector search returned " + vectorResults.size() + " results for: " + userQuery);
+
+        // STEP 3: Keyword/cache fallback if vector search empty
+        Fallback fallback = !vectorResults.isEmpty() ? Fallback.NONE
+            : stage(trace, "keyword", KEYWORD_DEADLINE_MS, Fallback.NONE, () -> keywordFallback(userQuery, courseHint)).join();
+
+        RagPrompt prompt = buildRagPrompt(vectorResults, fallback, courseF.join(),
+            userProgress != null ? userProgress : "Could not load user progress.\n");
+        if (trace.degraded()) prompt = new RagPrompt(prompt.system(), null);
+        return new Prepared(null, prompt, scope, queryVector, since);
+    }
+
+    /** Runs one stage on a virtual thread; after `deadlineMs` or on failure, yields `fallback`. */
+    private <T> CompletableFuture<T> stage(Trace trace, String name, long deadlineMs, T fallback, Supplier<T> body) {
+        return CompletableFuture.supplyAsync(() -> trace.time(name, body), stageExecutor)
+            .orTimeout(deadlineMs, TimeUnit.MILLISECONDS)
+            .exceptionally(e -> {
+                trace.fail(name, e);
+                return fallback;
+            });
+    }
+
+    /** Exact-match part of the cache key: course hint, resource-set version, progress block. */
+    private String answerScope(String courseHint, String userProgress) {
+        String hint = courseHint != null ? courseHint.strip().toLowerCase(Locale.ROOT) : "";
+        return hint + "\n" + resourceCache.setVersion() + "\n" + sha256(userProgress);
+    }
+
+    private void storeAnswer(Prepared p, String html) {
+        Set<Integer> cited = p.prompt().cited();
+        if (p.scope() == null || cited == null || html == null || html.isBlank() || LlmRouter.isErrorHtml(html)) return;
+        answerCache.put(p.scope(), p.vector(), html, cited, p.since());
+    }
 
-        // STEP 6: Build context
+    private static String sha256(String text) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private Fallback keywordFallback(String userQuery, String courseHint) {
+        List<ResourceDoc> hits = resourceCache.search(userQuery, courseHint, 6);
+        if (!hits.isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+            for (var d : hits) sb.append(formatResourceDoc(d));
+            LOG.info("RAG: using cache fallback, found " + hits.size() + " items");
+            return new Fallback(hits, sb.toString());
+        }
+        String context = courseService.fetchResourceContextForAI(userQuery);
+        LOG.info("RAG: using keyword fallback, found context length=" + context.length());
+        return new Fallback(List.of(), context);
+    }
+
+    /** Step 6: retrieved resources + course/progress context → system prompt. */
+    private RagPrompt buildRagPrompt(List<Map<String, Object>> vectorResults, Fallback fallback,
+                                     String courseStructure, String userProgress) {
+        // STEP 6: Build context, noting which resources it cites
         StringBuilder context = new StringBuilder();
+        Set<Integer> cited = new HashSet<>();
 
         if (!vectorResults.isEmpty()) {
             context.append("=== MOST RELEVANT RESOURCES (vector search) ===\n");
             for (Map<String, Object> row : vectorResults) {
                 context.append(formatResourceRow(row));
+                if (row.get("id") instanceof Number n) cited.add(n.intValue());
             }
-        } else if (!keywordContext.isBlank()) {
+        } else if (!fallback.hits().isEmpty()) {
+            for (var d : fallback.hits()) cited.add(d.id());
+            context.append("=== RELEVANT RESOURCES (keyword search) ===\n");
+            context.append(fallback.context());
+        } else if (!fallback.context().isBlank()) {
+            cited = null;                               // DB keyword fallback: sources unknown
             context.append("=== RELEVANT RESOURCES (keyword search) ===\n");
-            context.append(keywordContext);
+            context.append(fallback.context());
         } else {
             context.append("=== RESOURCES ===\n")
                    .append("No resources found for this query in the database.\n");
@@ -89,8 +329,8 @@ public class RAGService {
         context.append("\n=== COURSE STRUCTURE ===\n").append(courseStructure);
         context.append("\n=== USER PROGRESS ===\n").append(userProgress);
 
-        // STEP 7: Build system prompt and call AI
-        return ai.chat(buildSystemPrompt(context.toString()), userQuery);
+        // STEP 7: Build system prompt (caller sends it to the AI)
+        return new RagPrompt(buildSystemPrompt(context.toString()), cited);
     }
 
     // ──────────────────────────────────────────────────────────────
@@ -107,12 +347,16 @@ public class RAGService {
             return;
         }
         try {
-            float[] vector    = embedder.embed(textContent);
-            String  vectorStr = embedder.toVectorString(vector);
+            float[] vector = new float[EmbeddingService.DIMENSIONS];
+            if (!embedder.embedInto(textContent, vector)) {
+                LOG.warning("indexResource: embedding failed for id=" + resourceId + " — skipping");
+                return;
+            }
             int updated = jdbc.update(
-                "UPDATE resources SET content_vector = ?::vector WHERE id = ?",
-                vectorStr, resourceId);
+                "UPDATE resources SET content_vector = ?::real[]::vector WHERE id = ?",
+                vector, resourceId);
             if (updated > 0) {
+                vectorIndex.put((int) resourceId, vector);
                 LOG.info("✅ RAGService: indexed resource id=" + resourceId);
             } else {
                 LOG.warning("indexResource: no row updated for id=" + resourceId);
@@ -123,6 +367,62 @@ public class RAGService {
         }
     }
 
+    // ──────────────────────────────────────────────────────────────
+    // PRIVATE: IN-PROCESS INDEX SEARCH
+    // ──────────────────────────────────────────────────────────────
+
+    /**
+     * HNSW search against ResourceVectorIndex. Rows are assembled from the
+     * ResourceCacheService docs with the same keys vectorSearch() returns,
+     * so formatResourceRow() handles both. Empty result → pgvector fallback.
+     */
+    private List<Map<String, Object>> indexSearch(float[] queryVector, String courseHint) {
+        if (!vectorIndex.isReady()) return List.of();
+        String hint = courseHint != null && !courseHint.isBlank() ? courseHint : null;
+
+        List<ResourceVectorIndex.Hit> hits = vectorIndex.search(queryVector, TOP_K, id -> {
+            var d = resourceCache.getById(id);         // null → no longer public / deleted
+            if (d == null) return false;
+            return hint == null
+                || containsIgnoreCase(d.courseName(), hint)
+                || containsIgnoreCase(d.segmentName(), hint)
+                || containsIgnoreCase(d.topicName(), hint);
+        });
+
+        List<Map<String, Object>> rows = new ArrayList<>(hits.size());
+        for (ResourceVectorIndex.Hit hit : hits) {
+            var d = resourceCache.getById(hit.id());
+            if (d == null) continue;
+            Map<String, Object> row = new HashMap<>();
+            row.put("id",              d.id());
+            row.put("title",           d.title());
+            row.put("description",     d.description());
+            row.put("ai_summary",      d.aiSummary());
+            row.put("tags",            d.tags());
+            row.put("topic_name",      d.topicName());
+            row.put("segment_name",    d.segmentName());
+            row.put("course_name",     d.courseName());
+            row.put("type",            d.type());
+            row.put("link",            d.link());
+            row.put("difficulty",      d.difficulty());
+            row.put("upvotes",         d.upvotes());
+            row.put("community_notes", d.communityNotes());
+            row.put("similarity",      hit.similarity());
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /** Allocation-free case-insensitive contains (same semantics as the SQL LIKE filter). */
+    private static boolean containsIgnoreCase(String field, String needle) {
+        if (field == null) return false;
+        int max = field.length() - needle.length();
+        for (int i = 0; i <= max; i++) {
+            if (field.regionMatches(true, i, needle, 0, needle.length())) return true;
+        }
+        return false;
+    }
+
     // ──────────────────────────────────────────────────────────────
     // PRIVATE: VECTOR SEARCH
     // ──────────────────────────────────────────────────────────────
@@ -131,44 +431,51 @@ public class RAGService {
      * pgvector cosine similarity search.
      * Queries course_name, segment_name, topic_name directly —
      * these are now always filled by CourseService.addDetailedResource().
+     *
+     * The query vector is bound ONCE as a primitive float[] (pgjdbc sends it as
+     * a binary float4[]) and cast server-side; similarity is derived from the
+     * ORDER BY distance instead of re-sending the vector for a second operator.
+     * Errors propagate so the "vector" stage falls back and marks the trace degraded.
      */
-    private List<Map<String, Object>> vectorSearch(String vectorStr, String courseHint) {
-        try {
-            if (courseHint != null && !courseHint.isBlank()) {
-                // Filter by course_name column (now always populated)
-                return jdbc.queryForList("""
+    private List<Map<String, Object>> vectorSearch(float[] queryVector, String courseHint) {
+        if (courseHint != null && !courseHint.isBlank()) {
+            // Filter by course_name column (now always populated)
+            return jdbc.queryForList("""
+                SELECT nn.*, 1 - nn.distance AS similarity
+                FROM (
                     SELECT id, title, description, ai_summary, tags,
                            topic_name, segment_name, course_name,
                            type, link, difficulty, upvotes, community_notes,
-                           1 - (content_vector <=> ?::vector) AS similarity
+                           content_vector <=> ?::real[]::vector AS distance
                     FROM resources
                     WHERE is_public = true
                       AND content_vector IS NOT NULL
                       AND (LOWER(course_name) LIKE '%' || LOWER(?) || '%'
                            OR LOWER(segment_name) LIKE '%' || LOWER(?) || '%'
                            OR LOWER(topic_name)   LIKE '%' || LOWER(?) || '%')
-                    ORDER BY content_vector <=> ?::vector
+                    ORDER BY distance
                     LIMIT 6
-                    """,
-                    vectorStr, courseHint, courseHint, courseHint, vectorStr);
-            } else {
-                return jdbc.queryForList("""
+                ) nn
+                ORDER BY nn.distance
+                """,
+                queryVector, courseHint, courseHint, courseHint);
+        } else {
+            return jdbc.queryForList("""
+                SELECT nn.*, 1 - nn.distance AS similarity
+                FROM (
                     SELECT id, title, description, ai_summary, tags,
                            topic_name, segment_name, course_name,
                            type, link, difficulty, upvotes, community_notes,
-                           1 - (content_vector <=> ?::vector) AS similarity
+                           content_vector <=> ?::real[]::vector AS distance
                     FROM resources
                     WHERE is_public = true
                       AND content_vector IS NOT NULL
-                    ORDER BY content_vector <=> ?::vector
+                    ORDER BY distance
                     LIMIT 6
-                    """,
-                    vectorStr, vectorStr);
-            }
-        } catch (Exception e) {
-            LOG.log(Level.WARNING,
-                "Vector search failed (pgvector enabled in Supabase?): " + e.getMessage());
-            return List.of();
+                ) nn
+                ORDER BY nn.distance
+                """,
+                queryVector);
         }
     }
 
@@ -257,60 +564,52 @@ public class RAGService {
     // PRIVATE: COURSE STRUCTURE
     // ──────────────────────────────────────────────────────────────
 
+    /** Throws on DB errors; the "course" stage supplies the fallback and skips caching. */
     private String getCourseStructure(String courseHint) {
         if (courseHint == null || courseHint.isBlank())
             return "No course filter — showing all courses.\n";
-        try {
-            List<Map<String, Object>> rows = jdbc.queryForList("""
-                SELECT c.code, s.name AS segment, t.title AS topic
-                FROM courses  c
-                JOIN segments s ON s.course_id  = c.id
-                JOIN topics   t ON t.segment_id = s.id
-                WHERE c.code ILIKE '%' || ? || '%'
-                ORDER BY s.sort_order, t.position_order
-                LIMIT 30
-                """, courseHint);
-            if (rows.isEmpty()) return "No course structure found for: " + courseHint + "\n";
-            StringBuilder sb = new StringBuilder();
-            for (Map<String, Object> r : rows)
-                sb.append("  [").append(r.get("segment")).append("] ")
-                  .append(r.get("topic")).append("\n");
-            return sb.toString();
-        } catch (Exception e) {
-            LOG.log(Level.WARNING, "getCourseStructure failed (non-critical)", e);
-            return "";
-        }
+        List<Map<String, Object>> rows = jdbc.queryForList("""
+            SELECT c.code, s.name AS segment, t.title AS topic
+            FROM courses  c
+            JOIN segments s ON s.course_id  = c.id
+            JOIN topics   t ON t.segment_id = s.id
+            WHERE c.code ILIKE '%' || ? || '%'
+            ORDER BY s.sort_order, t.position_order
+            LIMIT 30
+            """, courseHint);
+        if (rows.isEmpty()) return "No course structure found for: " + courseHint + "\n";
+        StringBuilder sb = new StringBuilder();
+        for (Map<String, Object> r : rows)
+            sb.append("  [").append(r.get("segment")).append("] ")
+              .append(r.get("topic")).append("\n");
+        return sb.toString();
     }
 
     // ──────────────────────────────────────────────────────────────
     // PRIVATE: USER PROGRESS
     // ──────────────────────────────────────────────────────────────
 
+    /** Throws on DB errors; the "progress" stage supplies the fallback and skips caching. */
     private String getUserProgress(UUID userId) {
         if (userId == null) return "Guest user — no progress data.\n";
-        try {
-            List<Map<String, Object>> rows = jdbc.queryForList("""
-                SELECT r.title,
-                       COALESCE(r.course_name, 'Unknown') AS course_name,
-                       up.is_completed, up.difficulty_rating
-                FROM user_progress up
-                JOIN resources r ON r.id = up.resource_id
-                WHERE up.user_id = ?
-                ORDER BY up.created_at DESC
-                LIMIT 10
-                """, userId);
-            if (rows.isEmpty()) return "No study progress recorded yet.\n";
-            StringBuilder sb = new StringBuilder();
-            for (Map<String, Object> r : rows)
-                sb.append("  ").append(Boolean.TRUE.equals(r.get("is_completed")) ? "✅" : "🔄")
-                  .append(" ").append(r.get("title"))
-                  .append(" [").append(r.get("course_name")).append("]")
-                  .append(" | ").append(safe(r.get("difficulty_rating"))).append("\n");
-            return sb.toString();
-        } catch (Exception e) {
-            LOG.log(Level.WARNING, "getUserProgress failed (non-critical)", e);
-            return "Could not load user progress.\n";
-        }
+        List<Map<String, Object>> rows = jdbc.queryForList("""
+            SELECT r.title,
+                   COALESCE(r.course_name, 'Unknown') AS course_name,
+                   up.is_completed, up.difficulty_rating
+            FROM user_progress up
+            JOIN resources r ON r.id = up.resource_id
+            WHERE up.user_id = ?
+            ORDER BY up.created_at DESC
+            LIMIT 10
+            """, userId);
+        if (rows.isEmpty()) return "No study progress recorded yet.\n";
+        StringBuilder sb = new StringBuilder();
+        for (Map<String, Object> r : rows)
+            sb.append("  ").append(Boolean.TRUE.equals(r.get("is_completed")) ? "✅" : "🔄")
+              .append(" ").append(r.get("title"))
+              .append(" [").append(r.get("course_name")).append("]")
+              .append(" | ").append(safe(r.get("difficulty_rating"))).append("\n");
+        return sb.toString();
     }
 
     // ──────────────────────────────────────────────────────────────
@@ -351,37 +650,59 @@ public class RAGService {
 
     // RAGService.java - এর ভেতরে এই মেথডটি যোগ করুন
 
+    /**
+     * Re-embeds a resource from its DB row. Goes through ResourceIndexingQueue,
+     * which coalesces ids and embeds/writes them in batches on one worker.
+     */
     public void indexResource(int resourceId) {
-        new Thread(() -> {
+        if (!indexingQueue.submit(resourceId))
+            LOG.warning("❌ Could not queue resource ID " + resourceId + " for vectorization");
+    }
+
+    /** One request's stage timings: logged as a single line and folded into stageLatency. */
+    private final class Trace {
+        private final long start = System.nanoTime();
+        private final Map<String, Long> nanos = new ConcurrentHashMap<>();
+        private final Map<String, String> failed = new ConcurrentHashMap<>();
+
+        <T> T time(String stage, Supplier<T> body) {
+            long t0 = System.nanoTime();
             try {
-                String sql = "SELECT * FROM resources WHERE id = ?";
-                Map<String, Object> row = jdbc.queryForMap(sql, resourceId);
-
-                String aiContextText = String.format(
-                    "Course: %s | Segment: %s | Topic: %s\n" +
-                    "Resource Title: %s\n" +
-                    "Type: %s | Difficulty: %s | Tags: %s\n" +
-                    "Description: %s\n" +
-                    "AI Summary: %s\n" +
-                    "Community Notes: %s",
-                    safe(row.get("course_name")), safe(row.get("segment_name")), safe(row.get("topic_name")),
-                    safe(row.get("title")), 
-                    safe(row.get("type")), safe(row.get("difficulty")), safe(row.get("tags")),
-                    safe(row.get("description")), 
-                    safe(row.get("ai_summary")),
-                    safe(row.get("community_notes"))
-                );
-
-                float[] vector = embedder.embed(aiContextText);
-                String vectorString = embedder.toVectorString(vector);
-
-                jdbc.update("UPDATE resources SET content_vector = ?::vector WHERE id = ?", vectorString, resourceId);
-                
-                LOG.info("✅ Successfully Auto-Vectorized resource ID: " + resourceId);
-
-            } catch (Exception e) {
-                LOG.log(Level.SEVERE, "❌ Failed to vectorize resource ID " + resourceId, e);
+                return body.get();
+            } finally {
+                record(stage, System.nanoTime() - t0);
+            }
+        }
+
+        void record(String stage, long ns) {
+            if (failed.containsKey(stage)) return;              // finished after its deadline
+            nanos.put(stage, ns);
+            stageLatency.get(stage).record(ns);
+        }
+
+        void fail(String stage, Throwable e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            failed.put(stage, cause instanceof TimeoutException ? "timeout" : "failed");
+            if (!(cause instanceof TimeoutException))
+                LOG.log(Level.WARNING, "RAG stage " + stage + " failed — using fallback", cause);
+        }
+
+        boolean degraded() {
+            return !failed.isEmpty();
+        }
+
+        void log(String outcome) {
+            long total = System.nanoTime() - start;
+            stageLatency.get("total").record(total);
+            StringBuilder sb = new StringBuilder("RAG stages (").append(outcome).append("):");
+            for (String stage : STAGES) {
+                String f = failed.get(stage);
+                Long ns = nanos.get(stage);
+                if (f != null)       sb.append(' ').append(stage).append('=').append(f);
+                else if (ns != null) sb.append(' ').append(stage).append('=').append(ns / 1_000_000).append("ms");
             }
-        }).start();
+            sb.append(" total=").append(total / 1_000_000).append("ms");
+            LOG.info(sb.toString());
+        }
     }
 }
@@ -2,50 +2,272 @@ package com.scholar.service;
 
 import com.scholar.model.ResourceDoc;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * ResourceCacheService — in-memory cache of public resources + stats.
  * Keeps RAG fast and reduces DB round-trips on large datasets.
+ *
+ * Readers always work on an immutable Snapshot (docs + ResourceSearchIndex)
+ * read from one volatile field:
+ * 1. Stale-while-revalidate: once the TTL expires, readers keep the old
+ *    snapshot and a single background refresh (single-flight) reloads it.
+ *    Only the very first read waits, for at most COLD_START_WAIT_MS.
+ * 2. refreshResource() publishes a copy with the doc in a small overlay;
+ *    overlay docs are scored directly until a background compaction folds
+ *    them into a new index.
+ * 3. Refreshes are incremental: only resources whose row or progress
+ *    changed after the last watermark (db/005) are re-read and overlaid.
+ *    A full reload happens on first load, hourly, after a large delta, or
+ *    always if the migration is missing.
+ * 4. stats() exposes refresh duration and staleness.
+ * 5. Every publish that changes docs tells the ChangeListeners which ids
+ *    changed; setVersion() moves when a resource appears or disappears.
  */
 @Service
 public class ResourceCacheService {
 
-    private static final long TTL_MS = 5 * 60 * 1000; // 5 minutes
+    private static final Logger LOG = Logger.getLogger(ResourceCacheService.class.getName());
+
+    private static final long TTL_MS = 60 * 1000;               // delta refresh is cheap
+    private static final long FULL_RELOAD_MS = 60 * 60 * 1000;  // safety net
+    private static final long WATERMARK_OVERLAP_MS = 60_000;    // late-committing transactions
+    private static final int  MAX_DELTA_ROWS = 5_000;
+    private static final long RETRY_BACKOFF_MS   = 30_000;   // after a failed refresh
+    private static final long COLD_START_WAIT_MS = 5_000;
+    private static final int  OVERLAY_COMPACT_THRESHOLD = 256;
 
     @Autowired private JdbcTemplate jdbc;
 
-    private final ConcurrentHashMap<Integer, ResourceDoc> cache = new ConcurrentHashMap<>();
-    private volatile long lastRefresh = 0L;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private final Object publishLock = new Object();
+
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "resource-cache-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicReference<CompletableFuture<Void>> inFlight = new AtomicReference<>();
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+
+    private volatile long lastAttemptAt = 0L;
+    private volatile long lastDurationMs = 0L;
+    private volatile long maxDurationMs = 0L;
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong fullReloads = new AtomicLong();
+    private final AtomicLong failures  = new AtomicLong();
+
+    // Delta state — refresher thread only
+    private Timestamp watermark;              // DB clock at the start of the last refresh
+    private long lastFullReloadAt = 0L;
+    private boolean deltaSupported = true;    // false when db/005 is not applied
+    private volatile int lastDeltaRows = 0;
+
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong setVersion = new AtomicLong();
+
+    /** Called on the publishing thread with the ids whose doc changed, appeared or disappeared. */
+    public interface ChangeListener {
+        void onResourcesChanged(Set<Integer> ids);
+    }
+
+    public record Stats(int size, int overlaySize, long stalenessMs, long lastRefreshMs,
+                        long maxRefreshMs, long refreshes, long fullReloads, int lastDeltaRows,
+                        long failures, boolean refreshing) {}
 
     @PostConstruct
     public void warmCache() {
         refreshAllAsync();
     }
 
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /** Version of the set of public resource ids; edits to a doc do not move it. */
+    public long setVersion() {
+        return setVersion.get();
+    }
+
     public List<ResourceDoc> getAll() {
-        ensureFresh();
-        return new ArrayList<>(cache.values());
+        return current().all();
     }
 
     public ResourceDoc getById(int id) {
-        ensureFresh();
-        return cache.get(id);
+        return current().get(id);
+    }
+
+    /** Starts a background reload unless one is already running; never blocks. */
+    public CompletableFuture<Void> refreshAllAsync() {
+        CompletableFuture<Void> mine = new CompletableFuture<>();
+        CompletableFuture<Void> running = inFlight.compareAndExchange(null, mine);
+        if (running != null) return running;
+        lastAttemptAt = System.currentTimeMillis();
+        try {
+            refresher.execute(() -> {
+                try {
+                    refresh();
+                    inFlight.set(null);
+                    mine.complete(null);
+                } catch (Throwable t) {
+                    failures.incrementAndGet();
+                    LOG.log(Level.WARNING, "ResourceCacheService: refresh failed, serving stale snapshot", t);
+                    inFlight.set(null);
+                    mine.completeExceptionally(t);
+                }
+            });
+        } catch (RuntimeException e) {              // executor shut down
+            inFlight.set(null);
+            mine.completeExceptionally(e);
+        }
+        return mine;
     }
 
-    public void refreshAllAsync() {
-        new Thread(this::refreshAll, "resource-cache-refresh").start();
+    /** Blocking reload — joins the in-flight refresh if there is one. */
+    public void refreshAll() {
+        refreshAllAsync().join();
     }
 
-    public synchronized void refreshAll() {
+    public void refreshResource(int id) {
+        String sql = """
+            SELECT r.id, r.title, r.link, r.type, r.description, r.tags, r.ai_summary,
+                   r.community_notes,
+                   r.course_name, r.segment_name, r.topic_name, r.difficulty,
+                   r.upvotes, r.downvotes,
+                   COALESCE(AVG(p.time_spent_mins) FILTER (WHERE p.is_completed),0) AS avg_time,
+                   COALESCE(COUNT(p.*) FILTER (WHERE p.is_completed),0) AS completed_count,
+                   COALESCE(COUNT(p.*),0) AS progress_count
+            FROM resources r
+            LEFT JOIN user_progress p ON p.resource_id = r.id
+            WHERE r.is_public = true AND r.id = ?
+            GROUP BY r.id
+            """;
+        List<Map<String, Object>> rows = jdbc.queryForList(sql, id);
+        ResourceDoc doc = rows.isEmpty() ? null : mapRow(rows.get(0));   // null → removed
+        Snapshot prev, next;
+        synchronized (publishLock) {
+            prev = snapshot;
+            next = prev.with(Map.of(id, new Overlay(doc)));
+            snapshot = next;
+        }
+        fireChanges(prev, next, List.of(id));
+        if (next.overlay().size() > OVERLAY_COMPACT_THRESHOLD) compactAsync();
+    }
+
+    public List<ResourceDoc> search(String query, String courseHint, int limit) {
+        if (query == null || query.isBlank()) return List.of();
+        Snapshot snap = current();
+        ResourceSearchIndex.Query q = snap.index().parse(query, courseHint);
+        if (q.isEmpty()) return List.of();
+
+        // Over-fetch by the overlay size: indexed copies of overlaid docs are dropped below
+        Map<Integer, Overlay> overlay = snap.overlay();
+        List<Scored> scored = new ArrayList<>();
+        for (ResourceSearchIndex.Hit hit : snap.index().search(q, limit + overlay.size())) {
+            if (!overlay.containsKey(hit.doc().id())) scored.add(new Scored(hit.doc(), hit.score()));
+        }
+        for (Overlay o : overlay.values()) {
+            if (o.doc() == null) continue;
+            double score = snap.index().score(q, o.doc());
+            if (score > 0) scored.add(new Scored(o.doc(), score));
+        }
+        scored.sort(Comparator.comparingDouble(Scored::score).reversed());
+        List<ResourceDoc> out = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, scored.size()); i++) {
+            out.add(scored.get(i).doc());
+        }
+        return out;
+    }
+
+    public Stats stats() {
+        Snapshot s = snapshot;
+        long staleness = s.loadedAt() == 0 ? -1 : System.currentTimeMillis() - s.loadedAt();
+        return new Stats(s.base().size(), s.overlay().size(), staleness, lastDurationMs,
+            maxDurationMs, refreshes.get(), fullReloads.get(), lastDeltaRows,
+            failures.get(), inFlight.get() != null);
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PRIVATE: SNAPSHOTS
+    // ──────────────────────────────────────────────────────────────
+
+    /** Returns the published snapshot, kicking off a background refresh if it is stale. */
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        long now = System.currentTimeMillis();
+        if (now - s.loadedAt() > TTL_MS && now - lastAttemptAt > RETRY_BACKOFF_MS) {
+            CompletableFuture<Void> refresh = refreshAllAsync();
+            if (s.loadedAt() == 0) {
+                try {
+                    refresh.get(COLD_START_WAIT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ignored) {
+                    // timed out / failed — serve whatever is published
+                }
+                s = snapshot;
+            }
+        }
+        return s;
+    }
+
+    /** Delta refresh when possible, full reload otherwise; refresher thread only. */
+    private void refresh() {
+        long t0 = System.currentTimeMillis();
+        boolean full = !deltaSupported || watermark == null || t0 - lastFullReloadAt > FULL_RELOAD_MS;
+        if (!full) {
+            try {
+                full = !refreshDelta();
+            } catch (BadSqlGrammarException e) {
+                deltaSupported = false;
+                LOG.log(Level.WARNING, "ResourceCacheService: delta refresh unavailable "
+                    + "(is db/005_resource_cache_watermarks.sql applied?) — using full reloads", e);
+                full = true;
+            }
+        }
+        if (full) fullReload();
+
+        long took = System.currentTimeMillis() - t0;
+        lastDurationMs = took;
+        maxDurationMs = Math.max(maxDurationMs, took);
+        refreshes.incrementAndGet();
+    }
+
+    private void fullReload() {
+        Snapshot before = snapshot;
+        Timestamp dbNow = deltaSupported ? dbNow() : null;
         String sql = """
             SELECT r.id, r.title, r.link, r.type, r.description, r.tags, r.ai_summary,
                    r.community_notes,
@@ -60,78 +282,185 @@ public class ResourceCacheService {
             GROUP BY r.id
             """;
         List<Map<String, Object>> rows = jdbc.queryForList(sql);
-        cache.clear();
+        Map<Integer, ResourceDoc> docs = new HashMap<>(rows.size() * 4 / 3 + 1);
         for (Map<String, Object> row : rows) {
             ResourceDoc doc = mapRow(row);
-            cache.put(doc.id(), doc);
+            docs.put(doc.id(), doc);
         }
-        lastRefresh = System.currentTimeMillis();
+        long now = System.currentTimeMillis();
+        Snapshot next = publish(before, docs, now);
+        Set<Integer> ids = new HashSet<>(docs.keySet());
+        for (ResourceDoc d : before.all()) ids.add(d.id());
+        fireChanges(before, next, ids);
+        watermark = dbNow;
+        lastFullReloadAt = now;
+        fullReloads.incrementAndGet();
+        if (dbNow != null) pruneDeletions();
+        LOG.info("ResourceCacheService: full reload, " + docs.size() + " resources");
     }
 
-    public void refreshResource(int id) {
+    /**
+     * Re-reads only resources changed since the watermark (minus an overlap for
+     * transactions that committed late) and publishes them as overlay entries.
+     *
+     * @return false if the delta is too large and a full reload is cheaper
+     */
+    private boolean refreshDelta() {
+        Timestamp dbNow = dbNow();
+        Timestamp since = new Timestamp(watermark.getTime() - WATERMARK_OVERLAP_MS);
+
+        List<Integer> deleted = jdbc.queryForList(
+            "SELECT resource_id FROM resource_deletions WHERE deleted_at > ?", Integer.class, since);
         String sql = """
             SELECT r.id, r.title, r.link, r.type, r.description, r.tags, r.ai_summary,
                    r.community_notes,
                    r.course_name, r.segment_name, r.topic_name, r.difficulty,
-                   r.upvotes, r.downvotes,
+                   r.upvotes, r.downvotes, r.is_public,
                    COALESCE(AVG(p.time_spent_mins) FILTER (WHERE p.is_completed),0) AS avg_time,
                    COALESCE(COUNT(p.*) FILTER (WHERE p.is_completed),0) AS completed_count,
                    COALESCE(COUNT(p.*),0) AS progress_count
             FROM resources r
             LEFT JOIN user_progress p ON p.resource_id = r.id
-            WHERE r.is_public = true AND r.id = ?
+            WHERE r.id IN (
+                SELECT id FROM resources WHERE updated_at > ?
+                UNION
+                SELECT resource_id FROM user_progress WHERE updated_at > ?
+            )
             GROUP BY r.id
+            LIMIT ?
             """;
-        List<Map<String, Object>> rows = jdbc.queryForList(sql, id);
-        if (rows.isEmpty()) {
-            cache.remove(id);
-        } else {
-            ResourceDoc doc = mapRow(rows.get(0));
-            cache.put(doc.id(), doc);
+        List<Map<String, Object>> rows = jdbc.queryForList(sql, since, since, MAX_DELTA_ROWS + 1);
+        if (rows.size() + deleted.size() > MAX_DELTA_ROWS) return false;
+
+        Map<Integer, Overlay> updates = new HashMap<>();
+        for (Integer id : deleted) updates.put(id, new Overlay(null));
+        for (Map<String, Object> row : rows) {
+            int id = ((Number) row.get("id")).intValue();
+            updates.put(id, new Overlay(Boolean.TRUE.equals(row.get("is_public")) ? mapRow(row) : null));
+        }
+        // Re-applied overlap rows that did not change are skipped
+        Snapshot current = snapshot;
+        updates.entrySet().removeIf(e -> Objects.equals(current.get(e.getKey()), e.getValue().doc()));
+
+        Snapshot prev, next;
+        synchronized (publishLock) {
+            prev = snapshot;
+            Snapshot s = prev.with(updates);
+            next = new Snapshot(s.base(), s.index(), s.overlay(), System.currentTimeMillis());
+            snapshot = next;
         }
-        lastRefresh = System.currentTimeMillis();
+        fireChanges(prev, next, updates.keySet());
+        watermark = dbNow;
+        lastDeltaRows = updates.size();
+        if (next.overlay().size() > OVERLAY_COMPACT_THRESHOLD) compactAsync();
+        return true;
     }
 
-    public List<ResourceDoc> search(String query, String courseHint, int limit) {
-        if (query == null || query.isBlank()) return List.of();
-        ensureFresh();
-        String q = query.toLowerCase();
-        String course = courseHint != null ? courseHint.toLowerCase() : null;
+    private Timestamp dbNow() {
+        try {
+            return jdbc.queryForObject("SELECT NOW()", Timestamp.class);
+        } catch (DataAccessException e) {
+            return null;
+        }
+    }
 
-        List<ResourceDoc> all = new ArrayList<>(cache.values());
-        List<Scored> scored = new ArrayList<>();
-        for (ResourceDoc d : all) {
-            double score = 0.0;
-            score += containsScore(d.title(), q, 3.0);
-            score += containsScore(d.tags(), q, 2.0);
-            score += containsScore(d.description(), q, 1.2);
-            score += containsScore(d.aiSummary(), q, 1.0);
-            score += containsScore(d.communityNotes(), q, 1.0);
-            score += containsScore(d.topicName(), q, 1.5);
-            score += containsScore(d.segmentName(), q, 1.5);
-            score += containsScore(d.courseName(), q, 1.5);
-
-            if (course != null && !course.isBlank()) {
-                score += containsScore(d.courseName(), course, 2.0);
-                score += containsScore(d.segmentName(), course, 1.0);
-                score += containsScore(d.topicName(), course, 1.0);
-            }
+    private void pruneDeletions() {
+        try {
+            jdbc.update("DELETE FROM resource_deletions WHERE deleted_at < NOW() - INTERVAL '1 day'");
+        } catch (BadSqlGrammarException e) {
+            deltaSupported = false;
+        }
+    }
 
-            // Add lightweight popularity signal
-            score += (d.upvotes() - d.downvotes()) * 0.05;
-            if (score > 0) scored.add(new Scored(d, score));
+    /** Folds the overlay into a fresh index without touching the DB. */
+    private void compactAsync() {
+        if (!compacting.compareAndSet(false, true)) return;   // runs after any in-flight refresh
+        try {
+            refresher.execute(() -> {
+                try {
+                    Snapshot before = snapshot;
+                    Map<Integer, ResourceDoc> docs = new HashMap<>(before.base());
+                    before.overlay().forEach((id, o) -> {
+                        if (o.doc() == null) docs.remove(id); else docs.put(id, o.doc());
+                    });
+                    publish(before, docs, before.loadedAt());
+                } catch (Throwable t) {
+                    LOG.log(Level.WARNING, "ResourceCacheService: overlay compaction failed", t);
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            compacting.set(false);
         }
-        scored.sort(Comparator.comparingDouble(Scored::score).reversed());
-        List<ResourceDoc> out = new ArrayList<>();
-        for (int i = 0; i < Math.min(limit, scored.size()); i++) {
-            out.add(scored.get(i).doc());
+    }
+
+    /**
+     * Builds the index outside the lock, then swaps atomically. Overlay entries
+     * published after {@code before} was read are carried over, so a
+     * refreshResource() racing a reload is never lost.
+     */
+    private Snapshot publish(Snapshot before, Map<Integer, ResourceDoc> docs, long loadedAt) {
+        ResourceSearchIndex index = ResourceSearchIndex.build(docs.values());
+        Map<Integer, ResourceDoc> base = Collections.unmodifiableMap(docs);
+        synchronized (publishLock) {
+            Map<Integer, Overlay> newer = new HashMap<>();
+            snapshot.overlay().forEach((id, o) -> {
+                if (before.overlay().get(id) != o) newer.put(id, o);
+            });
+            snapshot = new Snapshot(base, index, Map.of(), loadedAt).with(newer);
+            return snapshot;
         }
-        return out;
     }
 
-    private void ensureFresh() {
-        long now = System.currentTimeMillis();
-        if (now - lastRefresh > TTL_MS) refreshAll();
+    /** Tells the listeners which of `ids` differ between two published snapshots. */
+    private void fireChanges(Snapshot before, Snapshot after, Collection<Integer> ids) {
+        Set<Integer> changed = new HashSet<>();
+        boolean membership = false;
+        for (Integer id : ids) {
+            ResourceDoc a = before.get(id), b = after.get(id);
+            if (Objects.equals(a, b)) continue;
+            changed.add(id);
+            if ((a == null) != (b == null)) membership = true;
+        }
+        if (changed.isEmpty()) return;
+        if (membership) setVersion.incrementAndGet();
+        Set<Integer> view = Collections.unmodifiableSet(changed);
+        for (ChangeListener l : listeners) {
+            try {
+                l.onResourcesChanged(view);
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "ResourceCacheService: change listener failed", e);
+            }
+        }
+    }
+
+    /** Single-doc update since the last index build; doc == null → removed. */
+    private record Overlay(ResourceDoc doc) {}
+
+    private record Snapshot(Map<Integer, ResourceDoc> base, ResourceSearchIndex index,
+                            Map<Integer, Overlay> overlay, long loadedAt) {
+
+        static final Snapshot EMPTY = new Snapshot(Map.of(), ResourceSearchIndex.empty(), Map.of(), 0L);
+
+        ResourceDoc get(int id) {
+            Overlay o = overlay.get(id);
+            return o != null ? o.doc() : base.get(id);
+        }
+
+        List<ResourceDoc> all() {
+            List<ResourceDoc> out = new ArrayList<>(base.size() + overlay.size());
+            for (ResourceDoc d : base.values()) if (!overlay.containsKey(d.id())) out.add(d);
+            for (Overlay o : overlay.values()) if (o.doc() != null) out.add(o.doc());
+            return out;
+        }
+
+        Snapshot with(Map<Integer, Overlay> updates) {
+            if (updates.isEmpty()) return this;
+            Map<Integer, Overlay> merged = new HashMap<>(overlay);
+            merged.putAll(updates);
+            return new Snapshot(base, index, Collections.unmodifiableMap(merged), loadedAt);
+        }
     }
 
     private ResourceDoc mapRow(Map<String, Object> row) {
@@ -160,10 +489,5 @@ public class ResourceCacheService {
     private static int num(Object o) { return o instanceof Number ? ((Number) o).intValue() : 0; }
     private static double dbl(Object o) { return o instanceof Number ? ((Number) o).doubleValue() : 0.0; }
 
-    private static double containsScore(String field, String q, double weight) {
-        if (field == null) return 0.0;
-        return field.toLowerCase().contains(q) ? weight : 0.0;
-    }
-
     private record Scored(ResourceDoc doc, double score) {}
 }
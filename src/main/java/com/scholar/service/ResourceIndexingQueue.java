@@ -0,0 +1,290 @@
+package com.scholar.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ResourceIndexingQueue — bounded, coalescing queue that re-embeds resources in batches.
+ *
+ * Replaces the old "one raw Thread + one HTTP call per resource" in
+ * RAGService.indexResource(int):
+ * 1. submit() coalesces ids that are already pending; when the queue is full
+ *    the caller waits (backpressure) up to SUBMIT_TIMEOUT_MS.
+ * 2. One worker drains up to BATCH_SIZE ids, loads their rows in one query,
+ *    embeds them with one multi-input request (EmbeddingService.embedBatch)
+ *    and writes every vector back with one JDBC batch update.
+ * 3. Failed batches are retried with jittered exponential backoff.
+ * 4. progress() is cheap enough for the admin UI to poll.
+ */
+@Service
+public class ResourceIndexingQueue {
+
+    private static final Logger LOG = Logger.getLogger(ResourceIndexingQueue.class.getName());
+
+    private static final int  CAPACITY          = 4096;
+    private static final int  BATCH_SIZE        = 32;
+    private static final long LINGER_MS         = 250;    // wait for more ids before a small batch
+    private static final long SUBMIT_TIMEOUT_MS = 5_000;
+    private static final int  MAX_ATTEMPTS      = 4;
+    private static final long BASE_BACKOFF_MS   = 500;
+    private static final long THROUGHPUT_WINDOW_MS = 60_000;
+
+    @Autowired private JdbcTemplate        jdbc;
+    @Autowired private EmbeddingService    embedder;
+    @Autowired private ResourceVectorIndex vectorIndex;
+
+    private final ReentrantLock lock     = new ReentrantLock();
+    private final Condition     notEmpty = lock.newCondition();
+    private final Condition     notFull  = lock.newCondition();
+    private final LinkedHashSet<Integer> pending = new LinkedHashSet<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong rejected  = new AtomicLong();
+    private final AtomicLong indexed   = new AtomicLong();
+    private final AtomicLong failed    = new AtomicLong();
+    private final AtomicLong retries   = new AtomicLong();
+    private final ArrayDeque<long[]> recentBatches = new ArrayDeque<>();  // {timeMs, count}
+    private volatile int inFlight = 0;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public record Progress(long submitted, long coalesced, long rejected, int pending, int inFlight,
+                           long indexed, long failed, long retries, double vectorsPerSecond) {}
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::runWorker, "resource-indexing-worker");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) worker.interrupt();
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PUBLIC API
+    // ──────────────────────────────────────────────────────────────
+
+    /**
+     * Queues a resource for (re-)embedding.
+     *
+     * @return false if the queue stayed full for SUBMIT_TIMEOUT_MS
+     */
+    public boolean submit(int resourceId) {
+        lock.lock();
+        try {
+            submitted.incrementAndGet();
+            if (pending.contains(resourceId)) {
+                coalesced.incrementAndGet();
+                return true;
+            }
+            long waitNs = TimeUnit.MILLISECONDS.toNanos(SUBMIT_TIMEOUT_MS);
+            while (pending.size() >= CAPACITY) {
+                if (waitNs <= 0) {
+                    rejected.incrementAndGet();
+                    LOG.warning("ResourceIndexingQueue full — dropped resource id=" + resourceId);
+                    return false;
+                }
+                waitNs = notFull.awaitNanos(waitNs);
+            }
+            pending.add(resourceId);
+            notEmpty.signal();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.incrementAndGet();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Progress progress() {
+        int queued;
+        lock.lock();
+        try { queued = pending.size(); } finally { lock.unlock(); }
+        return new Progress(submitted.get(), coalesced.get(), rejected.get(), queued, inFlight,
+            indexed.get(), failed.get(), retries.get(), throughput());
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PRIVATE: WORKER
+    // ──────────────────────────────────────────────────────────────
+
+    private void runWorker() {
+        while (running) {
+            try {
+                List<Integer> batch = takeBatch();
+                if (batch.isEmpty()) continue;
+                inFlight = batch.size();
+                processWithRetry(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOG.log(Level.SEVERE, "ResourceIndexingQueue worker error", e);
+            } finally {
+                inFlight = 0;
+            }
+        }
+    }
+
+    /** Blocks for the first id, then lingers briefly so bulk imports coalesce into full batches. */
+    private List<Integer> takeBatch() throws InterruptedException {
+        lock.lock();
+        try {
+            while (pending.isEmpty()) notEmpty.await();
+            long lingerNs = TimeUnit.MILLISECONDS.toNanos(LINGER_MS);
+            while (pending.size() < BATCH_SIZE && lingerNs > 0) lingerNs = notEmpty.awaitNanos(lingerNs);
+
+            List<Integer> batch = new ArrayList<>(Math.min(BATCH_SIZE, pending.size()));
+            Iterator<Integer> it = pending.iterator();
+            while (it.hasNext() && batch.size() < BATCH_SIZE) {
+                batch.add(it.next());
+                it.remove();
+            }
+            notFull.signalAll();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void processWithRetry(List<Integer> ids) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                int done = processBatch(ids);
+                indexed.addAndGet(done);
+                recordThroughput(done);
+                LOG.info("✅ ResourceIndexingQueue: vectorized " + done + "/" + ids.size() + " resources");
+                return;
+            } catch (Exception e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    failed.addAndGet(ids.size());
+                    LOG.log(Level.SEVERE, "❌ Failed to vectorize resources " + ids
+                        + " after " + attempt + " attempts", e);
+                    return;
+                }
+                retries.incrementAndGet();
+                long cap = BASE_BACKOFF_MS << (attempt - 1);
+                long sleep = ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);   // jittered
+                LOG.warning("ResourceIndexingQueue: batch attempt " + attempt + " failed ("
+                    + e.getMessage() + ") — retrying in " + sleep + " ms");
+                Thread.sleep(sleep);
+            }
+        }
+    }
+
+    /** One SELECT, one multi-input embedding call, one JDBC batch UPDATE. */
+    private int processBatch(List<Integer> ids) throws Exception {
+        int[] idArray = ids.stream().mapToInt(Integer::intValue).toArray();
+        List<Map<String, Object>> rows = jdbc.queryForList("""
+            SELECT id, title, type, difficulty, tags, description, ai_summary,
+                   community_notes, course_name, segment_name, topic_name, is_public
+            FROM resources
+            WHERE id = ANY(?::int[])
+            """, idArray);
+        if (rows.isEmpty()) return 0;
+
+        List<String> texts = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) texts.add(buildIndexText(row));
+
+        float[][] vectors = new float[rows.size()][EmbeddingService.DIMENSIONS];
+        embedder.embedBatch(texts, vectors);
+
+        jdbc.batchUpdate("UPDATE resources SET content_vector = ?::real[]::vector WHERE id = ?",
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setObject(1, vectors[i]);
+                    ps.setInt(2, ((Number) rows.get(i).get("id")).intValue());
+                }
+                @Override
+                public int getBatchSize() { return rows.size(); }
+            });
+
+        for (int i = 0; i < rows.size(); i++) {
+            int id = ((Number) rows.get(i).get("id")).intValue();
+            if (Boolean.TRUE.equals(rows.get(i).get("is_public"))) vectorIndex.put(id, vectors[i]);
+            else vectorIndex.remove(id);
+        }
+        return rows.size();
+    }
+
+    /** Same embedding text RAGService.indexResource(int) has always used. */
+    static String buildIndexText(Map<String, Object> row) {
+        return String.format(
+            "Course: %s | Segment: %s | Topic: %s\n" +
+            "Resource Title: %s\n" +
+            "Type: %s | Difficulty: %s | Tags: %s\n" +
+            "Description: %s\n" +
+            "AI Summary: %s\n" +
+            "Community Notes: %s",
+            safe(row.get("course_name")), safe(row.get("segment_name")), safe(row.get("topic_name")),
+            safe(row.get("title")),
+            safe(row.get("type")), safe(row.get("difficulty")), safe(row.get("tags")),
+            safe(row.get("description")),
+            safe(row.get("ai_summary")),
+            safe(row.get("community_notes"))
+        );
+    }
+
+    private static String safe(Object o) {
+        return (o != null && !o.toString().equals("null")) ? o.toString() : "—";
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PRIVATE: THROUGHPUT
+    // ──────────────────────────────────────────────────────────────
+
+    private void recordThroughput(int count) {
+        long now = System.currentTimeMillis();
+        synchronized (recentBatches) {
+            recentBatches.addLast(new long[]{now, count});
+            pruneWindow(now);
+        }
+    }
+
+    private double throughput() {
+        long now = System.currentTimeMillis();
+        synchronized (recentBatches) {
+            pruneWindow(now);
+            if (recentBatches.isEmpty()) return 0.0;
+            long total = 0;
+            for (long[] b : recentBatches) total += b[1];
+            long span = Math.max(1_000, now - recentBatches.peekFirst()[0]);
+            return total * 1000.0 / span;
+        }
+    }
+
+    private void pruneWindow(long now) {
+        while (!recentBatches.isEmpty() && now - recentBatches.peekFirst()[0] > THROUGHPUT_WINDOW_MS)
+            recentBatches.pollFirst();
+    }
+}
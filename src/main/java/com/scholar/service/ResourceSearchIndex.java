@@ -0,0 +1,439 @@
+package com.scholar.service;
+
+import com.scholar.model.ResourceDoc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ResourceSearchIndex — immutable inverted index over cached ResourceDocs.
+ *
+ * Built by ResourceCacheService.refreshAll(); replaces the old linear
+ * toLowerCase().contains() scan with BM25F scoring:
+ * 1. Fields keep today's weights (title 3.0, tags 2.0, description 1.2,
+ *    topic/segment/course 1.5, summary/notes 1.0); course hints still boost
+ *    course 2.0, segment 1.0, topic 1.0.
+ * 2. Every query token matches exactly and as a prefix ("graph" → "graphs"),
+ *    multi-term queries add up per term. Course-hint tokens ("CSE 105") are
+ *    codes, so they match exactly only.
+ * 3. Posting lists are primitive int[] / float[]; per-query scratch buffers
+ *    are reused per thread, so a search allocates only the result list.
+ *    Hint terms carried by most docs (a department code) also keep a dense
+ *    per-doc weight array, so applying them costs one lookup per match.
+ */
+public final class ResourceSearchIndex {
+
+    // Field order = weight tables below
+    private static final int TITLE = 0, TAGS = 1, DESCRIPTION = 2, AI_SUMMARY = 3,
+                             NOTES = 4, TOPIC = 5, SEGMENT = 6, COURSE = 7, FIELDS = 8;
+    private static final float[] QUERY_BOOST = {3.0f, 2.0f, 1.2f, 1.0f, 1.0f, 1.5f, 1.5f, 1.5f};
+    private static final float[] HINT_BOOST  = {0f,   0f,   0f,   0f,   0f,   1.0f, 1.0f, 2.0f};
+
+    private static final float K1 = 1.2f;
+    private static final float B  = 0.75f;
+    private static final float PREFIX_WEIGHT  = 0.6f;
+    private static final int   MAX_EXPANSIONS = 32;
+    private static final int   MIN_PREFIX     = 2;
+    // Hint terms on more than 1/DENSE_HINT_FRACTION of docs get a dense per-doc weight array
+    private static final int   DENSE_HINT_FRACTION = 8;
+    private static final int   DENSE_HINT_MIN_DOCS = 1_024;
+    private static final double POPULARITY_WEIGHT = 0.05;
+
+    private final ResourceDoc[] docs;
+    private final String[]  terms;        // sorted dictionary
+    private final float[]   idf;
+    private final int[][]   postings;     // term → doc ordinals (ascending)
+    private final float[][] queryTf;      // term → saturated BM25F tf (boosted, length-normalised) per posting
+    private final float[][] hintTf;       // same, with hint boosts (0 if only in other fields)
+    private final float[][] hintDense;    // broad hint terms only: doc ordinal → hintTf (null otherwise)
+    private final float[]   avgLen = new float[FIELDS];
+
+    private final ThreadLocal<Scratch> scratch;
+
+    public record Hit(ResourceDoc doc, double score) {}
+
+    /** Parsed query: expanded term ids with per-term weights. */
+    public static final class Query {
+        final int[]   termIds;
+        final float[] weights;
+        final int[]   hintIds;
+        final float[] hintWeights;
+        final String[] tokens;
+        final String[] hintTokens;
+
+        Query(int[] termIds, float[] weights, int[] hintIds, float[] hintWeights,
+              String[] tokens, String[] hintTokens) {
+            this.termIds = termIds; this.weights = weights;
+            this.hintIds = hintIds; this.hintWeights = hintWeights;
+            this.tokens = tokens; this.hintTokens = hintTokens;
+        }
+
+        public boolean isEmpty() { return tokens.length == 0; }
+    }
+
+    private ResourceSearchIndex(ResourceDoc[] docs, String[] terms, float[] idf, int[][] postings,
+                                float[][] queryTf, float[][] hintTf, float[][] hintDense) {
+        this.docs = docs; this.terms = terms; this.idf = idf;
+        this.postings = postings; this.queryTf = queryTf; this.hintTf = hintTf; this.hintDense = hintDense;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(docs.length));
+    }
+
+    public static ResourceSearchIndex empty() {
+        return build(List.of());
+    }
+
+    public int size() { return docs.length; }
+
+    // ──────────────────────────────────────────────────────────────
+    // BUILD
+    // ──────────────────────────────────────────────────────────────
+
+    public static ResourceSearchIndex build(Collection<ResourceDoc> source) {
+        ResourceDoc[] docs = source.toArray(new ResourceDoc[0]);
+        int n = docs.length;
+
+        // Pass 1: field lengths → average lengths for BM25 normalisation
+        int[][] lengths = new int[FIELDS][n];
+        double[] totals = new double[FIELDS];
+        for (int d = 0; d < n; d++) {
+            for (int f = 0; f < FIELDS; f++) {
+                lengths[f][d] = countTokens(field(docs[d], f));
+                totals[f] += lengths[f][d];
+            }
+        }
+        float[] avg = new float[FIELDS];
+        for (int f = 0; f < FIELDS; f++) avg[f] = n == 0 ? 1f : (float) Math.max(1.0, totals[f] / n);
+
+        // Pass 2: postings with boosted, length-normalised tf per (term, doc)
+        Map<String, TermAcc> dict = new HashMap<>();
+        for (int d = 0; d < n; d++) {
+            for (int f = 0; f < FIELDS; f++) {
+                String text = field(docs[d], f);
+                if (text.isEmpty()) continue;
+                float norm = 1 - B + B * lengths[f][d] / avg[f];
+                float q = QUERY_BOOST[f] / norm, h = HINT_BOOST[f] / norm;
+                final int doc = d;
+                forEachToken(text, tok -> dict.computeIfAbsent(tok, k -> new TermAcc()).add(doc, q, h));
+            }
+        }
+
+        String[] terms = dict.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        float[] idf = new float[terms.length];
+        int[][] postings = new int[terms.length][];
+        float[][] qtf = new float[terms.length][];
+        float[][] htf = new float[terms.length][];
+        float[][] dense = new float[terms.length][];
+        for (int t = 0; t < terms.length; t++) {
+            TermAcc acc = dict.get(terms[t]);
+            postings[t] = Arrays.copyOf(acc.docs, acc.size);
+            qtf[t] = new float[acc.size];
+            htf[t] = new float[acc.size];
+            for (int j = 0; j < acc.size; j++) {      // BM25 saturation precomputed per posting
+                qtf[t][j] = saturate(acc.q[j]);
+                htf[t][j] = saturate(acc.h[j]);
+            }
+            idf[t] = (float) Math.log(1 + (n - acc.size + 0.5) / (acc.size + 0.5));
+            if (acc.size >= DENSE_HINT_MIN_DOCS && acc.size > n / DENSE_HINT_FRACTION && hasHintWeight(htf[t])) {
+                dense[t] = new float[n];                   // e.g. a department code on most docs
+                for (int j = 0; j < acc.size; j++) dense[t][postings[t][j]] = htf[t][j];
+            }
+        }
+        ResourceSearchIndex index = new ResourceSearchIndex(docs, terms, idf, postings, qtf, htf, dense);
+        System.arraycopy(avg, 0, index.avgLen, 0, FIELDS);
+        return index;
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // QUERY
+    // ──────────────────────────────────────────────────────────────
+
+    public Query parse(String query, String courseHint) {
+        String[] tokens = tokenize(query);
+        String[] hintTokens = courseHint == null ? new String[0] : tokenize(courseHint);
+        IntFloatList q = new IntFloatList(), h = new IntFloatList();
+        for (String tok : tokens) expand(tok, q);
+        for (String tok : hintTokens) {
+            int exact = Arrays.binarySearch(terms, tok);
+            if (exact >= 0) h.add(exact, 1f);
+        }
+        return new Query(q.ids(), q.weights(), h.ids(), h.weights(), tokens, hintTokens);
+    }
+
+    /** Top-{@code limit} docs that match the query text; hints only boost. */
+    public List<Hit> search(Query query, int limit) {
+        if (query.isEmpty() || docs.length == 0 || limit <= 0) return List.of();
+        Scratch s = scratch.get();
+        s.ensure(docs.length);
+        s.ensureHeap(limit);
+
+        for (int i = 0; i < query.termIds.length; i++) {
+            int t = query.termIds[i];
+            float w = idf[t] * query.weights[i];
+            int[] p = postings[t];
+            float[] tf = queryTf[t];
+            for (int j = 0; j < p.length; j++) {
+                int d = p[j];
+                if (s.score[d] == 0f) s.touched[s.touchedCount++] = d;
+                s.score[d] += w * tf[j];
+            }
+        }
+        for (int i = 0; i < query.hintIds.length; i++) {
+            int t = query.hintIds[i];
+            float w = idf[t] * query.hintWeights[i];
+            int[] p = postings[t];
+            float[] tf = hintTf[t];
+            float[] dense = hintDense[t];
+            if (dense != null) {
+                // Broad hint term: direct lookup per matched doc
+                for (int k = 0; k < s.touchedCount; k++) {
+                    int d = s.touched[k];
+                    s.score[d] += w * dense[d];
+                }
+                continue;
+            }
+            if (p.length > s.touchedCount * 8) {
+                // Broad hint term (e.g. a course code on every doc): probe only matched docs
+                for (int k = 0; k < s.touchedCount; k++) {
+                    int d = s.touched[k];
+                    int j = Arrays.binarySearch(p, d);
+                    if (j >= 0 && tf[j] > 0f) s.score[d] += w * tf[j];
+                }
+                continue;
+            }
+            for (int j = 0; j < p.length; j++) {
+                int d = p[j];
+                if (tf[j] > 0f && s.score[d] > 0f) s.score[d] += w * tf[j];
+            }
+        }
+
+        // Top-k via a min-heap on (score, ordinal)
+        int heapSize = 0;
+        for (int i = 0; i < s.touchedCount; i++) {
+            int d = s.touched[i];
+            double score = s.score[d] + popularity(docs[d]);
+            s.score[d] = 0f;
+            if (heapSize < limit) {
+                heapSize = heapPush(s, heapSize, score, d);
+            } else if (score > s.heapScore[0]) {
+                s.heapScore[0] = score;
+                s.heapDoc[0] = d;
+                siftDown(s, 0, heapSize);
+            }
+        }
+        s.touchedCount = 0;
+
+        Hit[] out = new Hit[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            out[i] = new Hit(docs[s.heapDoc[0]], s.heapScore[0]);
+            s.heapScore[0] = s.heapScore[i];
+            s.heapDoc[0] = s.heapDoc[i];
+            siftDown(s, 0, i);
+        }
+        return Arrays.asList(out);
+    }
+
+    /**
+     * Scores one doc that is not (or no longer correctly) in the postings,
+     * e.g. a resource updated since the last build, using this index's
+     * idf and average field lengths. 0 = no text match.
+     */
+    public double score(Query query, ResourceDoc doc) {
+        if (query.isEmpty()) return 0;
+        float[] q = new float[query.termIds.length];
+        float[] h = new float[query.hintIds.length];
+        for (int f = 0; f < FIELDS; f++) {
+            String[] fieldTokens = tokenize(field(doc, f));
+            if (fieldTokens.length == 0) continue;
+            float norm = 1 - B + B * fieldTokens.length / avgLen[f];
+            for (int i = 0; i < q.length; i++)
+                q[i] += QUERY_BOOST[f] * count(fieldTokens, terms[query.termIds[i]]) / norm;
+            if (HINT_BOOST[f] == 0f) continue;
+            for (int i = 0; i < h.length; i++)
+                h[i] += HINT_BOOST[f] * count(fieldTokens, terms[query.hintIds[i]]) / norm;
+        }
+        double text = 0, hint = 0;
+        for (int i = 0; i < q.length; i++)
+            if (q[i] > 0f) text += idf[query.termIds[i]] * query.weights[i] * saturate(q[i]);
+        for (int i = 0; i < h.length; i++)
+            if (h[i] > 0f) hint += idf[query.hintIds[i]] * query.hintWeights[i] * saturate(h[i]);
+        return text > 0 ? text + hint + popularity(doc) : 0;
+    }
+
+    private static boolean hasHintWeight(float[] tf) {
+        for (float v : tf) if (v > 0f) return true;
+        return false;
+    }
+
+    private static float saturate(float tf) {
+        return tf * (K1 + 1) / (tf + K1);
+    }
+
+    private static double popularity(ResourceDoc d) {
+        return (d.upvotes() - d.downvotes()) * POPULARITY_WEIGHT;
+    }
+
+    /** Exact term (weight 1) plus up to MAX_EXPANSIONS prefix matches (PREFIX_WEIGHT). */
+    private void expand(String token, IntFloatList out) {
+        int exact = Arrays.binarySearch(terms, token);
+        if (exact >= 0) out.add(exact, 1f);
+        if (token.length() < MIN_PREFIX) return;
+        int i = exact >= 0 ? exact + 1 : -exact - 1;
+        for (int added = 0; i < terms.length && added < MAX_EXPANSIONS && terms[i].startsWith(token); i++, added++) {
+            out.add(i, PREFIX_WEIGHT);
+        }
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // TOKENIZER
+    // ──────────────────────────────────────────────────────────────
+
+    static String field(ResourceDoc d, int f) {
+        String v = switch (f) {
+            case TITLE       -> d.title();
+            case TAGS        -> d.tags();
+            case DESCRIPTION -> d.description();
+            case AI_SUMMARY  -> d.aiSummary();
+            case NOTES       -> d.communityNotes();
+            case TOPIC       -> d.topicName();
+            case SEGMENT     -> d.segmentName();
+            default          -> d.courseName();
+        };
+        return v == null ? "" : v;
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) return new String[0];
+        List<String> out = new ArrayList<>();
+        forEachToken(text, out::add);
+        return out.toArray(new String[0]);
+    }
+
+    private static void forEachToken(String text, java.util.function.Consumer<String> sink) {
+        int len = text.length(), start = -1;
+        for (int i = 0; i <= len; i++) {
+            boolean word = i < len && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) start = i;
+            else if (!word && start >= 0) {
+                sink.accept(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+    }
+
+    private static int countTokens(String text) {
+        int count = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            boolean word = Character.isLetterOrDigit(text.charAt(i));
+            if (word && !inWord) count++;
+            inWord = word;
+        }
+        return count;
+    }
+
+    private static int count(String[] tokens, String term) {
+        int c = 0;
+        for (String t : tokens) if (t.equals(term)) c++;
+        return c;
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PRIMITIVE HELPERS
+    // ──────────────────────────────────────────────────────────────
+
+    private static int heapPush(Scratch s, int size, double score, int doc) {
+        int i = size;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (s.heapScore[parent] <= score) break;
+            s.heapScore[i] = s.heapScore[parent];
+            s.heapDoc[i] = s.heapDoc[parent];
+            i = parent;
+        }
+        s.heapScore[i] = score;
+        s.heapDoc[i] = doc;
+        return size + 1;
+    }
+
+    private static void siftDown(Scratch s, int i, int size) {
+        double score = s.heapScore[i];
+        int doc = s.heapDoc[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && s.heapScore[child + 1] < s.heapScore[child]) child++;
+            if (s.heapScore[child] >= score) break;
+            s.heapScore[i] = s.heapScore[child];
+            s.heapDoc[i] = s.heapDoc[child];
+            i = child;
+        }
+        s.heapScore[i] = score;
+        s.heapDoc[i] = doc;
+    }
+
+    /** Per-thread accumulators, sized to the index. */
+    private static final class Scratch {
+        float[]  score;
+        int[]    touched;
+        int      touchedCount;
+        double[] heapScore = new double[64];
+        int[]    heapDoc   = new int[64];
+
+        Scratch(int n) {
+            score = new float[n];
+            touched = new int[n];
+        }
+
+        void ensure(int n) {
+            if (score.length < n) { score = new float[n]; touched = new int[n]; }
+        }
+
+        void ensureHeap(int k) {
+            if (heapScore.length < k) { heapScore = new double[k]; heapDoc = new int[k]; }
+        }
+    }
+
+    /** Growable posting accumulator used only while building. */
+    private static final class TermAcc {
+        int[] docs = new int[4];
+        float[] q = new float[4], h = new float[4];
+        int size;
+
+        void add(int doc, float qw, float hw) {
+            if (size > 0 && docs[size - 1] == doc) {
+                q[size - 1] += qw;
+                h[size - 1] += hw;
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                q = Arrays.copyOf(q, size * 2);
+                h = Arrays.copyOf(h, size * 2);
+            }
+            docs[size] = doc;
+            q[size] = qw;
+            h[size] = hw;
+            size++;
+        }
+    }
+
+    private static final class IntFloatList {
+        int[] ids = new int[8];
+        float[] w = new float[8];
+        int size;
+
+        void add(int id, float weight) {
+            if (size == ids.length) { ids = Arrays.copyOf(ids, size * 2); w = Arrays.copyOf(w, size * 2); }
+            ids[size] = id;
+            w[size++] = weight;
+        }
+
+        int[] ids() { return Arrays.copyOf(ids, size); }
+        float[] weights() { return Arrays.copyOf(w, size); }
+    }
+}
@@ -0,0 +1,166 @@
+package com.scholar.service;
+
+import com.scholar.util.HnswIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntPredicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ResourceVectorIndex — in-process HNSW index over resources.content_vector.
+ *
+ * Sits next to ResourceCacheService: loaded once at startup, kept current by
+ * RAGService.indexResource(), and searched on primitive float[] so a chat turn
+ * no longer needs a pgvector round-trip. pgvector stays the fallback while the
+ * index is loading or when it has no answer.
+ *
+ * Re-indexing or removing a resource leaves a tombstoned node (vector and
+ * links) in the graph; once tombstones exceed a quarter of the live nodes the
+ * index is rebuilt from the DB in the background (compactIfNeeded()).
+ */
+@Service
+public class ResourceVectorIndex {
+
+    private static final Logger LOG = Logger.getLogger(ResourceVectorIndex.class.getName());
+
+    static final int DIMENSIONS = 1536;          // openai/text-embedding-3-small
+    private static final int DEFAULT_EF = 64;
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 64;   // don't rebuild tiny indexes over a few edits
+    private static final long COMPACT_RETRY_MS = 60_000;       // after a failed rebuild
+
+    @Autowired private JdbcTemplate jdbc;
+
+    private volatile HnswIndex index = new HnswIndex(DIMENSIONS);
+    private volatile boolean ready = false;
+
+    // Ids written by put() while loadAll() is running — the DB snapshot must not overwrite them.
+    private volatile HnswIndex loading;
+    private final Set<Integer> touchedWhileLoading = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private volatile long nextCompactAt;
+
+    public record Hit(int id, double similarity) {}
+
+    @PostConstruct
+    public void warmIndex() {
+        loadAllAsync();
+    }
+
+    public boolean isReady() { return ready; }
+
+    public int size() { return index.size(); }
+
+    public void loadAllAsync() {
+        Thread t = new Thread(this::loadAll, "resource-vector-index-load");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** Rebuilds the whole index from the DB and swaps it in atomically. */
+    public synchronized void loadAll() {
+        long start = System.currentTimeMillis();
+        HnswIndex fresh = new HnswIndex(DIMENSIONS);
+        touchedWhileLoading.clear();
+        loading = fresh;
+        try {
+            int[] count = {0};
+            jdbc.query("""
+                SELECT id, content_vector::text AS vec
+                FROM resources
+                WHERE is_public = true
+                  AND content_vector IS NOT NULL
+                """,
+                rs -> {
+                    int id = rs.getInt("id");
+                    if (touchedWhileLoading.contains(id)) return;
+                    float[] v = parseVector(rs.getString("vec"));
+                    if (v != null && fresh.add(id, v)) count[0]++;
+                });
+            index = fresh;
+            ready = true;
+            LOG.info("✅ ResourceVectorIndex: loaded " + count[0] + " vectors in "
+                + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "ResourceVectorIndex load failed — pgvector fallback stays active", e);
+        } finally {
+            loading = null;
+        }
+    }
+
+    /** Incremental update — called after a vector has been written to the DB. */
+    public void put(int id, float[] vector) {
+        HnswIndex pending = loading;
+        if (pending != null) {
+            touchedWhileLoading.add(id);
+            pending.add(id, vector);
+        }
+        index.add(id, vector);
+        compactIfNeeded();
+    }
+
+    public void remove(int id) {
+        HnswIndex pending = loading;
+        if (pending != null) {
+            touchedWhileLoading.add(id);
+            pending.remove(id);
+        }
+        index.remove(id);
+        compactIfNeeded();
+    }
+
+    /** Rebuilds (loadAll) in the background once tombstones exceed a quarter of the live nodes. */
+    private void compactIfNeeded() {
+        HnswIndex current = index;
+        int dead = current.tombstones();
+        if (dead < MIN_TOMBSTONES_TO_COMPACT || dead <= current.size() / 4) return;
+        if (loading != null || System.currentTimeMillis() < nextCompactAt
+            || !compacting.compareAndSet(false, true)) return;
+        nextCompactAt = System.currentTimeMillis() + COMPACT_RETRY_MS;
+        LOG.info("ResourceVectorIndex: " + dead + " tombstones for " + current.size() + " live vectors — rebuilding");
+        Thread t = new Thread(() -> {
+            try { loadAll(); } finally { compacting.set(false); }
+        }, "resource-vector-index-compact");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Top-k cosine search. Returns an empty list when the index is not ready,
+     * so callers can fall back to pgvector.
+     */
+    public List<Hit> search(float[] query, int k, IntPredicate accept) {
+        if (!ready) return List.of();
+        int[]   ids    = new int[k];
+        float[] scores = new float[k];
+        int n = index.search(query, k, Math.max(DEFAULT_EF, k * 4), accept, ids, scores);
+        List<Hit> hits = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) hits.add(new Hit(ids[i], scores[i]));
+        return hits;
+    }
+
+    /** Parses pgvector text output '[0.1,0.2,...]'; returns null on a dimension mismatch. */
+    static float[] parseVector(String text) {
+        if (text == null) return null;
+        int len = text.length();
+        float[] out = new float[DIMENSIONS];
+        int n = 0, i = 0;
+        while (i < len && n < DIMENSIONS) {
+            char c = text.charAt(i);
+            if (c == '[' || c == ']' || c == ',' || c == ' ') { i++; continue; }
+            int j = i;
+            while (j < len && text.charAt(j) != ',' && text.charAt(j) != ']') j++;
+            out[n++] = Float.parseFloat(text.substring(i, j).trim());
+            i = j;
+        }
+        return n == DIMENSIONS ? out : null;
+    }
+}
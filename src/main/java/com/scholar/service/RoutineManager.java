@@ -1,8 +1,10 @@
 package com.scholar.service;
 
+import com.scholar.model.RecurringClass;
 import com.scholar.model.StudyTask;
 import org.springframework.beans.factory.annotation.Autowired; // 🟢 নতুন
 import org.springframework.stereotype.Service; // 🟢 নতুন
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -11,6 +13,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 @Service // 🌟 ১. ক্লাসটিকে স্প্রিং সার্ভিস হিসেবে রেজিস্টার করা হলো
 public class RoutineManager {
@@ -21,28 +24,34 @@ public class RoutineManager {
     private AISchedulerService aiService;
 
     // ==========================================================
-    // 🏛️ 1. VARSITY ROUTINE (Admin Task - Logic Unchanged)
+    // 🏛️ 1. VARSITY ROUTINE (Admin Task)
     // ==========================================================
-    public List<StudyTask> processVarsitySchedule(String rawText) {
+    /** How long a broadcast routine runs (same span the old per-day expansion covered). */
+    public static final int ROUTINE_DAYS = 120;
+
+    /**
+     * Parses the admin's routine into weekly rules valid for ROUTINE_DAYS from today.
+     * They are stored as rules (DataService.saveRoutineRules) and expanded per
+     * visible day by RoutineSchedule, not turned into 120 days of tasks.
+     */
+    public List<RecurringClass> processVarsitySchedule(String rawText) {
         List<StudyTask> weeklyRules = aiService.parseVarsityRoutine(rawText);
-        List<StudyTask> expandedTasks = new ArrayList<>();
+        List<RecurringClass> rules = new ArrayList<>();
         LocalDate today = LocalDate.now();
-        
-        for (int i = 0; i < 120; i++) {
-            LocalDate date = today.plusDays(i);
-            String dayOfWeek = date.getDayOfWeek().name(); 
-            for (StudyTask rule : weeklyRules) {
-                if (rule.date() != null && rule.date().equalsIgnoreCase(dayOfWeek)) {
-                    expandedTasks.add(new StudyTask(
-                        null, rule.title(), date.toString(), rule.startTime(), 
-                        rule.durationMinutes(), rule.roomNo(), "ROUTINE", 
-                        rule.tags(), "admin", null, null, 
-                        null, null // 🌟 লজিক অপরিবর্তিত: ROUTINE এর জন্য Status এবং Importance null
-                    ));
-                }
-            }
+
+        for (StudyTask rule : weeklyRules) {
+            if (rule.date() == null) continue;
+            DayOfWeek day;
+            try { day = DayOfWeek.valueOf(rule.date().trim().toUpperCase(Locale.ROOT)); }
+            catch (IllegalArgumentException e) { continue; }
+            rules.add(new RecurringClass(
+                null, rule.title(), day.name(), rule.startTime(),
+                rule.durationMinutes() != null ? rule.durationMinutes() : 0,
+                rule.roomNo(), rule.tags(),
+                today, today.plusDays(ROUTINE_DAYS - 1), Set.of()
+            ));
         }
-        return expandedTasks;
+        return rules;
     }
 
     // ==========================================================
@@ -1,8 +1,12 @@
 package com.scholar.service;
 
 import com.scholar.model.AppNotification;
+import com.scholar.model.ChatCursor;
 import com.scholar.model.ChatMessage;
 import com.scholar.model.DailyThread;
+import com.scholar.util.PollTallies;
+import jakarta.annotation.PostConstruct;
+import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -10,6 +14,8 @@ import java.sql.*;
 import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class SocialZoneService {
@@ -17,6 +23,38 @@ public class SocialZoneService {
     @Autowired private DataService         dataService;
     @Autowired private ChatSettingsService chatSettingsService;
     @Autowired private ProfileService      profileService; // ← for profile popups
+    @Autowired private ChangeFeedService   changeFeedService;
+
+    // Thread feed cache: per category, for the logged-in user only
+    private static final long        FEED_CACHE_TTL_MS    = 15_000;
+    private static final Set<String> CROSS_CATEGORY_FEEDS = Set.of("HOME", "MY_THREADS", "SAVED");
+
+    private record CachedFeed(UUID uid, long loadedAt, List<DailyThread> threads) {}
+    private record VoteCount(String optionId, int votes, long version) {}
+
+    private final Map<String, CachedFeed> feedCache      = new ConcurrentHashMap<>();
+    private final AtomicLong              feedGeneration = new AtomicLong();
+
+    // Live poll counts: loaded by getChannelPolls, updated by castVote and "polls:<channel>" events
+    private final PollTallies pollTallies = new PollTallies();
+
+    /** Other clients' posts and reactions arrive as "daily_threads" events (db/008). */
+    @PostConstruct
+    void listenForThreadChanges() {
+        changeFeedService.addSink(new ChangeFeedService.Sink() {
+            @Override
+            public void onChange(String topic, String payload) {
+                if (!"daily_threads".equals(topic)) return;
+                JSONObject row = new JSONObject(payload).optJSONObject("row");
+                invalidateThreadFeeds(row != null ? row.optString("category", null) : null);
+            }
+
+            @Override
+            public void onStatus(boolean live) {
+                invalidateThreadFeeds(null);   // events may have been missed while down
+            }
+        });
+    }
 
     // ─────────────────────────────────────────────────────────
     //  GUARD
@@ -62,35 +100,50 @@ public class SocialZoneService {
     }
 
     public List<ChatMessage> getRecentMessages() {
+        return getRecentMessagesSince(null);
+    }
+
+    /**
+     * Group messages from ChatCursor.LOOKBACK before the cursor on, ASC by
+     * (created_at, id); repeats are dropped by id. A null cursor gives the latest 100.
+     */
+    public List<ChatMessage> getRecentMessagesSince(ChatCursor after) {
         List<ChatMessage> list = new ArrayList<>();
         // JOIN users to always get the freshest username & avatar URL
-        String sql = """
-                SELECT m.id, m.sender_id, m.content, m.created_at, m.is_admin_msg,
+        String select = """
+                SELECT m.id::text AS id, m.sender_id, m.content, m.created_at, m.is_admin_msg,
                        COALESCE(u.username, m.sender_name) AS sender_name,
                        p.profile_picture_url
                 FROM social_messages m
                 LEFT JOIN users u    ON m.sender_id = u.id
                 LEFT JOIN profiles p ON m.sender_id = p.user_id
-                ORDER BY m.created_at ASC
-                LIMIT 100
                 """;
+        String sql = after == null
+                ? "SELECT * FROM (" + select + " ORDER BY m.created_at DESC, m.id::text DESC LIMIT 100) t ORDER BY created_at, id"
+                : select + """
+                  WHERE m.created_at >= ?::timestamptz - %s
+                  ORDER BY m.created_at, m.id::text
+                  LIMIT 500
+                  """.formatted(ChatCursor.LOOKBACK);
         try (Connection conn = dataService.connect();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (after != null) ps.setString(1, after.createdAt());
             UUID me = AuthService.CURRENT_USER_ID;
-            while (rs.next()) {
-                String senderId = rs.getString("sender_id");
-                boolean isMe    = me != null && me.toString().equals(senderId);
-                list.add(new ChatMessage(
-                        rs.getString("id"),
-                        senderId,
-                        rs.getString("sender_name"),
-                        rs.getString("content"),
-                        rs.getString("created_at"),
-                        isMe,
-                        rs.getBoolean("is_admin_msg"),
-                        rs.getString("profile_picture_url")  // ← avatar for bubbles
-                ));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String senderId = rs.getString("sender_id");
+                    boolean isMe    = me != null && me.toString().equals(senderId);
+                    list.add(new ChatMessage(
+                            rs.getString("id"),
+                            senderId,
+                            rs.getString("sender_name"),
+                            rs.getString("content"),
+                            rs.getString("created_at"),
+                            isMe,
+                            rs.getBoolean("is_admin_msg"),
+                            rs.getString("profile_picture_url")  // ← avatar for bubbles
+                    ));
+                }
             }
         } catch (SQLException e) {
             System.err.println("❌ getRecentMessages: " + e.getMessage());
@@ -117,23 +170,38 @@ public class SocialZoneService {
     }
 
     public List<ChatMessage> getPrivateMessages(String contactId) {
+        return getPrivateMessagesSince(contactId, null);
+    }
+
+    /**
+     * Conversation messages from ChatCursor.LOOKBACK before the cursor on, ASC by
+     * (created_at, id); repeats are dropped by id. A null cursor gives the latest 200.
+     */
+    public List<ChatMessage> getPrivateMessagesSince(String contactId, ChatCursor after) {
         List<ChatMessage> list = new ArrayList<>();
-        String sql = """
-                SELECT m.id, m.sender_id, m.content, m.created_at,
+        String select = """
+                SELECT m.id::text AS id, m.sender_id, m.content, m.created_at,
                        COALESCE(u.username, m.sender_id::text) AS sender_name,
                        p.profile_picture_url
                 FROM private_messages m
                 LEFT JOIN users u    ON m.sender_id = u.id
                 LEFT JOIN profiles p ON m.sender_id = p.user_id
-                WHERE (m.sender_id = ?::uuid AND m.receiver_id = ?::uuid)
-                   OR (m.sender_id = ?::uuid AND m.receiver_id = ?::uuid)
-                ORDER BY m.created_at ASC
+                WHERE ((m.sender_id = ?::uuid AND m.receiver_id = ?::uuid)
+                    OR (m.sender_id = ?::uuid AND m.receiver_id = ?::uuid))
                 """;
+        String sql = after == null
+                ? "SELECT * FROM (" + select + " ORDER BY m.created_at DESC, m.id::text DESC LIMIT 200) t ORDER BY created_at, id"
+                : select + """
+                  AND m.created_at >= ?::timestamptz - %s
+                  ORDER BY m.created_at, m.id::text
+                  LIMIT 500
+                  """.formatted(ChatCursor.LOOKBACK);
         try (Connection conn = dataService.connect();
              PreparedStatement p = conn.prepareStatement(sql)) {
             UUID me = requireUid();
             p.setObject(1, me);  p.setString(2, contactId);
             p.setString(3, contactId); p.setObject(4, me);
+            if (after != null) p.setString(5, after.createdAt());
             try (ResultSet rs = p.executeQuery()) {
                 while (rs.next()) {
                     boolean isMe = rs.getString("sender_id").equals(me.toString());
@@ -394,66 +462,144 @@ public class SocialZoneService {
         }
     }
 
+    /**
+     * All polls of the current channel with their options in one round trip:
+     * counts come from poll_options.vote_count (kept by castVote), the
+     * poll total is a window SUM over them, and my vote is one joined row
+     * per poll. Counts with a newer vote_version pushed while the query ran
+     * win (PollTallies).
+     */
     public List<com.scholar.model.Poll> getChannelPolls() {
         List<com.scholar.model.Poll> polls = new ArrayList<>();
-        String pollSql = """
-                SELECT p.id, p.question, COALESCE(u.username, 'Unknown') AS username
+        String sql = """
+                SELECT p.id AS poll_id, p.question, COALESCE(u.username, 'Unknown') AS username,
+                       o.id AS option_id, o.option_text, COALESCE(o.vote_count, 0) AS votes,
+                       o.vote_version,
+                       SUM(COALESCE(o.vote_count, 0)) OVER (PARTITION BY p.id) AS total_votes,
+                       (mv.option_id IS NOT NULL AND mv.option_id = o.id) AS my_vote
                 FROM channel_polls p
                 JOIN users u ON p.creator_id = u.id
+                LEFT JOIN poll_options o ON o.poll_id = p.id
+                LEFT JOIN poll_votes  mv ON mv.poll_id = p.id AND mv.user_id = ?::uuid
                 WHERE p.channel_id = ?
-                ORDER BY p.created_at DESC
-                """;
-        String optSql = """
-                SELECT o.id, o.option_text,
-                  (SELECT COUNT(*) FROM poll_votes v WHERE v.option_id = o.id) AS votes,
-                  (SELECT COUNT(*) FROM poll_votes v WHERE v.option_id = o.id AND v.user_id = ?::uuid) AS my_vote
-                FROM poll_options o
-                WHERE o.poll_id = ?::uuid
+                ORDER BY p.created_at DESC, p.id, o.sort_order
                 """;
+        Map<String, Long> versions = new HashMap<>();
+        long since = pollTallies.version();
         try (Connection conn = dataService.connect();
-             PreparedStatement psPoll = conn.prepareStatement(pollSql)) {
-            psPoll.setInt(1, AuthService.CURRENT_CHANNEL_ID);
-            try (ResultSet rsPoll = psPoll.executeQuery()) {
-                while (rsPoll.next()) {
-                    String pollId = rsPoll.getString("id");
-                    List<com.scholar.model.PollOption> optList = new ArrayList<>();
-                    int totalVotes = 0;
-                    try (PreparedStatement psOpt = conn.prepareStatement(optSql)) {
-                        psOpt.setObject(1, requireUid());
-                        psOpt.setString(2, pollId);
-                        try (ResultSet rsOpt = psOpt.executeQuery()) {
-                            while (rsOpt.next()) {
-                                int votes = rsOpt.getInt("votes");
-                                totalVotes += votes;
-                                optList.add(new com.scholar.model.PollOption(
-                                        rsOpt.getString("id"), rsOpt.getString("option_text"),
-                                        votes, rsOpt.getInt("my_vote") > 0));
-                            }
-                        }
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setObject(1, requireUid());
+            ps.setInt(2, AuthService.CURRENT_CHANNEL_ID);
+            try (ResultSet rs = ps.executeQuery()) {
+                String pollId = null, question = null, creator = null;
+                int total = 0;
+                List<com.scholar.model.PollOption> optList = null;
+                while (rs.next()) {
+                    if (!rs.getString("poll_id").equals(pollId)) {
+                        if (pollId != null) polls.add(new com.scholar.model.Poll(pollId, question, creator, optList, total));
+                        pollId   = rs.getString("poll_id");
+                        question = rs.getString("question");
+                        creator  = rs.getString("username");
+                        total    = rs.getInt("total_votes");
+                        optList  = new ArrayList<>();
+                    }
+                    if (rs.getString("option_id") != null) {
+                        optList.add(new com.scholar.model.PollOption(
+                                rs.getString("option_id"), rs.getString("option_text"),
+                                rs.getInt("votes"), rs.getBoolean("my_vote")));
+                        versions.put(rs.getString("option_id"), rs.getLong("vote_version"));
                     }
-                    polls.add(new com.scholar.model.Poll(
-                            pollId, rsPoll.getString("question"),
-                            rsPoll.getString("username"), optList, totalVotes));
                 }
+                if (pollId != null) polls.add(new com.scholar.model.Poll(pollId, question, creator, optList, total));
             }
         } catch (SQLException e) {
             System.err.println("❌ getChannelPolls: " + e.getMessage());
+            return polls;
         }
-        return polls;
+        pollTallies.load(polls, versions, since);
+        return withLiveTallies(polls);
+    }
+
+    /** Polls from an earlier getChannelPolls() with the latest known counts — no query. */
+    public List<com.scholar.model.Poll> withLiveTallies(List<com.scholar.model.Poll> polls) {
+        List<com.scholar.model.Poll> out = new ArrayList<>(polls.size());
+        for (com.scholar.model.Poll p : polls) out.add(pollTallies.overlay(p));
+        return out;
     }
 
+    /** A "polls:<channel>" change-feed row; false if the option is not loaded (re-fetch instead). */
+    public boolean applyPollTally(String pollId, String optionId, int voteCount, long voteVersion) {
+        return pollTallies.apply(pollId, optionId, voteCount, voteVersion);
+    }
+
+    /**
+     * Upserts my vote and moves the option counters in the same statement:
+     * -1 on the option I had (if any and different), +1 on the new one
+     * (unless it is the same). The changed counts come back and go straight
+     * into the tally cache.
+     *
+     * The `prev` CTE cannot lock a vote row that does not exist yet, so two
+     * concurrent first votes (a double click) would both see no previous
+     * vote and both add +1. An advisory lock on (poll, user), taken in its
+     * own statement, makes the second vote wait and then read the first.
+     */
     public boolean castVote(String pollId, String optionId) {
         String sql = """
-                INSERT INTO poll_votes (poll_id, option_id, user_id) VALUES (?::uuid, ?::uuid, ?::uuid)
-                ON CONFLICT (poll_id, user_id) DO UPDATE SET option_id = EXCLUDED.option_id
+                WITH prev AS (
+                    SELECT option_id FROM poll_votes
+                    WHERE poll_id = ?::uuid AND user_id = ?::uuid
+                    FOR UPDATE
+                ), upsert AS (
+                    INSERT INTO poll_votes (poll_id, option_id, user_id) VALUES (?::uuid, ?::uuid, ?::uuid)
+                    ON CONFLICT (poll_id, user_id) DO UPDATE SET option_id = EXCLUDED.option_id
+                ), dec AS (
+                    UPDATE poll_options SET vote_count = GREATEST(COALESCE(vote_count, 0) - 1, 0),
+                                            vote_version = vote_version + 1
+                    WHERE id = (SELECT option_id FROM prev) AND id <> ?::uuid
+                    RETURNING id, vote_count, vote_version
+                ), inc AS (
+                    UPDATE poll_options SET vote_count = COALESCE(vote_count, 0) + 1,
+                                            vote_version = vote_version + 1
+                    WHERE id = ?::uuid AND NOT EXISTS (SELECT 1 FROM prev WHERE option_id = ?::uuid)
+                    RETURNING id, vote_count, vote_version
+                )
+                SELECT id, vote_count, vote_version FROM dec
+                UNION ALL
+                SELECT id, vote_count, vote_version FROM inc
                 """;
-        try (Connection conn = dataService.connect();
-             PreparedStatement p = conn.prepareStatement(sql)) {
-            p.setString(1, pollId); p.setString(2, optionId);
-            p.setObject(3, requireUid());
-            return p.executeUpdate() > 0;
+        UUID uid = requireUid();
+        List<VoteCount> changed = new ArrayList<>();
+        try (Connection conn = dataService.connect()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement lock = conn.prepareStatement(
+                        "SELECT pg_advisory_xact_lock(hashtext(?), hashtext(?))")) {
+                    lock.setString(1, pollId); lock.setString(2, uid.toString());
+                    lock.execute();
+                }
+                try (PreparedStatement p = conn.prepareStatement(sql)) {
+                    p.setString(1, pollId);   p.setObject(2, uid);
+                    p.setString(3, pollId);   p.setString(4, optionId); p.setObject(5, uid);
+                    p.setString(6, optionId);
+                    p.setString(7, optionId); p.setString(8, optionId);
+                    try (ResultSet rs = p.executeQuery()) {
+                        while (rs.next()) changed.add(new VoteCount(rs.getString("id"),
+                                rs.getInt("vote_count"), rs.getLong("vote_version")));
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                System.err.println("❌ castVote: " + e.getMessage());
+                return false;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            for (VoteCount c : changed) pollTallies.apply(pollId, c.optionId(), c.votes(), c.version());
+            pollTallies.voted(pollId, optionId);
+            return true;
         } catch (SQLException e) {
-            System.err.println("❌ castVote: " + e.getMessage());
+            System.err.println("❌ castVote connection: " + e.getMessage());
             return false;
         }
     }
@@ -516,6 +662,7 @@ public class SocialZoneService {
             p.setString(4, photoUrl != null ? photoUrl : "");
             p.setString(5, category != null ? category.toUpperCase() : "PUBLIC");
             p.executeUpdate();
+            invalidateThreadFeeds(category != null ? category : "PUBLIC");
             return "SUCCESS";
         } catch (SQLException e) {
             if ("23505".equals(e.getSQLState())) return "ALREADY_POSTED";
@@ -527,49 +674,88 @@ public class SocialZoneService {
     /**
      * Fetches threads by category.
      * All parameters are bound safely — no string injection.
+     *
+     * One statement: the page (≤ 100 rows, newest first) is picked from an
+     * index range first, then joined to author / avatar and checked for the
+     * viewer's like / dislike / save with an EXISTS probe per page row
+     * (indexes in db/008). Results are cached per category for
+     * FEED_CACHE_TTL_MS and dropped on reaction / post events.
      */
     public List<com.scholar.model.DailyThread> getThreadsByCategory(String category) {
-        List<com.scholar.model.DailyThread> threads = new ArrayList<>();
         String upperCat = category != null ? category.toUpperCase() : "HOME";
         UUID   uid      = requireUid();
 
-        // Reaction sub-selects use ? — no interpolation
-        String reactionCols = """
-                , (SELECT COUNT(*) FROM thread_likes    l WHERE l.thread_id=t.id AND l.user_id=?::uuid) AS liked_by_me
-                , (SELECT COUNT(*) FROM thread_dislikes d WHERE d.thread_id=t.id AND d.user_id=?::uuid) AS disliked_by_me
-                , (SELECT COUNT(*) FROM thread_saves    s WHERE s.thread_id=t.id AND s.user_id=?::uuid) AS saved_by_me
-                """;
+        CachedFeed cached = feedCache.get(upperCat);
+        if (cached != null && cached.uid().equals(uid)
+                && System.currentTimeMillis() - cached.loadedAt() < FEED_CACHE_TTL_MS) {
+            return cached.threads();
+        }
+        long generation = feedGeneration.get();
+        List<DailyThread> threads = loadThreads(upperCat, uid);
+        if (threads == null) return new ArrayList<>();
+        // an invalidation that raced this load wins: don't cache what it may have made stale
+        if (feedGeneration.get() == generation) {
+            threads = List.copyOf(threads);
+            feedCache.put(upperCat, new CachedFeed(uid, System.currentTimeMillis(), threads));
+        }
+        return threads;
+    }
+
+    /** null on a database error (nothing is cached then). */
+    private List<DailyThread> loadThreads(String upperCat, UUID uid) {
+        // Page first: filter + order + limit on daily_threads alone
+        String page = switch (upperCat) {
+            case "HOME"       -> """
+                    SELECT t.*, t.created_at AS sort_key FROM daily_threads t
+                    WHERE t.created_at >= NOW() - INTERVAL '24 hours'
+                    ORDER BY t.created_at DESC LIMIT 100
+                    """;
+            case "MY_THREADS" -> """
+                    SELECT t.*, t.created_at AS sort_key FROM daily_threads t
+                    WHERE t.user_id = ?::uuid AND t.created_at >= NOW() - INTERVAL '24 hours'
+                    ORDER BY t.created_at DESC
+                    """;
+            case "SAVED"      -> """
+                    SELECT t.*, sv.saved_at AS sort_key FROM thread_saves sv
+                    JOIN daily_threads t ON t.id = sv.thread_id
+                    WHERE sv.user_id = ?::uuid
+                    ORDER BY sv.saved_at DESC
+                    """;
+            default           -> """
+                    SELECT t.*, t.created_at AS sort_key FROM daily_threads t
+                    WHERE UPPER(t.category) = ? AND t.created_at >= NOW() - INTERVAL '24 hours'
+                    ORDER BY t.created_at DESC LIMIT 100
+                    """;
+        };
 
-        String base = """
+        // …then author, avatar and the viewer's reactions for those rows only
+        String sql = "WITH page AS (" + page + """
+                )
                 SELECT t.id, t.user_id, u.username AS author_name, p.profile_picture_url AS author_avatar,
                        t.content_text, t.media_url, t.photo_url, t.category,
                        COALESCE(t.like_count,0) AS like_count, COALESCE(t.dislike_count,0) AS dislike_count,
-                       t.created_at
-                """ + reactionCols + """
-                FROM daily_threads t
+                       t.created_at,
+                       EXISTS (SELECT 1 FROM thread_likes    l WHERE l.thread_id=t.id AND l.user_id=?::uuid) AS liked_by_me,
+                       EXISTS (SELECT 1 FROM thread_dislikes d WHERE d.thread_id=t.id AND d.user_id=?::uuid) AS disliked_by_me,
+                       EXISTS (SELECT 1 FROM thread_saves    s WHERE s.thread_id=t.id AND s.user_id=?::uuid) AS saved_by_me
+                FROM page t
                 JOIN  users u    ON t.user_id = u.id
                 LEFT JOIN profiles p ON t.user_id = p.user_id
+                ORDER BY t.sort_key DESC
                 """;
 
-        String sql = switch (upperCat) {
-            case "HOME"       -> base + "WHERE t.created_at >= NOW() - INTERVAL '24 hours' ORDER BY t.created_at DESC LIMIT 100";
-            case "MY_THREADS" -> base + "WHERE t.user_id = ?::uuid AND t.created_at >= NOW() - INTERVAL '24 hours' ORDER BY t.created_at DESC";
-            case "SAVED"      -> base + "JOIN thread_saves sv ON sv.thread_id=t.id WHERE sv.user_id=?::uuid ORDER BY sv.saved_at DESC";
-            default           -> base + "WHERE UPPER(t.category)=? AND t.created_at >= NOW() - INTERVAL '24 hours' ORDER BY t.created_at DESC LIMIT 100";
-        };
-
+        List<DailyThread> threads = new ArrayList<>();
         try (Connection conn = dataService.connect();
              PreparedStatement p = conn.prepareStatement(sql)) {
 
-            // First 3 params are always the reaction sub-select UUIDs
-            p.setObject(1, uid); p.setObject(2, uid); p.setObject(3, uid);
-
-            // 4th param is the category filter (if needed)
+            // Page filter param (if any) comes first, then the three reaction probes
+            int i = 1;
             switch (upperCat) {
-                case "MY_THREADS", "SAVED" -> p.setObject(4, uid);
-                case "HOME"                -> { /* no 4th param */ }
-                default                    -> p.setString(4, upperCat);
+                case "MY_THREADS", "SAVED" -> p.setObject(i++, uid);
+                case "HOME"                -> { /* no filter param */ }
+                default                    -> p.setString(i++, upperCat);
             }
+            p.setObject(i++, uid); p.setObject(i++, uid); p.setObject(i, uid);
 
             try (ResultSet rs = p.executeQuery()) {
                 while (rs.next()) {
@@ -579,16 +765,31 @@ public class SocialZoneService {
                             rs.getString("content_text"),rs.getString("media_url"),
                             rs.getString("photo_url"),  rs.getString("category"),
                             rs.getInt("like_count"),    rs.getInt("dislike_count"),
-                            rs.getInt("liked_by_me") > 0,
-                            rs.getInt("disliked_by_me") > 0,
-                            rs.getInt("saved_by_me") > 0,
+                            rs.getBoolean("liked_by_me"),
+                            rs.getBoolean("disliked_by_me"),
+                            rs.getBoolean("saved_by_me"),
                             formatTimeAgo(rs.getString("created_at"))));
                 }
             }
+            return threads;
         } catch (SQLException e) {
             System.err.println("❌ getThreadsByCategory (" + upperCat + "): " + e.getMessage());
+            return null;
         }
-        return threads;
+    }
+
+    /**
+     * Drops cached feeds a change in `category` can affect: that category
+     * plus the cross-category views. null drops everything.
+     */
+    public void invalidateThreadFeeds(String category) {
+        feedGeneration.incrementAndGet();
+        if (category == null) {
+            feedCache.clear();
+            return;
+        }
+        feedCache.remove(category.toUpperCase());
+        CROSS_CATEGORY_FEEDS.forEach(feedCache::remove);
     }
 
     // ─────────────────────────────────────────────────────────
@@ -598,44 +799,53 @@ public class SocialZoneService {
     public boolean likeThread   (String threadId) { return toggleReaction(threadId, "thread_likes",    "thread_dislikes"); }
     public boolean dislikeThread(String threadId) { return toggleReaction(threadId, "thread_dislikes", "thread_likes"); }
 
+    /**
+     * One transaction: remove the opposite reaction, toggle this one, and
+     * move the denormalised counters by the rows actually deleted/inserted
+     * (no COUNT(*) rescans). Relies on the (thread_id, user_id) unique
+     * indexes from db/008.
+     */
     private boolean toggleReaction(String threadId, String targetTable, String oppositeTable) {
         // Both tables are internal constants — no user data in table names, safe to format
         String delOpposite  = "DELETE FROM " + oppositeTable + " WHERE thread_id=?::uuid AND user_id=?::uuid";
-        String checkTarget  = "SELECT 1 FROM " + targetTable + " WHERE thread_id=?::uuid AND user_id=?::uuid";
-        String insTarget    = "INSERT INTO " + targetTable + " (thread_id, user_id) VALUES (?::uuid, ?::uuid)";
         String delTarget    = "DELETE FROM " + targetTable + " WHERE thread_id=?::uuid AND user_id=?::uuid";
+        String insTarget    = "INSERT INTO " + targetTable + " (thread_id, user_id) VALUES (?::uuid, ?::uuid) ON CONFLICT DO NOTHING";
         String updateCounts = """
                 UPDATE daily_threads SET
-                  like_count    = (SELECT COUNT(*) FROM thread_likes    WHERE thread_id=?::uuid),
-                  dislike_count = (SELECT COUNT(*) FROM thread_dislikes WHERE thread_id=?::uuid)
+                  like_count    = GREATEST(COALESCE(like_count,0)    + ?, 0),
+                  dislike_count = GREATEST(COALESCE(dislike_count,0) + ?, 0)
                 WHERE id = ?::uuid
                 """;
         UUID uid = requireUid();
         try (Connection conn = dataService.connect()) {
             conn.setAutoCommit(false);
             try {
+                int oppositeDelta, targetDelta;
                 try (PreparedStatement p1 = conn.prepareStatement(delOpposite)) {
-                    p1.setString(1, threadId); p1.setObject(2, uid); p1.executeUpdate();
+                    p1.setString(1, threadId); p1.setObject(2, uid);
+                    oppositeDelta = -p1.executeUpdate();
                 }
-                boolean exists;
-                try (PreparedStatement pCheck = conn.prepareStatement(checkTarget)) {
-                    pCheck.setString(1, threadId); pCheck.setObject(2, uid);
-                    try (ResultSet rs = pCheck.executeQuery()) { exists = rs.next(); }
+                try (PreparedStatement pDel = conn.prepareStatement(delTarget)) {
+                    pDel.setString(1, threadId); pDel.setObject(2, uid);
+                    targetDelta = -pDel.executeUpdate();
                 }
-                if (exists) {
-                    try (PreparedStatement pDel = conn.prepareStatement(delTarget)) {
-                        pDel.setString(1, threadId); pDel.setObject(2, uid); pDel.executeUpdate();
-                    }
-                } else {
+                if (targetDelta == 0) {
                     try (PreparedStatement pIns = conn.prepareStatement(insTarget)) {
-                        pIns.setString(1, threadId); pIns.setObject(2, uid); pIns.executeUpdate();
+                        pIns.setString(1, threadId); pIns.setObject(2, uid);
+                        targetDelta = pIns.executeUpdate();
                     }
                 }
-                try (PreparedStatement pUpd = conn.prepareStatement(updateCounts)) {
-                    pUpd.setString(1, threadId); pUpd.setString(2, threadId); pUpd.setString(3, threadId);
-                    pUpd.executeUpdate();
+                boolean like = "thread_likes".equals(targetTable);
+                if (oppositeDelta != 0 || targetDelta != 0) {
+                    try (PreparedStatement pUpd = conn.prepareStatement(updateCounts)) {
+                        pUpd.setInt(1, like ? targetDelta : oppositeDelta);
+                        pUpd.setInt(2, like ? oppositeDelta : targetDelta);
+                        pUpd.setString(3, threadId);
+                        pUpd.executeUpdate();
+                    }
                 }
                 conn.commit();
+                invalidateThreadFeeds(null);
                 return true;
             } catch (SQLException e) {
                 conn.rollback();
@@ -666,6 +876,7 @@ public class SocialZoneService {
             try (PreparedStatement p = conn.prepareStatement(sql)) {
                 p.setString(1, threadId); p.setObject(2, uid); p.executeUpdate();
             }
+            invalidateThreadFeeds(null);   // saved_by_me appears in every view
             return true;
         } catch (SQLException e) {
             System.err.println("❌ saveThread: " + e.getMessage());
@@ -1,8 +1,11 @@
 package com.scholar.service;
 
+import com.scholar.model.ChatCursor;
 import com.scholar.model.StudyHistory;
 import com.scholar.model.StudyRoom;
 import com.scholar.model.StudySession;
+import com.scholar.util.Leaderboard;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.sql.*;
@@ -19,6 +22,17 @@ import java.util.List;
  *                                        creating a history entry
  *  - getTotalXP(userId)        : was missing in v1
  *
+ * Leaderboard:
+ *  - XP, streak and ranking reads are served by LeaderboardService (in memory);
+ *    addXP / updateStreak hand it the new totals from their RETURNING clause
+ *  - updateStreak is one conditional UPDATE; saveHistory runs it after the insert
+ *
+ * Stats:
+ *  - saveHistory / saveAnalyticsOnly add their minutes to study_daily_rollup
+ *    (user, day, topic) in the same statement as the raw insert
+ *  - getTodayStudyMinutes / getWeeklyStats / getTopicStats / updateStreak read
+ *    only the rollup; raw-table queries remain as fallbacks until db/011 runs
+ *
  * Bug fixes:
  *  - ResultSet always closed
  *  - saveHistory handles null roomId (private room)
@@ -30,6 +44,10 @@ import java.util.List;
 @Service
 public class StudyRoomService {
 
+    private static final int STREAK_MINUTES = 30;
+
+    @Autowired private LeaderboardService leaderboard;
+
     // ══════════════════════════════════════════════════
     // ROOM CRUD
     // ══════════════════════════════════════════════════
@@ -195,6 +213,7 @@ public class StudyRoomService {
      * Saves a COMPLETED session to study_history.
      * Call this ONLY on session completion, not on abandon/leave.
      * roomId may be null for private room sessions.
+     * The minutes land in study_daily_rollup in the same statement.
      */
     public boolean saveHistory(String userId, String roomId, String topic, String task,
                                int planned, int completed, int xp) {
@@ -203,49 +222,78 @@ public class StudyRoomService {
               "VALUES (?::uuid, ?::uuid, ?, ?, ?, ?, ?)"
             : "INSERT INTO study_history (user_id, topic, task, planned_time, completed_time, earned_xp) " +
               "VALUES (?::uuid, ?, ?, ?, ?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            int i = 1;
-            ps.setString(i++, userId);
-            if (roomId != null) ps.setString(i++, roomId);
-            ps.setString(i++, topic != null ? topic : "");
-            ps.setString(i++, task  != null ? task  : "");
-            ps.setInt(i++, planned);
-            ps.setInt(i++, completed);
-            ps.setInt(i, xp);
-            return ps.executeUpdate() > 0;
+        try {
+            int rows = insertWithRollup(sql, "topic", "completed_time", ps -> {
+                int i = 1;
+                ps.setString(i++, userId);
+                if (roomId != null) ps.setString(i++, roomId);
+                ps.setString(i++, topic != null ? topic : "");
+                ps.setString(i++, task  != null ? task  : "");
+                ps.setInt(i++, planned);
+                ps.setInt(i++, completed);
+                ps.setInt(i, xp);
+            });
+            if (rows == 0) return false;
         } catch (SQLException e) { e.printStackTrace(); return false; }
+        updateStreak(userId);
+        return true;
     }
 
     /**
      * Records elapsed minutes from an ABANDONED session for analytics purposes ONLY.
      * Does NOT create a history entry.
-     * Inserts into a lightweight analytics_events table if it exists,
-     * otherwise falls back to updating a daily_analytics summary.
      *
-     * Implementation: insert into study_analytics (user_id, minutes, created_at).
-     * This table is read by getTodayStudyMinutes/getWeeklyStats via UNION.
+     * Implementation: insert into study_analytics (user_id, minutes, created_at),
+     * plus the day's untitled ('' topic) study_daily_rollup row in the same statement.
+     * The stats methods read the rollup.
      */
     public void saveAnalyticsOnly(String userId, int minutes) {
-        // Use a simple insert into an analytics-only table.
-        // If your schema uses study_history for analytics, you can alternatively
-        // insert a row with earned_xp=0 and a special marker. Here we use a
-        // separate table that is included in the stats queries.
         String sql =
             "INSERT INTO study_analytics (user_id, minutes, created_at) " +
             "VALUES (?::uuid, ?, NOW()) " +
             "ON CONFLICT DO NOTHING";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, userId);
-            ps.setInt(2, minutes);
-            ps.executeUpdate();
+        try {
+            insertWithRollup(sql, "''", "minutes", ps -> {
+                ps.setString(1, userId);
+                ps.setInt(2, minutes);
+            });
         } catch (SQLException e) {
             // Table may not exist — silently skip
             // (analytics-only tracking is best-effort)
         }
     }
 
+    private interface Binder { void bind(PreparedStatement ps) throws SQLException; }
+
+    /**
+     * Runs `insert` and adds its minutes to study_daily_rollup in one statement;
+     * the plain insert if db/011 has not been applied yet. Returns rows inserted.
+     */
+    private int insertWithRollup(String insert, String topicCol, String minutesCol, Binder binder)
+            throws SQLException {
+        String sql =
+            "WITH r AS (" + insert + " RETURNING user_id, created_at, " +
+            topicCol + " AS topic, " + minutesCol + " AS minutes) " +
+            "INSERT INTO study_daily_rollup (user_id, day, topic, minutes) " +
+            "SELECT user_id, created_at::date, COALESCE(topic, ''), minutes FROM r " +
+            "ON CONFLICT (user_id, day, topic) " +
+            "DO UPDATE SET minutes = study_daily_rollup.minutes + EXCLUDED.minutes";
+        try {
+            return executeUpdate(sql, binder);
+        } catch (SQLException e) {
+            if (!UNDEFINED_TABLE.equals(e.getSQLState())) throw e;
+            return executeUpdate(insert, binder);
+        }
+    }
+
+    private static int executeUpdate(String sql, Binder binder) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            binder.bind(ps);
+            return ps.executeUpdate();
+        }
+    }
+
     /** Returns COMPLETED sessions for the History tab. */
     public List<StudyHistory> getHistory(String userId) {
         List<StudyHistory> list = new ArrayList<>();
@@ -267,136 +315,159 @@ public class StudyRoomService {
     // ANALYTICS STATS
     // ══════════════════════════════════════════════════
 
+    // Each stat has a study_daily_rollup query (db/011) and raw-table fallbacks
+    // for databases where it — or study_analytics — is missing. Every ? is
+    // the user id, so one binder serves them all.
+
+    private static final String UNDEFINED_TABLE = "42P01";
+
+    private static final String TODAY_ROLLUP =
+        "(SELECT COALESCE(SUM(minutes),0) FROM study_daily_rollup " +
+        " WHERE user_id = ?::uuid AND day = CURRENT_DATE)";
+    private static final String TODAY_HISTORY =
+        "(SELECT COALESCE(SUM(completed_time),0) FROM study_history " +
+        " WHERE user_id = ?::uuid AND created_at >= CURRENT_DATE AND created_at < CURRENT_DATE + 1)";
+    private static final String TODAY_RAW =
+        "(" + TODAY_HISTORY + " + " +
+        "(SELECT COALESCE(SUM(minutes),0) FROM study_analytics " +
+        " WHERE user_id = ?::uuid AND created_at >= CURRENT_DATE AND created_at < CURRENT_DATE + 1))";
+
+    /** Today's-minutes expressions, preferred first. */
+    private static final String[] TODAY_MINUTES = { TODAY_ROLLUP, TODAY_RAW, TODAY_HISTORY };
+
+    private static final String[] WEEKLY = {
+        "SELECT to_char(day, 'Dy') AS day_name, SUM(minutes) AS total FROM study_daily_rollup " +
+        "WHERE user_id = ?::uuid AND day BETWEEN CURRENT_DATE - 6 AND CURRENT_DATE " +
+        "GROUP BY day ORDER BY day",
+
+        "SELECT to_char(dt, 'Dy') AS day_name, COALESCE(SUM(mins), 0) AS total " +
+        "FROM (" +
+        "  SELECT created_at AS dt, completed_time AS mins FROM study_history " +
+        "  WHERE user_id = ?::uuid AND created_at >= CURRENT_DATE - 6 " +
+        "  UNION ALL " +
+        "  SELECT created_at AS dt, minutes AS mins FROM study_analytics " +
+        "  WHERE user_id = ?::uuid AND created_at >= CURRENT_DATE - 6 " +
+        ") t " +
+        "GROUP BY DATE(dt), day_name ORDER BY DATE(dt) ASC",
+
+        "SELECT to_char(created_at,'Dy') AS day_name, COALESCE(SUM(completed_time),0) AS mins " +
+        "FROM study_history " +
+        "WHERE user_id=?::uuid AND created_at >= CURRENT_DATE - 6 " +
+        "GROUP BY DATE(created_at), day_name ORDER BY DATE(created_at) ASC"
+    };
+
+    private static final String[] TOPICS = {
+        "SELECT topic, SUM(minutes) AS mins FROM study_daily_rollup " +
+        "WHERE user_id = ?::uuid AND topic <> '' " +
+        "GROUP BY topic ORDER BY mins DESC LIMIT 8",
+
+        "SELECT topic, SUM(completed_time) AS mins FROM study_history " +
+        "WHERE user_id = ?::uuid AND topic IS NOT NULL AND topic <> '' " +
+        "GROUP BY topic ORDER BY mins DESC LIMIT 8"
+    };
+
     /**
      * Today's total studied minutes.
      * Includes BOTH completed (study_history) and partial/abandoned (study_analytics).
      */
     public int getTodayStudyMinutes(String userId) {
-        // Union history + analytics so abandoned sessions count too
-        String sql =
-            "SELECT COALESCE(SUM(mins), 0) FROM (" +
-            "  SELECT completed_time AS mins FROM study_history " +
-            "  WHERE user_id = ?::uuid AND created_at::date = CURRENT_DATE " +
-            "  UNION ALL " +
-            "  SELECT minutes AS mins FROM study_analytics " +
-            "  WHERE user_id = ?::uuid AND created_at::date = CURRENT_DATE " +
-            ") t";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, userId); ps.setString(2, userId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return rs.getInt(1);
+        for (String expr : TODAY_MINUTES) {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement ps = conn.prepareStatement("SELECT " + expr)) {
+                bindUserId(ps, expr, userId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            } catch (SQLException e) {
+                if (!UNDEFINED_TABLE.equals(e.getSQLState())) { e.printStackTrace(); return 0; }
             }
-        } catch (SQLException e) {
-            // Fallback: history only (if analytics table doesn't exist)
-            return getTodayHistoryMinutes(userId);
         }
         return 0;
     }
 
-    private int getTodayHistoryMinutes(String userId) {
-        String sql =
-            "SELECT COALESCE(SUM(completed_time), 0) FROM study_history " +
-            "WHERE user_id = ?::uuid AND created_at::date = CURRENT_DATE";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, userId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return rs.getInt(1);
-            }
-        } catch (SQLException e) { e.printStackTrace(); }
-        return 0;
-    }
-
     /**
      * Weekly stats: includes abandoned elapsed minutes from study_analytics.
      */
     public java.util.Map<String, Integer> getWeeklyStats(String userId) {
-        java.util.Map<String, Integer> map = new java.util.LinkedHashMap<>();
-        String sql =
-            "SELECT to_char(dt, 'Dy') AS day_name, COALESCE(SUM(mins), 0) AS total " +
-            "FROM (" +
-            "  SELECT created_at AS dt, completed_time AS mins FROM study_history " +
-            "  WHERE user_id = ?::uuid AND created_at >= CURRENT_DATE - INTERVAL '6 days' " +
-            "  UNION ALL " +
-            "  SELECT created_at AS dt, minutes AS mins FROM study_analytics " +
-            "  WHERE user_id = ?::uuid AND created_at >= CURRENT_DATE - INTERVAL '6 days' " +
-            ") t " +
-            "GROUP BY DATE(dt), day_name ORDER BY DATE(dt) ASC";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, userId); ps.setString(2, userId);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) map.put(rs.getString("day_name"), rs.getInt("total"));
-            }
-        } catch (SQLException e) {
-            // Fallback to history only
-            return getWeeklyHistoryStats(userId);
-        }
-        return map;
+        return queryStats(userId, WEEKLY);
     }
 
-    private java.util.Map<String, Integer> getWeeklyHistoryStats(String userId) {
-        java.util.Map<String, Integer> map = new java.util.LinkedHashMap<>();
-        String sql =
-            "SELECT to_char(created_at,'Dy') AS day_name, COALESCE(SUM(completed_time),0) AS mins " +
-            "FROM study_history " +
-            "WHERE user_id=?::uuid AND created_at >= CURRENT_DATE - INTERVAL '6 days' " +
-            "GROUP BY DATE(created_at), day_name ORDER BY DATE(created_at) ASC";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, userId);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) map.put(rs.getString("day_name"), rs.getInt("mins"));
-            }
-        } catch (SQLException e) { e.printStackTrace(); }
-        return map;
+    public java.util.Map<String, Integer> getTopicStats(String userId) {
+        return queryStats(userId, TOPICS);
     }
 
-    public java.util.Map<String, Integer> getTopicStats(String userId) {
-        java.util.Map<String, Integer> map = new java.util.LinkedHashMap<>();
-        String sql =
-            "SELECT topic, SUM(completed_time) AS mins FROM study_history " +
-            "WHERE user_id = ?::uuid AND topic IS NOT NULL AND topic <> '' " +
-            "GROUP BY topic ORDER BY mins DESC LIMIT 8";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, userId);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) map.put(rs.getString("topic"), rs.getInt("mins"));
+    /** (label, minutes) rows of the first variant whose tables exist. */
+    private java.util.Map<String, Integer> queryStats(String userId, String[] variants) {
+        for (String sql : variants) {
+            java.util.Map<String, Integer> map = new java.util.LinkedHashMap<>();
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                bindUserId(ps, sql, userId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) map.put(rs.getString(1), rs.getInt(2));
+                }
+                return map;
+            } catch (SQLException e) {
+                if (!UNDEFINED_TABLE.equals(e.getSQLState())) { e.printStackTrace(); return map; }
             }
-        } catch (SQLException e) { e.printStackTrace(); }
-        return map;
+        }
+        return new java.util.LinkedHashMap<>();
+    }
+
+    private static void bindUserId(PreparedStatement ps, String sql, String userId) throws SQLException {
+        int params = (int) sql.chars().filter(c -> c == '?').count();
+        for (int i = 1; i <= params; i++) ps.setString(i, userId);
     }
 
     // ══════════════════════════════════════════════════
     // XP, STREAK, LEADERBOARD
     // ══════════════════════════════════════════════════
 
+    /**
+     * Extends the streak once per day as soon as today's minutes (history +
+     * abandoned analytics) reach STREAK_MINUTES. One statement: the cheap
+     * last_streak_date test comes first, the rollup lookup only runs when it passes.
+     */
     public void updateStreak(String userId) {
-        if (getTodayStudyMinutes(userId) >= 30) {
+        for (String todayMinutes : TODAY_MINUTES) {
             String sql =
                 "UPDATE users SET study_streak = COALESCE(study_streak,0) + 1, " +
                 "last_streak_date = CURRENT_DATE " +
                 "WHERE id = ?::uuid " +
-                "AND (last_streak_date IS NULL OR last_streak_date < CURRENT_DATE)";
+                "AND (last_streak_date IS NULL OR last_streak_date < CURRENT_DATE) " +
+                "AND " + todayMinutes + " >= " + STREAK_MINUTES + " " +
+                "RETURNING username, COALESCE(total_xp,0), study_streak";
             try (Connection conn = DatabaseConnection.getConnection();
                  PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, userId); ps.executeUpdate();
-            } catch (SQLException e) { e.printStackTrace(); }
+                bindUserId(ps, sql, userId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) leaderboard.record(userId, rs.getString(1), rs.getInt(2), rs.getInt(3));
+                }
+                return;
+            } catch (SQLException e) {
+                if (!UNDEFINED_TABLE.equals(e.getSQLState())) { e.printStackTrace(); return; }
+            }
         }
     }
 
     public boolean addXP(String userId, int xp) {
-        String sql = "UPDATE users SET total_xp = COALESCE(total_xp,0) + ? WHERE id = ?::uuid";
+        String sql =
+            "UPDATE users SET total_xp = COALESCE(total_xp,0) + ? WHERE id = ?::uuid " +
+            "RETURNING username, total_xp, COALESCE(study_streak,0)";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, xp); ps.setString(2, userId);
-            return ps.executeUpdate() > 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return false;
+                leaderboard.record(userId, rs.getString(1), rs.getInt(2), rs.getInt(3));
+                return true;
+            }
         } catch (SQLException e) { e.printStackTrace(); return false; }
     }
 
     public int getStreak(String userId) {
+        Leaderboard.Entry cached = leaderboard.isReady() ? leaderboard.get(userId) : null;
+        if (cached != null) return cached.streak();
         String sql = "SELECT COALESCE(study_streak,0) FROM users WHERE id = ?::uuid";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -409,6 +480,8 @@ public class StudyRoomService {
     }
 
     public int getTotalXP(String userId) {
+        Leaderboard.Entry cached = leaderboard.isReady() ? leaderboard.get(userId) : null;
+        if (cached != null) return cached.xp();
         String sql = "SELECT COALESCE(total_xp,0) FROM users WHERE id = ?::uuid";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -420,7 +493,9 @@ public class StudyRoomService {
         return 0;
     }
 
+    /** Top 10 as {username, xp, streak}; SQL only until the in-memory board has loaded. */
     public List<String[]> getGlobalLeaderboard() {
+        if (leaderboard.isReady()) return leaderRows(leaderboard.top(10));
         List<String[]> board = new ArrayList<>();
         String sql =
             "SELECT username, COALESCE(total_xp,0) AS xp, COALESCE(study_streak,0) AS streak " +
@@ -439,11 +514,36 @@ public class StudyRoomService {
         return board;
     }
 
+    /** 1-based global rank, or 0 while the board is loading / for unknown users. */
+    public int getLeaderboardRank(String userId) {
+        return leaderboard.rankOf(userId);
+    }
+
+    /** The user and `radius` neighbours each side as {username, xp, streak, rank}. */
+    public List<String[]> getLeaderboardAround(String userId, int radius) {
+        List<String[]> rows = new ArrayList<>();
+        for (Leaderboard.Entry e : leaderboard.around(userId, radius)) {
+            rows.add(new String[]{
+                e.username(), String.valueOf(e.xp()), String.valueOf(e.streak()),
+                String.valueOf(leaderboard.rankOf(e.userId()))
+            });
+        }
+        return rows;
+    }
+
+    private static List<String[]> leaderRows(List<Leaderboard.Entry> entries) {
+        List<String[]> rows = new ArrayList<>(entries.size());
+        for (Leaderboard.Entry e : entries) {
+            rows.add(new String[]{ e.username(), String.valueOf(e.xp()), String.valueOf(e.streak()) });
+        }
+        return rows;
+    }
+
     // ══════════════════════════════════════════════════
     // CHAT
     // ══════════════════════════════════════════════════
 
-    public record ChatMessage(String sender, String content, String time) {}
+    public record ChatMessage(String id, String sender, String content, String time) {}
 
     public boolean sendChatMessage(String roomId, String userId, String userName, String content) {
         if (content == null || content.isBlank()) return false;
@@ -458,17 +558,32 @@ public class StudyRoomService {
         } catch (SQLException e) { e.printStackTrace(); return false; }
     }
 
-    /** Returns messages in chronological (ASC) order — oldest to newest. */
+    /** Returns the latest 80 messages in chronological (ASC) order — oldest to newest. */
     public List<ChatMessage> getChatMessages(String roomId) {
+        return getChatMessagesSince(roomId, null);
+    }
+
+    /**
+     * Messages from ChatCursor.LOOKBACK before the cursor on, ASC by (created_at, id);
+     * the caller drops repeats by id. A null cursor gives the latest 80 (the old
+     * query took the FIRST 80, so busy rooms stopped updating).
+     */
+    public List<ChatMessage> getChatMessagesSince(String roomId, ChatCursor after) {
         List<ChatMessage> msgs = new ArrayList<>();
-        String sql =
-            "SELECT user_name, content, created_at FROM study_room_chat " +
-            "WHERE room_id = ?::uuid ORDER BY created_at ASC LIMIT 80";
+        String sql = after == null
+            ? "SELECT * FROM (SELECT id::text AS id, user_name, content, created_at FROM study_room_chat " +
+              "WHERE room_id = ?::uuid ORDER BY created_at DESC, id::text DESC LIMIT 80) t " +
+              "ORDER BY created_at, id"
+            : "SELECT id::text AS id, user_name, content, created_at FROM study_room_chat " +
+              "WHERE room_id = ?::uuid AND created_at >= ?::timestamptz - " + ChatCursor.LOOKBACK + " " +
+              "ORDER BY created_at, id::text LIMIT 500";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, roomId);
+            if (after != null) ps.setString(2, after.createdAt());
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) msgs.add(new ChatMessage(
+                    rs.getString("id"),
                     rs.getString("user_name"),
                     rs.getString("content"),
                     rs.getString("created_at")));
@@ -4,13 +4,13 @@ import com.scholar.model.AIResource;
 import okhttp3.*;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Supabase Service — wraps Supabase Storage (file uploads) and
@@ -49,11 +49,7 @@ public class SupabaseService {
 
     private static final MediaType JSON_TYPE = MediaType.parse("application/json; charset=utf-8");
 
-    private final OkHttpClient client = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(60, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .build();
+    @Autowired private OutboundHttp outbound;
 
     // ══════════════════════════════════════════════════════════════════════════
     // STORAGE  (file upload / delete / URL)
@@ -82,7 +78,7 @@ public class SupabaseService {
                     .addHeader("x-upsert", "true")   // overwrite if same name exists
                     .build();
 
-            try (Response response = client.newCall(request).execute()) {
+            try (Response response = outbound.newCall(OutboundHttp.Provider.SUPABASE, request).execute()) {
                 if (response.isSuccessful()) {
                     System.out.println("✅ Uploaded to Supabase Storage: " + fileName);
                     return getPublicUrl(fileName);
@@ -118,7 +114,7 @@ public class SupabaseService {
                 .delete()
                 .addHeader("Authorization", "Bearer " + supabaseKey)
                 .build();
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = outbound.newCall(OutboundHttp.Provider.SUPABASE, request).execute()) {
             if (response.isSuccessful()) {
                 System.out.println("✅ Deleted from Supabase Storage: " + fileName);
                 return true;
@@ -257,7 +253,7 @@ public class SupabaseService {
     // ── Private helpers ───────────────────────────────────────────────────────
 
     private String executeForBody(Request request, String label) {
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = outbound.newCall(OutboundHttp.Provider.SUPABASE, request).execute()) {
             if (response.isSuccessful()) {
                 return response.body() != null ? response.body().string() : "[]";
             } else {
@@ -272,7 +268,7 @@ public class SupabaseService {
     }
 
     private boolean executeSuccessCheck(Request request, String label) {
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = outbound.newCall(OutboundHttp.Provider.SUPABASE, request).execute()) {
             if (response.isSuccessful()) return true;
             String err = response.body() != null ? response.body().string() : "no body";
             System.err.println("❌ " + label + " [" + response.code() + "]: " + err);
@@ -1,14 +1,18 @@
 package com.scholar.service;
 
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
 import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
-import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.file.Files;
+import java.io.File;
 
 @Service
 public class TelegramService {
@@ -19,6 +23,8 @@ public class TelegramService {
     @Value("${telegram.chat.id}")
     private String CHAT_ID; 
 
+    @Autowired private OutboundHttp outbound;
+
     @PostConstruct
     public void init() {
         if (BOT_TOKEN == null || BOT_TOKEN.isEmpty() || CHAT_ID == null || CHAT_ID.isEmpty()) {
@@ -37,59 +43,27 @@ public class TelegramService {
             return null; 
         }
 
-        String urlString = "https://api.telegram.org/bot" + BOT_TOKEN + "/sendDocument";
-        String boundary = "----WebKitFormBoundary" + System.currentTimeMillis();
-        String CRLF = "\r\n";
-
-        try {
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setDoOutput(true);
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
-
-            // 🌟 FIX: Using DataOutputStream to safely send raw binary file data
-            try (OutputStream output = conn.getOutputStream();
-                 DataOutputStream writer = new DataOutputStream(output)) {
-
-                // 1. Send Chat ID (Text part)
-                writer.writeBytes("--" + boundary + CRLF);
-                writer.writeBytes("Content-Disposition: form-data; name=\"chat_id\"" + CRLF);
-                writer.writeBytes(CRLF);
-                writer.writeBytes(CHAT_ID + CRLF);
-
-                // 2. Send File (Binary part)
-                writer.writeBytes("--" + boundary + CRLF);
-                writer.writeBytes("Content-Disposition: form-data; name=\"document\"; filename=\"" + file.getName() + "\"" + CRLF);
-                writer.writeBytes("Content-Type: application/octet-stream" + CRLF); // Tells Telegram it's a file
-                writer.writeBytes(CRLF);
-                writer.flush();
-
-                // Stream the file directly
-                Files.copy(file.toPath(), output);
-                output.flush();
-
-                writer.writeBytes(CRLF);
-                writer.writeBytes("--" + boundary + "--" + CRLF);
-                writer.flush();
-            }
-
-            // 3. Get Response
-            int responseCode = conn.getResponseCode();
-            InputStream is = (responseCode >= 200 && responseCode < 300) ? conn.getInputStream() : conn.getErrorStream();
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) response.append(line);
-
-            if (responseCode != 200) {
-                System.err.println("❌ Telegram API Error: " + response.toString());
+        Request request = new Request.Builder()
+                .url("https://api.telegram.org/bot" + BOT_TOKEN + "/sendDocument")
+                .post(new MultipartBody.Builder()
+                        .setType(MultipartBody.FORM)
+                        .addFormDataPart("chat_id", CHAT_ID)
+                        // Streams the file from disk (binary-safe)
+                        .addFormDataPart("document", file.getName(),
+                                RequestBody.create(file, MediaType.parse("application/octet-stream")))
+                        .build())
+                .build();
+
+        try (Response response = outbound.newCall(OutboundHttp.Provider.TELEGRAM, request).execute()) {
+            String body = response.body() != null ? response.body().string() : "";
+
+            if (response.code() != 200) {
+                System.err.println("❌ Telegram API Error: " + body);
                 return null;
             }
 
-            // 4. Extract File ID
-            JSONObject json = new JSONObject(response.toString());
+            // Extract File ID
+            JSONObject json = new JSONObject(body);
             return json.getJSONObject("result").getJSONObject("document").getString("file_id");
 
         } catch (Exception e) {
@@ -104,25 +78,23 @@ public class TelegramService {
     public String getFileDownloadUrl(String fileId) {
         if (BOT_TOKEN == null) return null;
         try {
-            String urlString = "https://api.telegram.org/bot" + BOT_TOKEN + "/getFile?file_id=" + fileId;
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            int responseCode = conn.getResponseCode();
-            InputStream is = (responseCode >= 200 && responseCode < 300) ? conn.getInputStream() : conn.getErrorStream();
-
-            BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) response.append(line);
-            
+            HttpUrl url = HttpUrl.get("https://api.telegram.org/bot" + BOT_TOKEN + "/getFile")
+                    .newBuilder().addQueryParameter("file_id", fileId).build();
+            Request request = new Request.Builder().url(url).get().build();
+
+            String body;
+            int responseCode;
+            try (Response response = outbound.newCall(OutboundHttp.Provider.TELEGRAM, request).execute()) {
+                responseCode = response.code();
+                body = response.body() != null ? response.body().string() : "";
+            }
+
             if (responseCode != 200) {
-                System.err.println("❌ Telegram GetFile Error: " + response.toString());
+                System.err.println("❌ Telegram GetFile Error: " + body);
                 return null;
             }
 
-            JSONObject json = new JSONObject(response.toString());
+            JSONObject json = new JSONObject(body);
             String filePath = json.getJSONObject("result").getString("file_path");
 
             return "https://api.telegram.org/file/bot" + BOT_TOKEN + "/" + filePath;
@@ -3,13 +3,15 @@ package com.scholar.service;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.scholar.model.TruthDareRoom;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -40,7 +42,9 @@ public class TruthDareService {
     @Value("${supabase.key}")
     private String supabaseKey;
 
-    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    @Autowired private OutboundHttp outbound;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -65,15 +69,15 @@ public class TruthDareService {
      */
     public String debugRawGet() {
         try {
-            HttpRequest req = HttpRequest.newBuilder()
-                    .uri(URI.create(supabaseUrl + "?limit=1"))
+            Request req = new Request.Builder()
+                    .url(supabaseUrl + "?limit=1")
                     .header("apikey",        supabaseKey)
                     .header("Authorization", "Bearer " + supabaseKey)
                     .header("Accept",        "application/json")
-                    .GET().build();
-            HttpResponse<String> res =
-                    httpClient.send(req, HttpResponse.BodyHandlers.ofString());
-            return "HTTP " + res.statusCode() + "\n" + res.body();
+                    .get().build();
+            try (Response res = outbound.newCall(OutboundHttp.Provider.SUPABASE, req).execute()) {
+                return "HTTP " + res.code() + "\n" + bodyOf(res);
+            }
         } catch (Exception e) {
             return "EXCEPTION: " + e.getMessage();
         }
@@ -162,19 +166,20 @@ public class TruthDareService {
      */
     public String getRoomStatusRaw(String roomCode) {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(supabaseUrl + "?room_code=eq." + roomCode + "&limit=1"))
+            Request request = new Request.Builder()
+                    .url(supabaseUrl + "?room_code=eq." + roomCode + "&limit=1")
                     .header("apikey",        supabaseKey)
                     .header("Authorization", "Bearer " + supabaseKey)
                     .header("Accept",        "application/json")
-                    .GET()
+                    .get()
                     .build();
 
-            HttpResponse<String> response =
-                    httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            String body = response.body().trim();
-            int    code = response.statusCode();
+            String body;
+            int    code;
+            try (Response response = outbound.newCall(OutboundHttp.Provider.SUPABASE, request).execute()) {
+                body = bodyOf(response).trim();
+                code = response.code();
+            }
 
             System.out.println("[TruthDareService] GET status/" + roomCode
                     + " → " + code + "  " + body);
@@ -275,17 +280,17 @@ public class TruthDareService {
 
     public boolean deleteRoom(String roomCode) {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(supabaseUrl + "?room_code=eq." + roomCode))
+            Request request = new Request.Builder()
+                    .url(supabaseUrl + "?room_code=eq." + roomCode)
                     .header("apikey",        supabaseKey)
                     .header("Authorization", "Bearer " + supabaseKey)
                     .header("Prefer",        "return=minimal")  // FIX #3
-                    .DELETE()
+                    .delete()
                     .build();
 
-            HttpResponse<String> response =
-                    httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            return response.statusCode() == 204 || response.statusCode() == 200;
+            try (Response response = outbound.newCall(OutboundHttp.Provider.SUPABASE, request).execute()) {
+                return response.code() == 204 || response.code() == 200;
+            }
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -300,30 +305,31 @@ public class TruthDareService {
     private boolean sendRequest(String method, String url, Object body) throws Exception {
         String json = objectMapper.writeValueAsString(body);
 
-        HttpRequest.Builder builder = HttpRequest.newBuilder()
-                .uri(URI.create(url))
+        Request.Builder builder = new Request.Builder()
+                .url(url)
                 .header("apikey",        supabaseKey)
                 .header("Authorization", "Bearer " + supabaseKey)
-                .header("Content-Type",  "application/json")
                 .header("Prefer",        "return=minimal");  // FIX #3
 
         switch (method) {
-            case "POST"  -> builder.POST(HttpRequest.BodyPublishers.ofString(json));
-            // FIX #5: PATCH must use .method() — HttpRequest has no .patch() shortcut
-            case "PATCH" -> builder.method("PATCH", HttpRequest.BodyPublishers.ofString(json));
+            case "POST"  -> builder.post(RequestBody.create(json, JSON));
+            case "PATCH" -> builder.patch(RequestBody.create(json, JSON));
             default      -> throw new IllegalArgumentException("Unsupported method: " + method);
         }
 
-        HttpResponse<String> response =
-                httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
-
-        int code = response.statusCode();
-        if (code < 200 || code >= 300) {
-            System.err.println("[TruthDareService] " + method + " " + url
-                    + " → " + code + "  " + response.body());
-            return false;
+        try (Response response = outbound.newCall(OutboundHttp.Provider.SUPABASE, builder.build()).execute()) {
+            int code = response.code();
+            if (code < 200 || code >= 300) {
+                System.err.println("[TruthDareService] " + method + " " + url
+                        + " → " + code + "  " + bodyOf(response));
+                return false;
+            }
+            return true;
         }
-        return true;
+    }
+
+    private static String bodyOf(Response response) throws IOException {
+        return response.body() != null ? response.body().string() : "";
     }
 
     // ════════════════════════════════════════════════════════════════════════
@@ -2,12 +2,12 @@ package com.scholar.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.prefs.Preferences;
@@ -23,6 +23,8 @@ public class WeatherService {
                                  String windSpeed, String condition, String rainDetails,
                                  String emoji, String time) {}
 
+    @Autowired private OutboundHttp outbound;
+
     private Map<String, DailyWeather> currentForecast = new HashMap<>();
     private CurrentWeather currentWeather = null;
     
@@ -41,10 +43,7 @@ public class WeatherService {
     // 📍 ১. ইউজারের আইপি দিয়ে লোকেশন বের করা এবং সেভ করা
     public double[] detectAndSaveLocation() {
         try {
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder().uri(URI.create("https://get.geojs.io/v1/ip/geo.json")).build();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            String json = response.body();
+            String json = get("https://get.geojs.io/v1/ip/geo.json");
 
             if (json.contains("\"latitude\":") && json.contains("\"longitude\":")) {
                 double lat = Double.parseDouble(json.split("\"latitude\":\"")[1].split("\"")[0]);
@@ -76,13 +75,11 @@ public class WeatherService {
                          "&temperature_unit=celsius&wind_speed_unit=kmh&precipitation_unit=mm" +
                          "&timezone=auto";
 
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).build();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            
+            String body = get(url);
+
             // ObjectMapper দিয়ে JSON সুন্দরভাবে পড়া হচ্ছে
             ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(response.body());
+            JsonNode root = mapper.readTree(body);
             JsonNode daily = root.path("daily");
             JsonNode current = root.path("current");
             JsonNode hourly = root.path("hourly");
@@ -153,6 +150,13 @@ public class WeatherService {
         return currentWeather;
     }
 
+    private String get(String url) throws IOException {
+        Request request = new Request.Builder().url(url).get().build();
+        try (Response response = outbound.newCall(OutboundHttp.Provider.WEATHER, request).execute()) {
+            return response.body() != null ? response.body().string() : "";
+        }
+    }
+
     // কন্ডিশন এবং ইমোজির লজিক আগের মতোই
     private String getConditionFromCode(int code) {
         if (code == 0) return "Clear sky";
@@ -0,0 +1,58 @@
+package com.scholar.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * AudioFrame — header of the framed voice protocol (clients that connect
+ * to /audio-stream with framed=1).
+ *
+ *   0     magic 0xA5
+ *   1     flags   bit0 MARKER = first frame of a talkspurt (after VAD silence)
+ *   2-3   source  speaker id within the room, stamped by the relay (0 = server mix)
+ *   4-5   seq     uint16, +1 per frame actually sent (suppressed silence does not count)
+ *   6-9   ts      uint32 capture time in samples at 16 kHz
+ *   10..  payload 16-bit big-endian PCM
+ *
+ * Static helpers over byte[] / ByteBuffer so nothing is allocated per frame.
+ */
+public final class AudioFrame {
+
+    public static final int  HEADER_BYTES = 10;
+    public static final byte MAGIC        = (byte) 0xA5;
+    public static final int  FLAG_MARKER  = 0x01;
+
+    private AudioFrame() {}
+
+    public static void writeHeader(byte[] dst, int flags, int source, int seq, long timestamp) {
+        dst[0] = MAGIC;
+        dst[1] = (byte) flags;
+        dst[2] = (byte) (source >> 8);
+        dst[3] = (byte) source;
+        dst[4] = (byte) (seq >> 8);
+        dst[5] = (byte) seq;
+        dst[6] = (byte) (timestamp >> 24);
+        dst[7] = (byte) (timestamp >> 16);
+        dst[8] = (byte) (timestamp >> 8);
+        dst[9] = (byte) timestamp;
+    }
+
+    /** Overwrites the source field in place (relay side). */
+    public static void stampSource(byte[] frame, int source) {
+        frame[2] = (byte) (source >> 8);
+        frame[3] = (byte) source;
+    }
+
+    public static boolean isFramed(ByteBuffer b) {
+        return b.remaining() >= HEADER_BYTES && b.get(b.position()) == MAGIC;
+    }
+
+    public static int flags(ByteBuffer b)      { return b.get(b.position() + 1) & 0xFF; }
+    public static int source(ByteBuffer b)     { return b.getShort(b.position() + 2) & 0xFFFF; }
+    public static int seq(ByteBuffer b)        { return b.getShort(b.position() + 4) & 0xFFFF; }
+    public static long timestamp(ByteBuffer b) { return b.getInt(b.position() + 6) & 0xFFFF_FFFFL; }
+
+    /** Signed distance a − b between two uint16 sequence numbers (handles wrap-around). */
+    public static int seqDiff(int a, int b) {
+        return (short) (a - b);
+    }
+}
@@ -0,0 +1,57 @@
+package com.scholar.util;
+
+import java.util.Arrays;
+
+/**
+ * AudioMixer — allocation-free primitives for the server-side room mix.
+ *
+ * Voice format everywhere: 16 kHz, signed 16-bit, mono, big-endian
+ * (the AudioFormat AudioCallService opens). The mix runs on 20 ms frames
+ * of FRAME_SAMPLES samples:
+ *
+ * 1. clear(acc) + accumulate(acc, frame) per active speaker → int sum
+ *    (no clipping while summing; 32 speakers × 32767 fits easily in an int)
+ * 2. mixMinusInto(acc, own, out) per listener: sum − own voice, clipped
+ *    to 16 bits and written straight into the outgoing big-endian bytes
+ *
+ * So a room costs O(speakers + listeners) per frame, not O(n²).
+ */
+public final class AudioMixer {
+
+    public static final int SAMPLE_RATE   = 16_000;
+    public static final int FRAME_MS      = 20;
+    public static final int FRAME_SAMPLES = SAMPLE_RATE * FRAME_MS / 1000;   // 320
+    public static final int FRAME_BYTES   = FRAME_SAMPLES * 2;               // 640
+
+    private AudioMixer() {}
+
+    public static void clear(int[] acc) {
+        Arrays.fill(acc, 0);
+    }
+
+    public static void accumulate(int[] acc, short[] frame) {
+        for (int i = 0; i < acc.length; i++) acc[i] += frame[i];
+    }
+
+    /** Same as accumulate() for big-endian PCM bytes (client-side playout of several sources). */
+    public static void accumulatePcm(int[] acc, byte[] pcm, int length) {
+        int n = Math.min(acc.length, length / 2);
+        for (int i = 0, j = 0; i < n; i++, j += 2) acc[i] += (short) ((pcm[j] << 8) | (pcm[j + 1] & 0xFF));
+    }
+
+    /** out = clip16(acc − own) as big-endian PCM; own may be null (listener is not speaking). */
+    public static void mixMinusInto(int[] acc, short[] own, byte[] out) {
+        mixMinusInto(acc, own, out, 0);
+    }
+
+    /** As above, writing from out[offset] (room for an AudioFrame header). */
+    public static void mixMinusInto(int[] acc, short[] own, byte[] out, int offset) {
+        for (int i = 0, j = offset; i < acc.length; i++, j += 2) {
+            int v = own == null ? acc[i] : acc[i] - own[i];
+            if (v > Short.MAX_VALUE) v = Short.MAX_VALUE;
+            else if (v < Short.MIN_VALUE) v = Short.MIN_VALUE;
+            out[j]     = (byte) (v >> 8);
+            out[j + 1] = (byte) v;
+        }
+    }
+}
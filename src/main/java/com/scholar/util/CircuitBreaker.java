@@ -0,0 +1,83 @@
+package com.scholar.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * CircuitBreaker — stops calling a dependency that keeps failing.
+ *
+ *   CLOSED     calls go through; `threshold` consecutive failures → OPEN
+ *   OPEN       calls are refused for `openMs`, then one trial is let through
+ *   HALF_OPEN  that trial's success closes the breaker, its failure re-opens it;
+ *              other calls are refused while it is in flight
+ *
+ * Every tryAcquire() that returns true must be followed by exactly one
+ * onSuccess(), onFailure() or release().
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int threshold;
+    private final long openMs;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long opens;
+
+    public CircuitBreaker(int threshold, long openMs) {
+        this(threshold, openMs, System::currentTimeMillis);
+    }
+
+    public CircuitBreaker(int threshold, long openMs, LongSupplier clock) {
+        this.threshold = threshold;
+        this.openMs = openMs;
+        this.clock = clock;
+    }
+
+    /** True if a call may go out now. */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openedAt < openMs) return false;
+                state = State.HALF_OPEN;                     // this caller is the trial
+                return true;
+            default:
+                return false;                                // trial already in flight
+        }
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= threshold)) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+            opens++;
+        }
+    }
+
+    /**
+     * The call was abandoned without an outcome (e.g. a losing hedged request
+     * was cancelled). A half-open trial slot is handed to the next caller.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) state = State.OPEN;        // openedAt unchanged → retry allowed now
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /** How many times the breaker has tripped. */
+    public synchronized long opens() {
+        return opens;
+    }
+}
@@ -0,0 +1,116 @@
+package com.scholar.util;
+
+import com.scholar.model.ClassOffPeriod;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * ClassOffIndex — immutable interval tree over class-off periods.
+ *
+ * Periods are sorted by start day and laid out as an implicit balanced tree
+ * (the middle of every index range is its root); each root also keeps the
+ * latest end day in its range, so whole subtrees that end before the
+ * queried day are skipped.
+ *
+ *   at(date)              O(log n)        earliest-starting period covering date
+ *   days(from, count)     O(log n + m + count)  one period (or null) per day
+ *
+ * Periods without both dates, or ending before they start, are dropped.
+ */
+public final class ClassOffIndex {
+
+    public static final ClassOffIndex EMPTY = new ClassOffIndex(List.of());
+
+    private final ClassOffPeriod[] periods;
+    private final long[] start;
+    private final long[] end;
+    private final long[] maxEnd;     // max end in the subtree rooted at this index
+
+    public ClassOffIndex(List<ClassOffPeriod> input) {
+        List<ClassOffPeriod> valid = new ArrayList<>();
+        if (input != null) {
+            for (ClassOffPeriod p : input) {
+                if (p == null || p.startDate() == null || p.endDate() == null) continue;
+                if (p.endDate().isBefore(p.startDate())) continue;
+                valid.add(p);
+            }
+        }
+        valid.sort(Comparator.comparing(ClassOffPeriod::startDate));   // stable: load order on ties
+        int n = valid.size();
+        periods = valid.toArray(new ClassOffPeriod[0]);
+        start   = new long[n];
+        end     = new long[n];
+        maxEnd  = new long[n];
+        for (int i = 0; i < n; i++) {
+            start[i] = periods[i].startDate().toEpochDay();
+            end[i]   = periods[i].endDate().toEpochDay();
+        }
+        build(0, n - 1);
+    }
+
+    public int size() {
+        return periods.length;
+    }
+
+    /** The period covering `date` that starts first, or null. */
+    public ClassOffPeriod at(LocalDate date) {
+        if (date == null) return null;
+        int i = stab(0, periods.length - 1, date.toEpochDay());
+        return i >= 0 ? periods[i] : null;
+    }
+
+    /**
+     * The covering period for each of `count` days from `from` (null on a
+     * normal day) — one tree walk for a whole calendar page.
+     */
+    public ClassOffPeriod[] days(LocalDate from, int count) {
+        ClassOffPeriod[] out = new ClassOffPeriod[Math.max(0, count)];
+        if (from == null || count <= 0 || periods.length == 0) return out;
+        long lo = from.toEpochDay(), hi = lo + count - 1;
+        List<Integer> hits = new ArrayList<>();
+        overlapping(0, periods.length - 1, lo, hi, hits);
+        for (int i : hits) {                            // start order → earliest start wins, as in at()
+            for (long d = Math.max(start[i], lo); d <= Math.min(end[i], hi); d++) {
+                int cell = (int) (d - lo);
+                if (out[cell] == null) out[cell] = periods[i];
+            }
+        }
+        return out;
+    }
+
+    // ── tree ──────────────────────────────────────────────────────────────
+
+    private long build(int lo, int hi) {
+        if (lo > hi) return Long.MIN_VALUE;
+        int mid = (lo + hi) >>> 1;
+        long m = Math.max(end[mid], Math.max(build(lo, mid - 1), build(mid + 1, hi)));
+        maxEnd[mid] = m;
+        return m;
+    }
+
+    /** Lowest index in [lo, hi] whose interval contains day, or -1. */
+    private int stab(int lo, int hi, long day) {
+        if (lo > hi) return -1;
+        int mid = (lo + hi) >>> 1;
+        if (maxEnd[mid] < day) return -1;
+        int left = stab(lo, mid - 1, day);
+        if (left >= 0) return left;
+        if (start[mid] > day) return -1;                // everything to the right starts later still
+        if (end[mid] >= day) return mid;
+        return stab(mid + 1, hi, day);
+    }
+
+    /** Indices in [lo, hi] overlapping [from, to], in start order. */
+    private void overlapping(int lo, int hi, long from, long to, List<Integer> out) {
+        if (lo > hi) return;
+        int mid = (lo + hi) >>> 1;
+        if (maxEnd[mid] < from) return;
+        overlapping(lo, mid - 1, from, to, out);
+        if (start[mid] > to) return;
+        if (end[mid] >= from) out.add(mid);
+        overlapping(mid + 1, hi, from, to, out);
+    }
+}
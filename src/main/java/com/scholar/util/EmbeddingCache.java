@@ -0,0 +1,274 @@
+package com.scholar.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * EmbeddingCache — two-tier cache of embedding vectors keyed by a
+ * model-tagged content hash (first 128 bits of SHA-256(model + '\n' + text)).
+ *
+ * Tier 1: in-memory LRU of float[] copies.
+ * Tier 2: memory-mapped file of fixed-width float32 records that survives
+ *         restarts. The file grows in chunks up to maxDiskRecords, then
+ *         overwrites the oldest slot (ring).
+ *
+ * File layout
+ * ───────────
+ *   header (64 B): magic, version, dim, count, nextSlot
+ *   record       : key hi (8 B) | key lo (8 B) | dim × float32
+ *
+ * A record's key is zeroed before its floats are rewritten and set last,
+ * so a crash mid-write never leaves a valid key over a torn vector.
+ * All-zero vectors (the failed-call fallback) are never cached.
+ *
+ * Path: src/main/java/com/scholar/util/EmbeddingCache.java
+ */
+public final class EmbeddingCache implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(EmbeddingCache.class.getName());
+
+    private static final int MAGIC       = 0x53474543;   // "SGEC"
+    private static final int VERSION     = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int GROW_CHUNK  = 1024;
+
+    public record Key(long hi, long lo) {}
+
+    public record Stats(long memoryHits, long diskHits, long misses,
+                        int memoryEntries, int diskEntries) {
+        public double hitRate() {
+            long total = memoryHits + diskHits + misses;
+            return total == 0 ? 0.0 : (memoryHits + diskHits) / (double) total;
+        }
+    }
+
+    private final String modelTag;
+    private final int    dim;
+    private final int    recordSize;
+
+    private final LinkedHashMap<Key, float[]> memory;
+
+    // Disk tier (null when disabled or failed to open)
+    private final int          maxDiskRecords;
+    private FileChannel        channel;
+    private MappedByteBuffer   map;
+    private int                capacity;
+    private int                count;
+    private int                nextSlot;
+    private final Map<Key, Integer> slotByKey = new HashMap<>();
+    private Key[]              keyBySlot = new Key[0];
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits   = new AtomicLong();
+    private final AtomicLong misses     = new AtomicLong();
+
+    /**
+     * @param diskFile null → memory-only cache
+     */
+    public EmbeddingCache(String modelTag, int dim, int memoryEntries,
+                          Path diskFile, int maxDiskRecords) {
+        this.modelTag       = modelTag;
+        this.dim            = dim;
+        this.recordSize     = 16 + dim * 4;
+        this.maxDiskRecords = Math.min(maxDiskRecords, (Integer.MAX_VALUE - HEADER_SIZE) / recordSize);
+        this.memory = new LinkedHashMap<>(Math.max(16, memoryEntries * 4 / 3), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, float[]> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+        if (diskFile != null && this.maxDiskRecords > 0) {
+            try {
+                openDisk(diskFile);
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "EmbeddingCache: disk tier disabled (" + diskFile + ")", e);
+                closeQuietly();
+            }
+        }
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PUBLIC API
+    // ──────────────────────────────────────────────────────────────
+
+    public Key keyFor(String text) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(modelTag.getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) '\n');
+            byte[] h = sha.digest(text.getBytes(StandardCharsets.UTF_8));
+            long hi = 0, lo = 0;
+            for (int i = 0; i < 8; i++)  hi = (hi << 8) | (h[i] & 0xFF);
+            for (int i = 8; i < 16; i++) lo = (lo << 8) | (h[i] & 0xFF);
+            if (hi == 0 && lo == 0) lo = 1;                 // 0/0 marks an empty disk slot
+            return new Key(hi, lo);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    /** Copies the cached vector into {@code out}; false on a miss. */
+    public boolean get(Key key, float[] out) {
+        synchronized (this) {
+            float[] v = memory.get(key);
+            if (v != null) {
+                System.arraycopy(v, 0, out, 0, dim);
+                memoryHits.incrementAndGet();
+                return true;
+            }
+            Integer slot = slotByKey.get(key);
+            if (slot != null && map != null) {
+                int base = HEADER_SIZE + slot * recordSize + 16;
+                for (int i = 0; i < dim; i++) out[i] = map.getFloat(base + i * 4);
+                memory.put(key, out.clone());               // promote to tier 1
+                diskHits.incrementAndGet();
+                return true;
+            }
+        }
+        misses.incrementAndGet();
+        return false;
+    }
+
+    /** Stores a copy of {@code vector} in both tiers; all-zero vectors are ignored. */
+    public void put(Key key, float[] vector) {
+        if (vector == null || vector.length != dim || isZero(vector)) return;
+        synchronized (this) {
+            memory.put(key, vector.clone());
+            if (map != null && !slotByKey.containsKey(key)) writeDisk(key, vector);
+        }
+    }
+
+    public Stats stats() {
+        synchronized (this) {
+            return new Stats(memoryHits.get(), diskHits.get(), misses.get(),
+                memory.size(), slotByKey.size());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (map != null) {
+            writeHeader();
+            map.force();
+        }
+        closeQuietly();
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PRIVATE: DISK TIER
+    // ──────────────────────────────────────────────────────────────
+
+    private void openDisk(Path file) throws IOException {
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long size = channel.size();
+        if (size >= HEADER_SIZE) {
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            boolean compatible = head.getInt(0) == MAGIC && head.getInt(4) == VERSION && head.getInt(8) == dim;
+            if (compatible) {
+                capacity = (int) Math.min(maxDiskRecords, (size - HEADER_SIZE) / recordSize);
+                count    = Math.min(head.getInt(12), capacity);
+                nextSlot = Math.min(head.getInt(16), Math.max(capacity - 1, 0));
+            } else {
+                LOG.warning("EmbeddingCache: incompatible cache file, starting fresh: " + file);
+                channel.truncate(0);
+            }
+        }
+        if (capacity == 0) capacity = Math.min(GROW_CHUNK, maxDiskRecords);
+        remap();
+
+        keyBySlot = new Key[capacity];
+        for (int slot = 0; slot < count; slot++) {
+            int base = HEADER_SIZE + slot * recordSize;
+            long hi = map.getLong(base), lo = map.getLong(base + 8);
+            if (hi == 0 && lo == 0) continue;               // torn / empty slot
+            Key k = new Key(hi, lo);
+            slotByKey.put(k, slot);
+            keyBySlot[slot] = k;
+        }
+        writeHeader();
+        LOG.info("EmbeddingCache: " + slotByKey.size() + " vectors on disk at " + file);
+    }
+
+    private void writeDisk(Key key, float[] vector) {
+        int slot;
+        if (count < capacity) {
+            slot = count++;
+        } else if (capacity < maxDiskRecords) {
+            if (!grow()) return;
+            slot = count++;
+        } else {
+            slot = nextSlot;                                // ring: overwrite oldest
+            nextSlot = (nextSlot + 1) % capacity;
+        }
+
+        Key old = keyBySlot[slot];
+        if (old != null) slotByKey.remove(old);
+
+        int base = HEADER_SIZE + slot * recordSize;
+        map.putLong(base, 0L).putLong(base + 8, 0L);
+        for (int i = 0; i < dim; i++) map.putFloat(base + 16 + i * 4, vector[i]);
+        map.putLong(base, key.hi()).putLong(base + 8, key.lo());
+
+        keyBySlot[slot] = key;
+        slotByKey.put(key, slot);
+        writeHeader();
+    }
+
+    /** @return false if the file could not be extended (disk tier is then disabled) */
+    private boolean grow() {
+        capacity = Math.min(maxDiskRecords, capacity + Math.max(GROW_CHUNK, capacity / 2));
+        try {
+            remap();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "EmbeddingCache: grow failed, disk tier disabled", e);
+            closeQuietly();
+            return false;
+        }
+        Key[] grown = new Key[capacity];
+        System.arraycopy(keyBySlot, 0, grown, 0, keyBySlot.length);
+        keyBySlot = grown;
+        return true;
+    }
+
+    private void remap() throws IOException {
+        long bytes = HEADER_SIZE + (long) capacity * recordSize;
+        if (map != null) map.force();
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+    }
+
+    private void writeHeader() {
+        map.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, dim)
+           .putInt(12, count).putInt(16, nextSlot);
+    }
+
+    private void closeQuietly() {
+        map = null;
+        slotByKey.clear();
+        if (channel != null) {
+            try { channel.close(); } catch (IOException ignored) {}
+            channel = null;
+        }
+    }
+
+    private static boolean isZero(float[] v) {
+        for (float f : v) if (f != 0f) return false;
+        return true;
+    }
+}
@@ -0,0 +1,474 @@
+package com.scholar.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * HnswIndex — in-memory HNSW (Hierarchical Navigable Small World) graph
+ * for approximate cosine-similarity search over float[] vectors.
+ *
+ * Design notes
+ * ────────────
+ * 1. Vectors are L2-normalised on insert, so similarity = dot product.
+ * 2. Every hot-path structure is primitive (float[], int[]) — no boxing on search.
+ * 3. Re-adding an id tombstones the old node and inserts a fresh one;
+ *    tombstoned nodes are still walked but never returned.
+ * 4. Reads share a read lock, inserts take the write lock.
+ *
+ * Path: src/main/java/com/scholar/util/HnswIndex.java
+ */
+public final class HnswIndex {
+
+    private final int    dim;
+    private final int    m;
+    private final int    mMax0;
+    private final int    efConstruction;
+    private final double levelMult;
+    private final Random random;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Node storage (index = internal node id)
+    private float[][] vectors = new float[64][];
+    private int[]     ids     = new int[64];
+    private boolean[] deleted = new boolean[64];
+    /** links[node][level] → int[cap + 1], slot 0 holds the neighbour count. */
+    private int[][][] links   = new int[64][][];
+
+    private final Map<Integer, Integer> nodeById = new HashMap<>();
+    private int size       = 0;
+    private int liveCount  = 0;
+    private int entryPoint = -1;
+    private int maxLevel   = -1;
+
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    public HnswIndex(int dim) {
+        this(dim, 16, 64, 42L);
+    }
+
+    public HnswIndex(int dim, int m, int efConstruction, long seed) {
+        if (dim <= 0 || m < 2 || efConstruction < m)
+            throw new IllegalArgumentException("Invalid HNSW parameters");
+        this.dim            = dim;
+        this.m              = m;
+        this.mMax0          = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMult      = 1.0 / Math.log(m);
+        this.random         = new Random(seed);
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PUBLIC API
+    // ──────────────────────────────────────────────────────────────
+
+    public int dimensions() { return dim; }
+
+    /** Number of searchable (non-tombstoned) vectors. */
+    public int size() {
+        lock.readLock().lock();
+        try { return liveCount; } finally { lock.readLock().unlock(); }
+    }
+
+    /** Number of tombstoned nodes still held in the graph. */
+    public int tombstones() {
+        lock.readLock().lock();
+        try { return size - liveCount; } finally { lock.readLock().unlock(); }
+    }
+
+    public boolean contains(int id) {
+        lock.readLock().lock();
+        try { return nodeById.containsKey(id); } finally { lock.readLock().unlock(); }
+    }
+
+    /**
+     * Inserts or replaces the vector for {@code id}.
+     * Zero / wrong-sized vectors (e.g. a failed embedding call) are rejected.
+     *
+     * @return true if the vector was added
+     */
+    public boolean add(int id, float[] vector) {
+        if (vector == null || vector.length != dim) return false;
+        float norm = norm(vector);
+        if (norm == 0f || Float.isNaN(norm)) return false;
+
+        float[] v = new float[dim];
+        for (int i = 0; i < dim; i++) v[i] = vector[i] / norm;
+
+        lock.writeLock().lock();
+        try {
+            Integer old = nodeById.remove(id);
+            if (old != null) { deleted[old] = true; liveCount--; }
+            insertNode(id, v);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Removes {@code id} from search results (tombstone). */
+    public boolean remove(int id) {
+        lock.writeLock().lock();
+        try {
+            Integer old = nodeById.remove(id);
+            if (old == null) return false;
+            deleted[old] = true;
+            liveCount--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate top-k search.
+     *
+     * @param query     raw (not necessarily normalised) query vector
+     * @param k         number of results wanted
+     * @param ef        search breadth (≥ k); higher = better recall, slower
+     * @param accept    optional filter on external ids (null = accept all)
+     * @param outIds    receives result ids, best first (length ≥ k)
+     * @param outScores receives cosine similarities (length ≥ k)
+     * @return number of results written
+     */
+    public int search(float[] query, int k, int ef, IntPredicate accept,
+                      int[] outIds, float[] outScores) {
+        if (query == null || query.length != dim || k <= 0) return 0;
+        float qNorm = norm(query);
+        if (qNorm == 0f || Float.isNaN(qNorm)) return 0;
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || liveCount == 0) return 0;
+
+            int ep = entryPoint;
+            float epSim = dot(query, vectors[ep]);
+            for (int level = maxLevel; level > 0; level--) {
+                ep = greedyClosest(query, ep, epSim, level);
+                epSim = dot(query, vectors[ep]);
+            }
+
+            FloatIntHeap results = searchLayer(query, ep, Math.max(ef, k), 0, accept, true);
+
+            int n = Math.min(k, results.size);
+            // results is a min-heap: pop worst first, fill from the back
+            while (results.size > n) results.pop();
+            for (int i = n - 1; i >= 0; i--) {
+                outScores[i] = results.peekKey() / qNorm;
+                outIds[i]    = ids[results.peekValue()];
+                results.pop();
+            }
+            return n;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Exact brute-force top-k — the same answer pgvector gives without an
+     * ANN index. Used as the recall baseline and as a tiny-index shortcut.
+     */
+    public int exactSearch(float[] query, int k, IntPredicate accept,
+                           int[] outIds, float[] outScores) {
+        if (query == null || query.length != dim || k <= 0) return 0;
+        float qNorm = norm(query);
+        if (qNorm == 0f || Float.isNaN(qNorm)) return 0;
+
+        lock.readLock().lock();
+        try {
+            FloatIntHeap best = new FloatIntHeap(k + 1, false);
+            for (int node = 0; node < size; node++) {
+                if (deleted[node]) continue;
+                if (accept != null && !accept.test(ids[node])) continue;
+                best.push(dot(query, vectors[node]), node);
+                if (best.size > k) best.pop();
+            }
+            int n = best.size;
+            for (int i = n - 1; i >= 0; i--) {
+                outScores[i] = best.peekKey() / qNorm;
+                outIds[i]    = ids[best.peekValue()];
+                best.pop();
+            }
+            return n;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PRIVATE: INSERT
+    // ──────────────────────────────────────────────────────────────
+
+    private void insertNode(int id, float[] v) {
+        int node = size;
+        ensureCapacity(node + 1);
+        int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMult);
+
+        vectors[node] = v;
+        ids[node]     = id;
+        deleted[node] = false;
+        links[node]   = new int[level + 1][];
+        for (int l = 0; l <= level; l++) links[node][l] = new int[(l == 0 ? mMax0 : m) + 1];
+        size++;
+        liveCount++;
+        nodeById.put(id, node);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel   = level;
+            return;
+        }
+
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedyClosest(v, ep, dot(v, vectors[ep]), l);
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            FloatIntHeap candidates = searchLayer(v, ep, efConstruction, l, null, false);
+            int[] selected = selectNeighbours(v, candidates, l == 0 ? mMax0 : m);
+
+            int[] own = links[node][l];
+            for (int s : selected) own[++own[0]] = s;
+            for (int s : selected) connect(s, node, l);
+
+            ep = selected.length > 0 ? selected[0] : ep;
+        }
+
+        if (level > maxLevel) {
+            maxLevel   = level;
+            entryPoint = node;
+        }
+    }
+
+    /** Adds a reverse link neighbour → node, shrinking with the heuristic on overflow. */
+    private void connect(int neighbour, int node, int level) {
+        int[] list = links[neighbour][level];
+        int cap = list.length - 1;
+        if (list[0] < cap) {
+            list[++list[0]] = node;
+            return;
+        }
+        float[] base = vectors[neighbour];
+        FloatIntHeap pool = new FloatIntHeap(cap + 1, false);
+        for (int i = 1; i <= list[0]; i++) pool.push(dot(base, vectors[list[i]]), list[i]);
+        pool.push(dot(base, vectors[node]), node);
+
+        int[] kept = selectNeighbours(base, pool, cap);
+        list[0] = kept.length;
+        System.arraycopy(kept, 0, list, 1, kept.length);
+    }
+
+    /**
+     * HNSW neighbour-selection heuristic (Malkov &amp; Yashunin, alg. 4):
+     * keep a candidate only if it is closer to the base than to any already
+     * kept neighbour, then top up with the pruned ones. Consumes {@code pool}.
+     */
+    private int[] selectNeighbours(float[] base, FloatIntHeap pool, int max) {
+        int n = pool.size;
+        int[]   order = new int[n];
+        float[] sims  = new float[n];
+        for (int i = n - 1; i >= 0; i--) {          // min-heap → best ends up first
+            sims[i]  = pool.peekKey();
+            order[i] = pool.peekValue();
+            pool.pop();
+        }
+
+        int[] kept = new int[Math.min(max, n)];
+        boolean[] used = new boolean[n];
+        int count = 0;
+        for (int i = 0; i < n && count < kept.length; i++) {
+            float[] c = vectors[order[i]];
+            boolean good = true;
+            for (int j = 0; j < count; j++) {
+                if (dot(c, vectors[kept[j]]) > sims[i]) { good = false; break; }
+            }
+            if (good) { kept[count++] = order[i]; used[i] = true; }
+        }
+        for (int i = 0; i < n && count < kept.length; i++) {
+            if (!used[i]) kept[count++] = order[i];
+        }
+        return count == kept.length ? kept : Arrays.copyOf(kept, count);
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PRIVATE: GRAPH WALK
+    // ──────────────────────────────────────────────────────────────
+
+    private int greedyClosest(float[] q, int ep, float epSim, int level) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] list = links[ep].length > level ? links[ep][level] : null;
+            if (list == null) break;
+            for (int i = 1; i <= list[0]; i++) {
+                float s = dot(q, vectors[list[i]]);
+                if (s > epSim) { epSim = s; ep = list[i]; changed = true; }
+            }
+        }
+        return ep;
+    }
+
+    /**
+     * Best-first beam search on one layer.
+     * Returns a min-heap (worst on top) of at most {@code ef} nodes.
+     * With {@code forResults}, tombstoned / filtered nodes are walked but not collected.
+     */
+    private FloatIntHeap searchLayer(float[] q, int ep, int ef, int level,
+                                     IntPredicate accept, boolean forResults) {
+        Visited seen = visited.get();
+        seen.reset(size);
+
+        FloatIntHeap candidates = new FloatIntHeap(ef * 2 + 1, true);   // best on top
+        FloatIntHeap results    = new FloatIntHeap(ef + 1, false);      // worst on top
+
+        float epSim = dot(q, vectors[ep]);
+        seen.mark(ep);
+        candidates.push(epSim, ep);
+        if (admit(ep, accept, forResults)) results.push(epSim, ep);
+
+        while (candidates.size > 0) {
+            float cSim = candidates.peekKey();
+            int   c    = candidates.peekValue();
+            candidates.pop();
+            if (results.size >= ef && cSim < results.peekKey()) break;
+
+            int[][] nodeLinks = links[c];
+            if (nodeLinks.length <= level) continue;
+            int[] list = nodeLinks[level];
+            for (int i = 1; i <= list[0]; i++) {
+                int nb = list[i];
+                if (!seen.mark(nb)) continue;
+                float s = dot(q, vectors[nb]);
+                if (results.size < ef || s > results.peekKey()) {
+                    candidates.push(s, nb);
+                    if (admit(nb, accept, forResults)) {
+                        results.push(s, nb);
+                        if (results.size > ef) results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private boolean admit(int node, IntPredicate accept, boolean forResults) {
+        if (!forResults) return true;
+        if (deleted[node]) return false;
+        return accept == null || accept.test(ids[node]);
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PRIVATE: HELPERS
+    // ──────────────────────────────────────────────────────────────
+
+    private void ensureCapacity(int needed) {
+        if (needed <= vectors.length) return;
+        int cap = Math.max(needed, vectors.length * 2);
+        vectors = Arrays.copyOf(vectors, cap);
+        ids     = Arrays.copyOf(ids, cap);
+        deleted = Arrays.copyOf(deleted, cap);
+        links   = Arrays.copyOf(links, cap);
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0, n = a.length - 3;
+        for (; i < n; i += 4) {
+            s0 += a[i]     * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) s0 += a[i] * b[i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static float norm(float[] v) {
+        return (float) Math.sqrt(dot(v, v));
+    }
+
+    /** Generation-stamped visited set, reused per thread. */
+    private static final class Visited {
+        private int[] marks = new int[0];
+        private int   stamp = 0;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                stamp = 0;
+            }
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                stamp = 1;
+            }
+        }
+
+        /** @return true if newly marked */
+        boolean mark(int node) {
+            if (marks[node] == stamp) return false;
+            marks[node] = stamp;
+            return true;
+        }
+    }
+
+    /** Binary heap of (float key, int value) pairs; max-heap or min-heap. */
+    private static final class FloatIntHeap {
+        private float[] keys;
+        private int[]   values;
+        private final boolean max;
+        int size;
+
+        FloatIntHeap(int capacity, boolean max) {
+            this.keys   = new float[Math.max(capacity, 4)];
+            this.values = new int[keys.length];
+            this.max    = max;
+        }
+
+        float peekKey()   { return keys[0]; }
+        int   peekValue() { return values[0]; }
+
+        void push(float key, int value) {
+            if (size == keys.length) {
+                keys   = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!above(key, keys[parent])) break;
+                keys[i] = keys[parent];
+                values[i] = values[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        void pop() {
+            if (--size <= 0) { size = 0; return; }
+            float key = keys[size];
+            int value = values[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && above(keys[child + 1], keys[child])) child++;
+                if (!above(keys[child], key)) break;
+                keys[i] = keys[child];
+                values[i] = values[child];
+                i = child;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        private boolean above(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+}
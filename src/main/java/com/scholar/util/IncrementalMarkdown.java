@@ -0,0 +1,119 @@
+package com.scholar.util;
+
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * IncrementalMarkdown — renders a streamed completion one finished block at a time.
+ *
+ * Chunks are appended as they arrive. A block is finished at a blank line,
+ * or at a line ending in a closing block tag (</p>, </h3>, </ul>, …), that
+ * is outside a ``` / ~~~ fence and outside any open HTML container (ul, ol,
+ * table, div, pre, blockquote — the models often answer in raw HTML).
+ * Each finished block goes through `render` exactly once and its HTML
+ * is returned for the caller to append; everything after the last boundary
+ * stays in pending() as raw text until more arrives or finish() is called.
+ *
+ * So a 2000-token answer is rendered in O(total length) instead of once per
+ * chunk, and the view only appends instead of replacing the whole answer.
+ * Not thread-safe — one instance per stream.
+ */
+public final class IncrementalMarkdown {
+
+    private static final String[] CONTAINERS = {"ul", "ol", "table", "div", "pre", "blockquote"};
+    private static final String[] BLOCK_ENDS = {
+        "</p>", "</h1>", "</h2>", "</h3>", "</h4>", "</h5>", "</h6>",
+        "</ul>", "</ol>", "</table>", "</div>", "</pre>", "</blockquote>"};
+
+    private final Function<String, String> render;
+    private final StringBuilder buf = new StringBuilder();
+    private int blockStart;      // start of the unfinished block in buf
+    private int scanFrom;        // first char of buf not yet scanned (always a line start)
+    private boolean inFence;
+    private char fenceChar;
+    private int htmlDepth;
+
+    public IncrementalMarkdown(Function<String, String> render) {
+        this.render = render;
+    }
+
+    /** Adds a chunk; returns the HTML of the blocks it completed ("" if none). */
+    public String append(String chunk) {
+        if (chunk == null || chunk.isEmpty()) return "";
+        buf.append(chunk);
+        StringBuilder out = new StringBuilder();
+        int nl;
+        while ((nl = buf.indexOf("\n", scanFrom)) >= 0) {
+            int lineStart = scanFrom;
+            scanFrom = nl + 1;
+            int end = blockEnd(lineStart, nl);
+            if (end >= 0) {
+                emit(end, out);
+                blockStart = scanFrom;
+            }
+        }
+        return out.toString();
+    }
+
+    /** Raw text of the block still being written. */
+    public String pending() {
+        return buf.substring(blockStart);
+    }
+
+    /** Renders whatever is left; call once when the stream ends. */
+    public String finish() {
+        StringBuilder out = new StringBuilder();
+        emit(buf.length(), out);
+        blockStart = scanFrom = buf.length();
+        return out.toString();
+    }
+
+    /** Everything appended so far. */
+    public String text() {
+        return buf.toString();
+    }
+
+    private void emit(int end, StringBuilder out) {
+        String block = buf.substring(blockStart, end);
+        if (!block.isBlank()) out.append(render.apply(block));
+    }
+
+    /**
+     * Scans one complete line [from, to); if it closes the current block,
+     * returns where the block's text ends (before a blank line, after a
+     * closing tag), else -1.
+     */
+    private int blockEnd(int from, int to) {
+        String line = buf.substring(from, to).strip();
+        if (line.startsWith("```") || line.startsWith("~~~")) {
+            if (!inFence)                          { inFence = true; fenceChar = line.charAt(0); }
+            else if (line.charAt(0) == fenceChar)  { inFence = false; }
+            return -1;
+        }
+        if (inFence) return -1;
+        if (line.isEmpty()) return htmlDepth <= 0 ? from : -1;
+        if (line.indexOf('<') < 0) return -1;
+        String lower = line.toLowerCase(Locale.ROOT);
+        htmlDepth += containerDelta(lower);
+        if (htmlDepth < 0) htmlDepth = 0;                    // stray closing tag
+        if (htmlDepth == 0) {
+            for (String end : BLOCK_ENDS) if (lower.endsWith(end)) return to;
+        }
+        return -1;
+    }
+
+    private static int containerDelta(String line) {
+        int delta = 0;
+        for (String tag : CONTAINERS) {
+            delta += count(line, "<" + tag + ">") + count(line, "<" + tag + " ");
+            delta -= count(line, "</" + tag + ">");
+        }
+        return delta;
+    }
+
+    private static int count(String s, String needle) {
+        int n = 0;
+        for (int i = s.indexOf(needle); i >= 0; i = s.indexOf(needle, i + needle.length())) n++;
+        return n;
+    }
+}
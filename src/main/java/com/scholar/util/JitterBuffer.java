@@ -0,0 +1,145 @@
+package com.scholar.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * JitterBuffer — reorders and re-times one source's framed audio
+ * (AudioFrame) for playback.
+ *
+ * 1. put() copies the payload into a preallocated slot (seq mod SLOTS);
+ *    late frames (already played) and duplicates are dropped.
+ * 2. take() is called once per played frame. While BUFFERING it waits
+ *    until targetDepth frames are queued; while PLAYING it returns the
+ *    next seq, reports a loss (caller conceals) when a later frame is
+ *    already here, and goes back to BUFFERING when it runs dry — the end
+ *    of a talkspurt, or the network fell behind.
+ * 3. targetDepth adapts: interarrival jitter is tracked RFC 3550-style
+ *    from arrival time vs capture timestamp, and each new buffering phase
+ *    waits for ~3× jitter (MIN_DEPTH..MAX_DEPTH frames). When the queue
+ *    grows well past the target the oldest frame is skipped to cut delay.
+ *
+ * No allocation after construction.
+ */
+public final class JitterBuffer {
+
+    public static final int TAKE_NOTHING = -1;   // buffering / idle: play nothing
+    public static final int TAKE_LOST    = 0;    // frame missing: conceal
+
+    private static final int SLOTS     = 64;
+    private static final int MIN_DEPTH = 2;
+    private static final int MAX_DEPTH = 10;
+
+    private final int      frameMs;
+    private final int      samplesPerMs;
+    private final byte[][] payload;
+    private final int[]    length;
+    private final int[]    seqOf;
+    private final boolean[] present;
+
+    private boolean playing;
+    private int     nextSeq;
+    private int     buffered;
+    private int     lowestSeq = -1;
+
+    private double  jitterMs;
+    private double  lastTransitMs = Double.NaN;
+    private int     targetDepth = MIN_DEPTH;
+
+    private long played, lost, late, skipped;
+
+    public JitterBuffer(int maxPayloadBytes, int frameMs, int sampleRate) {
+        this.frameMs = frameMs;
+        this.samplesPerMs = sampleRate / 1000;
+        this.payload = new byte[SLOTS][maxPayloadBytes];
+        this.length = new int[SLOTS];
+        this.seqOf = new int[SLOTS];
+        this.present = new boolean[SLOTS];
+    }
+
+    /** framed = AudioFrame header + payload, positioned at the header. */
+    public synchronized void put(ByteBuffer framed, long arrivalNanos) {
+        int seq = AudioFrame.seq(framed);
+        updateJitter(arrivalNanos / 1e6 - AudioFrame.timestamp(framed) / (double) samplesPerMs);
+
+        if (playing) {
+            int ahead = AudioFrame.seqDiff(seq, nextSeq);
+            if (ahead < 0) { late++; return; }
+            if (ahead >= SLOTS) reset();       // sender restarted or a long outage
+        } else if (lowestSeq >= 0 && Math.abs(AudioFrame.seqDiff(seq, lowestSeq)) >= SLOTS) {
+            reset();
+        }
+
+        int slot = seq & (SLOTS - 1);
+        if (present[slot]) {
+            if (seqOf[slot] == seq) return;    // duplicate
+            buffered--;                        // stale frame from a previous lap
+        }
+        int n = Math.min(framed.remaining() - AudioFrame.HEADER_BYTES, payload[slot].length);
+        framed.get(framed.position() + AudioFrame.HEADER_BYTES, payload[slot], 0, n);
+        length[slot] = n;
+        seqOf[slot] = seq;
+        present[slot] = true;
+        buffered++;
+        if (!playing && (lowestSeq < 0 || AudioFrame.seqDiff(seq, lowestSeq) < 0)) lowestSeq = seq;
+    }
+
+    /** Copies the next frame's payload into dst; returns its length, TAKE_LOST or TAKE_NOTHING. */
+    public synchronized int take(byte[] dst) {
+        if (!playing) {
+            if (buffered < targetDepth) return TAKE_NOTHING;
+            playing = true;
+            nextSeq = lowestSeq;
+            lowestSeq = -1;
+        }
+        if (buffered == 0) {
+            playing = false;
+            targetDepth = Math.max(MIN_DEPTH, Math.min(MAX_DEPTH, (int) Math.ceil(3 * jitterMs / frameMs) + 1));
+            return TAKE_NOTHING;
+        }
+        if (buffered > Math.max(2 * targetDepth, targetDepth + 3)) {
+            // running too far behind real time: drop the oldest buffered frame
+            int slot = nextSeq & (SLOTS - 1);
+            if (present[slot] && seqOf[slot] == nextSeq) { present[slot] = false; buffered--; skipped++; }
+            nextSeq = (nextSeq + 1) & 0xFFFF;
+        }
+        int seq = nextSeq;
+        int slot = seq & (SLOTS - 1);
+        nextSeq = (nextSeq + 1) & 0xFFFF;
+        if (!present[slot] || seqOf[slot] != seq) {
+            lost++;
+            return TAKE_LOST;
+        }
+        present[slot] = false;
+        buffered--;
+        played++;
+        int n = length[slot];
+        System.arraycopy(payload[slot], 0, dst, 0, n);
+        return n;
+    }
+
+    public synchronized int targetDepth() { return targetDepth; }
+    public synchronized int buffered()    { return buffered; }
+    public synchronized double jitterMs() { return jitterMs; }
+    public synchronized long played()     { return played; }
+    public synchronized long lost()       { return lost; }
+    public synchronized long late()       { return late; }
+    public synchronized long skipped()    { return skipped; }
+
+    private void updateJitter(double transitMs) {
+        if (!Double.isNaN(lastTransitMs)) {
+            double d = Math.abs(transitMs - lastTransitMs);
+            // the capture clock keeps running through VAD silence, so gaps cancel out; a jump
+            // this large means the sender restarted its clock, not network jitter
+            if (d < 1_000) jitterMs += (d - jitterMs) / 16.0;
+        }
+        lastTransitMs = transitMs;
+    }
+
+    private void reset() {
+        Arrays.fill(present, false);
+        buffered = 0;
+        playing = false;
+        lowestSeq = -1;
+    }
+}
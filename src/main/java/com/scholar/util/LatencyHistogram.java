@@ -0,0 +1,87 @@
+package com.scholar.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram — lock-free, fixed-size latency histogram.
+ *
+ * Buckets are log-linear over microseconds: 4 sub-buckets per power of two,
+ * so any reported percentile is within ~25% of the true value while the
+ * whole histogram stays a 168-slot long array. record() is wait-free
+ * (two adds + a CAS loop for max only when a new max is seen).
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 4;
+    private static final int POWERS      = 42;                 // up to 2^41 µs (~25 days)
+    private static final int BUCKETS     = SUB_BUCKETS * POWERS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder  total  = new LongAdder();
+    private final LongAdder  sumNs  = new LongAdder();
+    private final AtomicLong maxNs  = new AtomicLong();
+
+    public record Snapshot(long count, double meanMs, double p50Ms, double p95Ms, double p99Ms, double maxMs) {}
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucket(nanos / 1_000));
+        total.increment();
+        sumNs.add(nanos);
+        long max;
+        while (nanos > (max = maxNs.get()) && !maxNs.compareAndSet(max, nanos)) { /* retry */ }
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    /** Upper bound (ms) of the bucket holding quantile {@code q} (0..1); 0 when empty. */
+    public double percentileMs(double q) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += (snapshot[i] = counts.get(i));
+        return percentileMs(snapshot, n, q);
+    }
+
+    public Snapshot snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += (snapshot[i] = counts.get(i));
+        double mean = n == 0 ? 0 : sumNs.sum() / 1e6 / n;
+        return new Snapshot(n, mean,
+            percentileMs(snapshot, n, 0.50), percentileMs(snapshot, n, 0.95),
+            percentileMs(snapshot, n, 0.99), maxNs.get() / 1e6);
+    }
+
+    private double percentileMs(long[] snapshot, long n, double q) {
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(upperBoundMicros(i) / 1e3, maxNs.get() / 1e6);
+        }
+        return maxNs.get() / 1e6;
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // BUCKET MATH
+    // ──────────────────────────────────────────────────────────────
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) return (int) Math.max(micros, 0);
+        int exp = 63 - Long.numberOfLeadingZeros(micros);            // floor(log2)
+        int sub = (int) (micros >>> (exp - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(exp * SUB_BUCKETS + sub - 4, BUCKETS - 1);
+    }
+
+    static long upperBoundMicros(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket + 1;
+        int b = bucket + 4;
+        int exp = b / SUB_BUCKETS, sub = b % SUB_BUCKETS;
+        return (1L << exp) + ((long) (sub + 1) << (exp - 2));
+    }
+}
@@ -0,0 +1,204 @@
+package com.scholar.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Leaderboard — users ranked by XP, then streak, kept in an indexable skip list.
+ *
+ * Each forward link also stores how many positions it skips, so
+ *   put / remove        O(log n)
+ *   rankOf(userId)      O(log n)  (1-based; 0 if unknown)
+ *   top(n), around()    O(log n + window)
+ * Ties on (xp, streak) are broken by userId so every user has one stable slot.
+ *
+ * Like PollTallies, every put() is stamped from one counter and load() never
+ * overwrites an entry stamped after its query started, so a periodic reconcile
+ * cannot roll back XP that was credited while it ran.
+ */
+public final class Leaderboard {
+
+    public record Entry(String userId, String username, int xp, int streak) {}
+
+    private static final int MAX_LEVEL = 32;
+
+    private static final class Node {
+        final Entry  entry;
+        final long   version;
+        final Node[] next;
+        final int[]  width;     // positions skipped by next[i]
+
+        Node(Entry entry, long version, int levels) {
+            this.entry   = entry;
+            this.version = version;
+            this.next    = new Node[levels];
+            this.width   = new int[levels];
+        }
+    }
+
+    private final Node head = new Node(null, 0, MAX_LEVEL);
+    private final Map<String, Node> byId = new HashMap<>();
+    private final SplittableRandom random = new SplittableRandom(0x5EED);
+    private long version;
+
+    public Leaderboard() {
+        java.util.Arrays.fill(head.width, 1);
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    /** Stamp to pass to load() — read it before running the query. */
+    public synchronized long version() {
+        return version;
+    }
+
+    /** Inserts or moves one user. */
+    public synchronized void put(String userId, String username, int xp, int streak) {
+        Node old = byId.get(userId);
+        if (old != null) {
+            unlink(old);
+            if (username == null) username = old.entry.username();
+        }
+        Node n = new Node(new Entry(userId, username, xp, streak), ++version, randomLevel());
+        link(n);
+        byId.put(userId, n);
+    }
+
+    public synchronized void remove(String userId) {
+        Node old = byId.remove(userId);
+        if (old != null) unlink(old);
+    }
+
+    /** Replaces the board with a full query result, keeping anything newer than `since`. */
+    public synchronized void load(List<Entry> loaded, long since) {
+        Set<String> seen = new HashSet<>(loaded.size() * 2);
+        for (Entry e : loaded) {
+            seen.add(e.userId());
+            Node cur = byId.get(e.userId());
+            if (cur != null) {
+                if (cur.version > since || cur.entry.equals(e)) continue;
+                unlink(cur);
+            }
+            Node n = new Node(e, since, randomLevel());
+            link(n);
+            byId.put(e.userId(), n);
+        }
+        for (Node n : new ArrayList<>(byId.values())) {
+            if (!seen.contains(n.entry.userId()) && n.version <= since) {
+                byId.remove(n.entry.userId());
+                unlink(n);
+            }
+        }
+    }
+
+    public synchronized Entry get(String userId) {
+        Node n = byId.get(userId);
+        return n != null ? n.entry : null;
+    }
+
+    public synchronized int rankOf(String userId) {
+        Node target = byId.get(userId);
+        if (target == null) return 0;
+        Node x = head;
+        int pos = 0;
+        for (int i = MAX_LEVEL - 1; i >= 0; i--) {
+            while (x.next[i] != null && compare(x.next[i].entry, target.entry) <= 0) {
+                pos += x.width[i];
+                x = x.next[i];
+            }
+        }
+        return pos;
+    }
+
+    /** Entries ranked [fromRank, fromRank + count), 1-based. */
+    public synchronized List<Entry> range(int fromRank, int count) {
+        List<Entry> out = new ArrayList<>(Math.max(0, Math.min(count, byId.size())));
+        if (fromRank < 1 || fromRank > byId.size() || count <= 0) return out;
+        Node x = head;
+        int pos = 0;
+        for (int i = MAX_LEVEL - 1; i >= 0; i--) {
+            while (x.next[i] != null && pos + x.width[i] <= fromRank) {
+                pos += x.width[i];
+                x = x.next[i];
+            }
+        }
+        for (; x != null && out.size() < count; x = x.next[0]) out.add(x.entry);
+        return out;
+    }
+
+    public List<Entry> top(int count) {
+        return range(1, count);
+    }
+
+    /** The user and up to `radius` neighbours on each side; empty if unknown. */
+    public synchronized List<Entry> around(String userId, int radius) {
+        int rank = rankOf(userId);
+        if (rank == 0) return new ArrayList<>();
+        int from = Math.max(1, rank - radius);
+        return range(from, rank - from + 1 + radius);
+    }
+
+    // ── skip list ─────────────────────────────────────────────────────────
+
+    /** XP desc, streak desc, userId asc. */
+    private static int compare(Entry a, Entry b) {
+        if (a.xp() != b.xp()) return Integer.compare(b.xp(), a.xp());
+        if (a.streak() != b.streak()) return Integer.compare(b.streak(), a.streak());
+        return a.userId().compareTo(b.userId());
+    }
+
+    private int randomLevel() {
+        int level = 1;
+        while (level < MAX_LEVEL && (random.nextInt() & 3) == 0) level++;   // p = 1/4
+        return level;
+    }
+
+    private void link(Node n) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[]  at     = new int[MAX_LEVEL];
+        Node x = head;
+        int pos = 0;
+        for (int i = MAX_LEVEL - 1; i >= 0; i--) {
+            while (x.next[i] != null && compare(x.next[i].entry, n.entry) < 0) {
+                pos += x.width[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+            at[i] = pos;
+        }
+        int p = at[0] + 1;
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            Node u = update[i];
+            if (i < n.next.length) {
+                n.next[i]  = u.next[i];
+                n.width[i] = at[i] + u.width[i] + 1 - p;
+                u.next[i]  = n;
+                u.width[i] = p - at[i];
+            } else {
+                u.width[i]++;
+            }
+        }
+    }
+
+    private void unlink(Node n) {
+        Node x = head;
+        for (int i = MAX_LEVEL - 1; i >= 0; i--) {
+            while (x.next[i] != null && x.next[i] != n && compare(x.next[i].entry, n.entry) < 0) {
+                x = x.next[i];
+            }
+            if (x.next[i] == n) {
+                x.width[i] += n.width[i] - 1;
+                x.next[i] = n.next[i];
+            } else {
+                x.width[i]--;
+            }
+        }
+    }
+}
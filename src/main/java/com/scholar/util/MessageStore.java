@@ -0,0 +1,118 @@
+package com.scholar.util;
+
+import com.scholar.model.ChatCursor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * MessageStore — append-only client-side copy of one chat stream.
+ *
+ * Controllers keep one per open chat and only ever add bubbles for what
+ * fetchNewer() / appendPushed() report as new, instead of clearing and
+ * rebuilding the whole list every refresh.
+ *
+ * 1. fetchNewer(since) runs the service's since(cursor) query with the
+ *    current cursor (null on first load → latest window). Fetches are
+ *    single-flight per conversation; an overlapping call returns nothing.
+ * 2. The cursor only advances from fetched rows, which come back in
+ *    server (created_at, id) order. Pushed change-feed rows are deduped by
+ *    id but never move it. created_at is the transaction start, so a row
+ *    can commit behind the cursor; the queries re-read ChatCursor.LOOKBACK
+ *    before it and the id dedupe here drops what was already shown. A row
+ *    committing later than that window after its created_at can still be
+ *    missed until the next full reload.
+ * 3. clear() (conversation switch) bumps a generation; a fetch that was
+ *    running for the old conversation is discarded.
+ * 4. At most `capacity` messages are kept; the oldest are evicted.
+ *
+ * Path: src/main/java/com/scholar/util/MessageStore.java
+ */
+public final class MessageStore<T> {
+
+    private final Function<T, String> idOf;
+    private final Function<T, String> createdAtOf;
+    private final int capacity;
+
+    private final ArrayDeque<T> messages = new ArrayDeque<>();
+    private final Set<String>   ids      = new HashSet<>();
+    private ChatCursor cursor;
+    private long       generation;
+    private long       fetchingGeneration = -1;
+
+    public MessageStore(Function<T, String> idOf, Function<T, String> createdAtOf, int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        this.idOf = idOf;
+        this.createdAtOf = createdAtOf;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Loads rows after the cursor and returns the ones not seen before, oldest first.
+     * Blocks on the loader — call it off the FX thread.
+     */
+    public List<T> fetchNewer(Function<ChatCursor, List<T>> since) {
+        ChatCursor after;
+        long gen;
+        synchronized (this) {
+            if (fetchingGeneration == generation) return List.of();
+            gen = fetchingGeneration = generation;
+            after = cursor;
+        }
+        List<T> rows;
+        try {
+            rows = since.apply(after);
+        } catch (RuntimeException e) {
+            synchronized (this) { if (fetchingGeneration == gen) fetchingGeneration = -1; }
+            throw e;
+        }
+        synchronized (this) {
+            if (fetchingGeneration == gen) fetchingGeneration = -1;
+            if (gen != generation || rows == null || rows.isEmpty()) return List.of();
+            T last = rows.get(rows.size() - 1);
+            cursor = new ChatCursor(createdAtOf.apply(last), idOf.apply(last));
+            List<T> fresh = new ArrayList<>(rows.size());
+            for (T row : rows) {
+                if (add(row)) fresh.add(row);
+            }
+            return fresh;
+        }
+    }
+
+    /** A row from the change feed; true when it was not in the store yet. */
+    public synchronized boolean appendPushed(T row) {
+        return add(row);
+    }
+
+    public synchronized ChatCursor cursor() {
+        return cursor;
+    }
+
+    public synchronized List<T> messages() {
+        return new ArrayList<>(messages);
+    }
+
+    public synchronized int size() {
+        return messages.size();
+    }
+
+    /** Forget everything — next fetchNewer() loads the latest window again. */
+    public synchronized void clear() {
+        messages.clear();
+        ids.clear();
+        cursor = null;
+        generation++;
+    }
+
+    private boolean add(T row) {
+        String id = idOf.apply(row);
+        if (id == null || !ids.add(id)) return false;
+        messages.addLast(row);
+        if (messages.size() > capacity) ids.remove(idOf.apply(messages.removeFirst()));
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package com.scholar.util;
+
+/**
+ * MuLawCodec — G.711 μ-law, 8 bits per sample (2:1 against 16-bit PCM).
+ *
+ * Stateless: encode computes the segment from the sample's leading bit,
+ * decode is a 256-entry table lookup.
+ */
+public final class MuLawCodec implements VoiceCodec {
+
+    private static final int BIAS = 0x84;
+    private static final int CLIP = 32_635;
+
+    private static final short[] DECODE = new short[256];
+    static {
+        for (int i = 0; i < 256; i++) {
+            int u = ~i & 0xFF;
+            int t = ((u & 0x0F) << 3) + BIAS;
+            t <<= (u & 0x70) >> 4;
+            DECODE[i] = (short) ((u & 0x80) != 0 ? BIAS - t : t - BIAS);
+        }
+    }
+
+    @Override public Format format() { return Format.ULAW; }
+    @Override public int maxEncodedBytes(int pcmBytes) { return pcmBytes / 2; }
+
+    @Override
+    public int encode(byte[] pcm, int off, int len, byte[] dst, int dstOff) {
+        int samples = len / 2;
+        for (int i = 0, j = off; i < samples; i++, j += 2) {
+            dst[dstOff + i] = encodeSample((short) ((pcm[j] << 8) | (pcm[j + 1] & 0xFF)));
+        }
+        return samples;
+    }
+
+    @Override
+    public int decode(byte[] src, int off, int len, byte[] pcm, int pcmOff) {
+        for (int i = 0, j = pcmOff; i < len; i++, j += 2) {
+            short s = DECODE[src[off + i] & 0xFF];
+            pcm[j]     = (byte) (s >> 8);
+            pcm[j + 1] = (byte) s;
+        }
+        return len * 2;
+    }
+
+    static byte encodeSample(int sample) {
+        int sign = (sample >> 8) & 0x80;
+        if (sign != 0) sample = -sample;
+        if (sample > CLIP) sample = CLIP;
+        sample += BIAS;
+        int exponent = 7;
+        for (int mask = 0x4000; (sample & mask) == 0 && exponent > 0; mask >>= 1) exponent--;
+        int mantissa = (sample >> (exponent + 3)) & 0x0F;
+        return (byte) ~(sign | (exponent << 4) | mantissa);
+    }
+}
@@ -0,0 +1,103 @@
+package com.scholar.util;
+
+import com.scholar.model.Poll;
+import com.scholar.model.PollOption;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PollTallies — in-memory vote counts for the channel's polls.
+ *
+ * 1. load() takes the result of one getChannelPolls() query.
+ * 2. apply() takes a single option's absolute count, from castVote()'s
+ *    RETURNING or a "polls:<channel>" change-feed event (db/009).
+ * 3. overlay() returns a Poll with the current counts and my vote, so an
+ *    open poll list re-renders without another query.
+ *
+ * Counts carry the option's vote_version (db/014) and only a higher
+ * version replaces the one held, so neither a slow query nor a RETURNING
+ * that arrives after a newer event can roll a live tally back. My own
+ * vote is stamped from a local counter; load() never overwrites one
+ * stamped after its query started.
+ */
+public final class PollTallies {
+
+    private record Tally(int votes, long version) {}
+    private record MyVote(String optionId, long version) {}
+
+    private final Map<String, Map<String, Tally>> polls   = new ConcurrentHashMap<>();  // poll → option → tally
+    private final Map<String, MyVote>             myVotes = new ConcurrentHashMap<>();
+    private final AtomicLong                      version = new AtomicLong();
+
+    /** Stamp to pass to load() for my votes — read it before running the query. */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Replaces the tallies with a fresh query result; `versions` maps option id to
+     * its vote_version. Counts with a higher version and my votes stamped after
+     * `since` are kept.
+     */
+    public void load(List<Poll> loaded, Map<String, Long> versions, long since) {
+        Set<String> pollIds = new HashSet<>();
+        for (Poll p : loaded) {
+            pollIds.add(p.id());
+            Map<String, Tally> options = polls.computeIfAbsent(p.id(), k -> new ConcurrentHashMap<>());
+            Set<String> optionIds = new HashSet<>();
+            String mine = null;
+            for (PollOption o : p.options()) {
+                optionIds.add(o.id());
+                options.merge(o.id(), new Tally(o.voteCount(), versions.getOrDefault(o.id(), 0L)),
+                        (cur, fresh) -> cur.version() > fresh.version() ? cur : fresh);
+                if (o.votedByMe()) mine = o.id();
+            }
+            options.keySet().retainAll(optionIds);
+
+            MyVote cur = myVotes.get(p.id());
+            if (cur == null || cur.version() <= since) {
+                if (mine != null) myVotes.put(p.id(), new MyVote(mine, since));
+                else myVotes.remove(p.id());
+            }
+        }
+        polls.keySet().retainAll(pollIds);
+        myVotes.keySet().retainAll(pollIds);
+    }
+
+    /**
+     * Sets one option's count unless a higher vote_version is already held;
+     * false if that option is not loaded (caller re-fetches).
+     */
+    public boolean apply(String pollId, String optionId, int votes, long voteVersion) {
+        Map<String, Tally> options = polls.get(pollId);
+        if (options == null) return false;
+        return options.computeIfPresent(optionId,
+                (id, cur) -> voteVersion > cur.version() ? new Tally(votes, voteVersion) : cur) != null;
+    }
+
+    public void voted(String pollId, String optionId) {
+        myVotes.put(pollId, new MyVote(optionId, version.incrementAndGet()));
+    }
+
+    /** p with the current counts, total and my vote; unknown polls pass through unchanged. */
+    public Poll overlay(Poll p) {
+        Map<String, Tally> options = polls.get(p.id());
+        if (options == null) return p;
+        MyVote mine = myVotes.get(p.id());
+        List<PollOption> out = new ArrayList<>(p.options().size());
+        int total = 0;
+        for (PollOption o : p.options()) {
+            Tally t = options.get(o.id());
+            int votes = t != null ? t.votes() : o.voteCount();
+            total += votes;
+            out.add(new PollOption(o.id(), o.text(), votes, mine != null && o.id().equals(mine.optionId())));
+        }
+        return new Poll(p.id(), p.question(), p.creatorName(), out, total);
+    }
+}
@@ -0,0 +1,57 @@
+package com.scholar.util;
+
+import java.util.Arrays;
+
+/**
+ * RollingLatency — latency percentiles and error rate over the last
+ * `window` calls to one dependency.
+ *
+ * LatencyHistogram keeps everything since startup; routing decisions need
+ * the recent picture, so this keeps a ring of the last `window` outcomes
+ * (a latency, or a failure) and computes p50 / p95 over the successful ones
+ * by sorting a copy. Windows are small (tens to hundreds), so that is cheap.
+ */
+public final class RollingLatency {
+
+    public record Snapshot(int samples, double p50Ms, double p95Ms, double errorRate) {}
+
+    private static final long FAILED = -1;
+
+    private final long[] ring;          // nanos, or FAILED
+    private int next;
+    private int size;
+
+    public RollingLatency(int window) {
+        this.ring = new long[window];
+    }
+
+    public synchronized void record(long nanos) {
+        add(Math.max(nanos, 0));
+    }
+
+    public synchronized void recordFailure() {
+        add(FAILED);
+    }
+
+    /** samples = outcomes in the window; percentiles are 0 when none succeeded. */
+    public synchronized Snapshot snapshot() {
+        long[] ok = new long[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) if (ring[i] != FAILED) ok[n++] = ring[i];
+        Arrays.sort(ok, 0, n);
+        double errorRate = size == 0 ? 0 : (double) (size - n) / size;
+        return new Snapshot(size, percentileMs(ok, n, 0.50), percentileMs(ok, n, 0.95), errorRate);
+    }
+
+    private void add(long value) {
+        ring[next] = value;
+        next = (next + 1) % ring.length;
+        if (size < ring.length) size++;
+    }
+
+    private static double percentileMs(long[] sorted, int n, double q) {
+        if (n == 0) return 0;
+        int rank = Math.max(1, (int) Math.ceil(q * n));
+        return sorted[rank - 1] / 1e6;
+    }
+}
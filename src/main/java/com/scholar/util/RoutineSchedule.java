@@ -0,0 +1,113 @@
+package com.scholar.util;
+
+import com.scholar.model.ClassOffPeriod;
+import com.scholar.model.RecurringClass;
+import com.scholar.model.StudyTask;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RoutineSchedule — the channel's weekly routine, expanded on demand.
+ *
+ * Routines are stored as RecurringClass rules (routine_rules); the timeline
+ * and calendar ask for the ROUTINE tasks of the days they show, and get
+ * nothing on a class-off day. Occurrence ids are "routine:<ruleId>:<date>"
+ * so DataService can route edits / deletes back to the rule.
+ *
+ * Each weekday's rules are kept in start-time order, so occurrencesOn()
+ * can be merged straight into TaskStore's day list; class-off periods sit
+ * in a ClassOffIndex.
+ */
+public final class RoutineSchedule {
+
+    public static final String OCCURRENCE_PREFIX = "routine:";
+
+    private record State(Map<DayOfWeek, List<RecurringClass>> byDay, ClassOffIndex classOff) {}
+
+    private volatile State state = new State(new EnumMap<>(DayOfWeek.class), ClassOffIndex.EMPTY);
+
+    /** Replaces rules and class-off periods (both from one load). */
+    public void load(List<RecurringClass> rules, List<ClassOffPeriod> classOff) {
+        Map<DayOfWeek, List<RecurringClass>> byDay = new EnumMap<>(DayOfWeek.class);
+        for (RecurringClass r : rules) {
+            DayOfWeek d = r.day();
+            if (d != null && r.startDate() != null && r.endDate() != null) {
+                byDay.computeIfAbsent(d, k -> new ArrayList<>()).add(r);
+            }
+        }
+        for (List<RecurringClass> day : byDay.values()) {
+            day.sort(Comparator.comparingInt(r -> TaskStore.startMinutes(r.startTime())));
+        }
+        state = new State(byDay, new ClassOffIndex(classOff));
+    }
+
+    public ClassOffPeriod classOffOn(LocalDate date) {
+        return state.classOff().at(date);
+    }
+
+    /** Class-off period (or null) for each of `count` days from `from`. */
+    public ClassOffPeriod[] classOffDays(LocalDate from, int count) {
+        return state.classOff().days(from, count);
+    }
+
+    /** ROUTINE tasks on `date` by start time; none on a class-off day. */
+    public List<StudyTask> occurrencesOn(LocalDate date) {
+        List<StudyTask> out = new ArrayList<>();
+        if (date == null) return out;
+        State s = state;
+        List<RecurringClass> rules = s.byDay().get(date.getDayOfWeek());
+        if (rules == null || s.classOff().at(date) != null) return out;
+        for (RecurringClass r : rules) {
+            if (r.occursOn(date)) out.add(occurrence(r, date));
+        }
+        return out;
+    }
+
+    public boolean hasOccurrences(LocalDate date) {
+        State s = state;
+        List<RecurringClass> rules = s.byDay().get(date.getDayOfWeek());
+        if (rules == null || !occursOn(rules, date)) return false;
+        return s.classOff().at(date) == null;
+    }
+
+    /** hasOccurrences() for a caller that already knows `date` is not a class-off day. */
+    public boolean hasClassesOn(LocalDate date) {
+        List<RecurringClass> rules = state.byDay().get(date.getDayOfWeek());
+        return rules != null && occursOn(rules, date);
+    }
+
+    private static boolean occursOn(List<RecurringClass> rules, LocalDate date) {
+        for (RecurringClass r : rules) if (r.occursOn(date)) return true;
+        return false;
+    }
+
+    /** The ROUTINE task for one day — same shape the old 120-day expansion stored. */
+    public static StudyTask occurrence(RecurringClass r, LocalDate date) {
+        return new StudyTask(
+            OCCURRENCE_PREFIX + r.id() + ":" + date, r.courseName(), date.toString(), r.startTime(),
+            r.durationMinutes(), r.roomNumber(), "ROUTINE",
+            r.description(), "admin", null, null,
+            null, null);
+    }
+
+    public static boolean isOccurrenceId(String taskId) {
+        return taskId != null && taskId.startsWith(OCCURRENCE_PREFIX);
+    }
+
+    /** Rule id of an occurrence id. */
+    public static String ruleId(String occurrenceId) {
+        int end = occurrenceId.lastIndexOf(':');
+        return occurrenceId.substring(OCCURRENCE_PREFIX.length(), end);
+    }
+
+    /** Date of an occurrence id. */
+    public static LocalDate occurrenceDate(String occurrenceId) {
+        return LocalDate.parse(occurrenceId.substring(occurrenceId.lastIndexOf(':') + 1));
+    }
+}
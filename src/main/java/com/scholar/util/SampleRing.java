@@ -0,0 +1,67 @@
+package com.scholar.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * SampleRing — per-speaker PCM buffer that re-times arbitrary-sized network
+ * frames onto the mixer's fixed 20 ms clock.
+ *
+ * write() appends big-endian samples from any thread (oldest samples are
+ * overwritten when full); read() hands out exactly one mixer frame. A
+ * speaker starts contributing once two frames are buffered (pre-roll
+ * absorbs arrival jitter) and goes quiet again on underrun until it has
+ * refilled, so a late packet costs one silent frame instead of a click
+ * every tick. No allocation after construction.
+ */
+public final class SampleRing {
+
+    private final short[] buf;
+    private int  head;
+    private int  size;
+    private boolean primed;
+    private long overrunSamples;
+
+    public SampleRing(int capacitySamples) {
+        this.buf = new short[capacitySamples];
+    }
+
+    public synchronized void write(ByteBuffer bigEndianPcm) {
+        while (bigEndianPcm.remaining() >= 2) {
+            short s = bigEndianPcm.getShort();
+            if (size == buf.length) {
+                head = (head + 1) % buf.length;
+                size--;
+                overrunSamples++;
+            }
+            buf[(head + size) % buf.length] = s;
+            size++;
+        }
+    }
+
+    /** Fills dst completely and returns true, or returns false (silence) while priming / on underrun. */
+    public synchronized boolean read(short[] dst) {
+        int n = dst.length;
+        if (!primed) {
+            if (size < 2 * n) return false;
+            primed = true;
+        }
+        if (size < n) {
+            primed = false;
+            return false;
+        }
+        int first = Math.min(n, buf.length - head);
+        System.arraycopy(buf, head, dst, 0, first);
+        System.arraycopy(buf, 0, dst, first, n - first);
+        head = (head + n) % buf.length;
+        size -= n;
+        return true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long overrunSamples() {
+        return overrunSamples;
+    }
+}
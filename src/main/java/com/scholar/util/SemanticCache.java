@@ -0,0 +1,195 @@
+package com.scholar.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * SemanticCache — values keyed by an embedding, found again by cosine similarity.
+ *
+ * 1. Entries live in a scope (an exact-match string such as course + context
+ *    fingerprint); get() returns the most similar entry in that scope when
+ *    its cosine similarity is at least `threshold`. Scopes are small, so a
+ *    linear dot-product scan over pre-normalised vectors is enough.
+ * 2. Each entry lists the ids it was built from; invalidate(ids) drops
+ *    every entry citing one of them. put() takes the stamp() read before the
+ *    value was built and refuses it if a cited id was invalidated meanwhile.
+ * 3. At most `capacity` entries (least recently used evicted first), each
+ *    for at most `ttlMs`.
+ */
+public final class SemanticCache<V> {
+
+    public record Stats(long hits, long misses, double hitRate, long stores, long invalidated,
+                        long evicted, long expired, int size) {}
+
+    private static final class Entry<V> {
+        final long id;
+        final String scope;
+        final float[] unit;
+        final V value;
+        final Set<Integer> cited;
+        final long storedAt;
+
+        Entry(long id, String scope, float[] unit, V value, Set<Integer> cited, long storedAt) {
+            this.id = id; this.scope = scope; this.unit = unit;
+            this.value = value; this.cited = cited; this.storedAt = storedAt;
+        }
+    }
+
+    private final int capacity;
+    private final long ttlMs;
+    private final double threshold;
+    private final LongSupplier clock;
+
+    private final LinkedHashMap<Long, Entry<V>> lru = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, List<Entry<V>>> byScope = new HashMap<>();
+    private final Map<Integer, Set<Long>> byCited = new HashMap<>();
+    private final Map<Integer, Long> invalidatedAt = new HashMap<>();   // id → stamp of last invalidation
+    private long nextId;
+    private long stamp;
+    private long hits, misses, stores, invalidated, evicted, expired;
+
+    public SemanticCache(int capacity, long ttlMs, double threshold) {
+        this(capacity, ttlMs, threshold, System::currentTimeMillis);
+    }
+
+    public SemanticCache(int capacity, long ttlMs, double threshold, LongSupplier clock) {
+        this.capacity = capacity;
+        this.ttlMs = ttlMs;
+        this.threshold = threshold;
+        this.clock = clock;
+    }
+
+    /** Read before building a value; pass to put(). */
+    public synchronized long stamp() {
+        return stamp;
+    }
+
+    /** The most similar live value in `scope`, or null. */
+    public synchronized V get(String scope, float[] vector) {
+        List<Entry<V>> entries = byScope.get(scope);
+        float[] unit = entries != null ? normalise(vector) : null;
+        Entry<V> best = null;
+        double bestSim = threshold;
+        if (unit != null) {
+            long now = clock.getAsLong();
+            for (Entry<V> e : new ArrayList<>(entries)) {
+                if (now - e.storedAt > ttlMs) { drop(e); expired++; continue; }
+                double sim = dot(unit, e.unit);
+                if (sim >= bestSim) { best = e; bestSim = sim; }
+            }
+        }
+        if (best == null) { misses++; return null; }
+        lru.get(best.id);                                // touch
+        hits++;
+        return best.value;
+    }
+
+    /**
+     * Stores a value built from `cited` ids. Returns false (nothing stored)
+     * if one of them was invalidated after `since` or the vector is zero.
+     */
+    public synchronized boolean put(String scope, float[] vector, V value, Collection<Integer> cited, long since) {
+        for (Integer id : cited) {
+            Long at = invalidatedAt.get(id);
+            if (at != null && at > since) return false;
+        }
+        float[] unit = normalise(vector);
+        if (unit == null) return false;
+
+        Entry<V> e = new Entry<>(nextId++, scope, unit, value, Set.copyOf(cited), clock.getAsLong());
+        lru.put(e.id, e);
+        byScope.computeIfAbsent(scope, k -> new ArrayList<>()).add(e);
+        for (Integer id : e.cited) byCited.computeIfAbsent(id, k -> new HashSet<>()).add(e.id);
+        stores++;
+
+        Iterator<Entry<V>> oldest = lru.values().iterator();
+        while (lru.size() > capacity) {
+            Entry<V> victim = oldest.next();
+            oldest.remove();
+            unindex(victim);
+            evicted++;
+        }
+        return true;
+    }
+
+    /** Drops every entry citing one of `ids`; returns how many. */
+    public synchronized int invalidate(Collection<Integer> ids) {
+        stamp++;
+        int n = 0;
+        for (Integer id : ids) {
+            invalidatedAt.put(id, stamp);
+            Set<Long> entryIds = byCited.get(id);
+            if (entryIds == null) continue;
+            for (Long entryId : new ArrayList<>(entryIds)) {
+                Entry<V> e = lru.get(entryId);
+                if (e != null) { drop(e); n++; }
+            }
+        }
+        invalidated += n;
+        return n;
+    }
+
+    public synchronized void clear() {
+        lru.clear();
+        byScope.clear();
+        byCited.clear();
+    }
+
+    public synchronized int size() {
+        return lru.size();
+    }
+
+    public synchronized Stats stats() {
+        long lookups = hits + misses;
+        return new Stats(hits, misses, lookups == 0 ? 0 : (double) hits / lookups,
+                         stores, invalidated, evicted, expired, lru.size());
+    }
+
+    // ── helpers ───────────────────────────────────────────────────────────
+
+    private void drop(Entry<V> e) {
+        lru.remove(e.id);
+        unindex(e);
+    }
+
+    private void unindex(Entry<V> e) {
+        List<Entry<V>> scoped = byScope.get(e.scope);
+        if (scoped != null) {
+            scoped.remove(e);
+            if (scoped.isEmpty()) byScope.remove(e.scope);
+        }
+        for (Integer id : e.cited) {
+            Set<Long> s = byCited.get(id);
+            if (s != null) {
+                s.remove(e.id);
+                if (s.isEmpty()) byCited.remove(id);
+            }
+        }
+    }
+
+    /** Unit-length copy, or null for a zero / mismatched vector. */
+    private static float[] normalise(float[] v) {
+        double norm = 0;
+        for (float x : v) norm += x * x;
+        if (norm == 0) return null;
+        float inv = (float) (1 / Math.sqrt(norm));
+        float[] out = new float[v.length];
+        for (int i = 0; i < v.length; i++) out[i] = v[i] * inv;
+        return out;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) return -1;
+        double s = 0;
+        for (int i = 0; i < a.length; i++) s += a[i] * b[i];
+        return s;
+    }
+}
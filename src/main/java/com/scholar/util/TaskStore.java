@@ -0,0 +1,161 @@
+package com.scholar.util;
+
+import com.scholar.model.StudyTask;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * TaskStore — the dashboard's stored tasks, indexed for the views that show them.
+ *
+ * 1. Every task is kept in a per-day bucket (its date parsed once to a
+ *    LocalDate) and a per-(type, status) bucket, so the daily timeline and a
+ *    calendar cell cost one map lookup plus the tasks of that day, and the
+ *    Backlog / Completed views only walk their own tasks.
+ * 2. Start times ("hh:mm a") are parsed to minutes-of-day once when a task is
+ *    added; buckets stay ordered by them (Anytime first, unreadable last,
+ *    then insertion order), so no view sorts or re-parses.
+ * 3. Tasks are keyed by id (by the record itself while unsaved); replace()
+ *    is remove + add.
+ *
+ * Not thread-safe — the controllers only touch it on the FX thread.
+ *
+ * Path: src/main/java/com/scholar/util/TaskStore.java
+ */
+public final class TaskStore {
+
+    public static final int ANYTIME  = -1;
+    public static final int UNTIMED  = Integer.MAX_VALUE;     // start time we could not read
+
+    private static final DateTimeFormatter TIME = new DateTimeFormatterBuilder()
+        .parseCaseInsensitive().appendPattern("h:mm a").toFormatter(Locale.ENGLISH);
+
+    private record Entry(StudyTask task, LocalDate date, int minutes, long seq) {}
+
+    private static final Comparator<Entry> BY_START =
+        Comparator.comparingInt(Entry::minutes).thenComparingLong(Entry::seq);
+
+    private final Map<Object, Entry> byKey = new HashMap<>();
+    private final Map<LocalDate, TreeSet<Entry>> byDate = new HashMap<>();
+    private final Map<String, TreeSet<Entry>> byTypeStatus = new HashMap<>();
+    private long seq;
+
+    public int size() {
+        return byKey.size();
+    }
+
+    /** Replaces everything with a fresh load. */
+    public void load(Collection<StudyTask> tasks) {
+        byKey.clear();
+        byDate.clear();
+        byTypeStatus.clear();
+        addAll(tasks);
+    }
+
+    public void addAll(Collection<StudyTask> tasks) {
+        for (StudyTask t : tasks) add(t);
+    }
+
+    /** Adds a task, replacing any stored task with the same id. */
+    public void add(StudyTask task) {
+        remove(task);
+        Entry e = new Entry(task, parseDate(task.date()), startMinutes(task.startTime()), ++seq);
+        byKey.put(key(task), e);
+        if (e.date() != null) byDate.computeIfAbsent(e.date(), d -> new TreeSet<>(BY_START)).add(e);
+        byTypeStatus.computeIfAbsent(typeStatus(task.type(), task.status()), k -> new TreeSet<>(BY_START)).add(e);
+    }
+
+    public boolean remove(StudyTask task) {
+        Entry e = byKey.remove(key(task));
+        if (e == null) return false;
+        if (e.date() != null) drop(byDate, e.date(), e);
+        drop(byTypeStatus, typeStatus(e.task().type(), e.task().status()), e);
+        return true;
+    }
+
+    public void replace(StudyTask old, StudyTask updated) {
+        remove(old);
+        add(updated);
+    }
+
+    /** Tasks dated `date`, by start time. */
+    public List<StudyTask> onDate(LocalDate date) {
+        return tasks(byDate.get(date));
+    }
+
+    public boolean hasTasksOn(LocalDate date) {
+        return byDate.containsKey(date);
+    }
+
+    /** Tasks of one type and status (e.g. PERSONAL / BACKLOG), by start time. */
+    public List<StudyTask> withTypeAndStatus(String type, String status) {
+        return tasks(byTypeStatus.get(typeStatus(type, status)));
+    }
+
+    // ── start times ───────────────────────────────────────────────────────
+
+    /** Minutes after midnight; ANYTIME for "Anytime"/blank, UNTIMED if unreadable. */
+    public static int startMinutes(String startTime) {
+        if (startTime == null || startTime.isBlank() || "Anytime".equalsIgnoreCase(startTime.trim())) return ANYTIME;
+        try {
+            return LocalTime.parse(startTime.trim(), TIME).toSecondOfDay() / 60;
+        } catch (RuntimeException e) {
+            return UNTIMED;
+        }
+    }
+
+    /** Merges two lists already ordered by start time (a's tasks first on ties). */
+    public static List<StudyTask> mergeByStart(List<StudyTask> a, List<StudyTask> b) {
+        if (b.isEmpty()) return a;
+        if (a.isEmpty()) return b;
+        List<StudyTask> out = new ArrayList<>(a.size() + b.size());
+        int i = 0, j = 0;
+        int ma = startMinutes(a.get(0).startTime()), mb = startMinutes(b.get(0).startTime());
+        while (i < a.size() && j < b.size()) {
+            if (ma <= mb) { out.add(a.get(i++)); if (i < a.size()) ma = startMinutes(a.get(i).startTime()); }
+            else          { out.add(b.get(j++)); if (j < b.size()) mb = startMinutes(b.get(j).startTime()); }
+        }
+        while (i < a.size()) out.add(a.get(i++));
+        while (j < b.size()) out.add(b.get(j++));
+        return out;
+    }
+
+    // ── helpers ───────────────────────────────────────────────────────────
+
+    private static Object key(StudyTask task) {
+        return task.id() != null ? task.id() : task;
+    }
+
+    private static String typeStatus(String type, String status) {
+        return type + "\u0000" + status;
+    }
+
+    private static LocalDate parseDate(String date) {
+        if (date == null) return null;
+        try { return LocalDate.parse(date); }
+        catch (RuntimeException e) { return null; }
+    }
+
+    private static <K> void drop(Map<K, TreeSet<Entry>> index, K key, Entry e) {
+        TreeSet<Entry> bucket = index.get(key);
+        if (bucket == null) return;
+        bucket.remove(e);
+        if (bucket.isEmpty()) index.remove(key);
+    }
+
+    private static List<StudyTask> tasks(TreeSet<Entry> bucket) {
+        List<StudyTask> out = new ArrayList<>(bucket != null ? bucket.size() : 0);
+        if (bucket != null) for (Entry e : bucket) out.add(e.task());
+        return out;
+    }
+}
@@ -0,0 +1,231 @@
+package com.scholar.util;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * VectorCodec — allocation-light helpers for embedding vectors.
+ *
+ * 1. readEmbeddings() streams an OpenAI-compatible /embeddings response and
+ *    writes every "embedding" array, at its item's "index", straight into
+ *    caller-owned float[] buffers (no JSONObject tree, no boxed Doubles,
+ *    no 30 KB response String).
+ * 2. toVectorString() is the legacy pgvector text literal, kept for the
+ *    few text-only call sites and for before/after benchmarks.
+ *
+ * Path: src/main/java/com/scholar/util/VectorCodec.java
+ */
+public final class VectorCodec {
+
+    private static final char[] EMBEDDING_KEY = "embedding".toCharArray();
+    private static final char[] INDEX_KEY     = "index".toCharArray();
+
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private VectorCodec() {}
+
+    /** Single-vector convenience — returns the number of values in the array. */
+    public static int readEmbedding(Reader in, float[] out) throws IOException {
+        int[] lengths = new int[1];
+        readEmbeddings(in, new float[][]{out}, lengths);
+        return lengths[0];
+    }
+
+    /**
+     * Parses every data[] item's "embedding": [..] array into {@code out[index]},
+     * using the item's "index" field (before or after the array), so a provider
+     * that returns items out of order cannot swap vectors between inputs.
+     *
+     * @param lengths receives the number of values in each array (may exceed out[i].length)
+     * @return number of embedding arrays found (capped at out.length)
+     * @throws IOException if an item has no index, or a duplicate / out-of-range one
+     */
+    public static int readEmbeddings(Reader in, float[][] out, int[] lengths) throws IOException {
+        Cursor c = new Cursor(in);
+        boolean[] filled = new boolean[out.length];
+        int found = 0, depth = 0;
+        int itemDepth = -1, index = -1;                 // the data[] item being read
+        float[] early = null;                           // its embedding, when that came before its index
+        int earlyLength = -1;
+        int ch;
+        while (found < out.length && (ch = c.read()) >= 0) {
+            if (ch == '{') { depth++; continue; }
+            if (ch == '}') {
+                if (depth == itemDepth) {
+                    if (earlyLength >= 0) throw new IOException("embedding without an index");
+                    itemDepth = index = -1;
+                }
+                depth--;
+                continue;
+            }
+            if (ch != '"') continue;
+            int key = matchKey(c);
+            if (key == KEY_NONE) continue;
+
+            ch = c.skipWhitespace();
+            if (ch != ':') continue;
+            ch = c.skipWhitespace();
+            itemDepth = depth;
+
+            if (key == KEY_INDEX) {
+                if (ch < '0' || ch > '9') throw new IOException("embedding index is not a number");
+                index = (int) readNumber(c, ch);
+                if (index >= out.length) throw new IOException("embedding index " + index + " out of range");
+                if (filled[index]) throw new IOException("duplicate embedding index " + index);
+                if (earlyLength >= 0) {
+                    System.arraycopy(early, 0, out[index], 0, Math.min(earlyLength, out[index].length));
+                    lengths[index] = earlyLength;
+                    filled[index] = true;
+                    found++;
+                    earlyLength = -1;
+                }
+            } else if (ch == '[') {
+                if (index >= 0) {
+                    lengths[index] = readFloatArray(c, out[index]);
+                    filled[index] = true;
+                    found++;
+                } else {
+                    if (early == null) early = new float[out[0].length];
+                    earlyLength = readFloatArray(c, early);
+                }
+            }
+        }
+        return found;
+    }
+
+    /** Legacy pgvector text literal: '[0.1,0.2,...]'. */
+    public static String toVectorString(float[] vector) {
+        StringBuilder sb = new StringBuilder(vector.length * 12 + 2).append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(vector[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // PRIVATE: SCANNER
+    // ──────────────────────────────────────────────────────────────
+
+    private static final int KEY_NONE = 0, KEY_EMBEDDING = 1, KEY_INDEX = 2;
+
+    /** Consumes a JSON string (opening quote already read); which of "embedding" / "index" it is. */
+    private static int matchKey(Cursor c) throws IOException {
+        int i = 0;
+        boolean embedding = true, index = true;
+        int ch;
+        while ((ch = c.next()) >= 0) {
+            if (ch == '"') {
+                if (embedding && i == EMBEDDING_KEY.length) return KEY_EMBEDDING;
+                if (index && i == INDEX_KEY.length) return KEY_INDEX;
+                return KEY_NONE;
+            }
+            if (ch == '\\') { c.next(); embedding = index = false; continue; }
+            if (i >= EMBEDDING_KEY.length || EMBEDDING_KEY[i] != ch) embedding = false;
+            if (i >= INDEX_KEY.length || INDEX_KEY[i] != ch) index = false;
+            i++;
+        }
+        return KEY_NONE;
+    }
+
+    /**
+     * Parses numbers until ']' into out; values beyond out.length are skipped
+     * but still counted, so callers can detect a dimension mismatch.
+     */
+    private static int readFloatArray(Cursor c, float[] out) throws IOException {
+        int n = 0;
+        while (true) {
+            int ch = c.skipWhitespace();
+            if (ch < 0 || ch == ']') return n;
+            if (ch == ',') continue;
+            float v = readNumber(c, ch);
+            if (n < out.length) out[n] = v;
+            n++;
+            if (c.last == ']') { c.last = -1; return n; }
+        }
+    }
+
+    /**
+     * Decimal parser for JSON numbers: up to 18 significant digits in a long,
+     * scaled by an exact power of ten. Plenty for float32 embeddings.
+     */
+    private static float readNumber(Cursor c, int first) throws IOException {
+        boolean negative = false;
+        int ch = first;
+        if (ch == '-') { negative = true; ch = c.next(); }
+
+        long mantissa = 0;
+        int digits = 0, exponent = 0;
+        while (ch >= '0' && ch <= '9') {
+            if (digits < 18) { mantissa = mantissa * 10 + (ch - '0'); if (mantissa != 0) digits++; }
+            else exponent++;
+            ch = c.next();
+        }
+        if (ch == '.') {
+            ch = c.next();
+            while (ch >= '0' && ch <= '9') {
+                if (digits < 18) { mantissa = mantissa * 10 + (ch - '0'); exponent--; if (mantissa != 0) digits++; }
+                ch = c.next();
+            }
+        }
+        if (ch == 'e' || ch == 'E') {
+            ch = c.next();
+            boolean expNegative = false;
+            if (ch == '+' || ch == '-') { expNegative = ch == '-'; ch = c.next(); }
+            int e = 0;
+            while (ch >= '0' && ch <= '9') { e = e * 10 + (ch - '0'); ch = c.next(); }
+            exponent += expNegative ? -e : e;
+        }
+        c.last = ch;
+
+        double value = mantissa;
+        if (exponent < 0) {
+            value = -exponent < POW10.length ? value / POW10[-exponent] : value * Math.pow(10, exponent);
+        } else if (exponent > 0) {
+            value = exponent < POW10.length ? value * POW10[exponent] : value * Math.pow(10, exponent);
+        }
+        return (float) (negative ? -value : value);
+    }
+
+    /** Buffered char cursor over a Reader; {@code last} holds the char that ended a number. */
+    private static final class Cursor {
+        private final Reader in;
+        private final char[] buf = new char[8192];
+        private int pos, lim;
+        int last = -1;
+
+        Cursor(Reader in) { this.in = in; }
+
+        int next() throws IOException {
+            if (pos == lim) {
+                lim = in.read(buf, 0, buf.length);
+                pos = 0;
+                if (lim <= 0) { lim = 0; return -1; }
+            }
+            return buf[pos++];
+        }
+
+        /** The pending {@code last} char if any, else the next one. */
+        int read() throws IOException {
+            if (last < 0) return next();
+            int ch = last;
+            last = -1;
+            return ch;
+        }
+
+        int skipWhitespace() throws IOException {
+            int ch;
+            if (last >= 0) {
+                ch = last;
+                last = -1;
+            } else {
+                ch = next();
+            }
+            while (ch == ' ' || ch == '\n' || ch == '\r' || ch == '\t') ch = next();
+            return ch;
+        }
+    }
+}
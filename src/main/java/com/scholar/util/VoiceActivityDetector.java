@@ -0,0 +1,68 @@
+package com.scholar.util;
+
+/**
+ * VoiceActivityDetector — energy gate for outgoing mic frames.
+ *
+ * A frame counts as speech when its mean-square energy exceeds both an
+ * absolute floor and SPEECH_RATIO × the tracked noise floor. The noise
+ * floor follows quiet frames down immediately and rises slowly (very
+ * slowly during loud frames), so a fan or room hum raises it but a talker
+ * does not. After speech ends the gate stays open for `hangoverFrames`
+ * so word endings are not clipped.
+ *
+ * isSpeech() returns the gate decision; startedTalkspurt() is true for
+ * the first open frame after silence (sets the MARKER flag).
+ */
+public final class VoiceActivityDetector {
+
+    private static final double SPEECH_RATIO   = 4.0;      // ≈ 6 dB above the noise floor
+    private static final double ABSOLUTE_FLOOR = 200.0 * 200.0;
+    private static final double FLOOR_RISE     = 1.02;     // per quiet frame
+    private static final double FLOOR_CREEP    = 1.0015;   // per loud frame: steady noise eventually closes the gate
+
+    private final int hangoverFrames;
+    private double noiseFloor = ABSOLUTE_FLOOR;
+    private int    hangover;
+    private boolean open;
+    private boolean startedTalkspurt;
+
+    public VoiceActivityDetector(int hangoverFrames) {
+        this.hangoverFrames = hangoverFrames;
+    }
+
+    /** Decides on one frame of 16-bit big-endian PCM. */
+    public boolean isSpeech(byte[] pcm, int offset, int length) {
+        double energy = meanSquare(pcm, offset, length);
+        boolean loud = energy > ABSOLUTE_FLOOR && energy > noiseFloor * SPEECH_RATIO;
+
+        if (!loud) noiseFloor = Math.max(ABSOLUTE_FLOOR / 4, Math.min(energy, noiseFloor * FLOOR_RISE));
+        else       noiseFloor *= FLOOR_CREEP;
+
+        boolean wasOpen = open;
+        if (loud) {
+            hangover = hangoverFrames;
+            open = true;
+        } else if (hangover > 0) {
+            hangover--;
+        } else {
+            open = false;
+        }
+        startedTalkspurt = open && !wasOpen;
+        return open;
+    }
+
+    public boolean startedTalkspurt() {
+        return startedTalkspurt;
+    }
+
+    static double meanSquare(byte[] pcm, int offset, int length) {
+        int samples = length / 2;
+        if (samples == 0) return 0;
+        long sum = 0;
+        for (int i = offset, end = offset + samples * 2; i < end; i += 2) {
+            int s = (short) ((pcm[i] << 8) | (pcm[i + 1] & 0xFF));
+            sum += (long) s * s;
+        }
+        return (double) sum / samples;
+    }
+}
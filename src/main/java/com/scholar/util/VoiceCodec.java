@@ -0,0 +1,78 @@
+package com.scholar.util;
+
+/**
+ * VoiceCodec — payload codec for voice frames (16 kHz, 16-bit big-endian
+ * mono PCM on the PCM side).
+ *
+ * Each encode() call is one self-contained frame, so a lost or suppressed
+ * frame never desynchronises the decoder. Implementations work on caller
+ * buffers and allocate nothing per frame; an instance may keep encoder
+ * state, so use one per stream and thread.
+ *
+ * Negotiated on connect to /audio-stream: the client offers codec=a,b,...
+ * in preference order, the relay answers CODEC:<name> with the first it
+ * supports (pcm if none), and both sides use that format from then on.
+ */
+public interface VoiceCodec {
+
+    enum Format {
+        PCM("pcm"), ULAW("ulaw"), ADPCM("adpcm");
+
+        public final String wireName;
+
+        Format(String wireName) { this.wireName = wireName; }
+
+        public VoiceCodec newCodec() {
+            return switch (this) {
+                case PCM   -> new PcmCodec();
+                case ULAW  -> new MuLawCodec();
+                case ADPCM -> new ImaAdpcmCodec();
+            };
+        }
+
+        public static Format of(String wireName) {
+            for (Format f : values()) if (f.wireName.equalsIgnoreCase(wireName.trim())) return f;
+            return null;
+        }
+
+        /** First supported format of a comma-separated offer; PCM when nothing matches. */
+        public static Format negotiate(String offer) {
+            if (offer != null) {
+                for (String name : offer.split(",")) {
+                    Format f = of(name);
+                    if (f != null) return f;
+                }
+            }
+            return PCM;
+        }
+    }
+
+    Format format();
+
+    /** Upper bound of encode()'s output for pcmBytes of input. */
+    int maxEncodedBytes(int pcmBytes);
+
+    /** Encodes pcm[off, off+len) into dst from dstOff; returns bytes written. */
+    int encode(byte[] pcm, int off, int len, byte[] dst, int dstOff);
+
+    /** Decodes one encoded frame into pcm from pcmOff; returns PCM bytes written. */
+    int decode(byte[] src, int off, int len, byte[] pcm, int pcmOff);
+
+    /** Identity codec: what unframed and older clients use. */
+    final class PcmCodec implements VoiceCodec {
+        @Override public Format format() { return Format.PCM; }
+        @Override public int maxEncodedBytes(int pcmBytes) { return pcmBytes; }
+
+        @Override
+        public int encode(byte[] pcm, int off, int len, byte[] dst, int dstOff) {
+            System.arraycopy(pcm, off, dst, dstOff, len);
+            return len;
+        }
+
+        @Override
+        public int decode(byte[] src, int off, int len, byte[] pcm, int pcmOff) {
+            System.arraycopy(src, off, pcm, pcmOff, len);
+            return len;
+        }
+    }
+}
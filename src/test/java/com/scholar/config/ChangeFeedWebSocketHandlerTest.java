@@ -0,0 +1,29 @@
+package com.scholar.config;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class ChangeFeedWebSocketHandlerTest {
+
+    private final UUID me = UUID.randomUUID();
+
+    @Test
+    public void perUserTopicsOnlyForTheSignedInUser() {
+        assertTrue(ChangeFeedWebSocketHandler.mayReceive("private:" + me, me));
+        assertTrue(ChangeFeedWebSocketHandler.mayReceive("user:" + me, me));
+        assertFalse(ChangeFeedWebSocketHandler.mayReceive("private:" + UUID.randomUUID(), me));
+        assertFalse(ChangeFeedWebSocketHandler.mayReceive("user:" + UUID.randomUUID(), me));
+        assertFalse(ChangeFeedWebSocketHandler.mayReceive("private:" + me, null));    // signed out
+        assertFalse(ChangeFeedWebSocketHandler.mayReceive("private", me));
+    }
+
+    @Test
+    public void sharedTopicsForAnyone() {
+        assertTrue(ChangeFeedWebSocketHandler.mayReceive("social_group", null));
+        assertTrue(ChangeFeedWebSocketHandler.mayReceive("study_room_chat:42", me));
+        assertTrue(ChangeFeedWebSocketHandler.mayReceive("polls:7", me));
+    }
+}
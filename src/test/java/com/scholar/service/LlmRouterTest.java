@@ -0,0 +1,160 @@
+package com.scholar.service;
+
+import com.scholar.util.CircuitBreaker;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.scholar.service.LlmRouter.Task.*;
+import static org.junit.Assert.*;
+
+public class LlmRouterTest {
+
+    private final StubLlmProvider a = new StubLlmProvider("a");
+    private final StubLlmProvider b = new StubLlmProvider("b");
+    private final LlmRouter router = new LlmRouter();
+
+    @After
+    public void stop() {
+        router.stop();
+    }
+
+    private void routes(long budget, String tagging) {
+        router.configure(List.of(a, b), Map.of(TAGGING, tagging, SCHEDULING, "b", RAG, "a"), budget);
+    }
+
+    private static LlmProvider.Prompt prompt(String user) {
+        return new LlmProvider.Prompt(null, user, 0, 0);
+    }
+
+    private LlmRouter.TargetStats target(String key) {
+        return router.stats().targets().stream().filter(t -> t.target().equals(key)).findFirst().orElseThrow();
+    }
+
+    @Test
+    public void prefersTheFasterTargetOnceBothHaveHistory() throws IOException {
+        routes(0, "a,b");
+        a.delayMs = 20;
+        assertEquals(List.of("a:m", "b:m"), router.stats().ranking().get(TAGGING));   // route order until measured
+
+        for (int i = 0; i < 5; i++) {
+            router.complete(RAG, null, prompt("q"));
+            router.complete(SCHEDULING, null, prompt("q"));
+        }
+        assertEquals(List.of("b:m", "a:m"), router.stats().ranking().get(TAGGING));
+        assertEquals("b:m:q", router.complete(TAGGING, null, prompt("q")).text());
+    }
+
+    @Test
+    public void fallsBackOnFailureAndStopsCallingABrokenTarget() throws IOException {
+        routes(0, "a:x,b");
+        a.failing = true;
+        for (int i = 0; i < 4; i++) assertEquals("b:m:q", router.complete(TAGGING, null, prompt("q")).text());
+
+        assertEquals(3, a.calls.get());                                               // breaker opened after 3
+        LlmRouter.TargetStats stats = target("a:x");
+        assertEquals(1.0, stats.errorRate(), 0);
+        assertNotEquals(CircuitBreaker.State.CLOSED, stats.breaker());
+        assertEquals(List.of("b:m", "a:x"), router.stats().ranking().get(TAGGING));
+    }
+
+    @Test
+    public void hedgesASlowCallAndCancelsTheLoser() throws Exception {
+        routes(0, "a,b");
+        for (int i = 0; i < 5; i++) router.complete(RAG, null, prompt("q"));          // a: p95 ≈ 0 → hedge at floor
+        a.delayMs = 10_000;
+
+        long t0 = System.nanoTime();
+        assertEquals("b:m:q", router.complete(TAGGING, null, prompt("q")).text());
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+        assertTrue("took " + ms + " ms", ms >= 500 && ms < 5_000);
+
+        assertEquals(1, target("b:m").hedgeWins());
+        for (int i = 0; i < 100 && a.cancelled.get() == 0; i++) Thread.sleep(10);
+        assertEquals(1, a.cancelled.get());
+        assertEquals(0, a.interrupted.get());                                         // call cancelled, thread left alone
+        assertEquals(0.0, target("a:m").errorRate(), 0);                              // cancelled ≠ failed
+    }
+
+    @Test
+    public void enforcesPerUserDailyTokenBudgets() throws IOException {
+        routes(25, "a");
+        UUID user = UUID.randomUUID();
+        for (int i = 0; i < 3; i++) router.complete(TAGGING, user, prompt("q"));     // 0, 10, 20 used: admitted
+        assertEquals(30, router.tokensUsedToday(user));
+
+        try {
+            router.complete(TAGGING, user, prompt("q"));
+            fail("over budget");
+        } catch (LlmRouter.BudgetExceededException expected) {
+            assertEquals(3, a.calls.get());
+        }
+        router.complete(TAGGING, UUID.randomUUID(), prompt("q"));
+        router.complete(TAGGING, null, prompt("q"));                                  // signed out: shared budget
+        assertEquals(10, router.tokensUsedToday(null));
+        assertEquals(1, router.stats().budgetRefusals());
+    }
+
+    @Test
+    public void concurrentRequestsSeeEachOthersReservation() throws Exception {
+        routes(25, "a");
+        a.delayMs = 300;
+        UUID user = UUID.randomUUID();
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<LlmProvider.Reply>> calls = new ArrayList<>();
+            for (int i = 0; i < 3; i++) calls.add(pool.submit(() -> router.complete(TAGGING, user, prompt("q"))));
+            int refused = 0;
+            for (Future<LlmProvider.Reply> f : calls) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof LlmRouter.BudgetExceededException);
+                    refused++;
+                }
+            }
+            assertEquals(2, refused);                                                 // first reservation ≥ budget
+            assertEquals(1, a.calls.get());
+            assertEquals(10, router.tokensUsedToday(user));                           // settled to the reported usage
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedCallRefundsItsReservation() {
+        routes(25, "a");
+        a.failing = true;
+        UUID user = UUID.randomUUID();
+        try {
+            router.complete(TAGGING, user, prompt("q"));
+            fail("every target failed");
+        } catch (IOException expected) {
+            assertEquals(0, router.tokensUsedToday(user));
+        }
+    }
+
+    @Test
+    public void streamFallsBackBeforeTheFirstDelta() {
+        routes(0, "a,b");
+        a.failing = true;
+        StringBuilder text = new StringBuilder();
+        boolean[] completed = {false};
+        router.stream(TAGGING, null, prompt("hello world"), new ChatStream() {
+            @Override public void onDelta(String delta) { text.append(delta); }
+            @Override public void onComplete()           { completed[0] = true; }
+            @Override public void onError(String html)   { fail(html); }
+        });
+        assertTrue(completed[0]);
+        assertEquals("b:m:hello world", text.toString());
+    }
+}
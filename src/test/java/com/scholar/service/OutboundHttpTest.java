@@ -0,0 +1,34 @@
+package com.scholar.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OutboundHttpTest {
+
+    @Test
+    public void endpointPathsMaskIdsTokensAndFiles() {
+        assertEquals("/bot{token}/sendDocument", OutboundHttp.pathTemplate("/bot123456:AAH-x_yz/sendDocument"));
+        assertEquals("/v1beta/models/gemini-2.5-flash:generateContent",
+            OutboundHttp.pathTemplate("/v1beta/models/gemini-2.5-flash:generateContent"));
+        assertEquals("/storage/v1/object/profile_pic/{file}",
+            OutboundHttp.pathTemplate("/storage/v1/object/profile_pic/3f2b8c1e-1d2a-4b5c-9e8f-0a1b2c3d4e5f.png"));
+        assertEquals("/rooms/{id}/members/{id}",
+            OutboundHttp.pathTemplate("/rooms/42/members/3f2b8c1e-1d2a-4b5c-9e8f-0a1b2c3d4e5f"));
+        assertEquals("/", OutboundHttp.pathTemplate(""));
+    }
+
+    @Test
+    public void backoffIsJitteredExponentialAndHonoursRetryAfter() {
+        for (int attempt = 0; attempt < 8; attempt++) {
+            long ceiling = Math.min(4_000, 250L << attempt);
+            for (int i = 0; i < 50; i++) {
+                long ms = OutboundHttp.backoffMs(attempt, null);
+                assertTrue(ms >= ceiling / 2 && ms <= ceiling);
+            }
+        }
+        assertEquals(3_000, OutboundHttp.backoffMs(0, "3"));
+        long dated = OutboundHttp.backoffMs(1, "Wed, 21 Oct 2026 07:28:00 GMT");
+        assertTrue(dated >= 250 && dated <= 500);
+    }
+}
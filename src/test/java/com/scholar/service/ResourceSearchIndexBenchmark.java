@@ -0,0 +1,129 @@
+package com.scholar.service;
+
+import com.scholar.model.ResourceDoc;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Latency / allocation benchmark: linear contains() scan (old
+ * ResourceCacheService.search) vs ResourceSearchIndex on synthetic docs
+ * drawn from a Zipf-distributed vocabulary (a few very common terms, long tail).
+ *
+ * Run: java -cp <test classpath> com.scholar.service.ResourceSearchIndexBenchmark [docs] [queries]
+ */
+public class ResourceSearchIndexBenchmark {
+
+    private static final int VOCABULARY = 20_000;
+    private static final String[] WORDS = new String[VOCABULARY];
+    private static final double[] ZIPF_CDF = new double[VOCABULARY];
+
+    static {
+        Random rnd = new Random(7);
+        double total = 0;
+        for (int i = 0; i < VOCABULARY; i++) {
+            StringBuilder w = new StringBuilder();
+            int len = 3 + rnd.nextInt(8);
+            for (int c = 0; c < len; c++) w.append((char) ('a' + rnd.nextInt(26)));
+            WORDS[i] = w.toString();
+            total += 1.0 / (i + 1);
+            ZIPF_CDF[i] = total;
+        }
+        for (int i = 0; i < VOCABULARY; i++) ZIPF_CDF[i] /= total;
+    }
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        Random rnd = new Random(42);
+
+        List<ResourceDoc> docs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            docs.add(new ResourceDoc(i, words(rnd, 4), "", "VIDEO", words(rnd, 30), words(rnd, 3),
+                words(rnd, 20), words(rnd, 5), "CSE " + (100 + rnd.nextInt(40)), words(rnd, 2),
+                words(rnd, 2), "Medium", rnd.nextInt(20), rnd.nextInt(5), 0, 0, 0));
+        }
+        String[] qs = new String[queries];
+        for (int i = 0; i < queries; i++) qs[i] = words(rnd, 1 + rnd.nextInt(3));
+
+        long b0 = System.nanoTime();
+        ResourceSearchIndex index = ResourceSearchIndex.build(docs);
+        System.out.printf("build: %,d docs in %d ms%n", n, (System.nanoTime() - b0) / 1_000_000);
+
+        com.sun.management.ThreadMXBean mx =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        long sink = 0;
+        for (int i = 0; i < 200; i++) sink += index.search(index.parse(qs[i % queries], "CSE 105"), 10).size();
+        for (int i = 0; i < 20; i++) sink += linear(docs, qs[i], "cse 105");
+
+        long[] indexed = new long[queries];
+        long a0 = mx.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < queries; i++) {
+            long t = System.nanoTime();
+            sink += index.search(index.parse(qs[i], "CSE 105"), 10).size();
+            indexed[i] = System.nanoTime() - t;
+        }
+        long a1 = mx.getThreadAllocatedBytes(tid);
+
+        long[] noHint = new long[queries];
+        for (int i = 0; i < queries; i++) {
+            long t = System.nanoTime();
+            sink += index.search(index.parse(qs[i], null), 10).size();
+            noHint[i] = System.nanoTime() - t;
+        }
+
+        int linearRuns = Math.min(queries, 100);
+        long[] scan = new long[linearRuns];
+        for (int i = 0; i < linearRuns; i++) {
+            long t = System.nanoTime();
+            sink += linear(docs, qs[i], "cse 105");
+            scan[i] = System.nanoTime() - t;
+        }
+
+        report("linear ", scan);
+        report("indexed", indexed);
+        report("no hint", noHint);
+        System.out.printf("indexed: %,d bytes/query%n", (a1 - a0) / queries);
+        System.out.println("(sink " + sink + ")");
+    }
+
+    private static int linear(List<ResourceDoc> docs, String query, String course) {
+        String q = query.toLowerCase();
+        int matches = 0;
+        for (ResourceDoc d : docs) {
+            double score = 0;
+            score += d.title().toLowerCase().contains(q) ? 3.0 : 0;
+            score += d.tags().toLowerCase().contains(q) ? 2.0 : 0;
+            score += d.description().toLowerCase().contains(q) ? 1.2 : 0;
+            score += d.aiSummary().toLowerCase().contains(q) ? 1.0 : 0;
+            score += d.communityNotes().toLowerCase().contains(q) ? 1.0 : 0;
+            score += d.topicName().toLowerCase().contains(q) ? 1.5 : 0;
+            score += d.segmentName().toLowerCase().contains(q) ? 1.5 : 0;
+            score += d.courseName().toLowerCase().contains(q) ? 1.5 : 0;
+            score += d.courseName().toLowerCase().contains(course) ? 2.0 : 0;
+            if (score > 0) matches++;
+        }
+        return matches;
+    }
+
+    private static void report(String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%s: p50 %.3f ms  p99 %.3f ms%n", label,
+            sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6);
+    }
+
+    private static String words(Random rnd, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(' ');
+            int w = Arrays.binarySearch(ZIPF_CDF, rnd.nextDouble());
+            sb.append(WORDS[Math.min(w >= 0 ? w : -w - 1, VOCABULARY - 1)]);
+        }
+        return sb.toString();
+    }
+}
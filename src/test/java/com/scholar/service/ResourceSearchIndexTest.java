@@ -0,0 +1,97 @@
+package com.scholar.service;
+
+import com.scholar.model.ResourceDoc;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResourceSearchIndexTest {
+
+    private static ResourceDoc doc(int id, String title, String description, String tags,
+                                   String course, int upvotes) {
+        return new ResourceDoc(id, title, "", "VIDEO", description, tags, "", "",
+            course, "", "", "Easy", upvotes, 0, 0.0, 0, 0);
+    }
+
+    private static final List<ResourceDoc> DOCS = List.of(
+        doc(1, "Graph algorithms", "BFS and DFS graph walkthrough", "graph", "CSE 105", 0),
+        doc(2, "Sorting basics", "Merge sort and quick sort, with graph of runtimes", "sorting", "CSE 105", 0),
+        doc(3, "Linear algebra", "Matrices and vector spaces", "math", "MAT 201", 0),
+        doc(4, "Dynamic programming", "Knapsack and shortest paths on graphs", "dp", "CSE 220", 0)
+    );
+
+    private static List<Integer> ids(ResourceSearchIndex index, String query, String hint) {
+        return index.search(index.parse(query, hint), 10).stream().map(h -> h.doc().id()).toList();
+    }
+
+    @Test
+    public void titleMatchOutranksDescriptionMatch() {
+        ResourceSearchIndex index = ResourceSearchIndex.build(DOCS);
+        List<Integer> hits = ids(index, "graph", null);
+        assertEquals(Integer.valueOf(1), hits.get(0));
+        assertTrue(hits.contains(2));
+        assertFalse(hits.contains(3));
+    }
+
+    @Test
+    public void prefixMatchesLongerTerms() {
+        ResourceSearchIndex index = ResourceSearchIndex.build(DOCS);
+        assertEquals(List.of(3), ids(index, "matri", null));
+    }
+
+    @Test
+    public void multiTermQueryPrefersDocsMatchingMoreTerms() {
+        ResourceSearchIndex index = ResourceSearchIndex.build(DOCS);
+        assertEquals(Integer.valueOf(4), ids(index, "shortest knapsack", null).get(0));
+        assertEquals(Integer.valueOf(2), ids(index, "merge sort", null).get(0));
+    }
+
+    @Test
+    public void courseHintBoostsButDoesNotAddNonMatches() {
+        ResourceSearchIndex index = ResourceSearchIndex.build(DOCS);
+        List<Integer> plain = ids(index, "graph", null);
+        List<Integer> hinted = ids(index, "graph", "CSE 220");
+        assertTrue(hinted.indexOf(4) < plain.indexOf(4));
+        assertFalse(hinted.contains(3));
+    }
+
+    @Test
+    public void courseHintMatchesCodesExactly() {
+        ResourceSearchIndex index = ResourceSearchIndex.build(DOCS);
+        ResourceSearchIndex.Query q = index.parse("graph", "CSE 22");
+        assertEquals(index.score(index.parse("graph", "CSE"), DOCS.get(3)), index.score(q, DOCS.get(3)), 1e-6);
+    }
+
+    @Test
+    public void broadHintTermScoresTheSameInSearchAndScore() {
+        List<ResourceDoc> many = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            many.add(doc(i, i % 2 == 0 ? "Graph notes " + i : "Sorting notes " + i, "", "",
+                         i % 3 == 0 ? "CSE 105" : "CSE 220", i % 7));
+        }
+        ResourceSearchIndex index = ResourceSearchIndex.build(many);
+        ResourceSearchIndex.Query q = index.parse("graph", "CSE 105");
+        for (ResourceSearchIndex.Hit hit : index.search(q, 20)) {
+            assertEquals(index.score(q, hit.doc()), hit.score(), 1e-4);
+        }
+    }
+
+    @Test
+    public void scoreOfSingleDocMatchesIndexedScore() {
+        ResourceSearchIndex index = ResourceSearchIndex.build(DOCS);
+        ResourceSearchIndex.Query q = index.parse("graph dfs", "CSE 105");
+        ResourceSearchIndex.Hit top = index.search(q, 1).get(0);
+        assertEquals(top.score(), index.score(q, top.doc()), 1e-4);
+        assertEquals(0.0, index.score(q, DOCS.get(2)), 0.0);
+    }
+
+    @Test
+    public void emptyIndexAndEmptyQueryReturnNothing() {
+        assertTrue(ResourceSearchIndex.empty().search(ResourceSearchIndex.empty().parse("graph", null), 5).isEmpty());
+        ResourceSearchIndex index = ResourceSearchIndex.build(DOCS);
+        assertTrue(index.search(index.parse("  --  ", null), 5).isEmpty());
+    }
+}
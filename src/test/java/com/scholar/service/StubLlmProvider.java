@@ -0,0 +1,61 @@
+package com.scholar.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * In-process LlmProvider for router tests: answers "<id>:<model>:<user>"
+ * word by word after `delayMs`, or fails, as the test sets it up. A
+ * cancelled complete() stops waiting and throws, as a cancelled HTTP call does.
+ */
+class StubLlmProvider implements LlmProvider {
+
+    private final String id;
+    volatile long delayMs;
+    volatile boolean failing;
+    volatile int tokens = 10;
+    final AtomicInteger calls = new AtomicInteger();
+    final AtomicInteger cancelled = new AtomicInteger();
+    final AtomicInteger interrupted = new AtomicInteger();
+
+    StubLlmProvider(String id) {
+        this.id = id;
+    }
+
+    @Override public String id()           { return id; }
+    @Override public String defaultModel() { return "m"; }
+    @Override public boolean configured()  { return true; }
+
+    @Override
+    public Reply complete(String model, Prompt prompt, Cancellation cancellation) throws IOException {
+        return new Reply(answer(model, prompt, cancellation), tokens);
+    }
+
+    @Override
+    public Reply stream(String model, Prompt prompt, Consumer<String> onDelta) throws IOException {
+        String answer = answer(model, prompt, new Cancellation());
+        for (String word : answer.split("(?<= )")) onDelta.accept(word);
+        return new Reply(answer, tokens);
+    }
+
+    private String answer(String model, Prompt prompt, Cancellation cancellation) throws IOException {
+        calls.incrementAndGet();
+        CountDownLatch abort = new CountDownLatch(1);
+        cancellation.onCancel(abort::countDown);
+        try {
+            if (abort.await(delayMs, TimeUnit.MILLISECONDS)) {
+                cancelled.incrementAndGet();
+                throw new IOException("Canceled");
+            }
+        } catch (InterruptedException e) {
+            interrupted.incrementAndGet();
+            throw new InterruptedIOException("interrupted");
+        }
+        if (failing) throw new IOException(id + " is down");
+        return id + ":" + model + ":" + prompt.user();
+    }
+}
@@ -0,0 +1,46 @@
+package com.scholar.util;
+
+import java.util.Random;
+
+/**
+ * Throughput of the per-room mix loop (one 20 ms frame = 320 samples):
+ * sum every active speaker once, then mix-minus + big-endian encode for
+ * every listener — what RoomMixer.tick() does, without the sockets.
+ *
+ * Reports µs per tick and the share of the 20 ms budget it uses for
+ * rooms where everyone is both speaker and listener.
+ *
+ * Run: java -cp <test classpath> com.scholar.util.AudioMixerBenchmark [ticks]
+ */
+public class AudioMixerBenchmark {
+
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        for (int speakers : new int[]{2, 8, 32}) run(speakers, ticks);
+    }
+
+    private static void run(int speakers, int ticks) {
+        Random rnd = new Random(speakers);
+        short[][] frames = new short[speakers][AudioMixer.FRAME_SAMPLES];
+        for (short[] f : frames)
+            for (int i = 0; i < f.length; i++) f[i] = (short) (rnd.nextGaussian() * 3000);
+        int[] acc = new int[AudioMixer.FRAME_SAMPLES];
+        byte[][] out = new byte[speakers][AudioMixer.FRAME_BYTES];
+
+        long sink = 0;
+        for (int i = 0; i < ticks / 4; i++) sink += tick(frames, acc, out);   // warm-up
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ticks; i++) sink += tick(frames, acc, out);
+        double usPerTick = (System.nanoTime() - t0) / 1e3 / ticks;
+
+        System.out.printf("%2d speakers: %7.2f µs/tick  (%.3f%% of 20 ms)  %,6d bytes out/listener/s  (sink %d)%n",
+            speakers, usPerTick, usPerTick / 200.0, AudioMixer.FRAME_BYTES * 50, sink);
+    }
+
+    private static long tick(short[][] frames, int[] acc, byte[][] out) {
+        AudioMixer.clear(acc);
+        for (short[] f : frames) AudioMixer.accumulate(acc, f);
+        for (int l = 0; l < frames.length; l++) AudioMixer.mixMinusInto(acc, frames[l], out[l]);
+        return out[frames.length - 1][7];
+    }
+}
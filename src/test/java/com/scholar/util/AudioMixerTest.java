@@ -0,0 +1,70 @@
+package com.scholar.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class AudioMixerTest {
+
+    private static short sampleAt(byte[] pcm, int i) {
+        return (short) ((pcm[2 * i] << 8) | (pcm[2 * i + 1] & 0xFF));
+    }
+
+    @Test
+    public void mixMinusExcludesOwnVoiceAndClips() {
+        int n = AudioMixer.FRAME_SAMPLES;
+        short[] a = new short[n], b = new short[n], c = new short[n];
+        for (int i = 0; i < n; i++) { a[i] = 1000; b[i] = (short) -250; c[i] = 32_000; }
+        int[] acc = new int[n];
+        AudioMixer.clear(acc);
+        AudioMixer.accumulate(acc, a);
+        AudioMixer.accumulate(acc, b);
+        AudioMixer.accumulate(acc, c);
+
+        byte[] out = new byte[AudioMixer.FRAME_BYTES];
+        AudioMixer.mixMinusInto(acc, c, out);           // listener c hears a + b
+        assertEquals(750, sampleAt(out, 0));
+        AudioMixer.mixMinusInto(acc, b, out);           // 33 000 clips
+        assertEquals(Short.MAX_VALUE, sampleAt(out, n - 1));
+        AudioMixer.mixMinusInto(acc, null, out);        // non-speaking listener hears everyone
+        assertEquals(32_750, sampleAt(out, 5));
+    }
+
+    @Test
+    public void ringRetimesFramesWithPrerollAndUnderrun() {
+        SampleRing ring = new SampleRing(4 * 10);
+        short[] frame = new short[10];
+        ByteBuffer in = ByteBuffer.allocate(2 * 15);
+        for (int i = 0; i < 15; i++) in.putShort((short) i);
+
+        ring.write(in.flip());
+        assertFalse("needs two frames before starting", ring.read(frame));
+        ring.write(in.rewind());                        // 30 samples buffered
+        assertTrue(ring.read(frame));
+        assertEquals(0, frame[0]);
+        assertEquals(9, frame[9]);
+        assertTrue(ring.read(frame));
+        assertEquals(10, frame[0]);
+        assertEquals(4, frame[9]);                     // second packet, wrapped across writes
+        assertTrue(ring.read(frame));
+        assertFalse("drained → underrun", ring.read(frame));
+        ring.write(in.rewind());
+        assertFalse("re-primes after underrun", ring.read(frame));
+        assertEquals(15, ring.size());
+    }
+
+    @Test
+    public void ringOverwritesOldestWhenFull() {
+        SampleRing ring = new SampleRing(8);
+        ByteBuffer in = ByteBuffer.allocate(2 * 12);
+        for (int i = 0; i < 12; i++) in.putShort((short) i);
+        ring.write(in.flip());
+        assertEquals(8, ring.size());
+        assertEquals(4, ring.overrunSamples());
+        short[] frame = new short[4];
+        assertTrue(ring.read(frame));
+        assertEquals(4, frame[0]);
+    }
+}
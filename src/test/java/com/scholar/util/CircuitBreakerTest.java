@@ -0,0 +1,74 @@
+package com.scholar.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(3, 1_000, now::get);
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailuresOnly() {
+        fail(2);
+        breaker.onSuccess();                                 // resets the streak
+        fail(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        fail(1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.opens());
+    }
+
+    @Test
+    public void halfOpenLetsOneTrialThrough() {
+        fail(3);
+        now.addAndGet(1_000);
+
+        assertTrue(breaker.tryAcquire());                    // the trial
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());                   // others wait for it
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void failedTrialReopens() {
+        fail(3);
+        now.addAndGet(1_500);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(2, breaker.opens());
+        now.addAndGet(999);
+        assertFalse(breaker.tryAcquire());
+        now.addAndGet(1);
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void releasedTrialHandsTheSlotOn() {
+        fail(3);
+        now.addAndGet(1_000);
+        assertTrue(breaker.tryAcquire());
+        breaker.release();                                   // trial abandoned, no verdict
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(1, breaker.opens());
+        assertTrue(breaker.tryAcquire());                    // next caller is the trial
+    }
+}
@@ -0,0 +1,79 @@
+package com.scholar.util;
+
+import com.scholar.model.ClassOffPeriod;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ClassOffIndexTest {
+
+    private static final LocalDate D = LocalDate.of(2026, 3, 1);
+
+    private static ClassOffPeriod off(String id, int from, int to) {
+        return new ClassOffPeriod(id, D.plusDays(from), D.plusDays(to), "off " + id);
+    }
+
+    /** The old linear scan, with the index's tie rule (earliest start, then load order). */
+    private static ClassOffPeriod scan(List<ClassOffPeriod> periods, LocalDate date) {
+        ClassOffPeriod best = null;
+        for (ClassOffPeriod p : periods) {
+            if (p.startDate() == null || p.endDate() == null) continue;
+            if (date.isBefore(p.startDate()) || date.isAfter(p.endDate())) continue;
+            if (best == null || p.startDate().isBefore(best.startDate())) best = p;
+        }
+        return best;
+    }
+
+    @Test
+    public void stabsAndSkipsInvalidPeriods() {
+        ClassOffIndex idx = new ClassOffIndex(List.of(
+            off("a", 5, 9), off("b", 0, 0), off("c", 7, 20),
+            new ClassOffPeriod("d", null, D, "no start"),
+            off("e", 30, 25)));                                  // ends before it starts
+
+        assertEquals(3, idx.size());
+        assertEquals("b", idx.at(D).id());
+        assertNull(idx.at(D.plusDays(1)));
+        assertEquals("a", idx.at(D.plusDays(8)).id());          // a and c overlap; a starts first
+        assertEquals("c", idx.at(D.plusDays(10)).id());
+        assertNull(idx.at(D.plusDays(21)));
+        assertNull(idx.at(null));
+        assertNull(ClassOffIndex.EMPTY.at(D));
+    }
+
+    @Test
+    public void daysFillsAWindow() {
+        ClassOffIndex idx = new ClassOffIndex(List.of(off("a", 5, 9), off("c", 7, 40), off("z", -10, -8)));
+        ClassOffPeriod[] days = idx.days(D, 31);
+
+        assertEquals(31, days.length);
+        assertNull(days[4]);
+        assertEquals("a", days[5].id());
+        assertEquals("a", days[9].id());
+        assertEquals("c", days[10].id());
+        assertEquals("c", days[30].id());
+        assertEquals(0, idx.days(D, 0).length);
+    }
+
+    @Test
+    public void matchesALinearScan() {
+        Random rnd = new Random(11);
+        List<ClassOffPeriod> periods = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int from = rnd.nextInt(365);
+            periods.add(off("p" + i, from, from + rnd.nextInt(10)));
+        }
+        ClassOffIndex idx = new ClassOffIndex(periods);
+        ClassOffPeriod[] days = idx.days(D.minusDays(5), 380);
+        for (int d = -5; d < 375; d++) {
+            ClassOffPeriod expected = scan(periods, D.plusDays(d));
+            assertEquals("day " + d, expected, idx.at(D.plusDays(d)));
+            assertEquals("day " + d, expected, days[d + 5]);
+        }
+    }
+}
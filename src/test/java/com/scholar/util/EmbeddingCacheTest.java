@@ -0,0 +1,64 @@
+package com.scholar.util;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class EmbeddingCacheTest {
+
+    private static float[] vec(float... v) { return v; }
+
+    @Test
+    public void get_returnsVectorFromDiskAfterReopen() throws Exception {
+        Path file = Files.createTempDirectory("emb-cache").resolve("vectors.bin");
+        EmbeddingCache cache = new EmbeddingCache("model-a", 3, 8, file, 100);
+        EmbeddingCache.Key key = cache.keyFor("DSA graph resources");
+        cache.put(key, vec(0.1f, 0.2f, 0.3f));
+        cache.close();
+
+        EmbeddingCache reopened = new EmbeddingCache("model-a", 3, 8, file, 100);
+        float[] out = new float[3];
+        assertTrue(reopened.get(reopened.keyFor("DSA graph resources"), out));
+        assertEquals(0.2, out[1], 1e-7);
+        assertEquals(1, reopened.stats().diskHits());
+
+        assertTrue(reopened.get(key, out));
+        assertEquals(1, reopened.stats().memoryHits());
+        reopened.close();
+    }
+
+    @Test
+    public void keyFor_isTaggedByModel() {
+        EmbeddingCache a = new EmbeddingCache("model-a", 3, 8, null, 0);
+        EmbeddingCache b = new EmbeddingCache("model-b", 3, 8, null, 0);
+        assertNotEquals(a.keyFor("same text"), b.keyFor("same text"));
+        assertEquals(a.keyFor("same text"), a.keyFor("same text"));
+    }
+
+    @Test
+    public void put_neverCachesZeroVectors() {
+        EmbeddingCache cache = new EmbeddingCache("m", 3, 8, null, 0);
+        EmbeddingCache.Key key = cache.keyFor("failed call");
+        cache.put(key, new float[3]);
+        assertFalse(cache.get(key, new float[3]));
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    public void diskTier_overwritesOldestWhenFull() throws Exception {
+        Path file = Files.createTempDirectory("emb-cache").resolve("vectors.bin");
+        EmbeddingCache cache = new EmbeddingCache("m", 2, 1, file, 2);
+        cache.put(cache.keyFor("a"), vec(1, 0));
+        cache.put(cache.keyFor("b"), vec(0, 1));
+        cache.put(cache.keyFor("c"), vec(1, 1));
+
+        float[] out = new float[2];
+        assertFalse(cache.get(cache.keyFor("a"), out));
+        assertTrue(cache.get(cache.keyFor("b"), out));
+        assertEquals(2, cache.stats().diskEntries());
+        cache.close();
+    }
+}
@@ -0,0 +1,182 @@
+package com.scholar.util;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Recall-vs-latency benchmark for HnswIndex.
+ *
+ * Synthetic mode (default): clustered 1536-d vectors, HNSW at several ef
+ * values against exact brute force — the plan pgvector runs for
+ * ORDER BY content_vector <=> ? without an ANN index.
+ *
+ * Live mode (DB_URL / DB_USER / DB_PASSWORD in .env, like DatabaseTester):
+ * loads resources.content_vector and compares HNSW against the real
+ * pgvector query, both for latency and for overlap of the top-6 ids.
+ *
+ * Run: java -cp <test classpath> com.scholar.util.HnswIndexBenchmark [vectors] [queries]
+ */
+public class HnswIndexBenchmark {
+
+    private static final int DIM = 1536;
+    private static final int K   = 6;
+    private static final int[] EF_VALUES = {16, 32, 64, 128, 256};
+
+    public static void main(String[] args) throws Exception {
+        int n       = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        Dotenv env = Dotenv.configure().ignoreIfMissing().load();
+        if (env.get("DB_URL") != null) {
+            runLive(env, queries);
+        } else {
+            runSynthetic(n, queries);
+        }
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // SYNTHETIC
+    // ──────────────────────────────────────────────────────────────
+
+    private static void runSynthetic(int n, int queries) {
+        Random rnd = new Random(42);
+        float[][] centroids = new float[64][];
+        for (int c = 0; c < centroids.length; c++) centroids[c] = gaussian(rnd, 1f);
+
+        HnswIndex index = new HnswIndex(DIM);
+        long t0 = System.nanoTime();
+        for (int id = 0; id < n; id++) index.add(id, around(rnd, centroids));
+        System.out.printf("Built %d x %d-d in %.1f s%n", n, DIM, (System.nanoTime() - t0) / 1e9);
+
+        float[][] q = new float[queries][];
+        for (int i = 0; i < queries; i++) q[i] = around(rnd, centroids);
+
+        int[][] truth = new int[queries][K];
+        float[] scores = new float[K];
+        long[] exactNs = new long[queries];
+        for (int i = 0; i < queries; i++) {
+            long s = System.nanoTime();
+            index.exactSearch(q[i], K, null, truth[i], scores);
+            exactNs[i] = System.nanoTime() - s;
+        }
+        report("exact (pgvector plan)", 1.0, exactNs);
+
+        for (int ef : EF_VALUES) measure(index, q, truth, ef);
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // LIVE (against pgvector)
+    // ──────────────────────────────────────────────────────────────
+
+    private static void runLive(Dotenv env, int queries) throws Exception {
+        try (Connection conn = DriverManager.getConnection(
+                env.get("DB_URL"), env.get("DB_USER"), env.get("DB_PASSWORD"))) {
+
+            HnswIndex index = new HnswIndex(DIM);
+            List<float[]> stored = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    SELECT id, content_vector::text AS vec FROM resources
+                    WHERE is_public = true AND content_vector IS NOT NULL
+                    """);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    float[] v = parse(rs.getString("vec"));
+                    if (index.add(rs.getInt("id"), v)) stored.add(v);
+                }
+            }
+            System.out.println("Loaded " + stored.size() + " vectors from resources");
+            if (stored.isEmpty()) return;
+
+            Random rnd = new Random(42);
+            float[][] q = new float[queries][];
+            for (int i = 0; i < queries; i++) {
+                float[] base = stored.get(rnd.nextInt(stored.size()));
+                q[i] = Arrays.copyOf(base, DIM);
+                for (int d = 0; d < DIM; d++) q[i][d] += (float) rnd.nextGaussian() * 0.01f;
+            }
+
+            int[][] truth = new int[queries][];
+            long[] pgNs = new long[queries];
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    SELECT id FROM resources
+                    WHERE is_public = true AND content_vector IS NOT NULL
+                    ORDER BY content_vector <=> ?::vector
+                    LIMIT 6
+                    """)) {
+                for (int i = 0; i < queries; i++) {
+                    ps.setString(1, Arrays.toString(q[i]).replace(" ", ""));
+                    long s = System.nanoTime();
+                    List<Integer> ids = new ArrayList<>();
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) ids.add(rs.getInt(1));
+                    }
+                    pgNs[i] = System.nanoTime() - s;
+                    truth[i] = ids.stream().mapToInt(Integer::intValue).toArray();
+                }
+            }
+            report("pgvector round-trip", 1.0, pgNs);
+
+            for (int ef : EF_VALUES) measure(index, q, truth, ef);
+        }
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // HELPERS
+    // ──────────────────────────────────────────────────────────────
+
+    private static void measure(HnswIndex index, float[][] q, int[][] truth, int ef) {
+        int[] ids = new int[K];
+        float[] scores = new float[K];
+        for (int w = 0; w < Math.min(50, q.length); w++) index.search(q[w], K, ef, null, ids, scores);
+
+        long[] ns = new long[q.length];
+        int hits = 0, total = 0;
+        for (int i = 0; i < q.length; i++) {
+            long s = System.nanoTime();
+            int n = index.search(q[i], K, ef, null, ids, scores);
+            ns[i] = System.nanoTime() - s;
+            for (int t : truth[i]) {
+                total++;
+                for (int j = 0; j < n; j++) if (ids[j] == t) { hits++; break; }
+            }
+        }
+        report("hnsw ef=" + ef, total == 0 ? 0 : hits / (double) total, ns);
+    }
+
+    private static void report(String label, double recall, long[] ns) {
+        long[] sorted = ns.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-24s recall@%d=%.3f  p50=%7.3f ms  p99=%7.3f ms%n",
+            label, K, recall,
+            sorted[sorted.length / 2] / 1e6,
+            sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))] / 1e6);
+    }
+
+    private static float[] gaussian(Random rnd, float sigma) {
+        float[] v = new float[DIM];
+        for (int i = 0; i < DIM; i++) v[i] = (float) rnd.nextGaussian() * sigma;
+        return v;
+    }
+
+    private static float[] around(Random rnd, float[][] centroids) {
+        float[] c = centroids[rnd.nextInt(centroids.length)];
+        float[] v = gaussian(rnd, 0.35f);
+        for (int i = 0; i < DIM; i++) v[i] += c[i];
+        return v;
+    }
+
+    private static float[] parse(String text) {
+        String[] parts = text.substring(1, text.length() - 1).split(",");
+        float[] v = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) v[i] = Float.parseFloat(parts[i]);
+        return v;
+    }
+}
@@ -0,0 +1,75 @@
+package com.scholar.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HnswIndexTest {
+
+    private static float[] randomVector(Random rnd, int dim) {
+        float[] v = new float[dim];
+        for (int i = 0; i < dim; i++) v[i] = (float) rnd.nextGaussian();
+        return v;
+    }
+
+    @Test
+    public void search_matchesExactTopKWithHighRecall() {
+        int dim = 64, n = 2000, k = 6, queries = 50;
+        Random rnd = new Random(7);
+        HnswIndex index = new HnswIndex(dim);
+        for (int id = 1; id <= n; id++) index.add(id, randomVector(rnd, dim));
+
+        int[] annIds = new int[k], exactIds = new int[k];
+        float[] annScores = new float[k], exactScores = new float[k];
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(rnd, dim);
+            int a = index.search(query, k, 64, null, annIds, annScores);
+            int e = index.exactSearch(query, k, null, exactIds, exactScores);
+            assertEquals(k, a);
+            assertEquals(k, e);
+            for (int i = 0; i < k; i++)
+                for (int j = 0; j < k; j++)
+                    if (annIds[i] == exactIds[j]) hits++;
+        }
+        double recall = hits / (double) (k * queries);
+        assertTrue("recall=" + recall, recall >= 0.9);
+    }
+
+    @Test
+    public void add_replacesExistingVectorAndRemoveHidesIt() {
+        HnswIndex index = new HnswIndex(3);
+        index.add(1, new float[]{1, 0, 0});
+        index.add(2, new float[]{0, 1, 0});
+        index.add(1, new float[]{0, 0, 1});
+
+        int[] ids = new int[1];
+        float[] scores = new float[1];
+        assertEquals(1, index.search(new float[]{0, 0, 1}, 1, 10, null, ids, scores));
+        assertEquals(1, ids[0]);
+        assertEquals(1.0, scores[0], 1e-5);
+        assertEquals(2, index.size());
+        assertEquals(1, index.tombstones());
+
+        assertTrue(index.remove(1));
+        assertEquals(1, index.search(new float[]{0, 0, 1}, 1, 10, null, ids, scores));
+        assertEquals(2, ids[0]);
+    }
+
+    @Test
+    public void search_appliesFilterAndRejectsZeroVectors() {
+        HnswIndex index = new HnswIndex(2);
+        assertFalse(index.add(9, new float[2]));
+        index.add(1, new float[]{1, 0});
+        index.add(2, new float[]{0.9f, 0.1f});
+
+        int[] ids = new int[2];
+        float[] scores = new float[2];
+        int n = index.search(new float[]{1, 0}, 2, 10, id -> id != 1, ids, scores);
+        assertEquals(1, n);
+        assertEquals(2, ids[0]);
+        assertEquals(0, index.search(new float[2], 2, 10, null, ids, scores));
+    }
+}
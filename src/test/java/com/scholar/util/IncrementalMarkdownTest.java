@@ -0,0 +1,73 @@
+package com.scholar.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IncrementalMarkdownTest {
+
+    /** Records each block it is asked to render and wraps it in [..]. */
+    private static final class Recorder {
+        final List<String> blocks = new ArrayList<>();
+        String render(String block) { blocks.add(block); return "[" + block.strip() + "]"; }
+    }
+
+    private static String feed(IncrementalMarkdown md, String text, int chunk) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < text.length(); i += chunk) {
+            out.append(md.append(text.substring(i, Math.min(text.length(), i + chunk))));
+        }
+        return out.append(md.finish()).toString();
+    }
+
+    @Test
+    public void rendersEachParagraphOnceAsItCompletes() {
+        Recorder r = new Recorder();
+        IncrementalMarkdown md = new IncrementalMarkdown(r::render);
+
+        assertEquals("[# Title]", md.append("# Title\n\nFirst para"));
+        assertEquals("First para", md.pending());
+        assertEquals("[First paragraph]", md.append("graph\n\n"));
+        assertEquals("", md.pending());
+        assertEquals("", md.append("tail"));
+        assertEquals("[tail]", md.finish());
+        assertEquals("", md.finish());
+        assertEquals(3, r.blocks.size());
+    }
+
+    @Test
+    public void codeFencesAreNotSplitOnBlankLines() {
+        Recorder r = new Recorder();
+        IncrementalMarkdown md = new IncrementalMarkdown(r::render);
+        String text = "Intro\n\n```java\nint a;\n\nint b;\n```\n\nAfter\n";
+
+        String html = feed(md, text, 3);
+        assertEquals(List.of("Intro\n", "```java\nint a;\n\nint b;\n```\n", "After\n"), r.blocks);
+        assertEquals("[Intro][```java\nint a;\n\nint b;\n```][After]", html);
+    }
+
+    @Test
+    public void htmlBlocksCloseOnTheirEndTagAndContainersStayWhole() {
+        Recorder r = new Recorder();
+        IncrementalMarkdown md = new IncrementalMarkdown(r::render);
+        String text = "<h3>Resources</h3>\n<ul>\n<li>A</li>\n\n<li>B</li>\n</ul>\n<p>Done</p>\n";
+
+        feed(md, text, 5);
+        assertEquals(List.of("<h3>Resources</h3>", "<ul>\n<li>A</li>\n\n<li>B</li>\n</ul>", "<p>Done</p>"),
+                     r.blocks);
+    }
+
+    @Test
+    public void chunkSizeDoesNotChangeTheOutput() {
+        String text = "Para one\nstill one\n\n- a\n- b\n\n<div class='x'>\n<p>in</p>\n</div>\n\n~~~\nx\n\n~~~\nend";
+        String whole = feed(new IncrementalMarkdown(b -> "[" + b.strip() + "]"), text, text.length());
+        for (int chunk = 1; chunk < 12; chunk++) {
+            IncrementalMarkdown md = new IncrementalMarkdown(b -> "[" + b.strip() + "]");
+            assertEquals("chunk " + chunk, whole, feed(md, text, chunk));
+            assertEquals(text, md.text());
+        }
+    }
+}
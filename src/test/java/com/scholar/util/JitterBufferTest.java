@@ -0,0 +1,136 @@
+package com.scholar.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class JitterBufferTest {
+
+    private static final int FRAME_SAMPLES = AudioMixer.FRAME_SAMPLES;
+    private static final long MS = 1_000_000L;
+
+    /** Framed packet whose first payload byte is its seq (low byte), sent at seq × 20 ms. */
+    private static ByteBuffer packet(int seq) {
+        byte[] b = new byte[AudioFrame.HEADER_BYTES + 4];
+        AudioFrame.writeHeader(b, 0, 7, seq, (long) seq * FRAME_SAMPLES);
+        b[AudioFrame.HEADER_BYTES] = (byte) seq;
+        return ByteBuffer.wrap(b);
+    }
+
+    private static JitterBuffer buffer() {
+        return new JitterBuffer(64, AudioMixer.FRAME_MS, AudioMixer.SAMPLE_RATE);
+    }
+
+    @Test
+    public void headerRoundTripsAndSeqWraps() {
+        byte[] b = new byte[AudioFrame.HEADER_BYTES];
+        AudioFrame.writeHeader(b, AudioFrame.FLAG_MARKER, 0, 65_535, 0xFFFF_FFF0L);
+        AudioFrame.stampSource(b, 513);
+        ByteBuffer f = ByteBuffer.wrap(b);
+        assertTrue(AudioFrame.isFramed(f));
+        assertEquals(AudioFrame.FLAG_MARKER, AudioFrame.flags(f));
+        assertEquals(513, AudioFrame.source(f));
+        assertEquals(65_535, AudioFrame.seq(f));
+        assertEquals(0xFFFF_FFF0L, AudioFrame.timestamp(f));
+        assertEquals(1, AudioFrame.seqDiff(0, 65_535));
+        assertEquals(-1, AudioFrame.seqDiff(65_535, 0));
+        assertFalse(AudioFrame.isFramed(ByteBuffer.wrap(new byte[640])));
+    }
+
+    @Test
+    public void reordersAndReportsLoss() {
+        JitterBuffer jb = buffer();
+        byte[] out = new byte[64];
+        jb.put(packet(11), 20 * MS);
+        assertEquals("buffers to target depth first", JitterBuffer.TAKE_NOTHING, jb.take(out));
+        jb.put(packet(10), 21 * MS);                    // arrives out of order
+        jb.put(packet(13), 60 * MS);                    // 12 never arrives
+
+        assertEquals(4, jb.take(out));
+        assertEquals(10, out[0]);
+        assertEquals(4, jb.take(out));
+        assertEquals(11, out[0]);
+        assertEquals(JitterBuffer.TAKE_LOST, jb.take(out));
+        assertEquals(4, jb.take(out));
+        assertEquals(13, out[0]);
+        assertEquals(JitterBuffer.TAKE_NOTHING, jb.take(out));
+        assertEquals(3, jb.played());
+        assertEquals(1, jb.lost());
+    }
+
+    @Test
+    public void dropsLateAndDuplicateFrames() {
+        JitterBuffer jb = buffer();
+        byte[] out = new byte[64];
+        jb.put(packet(65_535), 0);
+        jb.put(packet(0), 20 * MS);                     // across the wrap
+        jb.put(packet(0), 20 * MS);
+        assertEquals(2, jb.buffered());
+        assertEquals(4, jb.take(out));
+        assertEquals((byte) 65_535, out[0]);
+        assertEquals(4, jb.take(out));
+        jb.put(packet(65_535), 60 * MS);                // already played
+        assertEquals(1, jb.late());
+        assertEquals(0, jb.buffered());
+    }
+
+    @Test
+    public void targetDepthGrowsWithJitter() {
+        JitterBuffer jb = buffer();
+        byte[] out = new byte[64];
+        // ±30 ms arrival noise around a 20 ms cadence
+        for (int seq = 0; seq < 200; seq++) {
+            long arrival = seq * 20 * MS + (seq % 2 == 0 ? 0 : 30 * MS);
+            jb.put(packet(seq), arrival);
+            jb.take(out);
+        }
+        while (jb.take(out) != JitterBuffer.TAKE_NOTHING) { }
+        assertTrue("jitter " + jb.jitterMs(), jb.jitterMs() > 20);
+        assertTrue("depth " + jb.targetDepth(), jb.targetDepth() >= 5);
+        assertTrue(jb.targetDepth() <= 10);
+    }
+
+    @Test
+    public void restartedSenderResetsInsteadOfStalling() {
+        JitterBuffer jb = buffer();
+        byte[] out = new byte[64];
+        jb.put(packet(100), 0);
+        jb.put(packet(101), 20 * MS);
+        assertEquals(4, jb.take(out));
+        jb.put(packet(5_000), 40 * MS);                 // far ahead: new stream
+        jb.put(packet(5_001), 60 * MS);
+        assertEquals(2, jb.buffered());
+        assertEquals(4, jb.take(out));
+        assertEquals((byte) 5_000, out[0]);
+    }
+
+    @Test
+    public void vadSuppressesSilenceAndSteadyNoiseButPassesSpeech() {
+        VoiceActivityDetector vad = new VoiceActivityDetector(3);
+        byte[] silence = new byte[AudioMixer.FRAME_BYTES];
+        byte[] noise = pcm(i -> (short) ((i * 7919 % 401) - 200));   // ±200 hiss
+        byte[] tone = pcm(i -> (short) (6_000 * Math.sin(i * 2 * Math.PI * 440 / AudioMixer.SAMPLE_RATE)));
+
+        for (int i = 0; i < 50; i++) assertFalse(vad.isSpeech(silence, 0, silence.length));
+        for (int i = 0; i < 50; i++) assertFalse(vad.isSpeech(noise, 0, noise.length));
+
+        assertTrue(vad.isSpeech(tone, 0, tone.length));
+        assertTrue(vad.startedTalkspurt());
+        assertTrue(vad.isSpeech(tone, 0, tone.length));
+        assertFalse(vad.startedTalkspurt());
+        for (int i = 0; i < 3; i++) assertTrue("hangover", vad.isSpeech(silence, 0, silence.length));
+        assertFalse(vad.isSpeech(silence, 0, silence.length));
+    }
+
+    private static byte[] pcm(java.util.function.IntUnaryOperator sample) {
+        byte[] b = new byte[AudioMixer.FRAME_BYTES];
+        for (int i = 0; i < AudioMixer.FRAME_SAMPLES; i++) {
+            int s = sample.applyAsInt(i);
+            b[2 * i] = (byte) (s >> 8);
+            b[2 * i + 1] = (byte) s;
+        }
+        return b;
+    }
+}
@@ -0,0 +1,39 @@
+package com.scholar.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsAreContiguousAndMonotonic() {
+        int previous = -1;
+        for (long micros = 0; micros < 1_000_000; micros += 7) {
+            int b = LatencyHistogram.bucket(micros);
+            assertTrue(b >= previous);
+            assertTrue("micros=" + micros, micros < LatencyHistogram.upperBoundMicros(b));
+            if (b > 0) assertTrue(micros >= LatencyHistogram.upperBoundMicros(b - 1));
+            previous = b;
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinBucketError() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int ms = 1; ms <= 100; ms++) h.record(ms * 1_000_000L);
+        LatencyHistogram.Snapshot s = h.snapshot();
+        assertEquals(100, s.count());
+        assertEquals(50.5, s.meanMs(), 1e-6);
+        assertEquals(50, s.p50Ms(), 50 * 0.25);
+        assertEquals(99, s.p99Ms(), 99 * 0.25);
+        assertEquals(100, s.maxMs(), 1e-6);
+    }
+
+    @Test
+    public void emptyHistogramReportsZeros() {
+        LatencyHistogram.Snapshot s = new LatencyHistogram().snapshot();
+        assertEquals(0, s.count());
+        assertEquals(0.0, s.p99Ms(), 0.0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.scholar.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LeaderboardTest {
+
+    private static List<String> ids(List<Leaderboard.Entry> entries) {
+        List<String> out = new ArrayList<>();
+        for (Leaderboard.Entry e : entries) out.add(e.userId());
+        return out;
+    }
+
+    @Test
+    public void ranksByXpThenStreakThenId() {
+        Leaderboard b = new Leaderboard();
+        b.put("c", "carol", 50, 1);
+        b.put("a", "alice", 50, 3);
+        b.put("d", "dave", 10, 9);
+        b.put("b", "bob",   50, 1);
+
+        assertEquals(List.of("a", "b", "c", "d"), ids(b.top(10)));
+        assertEquals(1, b.rankOf("a"));
+        assertEquals(4, b.rankOf("d"));
+        assertEquals(0, b.rankOf("nobody"));
+    }
+
+    @Test
+    public void putMovesAnExistingUser() {
+        Leaderboard b = new Leaderboard();
+        b.put("a", "alice", 10, 0);
+        b.put("b", "bob",   20, 0);
+        b.put("a", null,    30, 1);     // xp credited; name kept
+
+        assertEquals(1, b.rankOf("a"));
+        assertEquals(2, b.size());
+        assertEquals("alice", b.get("a").username());
+        b.remove("a");
+        assertEquals(List.of("b"), ids(b.top(10)));
+    }
+
+    @Test
+    public void aroundIsClippedAtBothEnds() {
+        Leaderboard b = new Leaderboard();
+        for (int i = 0; i < 10; i++) b.put("u" + i, "user" + i, 100 - i, 0);
+
+        assertEquals(List.of("u3", "u4", "u5", "u6", "u7"), ids(b.around("u5", 2)));
+        assertEquals(List.of("u0", "u1", "u2"), ids(b.around("u0", 2)));
+        assertEquals(List.of("u7", "u8", "u9"), ids(b.around("u9", 2)));
+        assertTrue(b.around("nobody", 2).isEmpty());
+        assertEquals(List.of("u8", "u9"), ids(b.range(9, 5)));
+        assertTrue(b.range(11, 5).isEmpty());
+    }
+
+    @Test
+    public void reconcileKeepsNewerWritesAndDropsDeletedUsers() {
+        Leaderboard b = new Leaderboard();
+        b.load(List.of(new Leaderboard.Entry("a", "alice", 10, 0),
+                       new Leaderboard.Entry("b", "bob",   20, 0),
+                       new Leaderboard.Entry("c", "carol", 30, 0)), b.version());
+
+        long since = b.version();              // reconcile query starts…
+        b.put("a", "alice", 40, 1);            // …XP is credited meanwhile…
+        b.load(List.of(new Leaderboard.Entry("a", "alice", 10, 0),     // …query returns the old value
+                       new Leaderboard.Entry("b", "bob",   25, 0)), since);
+
+        assertEquals(40, b.get("a").xp());
+        assertEquals(25, b.get("b").xp());
+        assertNull(b.get("c"));
+        assertEquals(List.of("a", "b"), ids(b.top(10)));
+    }
+
+    @Test
+    public void ranksMatchASortedListUnderRandomUpdates() {
+        Leaderboard b = new Leaderboard();
+        Random rnd = new Random(7);
+        int[] xp = new int[500], streak = new int[500];
+        for (int step = 0; step < 20_000; step++) {
+            int u = rnd.nextInt(xp.length);
+            xp[u] += rnd.nextInt(50);
+            streak[u] = rnd.nextInt(5);
+            b.put("u" + u, "user" + u, xp[u], streak[u]);
+        }
+        List<Leaderboard.Entry> expected = new ArrayList<>();
+        for (int u = 0; u < xp.length; u++) {
+            if (b.get("u" + u) != null) expected.add(new Leaderboard.Entry("u" + u, "user" + u, xp[u], streak[u]));
+        }
+        expected.sort(Comparator.comparingInt(Leaderboard.Entry::xp).reversed()
+                .thenComparing(Comparator.comparingInt(Leaderboard.Entry::streak).reversed())
+                .thenComparing(Leaderboard.Entry::userId));
+
+        assertEquals(expected, b.top(expected.size()));
+        for (int r = 0; r < expected.size(); r++) {
+            assertEquals(r + 1, b.rankOf(expected.get(r).userId()));
+        }
+    }
+}
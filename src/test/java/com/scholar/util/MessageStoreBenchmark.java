@@ -0,0 +1,111 @@
+package com.scholar.util;
+
+import com.scholar.model.ChatCursor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per-tick cost of a chat refresh: full latest-window re-fetch + rebuild
+ * (old StudyRoomController.renderChat) vs since(cursor) + MessageStore append.
+ *
+ * A simulated room gets a message on ~5% of 3 s ticks. The "server" is an
+ * in-memory list answering the same two queries the services run; since()
+ * re-reads ChatCursor.LOOKBACK (5 s) before the cursor, so an idle tick still
+ * returns the cursor row and anything in the 5 s before it. Reported:
+ * - rows and result bytes per tick (pg DataRow framing: 7 B + 4 B/column + text values)
+ * - FX nodes created per tick (each bubble = HBox + VBox + 2–3 Labels ≈ 5 nodes)
+ * for all ticks and for idle ticks only.
+ *
+ * Run: java -cp <test classpath> com.scholar.util.MessageStoreBenchmark [ticks]
+ */
+public class MessageStoreBenchmark {
+
+    private static final int    WINDOW          = 80;     // getChatMessages LIMIT
+    private static final double MESSAGE_RATE    = 0.05;   // messages per tick
+    private static final int    NODES_PER_BUBBLE = 5;
+    private static final int    LOOKBACK_SECONDS = 5;     // ChatCursor.LOOKBACK
+    private static final int    TICK_SECONDS     = 3;
+
+    private record Row(String id, String sender, String content, String createdAt, LocalDateTime at) {}
+
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        Random rnd = new Random(7);
+        List<Row> table = new ArrayList<>();
+        LocalDateTime clock = LocalDateTime.of(2026, 1, 1, 9, 0);
+        for (int i = 0; i < 200; i++) table.add(row(i, clock = clock.plusSeconds(30), rnd));
+
+        MessageStore<Row> store = new MessageStore<>(Row::id, Row::createdAt, 200);
+        Totals full = new Totals(), cursor = new Totals();
+
+        for (int t = 0; t < ticks; t++) {
+            clock = clock.plusSeconds(TICK_SECONDS);
+            boolean idle = rnd.nextDouble() >= MESSAGE_RATE;
+            if (!idle) table.add(row(table.size(), clock, rnd));
+
+            // before: latest window every tick, clear + rebuild every bubble
+            List<Row> window = table.subList(Math.max(0, table.size() - WINDOW), table.size());
+            full.add(idle, window.size(), bytes(window), window.size() * NODES_PER_BUBBLE);
+
+            // after: rows from the lookback on, bubbles only for unseen rows
+            AtomicReference<List<Row>> fetched = new AtomicReference<>(List.of());
+            List<Row> fresh = store.fetchNewer(after -> {
+                fetched.set(since(table, after));
+                return fetched.get();
+            });
+            cursor.add(idle, fetched.get().size(), bytes(fetched.get()), fresh.size() * NODES_PER_BUBBLE);
+        }
+
+        System.out.printf("%d ticks, %d with a new message%n", ticks, full.ticks - full.idleTicks);
+        full.print("full window + rebuild");
+        cursor.print("since(cursor) + append");
+    }
+
+    /** created_at >= cursor - LOOKBACK, as the services query it; MessageStore drops the repeats. */
+    private static List<Row> since(List<Row> table, ChatCursor after) {
+        if (after == null) return new ArrayList<>(table.subList(Math.max(0, table.size() - WINDOW), table.size()));
+        LocalDateTime from = LocalDateTime.parse(after.createdAt().substring(0, 26).replace(' ', 'T'))
+            .minusSeconds(LOOKBACK_SECONDS);
+        List<Row> out = new ArrayList<>();
+        for (Row r : table) {
+            if (!r.at().isBefore(from)) out.add(r);
+        }
+        return out;
+    }
+
+    private static Row row(int n, LocalDateTime at, Random rnd) {
+        String content = "message " + n + " " + "lorem ipsum dolor sit amet ".repeat(1 + rnd.nextInt(4));
+        return new Row(String.format("%08x-0000-4000-8000-%012x", n, n), "student" + rnd.nextInt(12),
+            content, at.withNano(123_456_000).toString().replace('T', ' ') + "+06", at.withNano(123_456_000));
+    }
+
+    private static long bytes(List<Row> rows) {
+        long b = 0;
+        for (Row r : rows) {
+            b += 7 + 4 * 4;
+            b += r.id().length() + r.sender().getBytes(StandardCharsets.UTF_8).length
+               + r.content().getBytes(StandardCharsets.UTF_8).length + r.createdAt().length();
+        }
+        return b;
+    }
+
+    private static final class Totals {
+        long ticks, idleTicks, rows, bytes, nodes, idleRows, idleBytes, idleNodes;
+
+        void add(boolean idle, int rows, long bytes, int nodes) {
+            ticks++; this.rows += rows; this.bytes += bytes; this.nodes += nodes;
+            if (idle) { idleTicks++; idleRows += rows; idleBytes += bytes; idleNodes += nodes; }
+        }
+
+        void print(String label) {
+            System.out.printf("%-24s all ticks: %6.1f rows %9.1f B %7.1f nodes | idle ticks: %6.1f rows %9.1f B %7.1f nodes%n",
+                label, (double) rows / ticks, (double) bytes / ticks, (double) nodes / ticks,
+                (double) idleRows / idleTicks, (double) idleBytes / idleTicks, (double) idleNodes / idleTicks);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.scholar.util;
+
+import com.scholar.model.ChatCursor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MessageStoreTest {
+
+    private record Msg(String id, String at) {}
+
+    private static MessageStore<Msg> store(int capacity) {
+        return new MessageStore<>(Msg::id, Msg::at, capacity);
+    }
+
+    @Test
+    public void fetchAdvancesCursorAndReturnsOnlyNewRows() {
+        MessageStore<Msg> s = store(10);
+        List<ChatCursor> seen = new ArrayList<>();
+
+        List<Msg> first = s.fetchNewer(after -> { seen.add(after); return List.of(new Msg("a", "t1"), new Msg("b", "t2")); });
+        assertEquals(2, first.size());
+        assertEquals(new ChatCursor("t2", "b"), s.cursor());
+
+        // server returns an overlapping row (same created_at tie) plus one new one
+        List<Msg> second = s.fetchNewer(after -> { seen.add(after); return List.of(new Msg("b", "t2"), new Msg("c", "t3")); });
+        assertEquals(List.of(new Msg("c", "t3")), second);
+        assertNull(seen.get(0));
+        assertEquals(new ChatCursor("t2", "b"), seen.get(1));
+        assertTrue(s.fetchNewer(after -> List.of()).isEmpty());
+        assertEquals(new ChatCursor("t3", "c"), s.cursor());
+    }
+
+    @Test
+    public void lateCommittedRowInsideTheLookbackIsReported() {
+        MessageStore<Msg> s = store(10);
+        s.fetchNewer(after -> List.of(new Msg("a", "t1"), new Msg("c", "t3")));
+
+        // "b" was stamped t2 but committed after the fetch above; the lookback re-reads from before t3
+        List<Msg> fresh = s.fetchNewer(after -> List.of(new Msg("b", "t2"), new Msg("c", "t3"), new Msg("d", "t4")));
+        assertEquals(List.of(new Msg("b", "t2"), new Msg("d", "t4")), fresh);
+        assertEquals(new ChatCursor("t4", "d"), s.cursor());
+    }
+
+    @Test
+    public void pushedRowsAreDedupedButDoNotMoveCursor() {
+        MessageStore<Msg> s = store(10);
+        s.fetchNewer(after -> List.of(new Msg("a", "t1")));
+        assertTrue(s.appendPushed(new Msg("b", "t2")));
+        assertFalse(s.appendPushed(new Msg("b", "t2")));
+        assertEquals(new ChatCursor("t1", "a"), s.cursor());
+
+        List<Msg> fresh = s.fetchNewer(after -> List.of(new Msg("b", "t2"), new Msg("c", "t3")));
+        assertEquals(List.of(new Msg("c", "t3")), fresh);
+        assertEquals(3, s.size());
+    }
+
+    @Test
+    public void clearDiscardsFetchFromPreviousConversation() {
+        MessageStore<Msg> s = store(10);
+        List<Msg> stale = s.fetchNewer(after -> {
+            s.clear();                                      // user switched chats mid-fetch
+            // a fetch for the new conversation is not blocked by the stale one
+            assertEquals(1, s.fetchNewer(a -> List.of(new Msg("x", "t9"))).size());
+            return List.of(new Msg("old", "t1"));
+        });
+        assertTrue(stale.isEmpty());
+        assertEquals(List.of(new Msg("x", "t9")), s.messages());
+        assertEquals(new ChatCursor("t9", "x"), s.cursor());
+    }
+
+    @Test
+    public void overlappingFetchIsSingleFlight() {
+        MessageStore<Msg> s = store(10);
+        List<Msg> first = s.fetchNewer(after -> {
+            assertTrue(s.fetchNewer(a -> List.of(new Msg("dup", "t0"))).isEmpty());
+            return List.of(new Msg("a", "t1"));
+        });
+        assertEquals(1, first.size());
+        assertEquals(1, s.size());
+    }
+
+    @Test
+    public void evictsOldestBeyondCapacity() {
+        MessageStore<Msg> s = store(3);
+        for (int i = 0; i < 5; i++) s.appendPushed(new Msg("m" + i, "t" + i));
+        assertEquals(List.of(new Msg("m2", "t2"), new Msg("m3", "t3"), new Msg("m4", "t4")), s.messages());
+    }
+}
@@ -0,0 +1,90 @@
+package com.scholar.util;
+
+import com.scholar.model.Poll;
+import com.scholar.model.PollOption;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PollTalliesTest {
+
+    private static Poll poll(String id, int a, int b, boolean votedA) {
+        return new Poll(id, "q", "me",
+                List.of(new PollOption(id + "a", "A", a, votedA), new PollOption(id + "b", "B", b, false)), a + b);
+    }
+
+    private static Map<String, Long> versions(String id, long a, long b) {
+        return Map.of(id + "a", a, id + "b", b);
+    }
+
+    @Test
+    public void pushedCountsOverlayWithoutRequery() {
+        PollTallies t = new PollTallies();
+        Poll p = poll("p", 3, 1, false);
+        t.load(List.of(p), versions("p", 3, 1), t.version());
+
+        assertTrue(t.apply("p", "pb", 2, 2));
+        t.voted("p", "pb");
+        Poll live = t.overlay(p);
+        assertEquals(3, live.options().get(0).voteCount());
+        assertEquals(2, live.options().get(1).voteCount());
+        assertTrue(live.options().get(1).votedByMe());
+        assertEquals(5, live.totalVotes());
+    }
+
+    @Test
+    public void unknownOptionOrPollAsksForRefetch() {
+        PollTallies t = new PollTallies();
+        t.load(List.of(poll("p", 0, 0, false)), versions("p", 0, 0), t.version());
+        assertFalse(t.apply("p", "new-option", 1, 1));
+        assertFalse(t.apply("other", "x", 1, 1));
+    }
+
+    @Test
+    public void slowLoadDoesNotRollBackNewerPush() {
+        PollTallies t = new PollTallies();
+        t.load(List.of(poll("p", 1, 1, true)), versions("p", 1, 1), t.version());
+
+        long since = t.version();                   // query starts…
+        t.apply("p", "pa", 5, 5);                   // …a vote is pushed meanwhile…
+        t.voted("p", "pb");
+        t.load(List.of(poll("p", 4, 1, true)), versions("p", 4, 1), since);   // …query returns older numbers
+
+        Poll live = t.overlay(poll("p", 0, 0, false));
+        assertEquals(5, live.options().get(0).voteCount());
+        assertEquals(1, live.options().get(1).voteCount());
+        assertTrue(live.options().get(1).votedByMe());
+
+        t.load(List.of(poll("p", 6, 2, false)), versions("p", 6, 2), t.version());    // a later load wins
+        live = t.overlay(poll("p", 0, 0, false));
+        assertEquals(6, live.options().get(0).voteCount());
+        assertFalse(live.options().get(1).votedByMe());
+    }
+
+    @Test
+    public void deletedPollsAreForgotten() {
+        PollTallies t = new PollTallies();
+        t.load(List.of(poll("p", 1, 0, false), poll("q", 2, 0, false)),
+                Map.of("pa", 1L, "pb", 0L, "qa", 2L, "qb", 0L), t.version());
+        t.load(List.of(poll("q", 2, 0, false)), versions("q", 2, 0), t.version());
+        assertFalse(t.apply("p", "pa", 9, 9));
+        Poll gone = poll("p", 1, 0, false);
+        assertSame(gone, t.overlay(gone));
+    }
+
+    @Test
+    public void lateReturningDoesNotRollBackNewerEvent() {
+        PollTallies t = new PollTallies();
+        t.load(List.of(poll("p", 1, 0, false)), versions("p", 1, 0), t.version());
+
+        assertTrue(t.apply("p", "pa", 3, 3));       // another vote's event arrives first…
+        assertTrue(t.apply("p", "pa", 2, 2));       // …then my vote's RETURNING (older)
+        assertEquals(3, t.overlay(poll("p", 0, 0, false)).options().get(0).voteCount());
+
+        assertTrue(t.apply("p", "pa", 4, 4));
+        assertEquals(4, t.overlay(poll("p", 0, 0, false)).options().get(0).voteCount());
+    }
+}
@@ -0,0 +1,36 @@
+package com.scholar.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RollingLatencyTest {
+
+    @Test
+    public void percentilesCoverSuccessesAndErrorRateCoversAll() {
+        RollingLatency r = new RollingLatency(10);
+        assertEquals(new RollingLatency.Snapshot(0, 0, 0, 0), r.snapshot());
+
+        for (int ms = 1; ms <= 8; ms++) r.record(ms * 1_000_000L);
+        r.recordFailure();
+        r.recordFailure();
+
+        RollingLatency.Snapshot s = r.snapshot();
+        assertEquals(10, s.samples());
+        assertEquals(4.0, s.p50Ms(), 1e-9);
+        assertEquals(8.0, s.p95Ms(), 1e-9);
+        assertEquals(0.2, s.errorRate(), 1e-9);
+    }
+
+    @Test
+    public void forgetsOutcomesOlderThanTheWindow() {
+        RollingLatency r = new RollingLatency(4);
+        for (int i = 0; i < 4; i++) r.recordFailure();
+        for (int i = 0; i < 4; i++) r.record(2_000_000);
+
+        RollingLatency.Snapshot s = r.snapshot();
+        assertEquals(4, s.samples());
+        assertEquals(0.0, s.errorRate(), 0);
+        assertEquals(2.0, s.p50Ms(), 1e-9);
+    }
+}
@@ -0,0 +1,93 @@
+package com.scholar.util;
+
+import com.scholar.model.ClassOffPeriod;
+import com.scholar.model.RecurringClass;
+import com.scholar.model.StudyTask;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class RoutineScheduleTest {
+
+    // 2026-03-02 is a Monday
+    private static final LocalDate MON = LocalDate.of(2026, 3, 2);
+
+    private static RecurringClass monday(String id, Set<LocalDate> skipped) {
+        return new RecurringClass(id, "CSE 101", "MONDAY", "10:00 AM", 50, "R-301", "CSE 101 Lecture",
+                MON, MON.plusWeeks(3), skipped);
+    }
+
+    @Test
+    public void expandsOnTheRuleWeekdayInsideItsRange() {
+        RoutineSchedule s = new RoutineSchedule();
+        s.load(List.of(monday("7", Set.of())), List.of());
+
+        assertEquals(1, s.occurrencesOn(MON).size());
+        assertEquals(1, s.occurrencesOn(MON.plusWeeks(3)).size());
+        assertTrue(s.occurrencesOn(MON.plusDays(1)).isEmpty());
+        assertTrue(s.occurrencesOn(MON.minusWeeks(1)).isEmpty());
+        assertTrue(s.occurrencesOn(MON.plusWeeks(4)).isEmpty());
+
+        StudyTask t = s.occurrencesOn(MON.plusWeeks(1)).get(0);
+        assertEquals("ROUTINE", t.type());
+        assertEquals(MON.plusWeeks(1).toString(), t.date());
+        assertEquals("CSE 101", t.title());
+        assertEquals(Integer.valueOf(50), t.durationMinutes());
+    }
+
+    @Test
+    public void skippedDatesAndClassOffDaysHaveNoOccurrences() {
+        RoutineSchedule s = new RoutineSchedule();
+        s.load(List.of(monday("7", Set.of(MON.plusWeeks(1)))),
+               List.of(new ClassOffPeriod("1", MON.plusWeeks(2).minusDays(2), MON.plusWeeks(2), "Eid")));
+
+        assertTrue(s.hasOccurrences(MON));
+        assertFalse(s.hasOccurrences(MON.plusWeeks(1)));     // skipped
+        assertFalse(s.hasOccurrences(MON.plusWeeks(2)));     // class off
+        assertTrue(s.occurrencesOn(MON.plusWeeks(2)).isEmpty());
+        assertEquals("Eid", s.classOffOn(MON.plusWeeks(2)).reason());
+        assertNull(s.classOffOn(MON));
+    }
+
+    @Test
+    public void occurrencesComeOutInStartOrder() {
+        RoutineSchedule s = new RoutineSchedule();
+        RecurringClass late  = new RecurringClass("1", "EEE 201", "MONDAY", "02:00 PM", 50, "", "",
+                MON, MON.plusWeeks(3), Set.of());
+        RecurringClass early = new RecurringClass("2", "MATH 101", "MONDAY", "8:00 AM", 50, "", "",
+                MON, MON.plusWeeks(3), Set.of());
+        s.load(List.of(late, monday("3", Set.of()), early), List.of());
+
+        List<StudyTask> day = s.occurrencesOn(MON);
+        assertEquals("MATH 101", day.get(0).title());
+        assertEquals("CSE 101", day.get(1).title());
+        assertEquals("EEE 201", day.get(2).title());
+        assertTrue(s.hasClassesOn(MON));
+        assertFalse(s.hasClassesOn(MON.plusDays(1)));
+    }
+
+    @Test
+    public void occurrenceIdsRoundTrip() {
+        StudyTask t = RoutineSchedule.occurrence(monday("42", Set.of()), MON);
+
+        assertTrue(RoutineSchedule.isOccurrenceId(t.id()));
+        assertFalse(RoutineSchedule.isOccurrenceId("42"));
+        assertEquals("42", RoutineSchedule.ruleId(t.id()));
+        assertEquals(MON, RoutineSchedule.occurrenceDate(t.id()));
+    }
+
+    @Test
+    public void rulesWithAnUnknownDayAreIgnored() {
+        RoutineSchedule s = new RoutineSchedule();
+        RecurringClass bad = new RecurringClass("8", "X", "FUNDAY", "9:00 AM", 60, "", "",
+                MON, MON.plusWeeks(3), Set.of());
+        s.load(List.of(bad, monday("7", Set.of())), null);
+
+        assertEquals(1, s.occurrencesOn(MON).size());
+        assertNull(s.classOffOn(MON));
+    }
+}
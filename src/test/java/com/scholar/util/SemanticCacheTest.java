@@ -0,0 +1,72 @@
+package com.scholar.util;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SemanticCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    private SemanticCache<String> cache(int capacity) {
+        return new SemanticCache<>(capacity, 60_000, 0.95, now::get);
+    }
+
+    @Test
+    public void hitsNearVectorsInTheSameScopeOnly() {
+        SemanticCache<String> c = cache(8);
+        assertTrue(c.put("os", new float[] {1, 0, 0}, "answer", Set.of(1), c.stamp()));
+
+        assertEquals("answer", c.get("os", new float[] {2, 0.1f, 0}));   // scaled, cos ≈ 0.999
+        assertNull(c.get("os", new float[] {1, 1, 0}));                  // cos ≈ 0.71
+        assertNull(c.get("dbms", new float[] {1, 0, 0}));                // other scope
+
+        SemanticCache.Stats s = c.stats();
+        assertEquals(1, s.hits());
+        assertEquals(2, s.misses());
+        assertEquals(1 / 3.0, s.hitRate(), 1e-9);
+    }
+
+    @Test
+    public void invalidatesEntriesCitingAChangedResource() {
+        SemanticCache<String> c = cache(8);
+        c.put("s", new float[] {1, 0}, "a", Set.of(1, 2), c.stamp());
+        c.put("s", new float[] {0, 1}, "b", Set.of(3), c.stamp());
+
+        assertEquals(1, c.invalidate(List.of(2)));
+        assertNull(c.get("s", new float[] {1, 0}));
+        assertEquals("b", c.get("s", new float[] {0, 1}));
+    }
+
+    @Test
+    public void refusesValuesBuiltBeforeTheirSourcesChanged() {
+        SemanticCache<String> c = cache(8);
+        long since = c.stamp();
+        c.invalidate(List.of(7));                                        // resource 7 changed mid-build
+        assertFalse(c.put("s", new float[] {1, 0}, "stale", Set.of(7), since));
+        assertTrue(c.put("s", new float[] {1, 0}, "fresh", Set.of(8), since));
+        assertEquals("fresh", c.get("s", new float[] {1, 0}));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedAndExpired() {
+        SemanticCache<String> c = cache(2);
+        c.put("s", new float[] {1, 0, 0}, "x", Set.of(), c.stamp());
+        c.put("s", new float[] {0, 1, 0}, "y", Set.of(), c.stamp());
+        assertEquals("x", c.get("s", new float[] {1, 0, 0}));           // y is now eldest
+        c.put("s", new float[] {0, 0, 1}, "z", Set.of(), c.stamp());
+
+        assertNull(c.get("s", new float[] {0, 1, 0}));
+        assertEquals(2, c.size());
+        assertEquals(1, c.stats().evicted());
+
+        now.addAndGet(60_001);
+        assertNull(c.get("s", new float[] {1, 0, 0}));
+        assertEquals(0, c.size());
+        assertEquals(2, c.stats().expired());
+    }
+}
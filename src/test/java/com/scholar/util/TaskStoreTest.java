@@ -0,0 +1,103 @@
+package com.scholar.util;
+
+import com.scholar.model.StudyTask;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TaskStoreTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 2);
+
+    private static StudyTask task(String id, String date, String time, String type, String status) {
+        return new StudyTask(id, "t" + id, date, time, 60, null, type, null, "student",
+                null, null, status, "Medium");
+    }
+
+    private static List<String> ids(List<StudyTask> tasks) {
+        List<String> out = new ArrayList<>();
+        for (StudyTask t : tasks) out.add(t.id());
+        return out;
+    }
+
+    @Test
+    public void parsesStartTimesOnce() {
+        assertEquals(TaskStore.ANYTIME, TaskStore.startMinutes("Anytime"));
+        assertEquals(TaskStore.ANYTIME, TaskStore.startMinutes(null));
+        assertEquals(9 * 60 + 5, TaskStore.startMinutes("09:05 AM"));
+        assertEquals(9 * 60 + 5, TaskStore.startMinutes("9:05 am"));
+        assertEquals(12 * 60, TaskStore.startMinutes("12:00 PM"));
+        assertEquals(0, TaskStore.startMinutes("12:00 AM"));
+        assertEquals(TaskStore.UNTIMED, TaskStore.startMinutes("after lunch"));
+    }
+
+    @Test
+    public void dayBucketsAreOrderedByStartTime() {
+        TaskStore s = new TaskStore();
+        s.load(List.of(
+            task("1", DAY.toString(), "02:00 PM", "PERSONAL", "PENDING"),
+            task("2", DAY.toString(), "Anytime",  "PERSONAL", "PENDING"),
+            task("3", DAY.toString(), "??",       "NOTICE",   null),
+            task("4", DAY.toString(), "09:00 AM", "PERSONAL", "PENDING"),
+            task("5", DAY.plusDays(1).toString(), "08:00 AM", "PERSONAL", "PENDING"),
+            task("6", null, "08:00 AM", "PERSONAL", "BACKLOG")));
+
+        assertEquals(List.of("2", "4", "1", "3"), ids(s.onDate(DAY)));
+        assertEquals(List.of("5"), ids(s.onDate(DAY.plusDays(1))));
+        assertTrue(s.onDate(DAY.minusDays(1)).isEmpty());
+        assertFalse(s.hasTasksOn(DAY.minusDays(1)));
+        assertEquals(List.of("6"), ids(s.withTypeAndStatus("PERSONAL", "BACKLOG")));
+        assertEquals(6, s.size());
+    }
+
+    @Test
+    public void replaceMovesATaskBetweenBuckets() {
+        TaskStore s = new TaskStore();
+        StudyTask t = task("1", DAY.toString(), "10:00 AM", "PERSONAL", "PENDING");
+        s.add(t);
+        s.add(task("2", DAY.toString(), "11:00 AM", "PERSONAL", "PENDING"));
+
+        s.replace(t, task("1", DAY.toString(), "10:00 AM", "PERSONAL", "COMPLETED"));
+        assertEquals(List.of("1"), ids(s.withTypeAndStatus("PERSONAL", "COMPLETED")));
+        assertEquals(List.of("2"), ids(s.withTypeAndStatus("PERSONAL", "PENDING")));
+
+        s.replace(t, task("1", DAY.plusDays(3).toString(), "Anytime", "PERSONAL", "PENDING"));
+        assertEquals(List.of("2"), ids(s.onDate(DAY)));
+        assertEquals(List.of("1"), ids(s.onDate(DAY.plusDays(3))));
+        assertTrue(s.withTypeAndStatus("PERSONAL", "COMPLETED").isEmpty());
+
+        assertTrue(s.remove(task("2", null, null, null, null)));     // matched by id
+        assertFalse(s.hasTasksOn(DAY));
+        assertEquals(1, s.size());
+    }
+
+    @Test
+    public void unsavedTasksAreKeyedByValue() {
+        TaskStore s = new TaskStore();
+        StudyTask a = task(null, DAY.toString(), "10:00 AM", "PERSONAL", "PENDING");
+        StudyTask b = task(null, DAY.toString(), "11:00 AM", "PERSONAL", "PENDING");
+        s.addAll(List.of(a, b));
+
+        assertEquals(2, s.onDate(DAY).size());
+        s.remove(a);
+        assertEquals(List.of(b), s.onDate(DAY));
+    }
+
+    @Test
+    public void mergeKeepsStartOrder() {
+        List<StudyTask> stored = List.of(
+            task("a", DAY.toString(), "Anytime", "PERSONAL", "PENDING"),
+            task("b", DAY.toString(), "10:00 AM", "PERSONAL", "PENDING"));
+        List<StudyTask> routine = List.of(
+            task("r1", DAY.toString(), "08:00 AM", "ROUTINE", null),
+            task("r2", DAY.toString(), "10:00 AM", "ROUTINE", null),
+            task("r3", DAY.toString(), "03:00 PM", "ROUTINE", null));
+
+        assertEquals(List.of("a", "r1", "b", "r2", "r3"), ids(TaskStore.mergeByStart(stored, routine)));
+        assertEquals(List.of("r1", "r2", "r3"), ids(TaskStore.mergeByStart(List.of(), routine)));
+    }
+}
@@ -0,0 +1,85 @@
+package com.scholar.util;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Allocation-per-query microbenchmark for the embedding → pgvector path.
+ *
+ * before: response String → JSONObject → JSONArray → new float[] →
+ *         toVectorString() → literal encoded to bytes twice (two ?::vector binds)
+ * after:  VectorCodec.readEmbedding() into a reused float[] →
+ *         one binary float4[] parameter (what pgjdbc sends for a primitive float[])
+ *
+ * Uses com.sun.management.ThreadMXBean#getThreadAllocatedBytes (HotSpot).
+ *
+ * Run: java -cp <test classpath> com.scholar.util.VectorCodecBenchmark [iterations]
+ */
+public class VectorCodecBenchmark {
+
+    private static final int DIM = 1536;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        String response = fakeResponse(new Random(42));
+
+        com.sun.management.ThreadMXBean mx =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+
+        // Warm-up both paths so JIT / class loading is not counted
+        float[] reused = new float[DIM];
+        long sink = 0;
+        for (int i = 0; i < 500; i++) sink += before(response) + after(response, reused);
+
+        long a0 = mx.getThreadAllocatedBytes(tid), t0 = System.nanoTime();
+        for (int i = 0; i < iterations; i++) sink += before(response);
+        long a1 = mx.getThreadAllocatedBytes(tid), t1 = System.nanoTime();
+        for (int i = 0; i < iterations; i++) sink += after(response, reused);
+        long a2 = mx.getThreadAllocatedBytes(tid), t2 = System.nanoTime();
+
+        System.out.printf("before: %,9d bytes/query  %8.1f µs/query%n",
+            (a1 - a0) / iterations, (t1 - t0) / 1e3 / iterations);
+        System.out.printf("after : %,9d bytes/query  %8.1f µs/query%n",
+            (a2 - a1) / iterations, (t2 - t1) / 1e3 / iterations);
+        System.out.println("(sink " + sink + ")");
+    }
+
+    /** Legacy path: org.json tree + decimal literal sent twice. */
+    private static long before(String body) {
+        String copy = new String(body.toCharArray());       // response.body().string()
+        JSONArray emb = new JSONObject(copy).getJSONArray("data")
+            .getJSONObject(0).getJSONArray("embedding");
+        float[] v = new float[emb.length()];
+        for (int i = 0; i < v.length; i++) v[i] = emb.getFloat(i);
+        String literal = VectorCodec.toVectorString(v);
+        byte[] first  = literal.getBytes(StandardCharsets.UTF_8);
+        byte[] second = literal.getBytes(StandardCharsets.UTF_8);
+        return first.length + second.length;
+    }
+
+    /** New path: streamed parse into a reused buffer + one binary float4[] bind. */
+    private static long after(String body, float[] reused) throws Exception {
+        VectorCodec.readEmbedding(new StringReader(body), reused);
+        ByteBuffer param = ByteBuffer.allocate(20 + 8 * reused.length);  // array header + (len, value) per element
+        param.putInt(1).putInt(0).putInt(700).putInt(reused.length).putInt(1);
+        for (float f : reused) param.putInt(4).putFloat(f);
+        return param.position();
+    }
+
+    private static String fakeResponse(Random rnd) {
+        StringBuilder sb = new StringBuilder(
+            "{\"object\":\"list\",\"data\":[{\"object\":\"embedding\",\"index\":0,\"embedding\":[");
+        for (int i = 0; i < DIM; i++) {
+            if (i > 0) sb.append(',');
+            sb.append((float) (rnd.nextGaussian() * 0.03));
+        }
+        return sb.append("]}],\"model\":\"openai/text-embedding-3-small\"}").toString();
+    }
+}
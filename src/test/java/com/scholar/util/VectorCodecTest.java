@@ -0,0 +1,73 @@
+package com.scholar.util;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class VectorCodecTest {
+
+    private static final String RESPONSE = """
+        {"object":"list","data":[
+          {"object":"embedding","index":0,"embedding":[0.5, -1.25e-3,3E2 ,-0.0000123]},
+          {"object":"embedding","index":1,"embedding":[1,2,3,4]}
+        ],"model":"openai/text-embedding-3-small","usage":{"prompt_tokens":5}}
+        """;
+
+    @Test
+    public void readEmbeddings_parsesEveryArrayInOrder() throws Exception {
+        float[][] out = new float[2][4];
+        int[] lengths = new int[2];
+        int found = VectorCodec.readEmbeddings(new StringReader(RESPONSE), out, lengths);
+
+        assertEquals(2, found);
+        assertEquals(4, lengths[0]);
+        assertEquals(0.5, out[0][0], 1e-7);
+        assertEquals(-0.00125, out[0][1], 1e-9);
+        assertEquals(300.0, out[0][2], 1e-5);
+        assertEquals(-0.0000123, out[0][3], 1e-11);
+        assertEquals(4.0, out[1][3], 1e-7);
+    }
+
+    @Test
+    public void readEmbeddings_placesVectorsByIndexNotResponseOrder() throws Exception {
+        String reordered = """
+            {"data":[
+              {"index":1,"embedding":[1,1]},
+              {"embedding":[0,0],"object":"embedding","index":0}
+            ]}
+            """;
+        float[][] out = new float[2][2];
+        assertEquals(2, VectorCodec.readEmbeddings(new StringReader(reordered), out, new int[2]));
+        assertEquals(0.0, out[0][0], 0);
+        assertEquals(1.0, out[1][0], 0);
+    }
+
+    @Test
+    public void readEmbeddings_rejectsDuplicateOrMissingIndexes() {
+        String duplicate = "{\"data\":[{\"index\":0,\"embedding\":[1]},{\"index\":0,\"embedding\":[2]}]}";
+        String missing   = "{\"data\":[{\"embedding\":[1]},{\"index\":1,\"embedding\":[2]}]}";
+        for (String body : new String[] {duplicate, missing}) {
+            try {
+                VectorCodec.readEmbeddings(new StringReader(body), new float[2][1], new int[2]);
+                fail("accepted " + body);
+            } catch (java.io.IOException expected) {
+                // the batch fails rather than pairing inputs with the wrong vectors
+            }
+        }
+    }
+
+    @Test
+    public void readEmbedding_reportsDimensionMismatchAndErrors() throws Exception {
+        float[] small = new float[2];
+        assertEquals(4, VectorCodec.readEmbedding(new StringReader(RESPONSE), small));
+        assertEquals(0, VectorCodec.readEmbedding(
+            new StringReader("{\"error\":{\"message\":\"rate limited\"}}"), small));
+    }
+
+    @Test
+    public void toVectorString_matchesPgvectorLiteral() {
+        assertEquals("[0.5,-1.0,2.0]", VectorCodec.toVectorString(new float[]{0.5f, -1f, 2f}));
+    }
+}
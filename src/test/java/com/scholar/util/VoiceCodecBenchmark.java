@@ -0,0 +1,42 @@
+package com.scholar.util;
+
+/**
+ * Encode / decode throughput of each VoiceCodec on 20 ms voice frames,
+ * with the wire size per frame and the resulting per-speaker bitrate
+ * (payload only; the AudioFrame header adds 4 kbit/s at 50 frames/s).
+ *
+ * Run: java -cp <test classpath> com.scholar.util.VoiceCodecBenchmark [frames]
+ */
+public class VoiceCodecBenchmark {
+
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        byte[][] input = new byte[50][];
+        for (int f = 0; f < input.length; f++) input[f] = VoiceCodecTest.speechFrame(8_000, f);
+        for (VoiceCodec.Format format : VoiceCodec.Format.values()) run(format, input, frames);
+    }
+
+    private static void run(VoiceCodec.Format format, byte[][] input, int frames) {
+        VoiceCodec encoder = format.newCodec();
+        VoiceCodec decoder = format.newCodec();
+        byte[] encoded = new byte[encoder.maxEncodedBytes(AudioMixer.FRAME_BYTES)];
+        byte[] decoded = new byte[AudioMixer.FRAME_BYTES];
+
+        long sink = 0;
+        int size = 0;
+        for (int i = 0; i < frames / 4; i++) {                          // warm-up
+            size = encoder.encode(input[i % input.length], 0, AudioMixer.FRAME_BYTES, encoded, 0);
+            sink += decoder.decode(encoded, 0, size, decoded, 0);
+        }
+        long t0 = System.nanoTime();
+        for (int i = 0; i < frames; i++) sink += encoder.encode(input[i % input.length], 0, AudioMixer.FRAME_BYTES, encoded, 0);
+        long t1 = System.nanoTime();
+        for (int i = 0; i < frames; i++) sink += decoder.decode(encoded, 0, size, decoded, 0);
+        long t2 = System.nanoTime();
+
+        double encUs = (t1 - t0) / 1e3 / frames, decUs = (t2 - t1) / 1e3 / frames;
+        System.out.printf("%-5s  %4d B/frame  %6.1f kbit/s  (%.2fx)   encode %6.3f µs/frame (%,.0f frames/s)   decode %6.3f µs/frame (%,.0f frames/s)  (sink %d)%n",
+            format.wireName, size, size * 8 * 50 / 1000.0, AudioMixer.FRAME_BYTES / (double) size,
+            encUs, 1e6 / encUs, decUs, 1e6 / decUs, sink);
+    }
+}
@@ -0,0 +1,82 @@
+package com.scholar.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class VoiceCodecTest {
+
+    /** 20 ms of a 440 Hz + 1.3 kHz voice-like mix at the given amplitude, big-endian PCM. */
+    static byte[] speechFrame(int amplitude, int frameIndex) {
+        byte[] b = new byte[AudioMixer.FRAME_BYTES];
+        for (int i = 0; i < AudioMixer.FRAME_SAMPLES; i++) {
+            double t = (frameIndex * AudioMixer.FRAME_SAMPLES + i) / (double) AudioMixer.SAMPLE_RATE;
+            int s = (int) (amplitude * (0.7 * Math.sin(2 * Math.PI * 440 * t) + 0.3 * Math.sin(2 * Math.PI * 1300 * t)));
+            b[2 * i] = (byte) (s >> 8);
+            b[2 * i + 1] = (byte) s;
+        }
+        return b;
+    }
+
+    private static double snrDb(byte[] ref, byte[] got, int bytes) {
+        double signal = 0, noise = 0;
+        for (int i = 0; i < bytes; i += 2) {
+            int a = (short) ((ref[i] << 8) | (ref[i + 1] & 0xFF));
+            int b = (short) ((got[i] << 8) | (got[i + 1] & 0xFF));
+            signal += (double) a * a;
+            noise += (double) (a - b) * (a - b);
+        }
+        return 10 * Math.log10(signal / Math.max(noise, 1));
+    }
+
+    private static double roundTripSnr(VoiceCodec codec, int expectedBytes) {
+        VoiceCodec decoder = codec.format().newCodec();
+        byte[] encoded = new byte[codec.maxEncodedBytes(AudioMixer.FRAME_BYTES)];
+        byte[] decoded = new byte[AudioMixer.FRAME_BYTES];
+        double worst = Double.MAX_VALUE;
+        for (int f = 0; f < 20; f++) {
+            byte[] pcm = speechFrame(8_000, f);
+            int n = codec.encode(pcm, 0, pcm.length, encoded, 0);
+            assertEquals(expectedBytes, n);
+            assertEquals(AudioMixer.FRAME_BYTES, decoder.decode(encoded, 0, n, decoded, 0));
+            if (f > 0) worst = Math.min(worst, snrDb(pcm, decoded, decoded.length));
+        }
+        return worst;
+    }
+
+    @Test
+    public void muLawIsHalfSizeAndTransparentEnoughForVoice() {
+        double snr = roundTripSnr(new MuLawCodec(), AudioMixer.FRAME_BYTES / 2);
+        assertTrue("μ-law SNR " + snr, snr > 30);
+        assertEquals((byte) 0xFF, MuLawCodec.encodeSample(0));   // G.711 silence
+    }
+
+    @Test
+    public void adpcmIsQuarterSizePlusHeader() {
+        double snr = roundTripSnr(new ImaAdpcmCodec(), ImaAdpcmCodec.HEADER_BYTES + AudioMixer.FRAME_SAMPLES / 2);
+        assertTrue("ADPCM SNR " + snr, snr > 20);
+    }
+
+    @Test
+    public void adpcmFramesDecodeIndependently() {
+        ImaAdpcmCodec enc = new ImaAdpcmCodec();
+        byte[] encoded = new byte[enc.maxEncodedBytes(AudioMixer.FRAME_BYTES)];
+        byte[] a = new byte[AudioMixer.FRAME_BYTES], b = new byte[AudioMixer.FRAME_BYTES];
+        for (int f = 0; f < 5; f++) enc.encode(speechFrame(8_000, f), 0, AudioMixer.FRAME_BYTES, encoded, 0);
+        int n = enc.encode(speechFrame(8_000, 5), 0, AudioMixer.FRAME_BYTES, encoded, 0);
+        // a decoder that saw none of the earlier frames produces the same output as one that did
+        new ImaAdpcmCodec().decode(encoded, 0, n, a, 0);
+        ImaAdpcmCodec warm = new ImaAdpcmCodec();
+        warm.decode(encoded, 0, n, b, 0);
+        warm.decode(encoded, 0, n, b, 0);
+        assertArrayEquals(a, b);
+    }
+
+    @Test
+    public void negotiatesFirstSupportedFormat() {
+        assertEquals(VoiceCodec.Format.ADPCM, VoiceCodec.Format.negotiate("opus, adpcm,ulaw"));
+        assertEquals(VoiceCodec.Format.ULAW, VoiceCodec.Format.negotiate("ULAW"));
+        assertEquals(VoiceCodec.Format.PCM, VoiceCodec.Format.negotiate("opus"));
+        assertEquals(VoiceCodec.Format.PCM, VoiceCodec.Format.negotiate(null));
+    }
+}